@@ -42,6 +42,7 @@ import com.iris.agent.hal.IrisHal;
 import com.iris.agent.lifecycle.LifeCycle;
 import com.iris.agent.lifecycle.LifeCycleService;
 import com.iris.agent.util.RxIris;
+import com.iris.io.binary.BinaryHubMessageFormat;
 import com.iris.messages.PlatformMessage;
 import com.iris.protocol.ProtocolMessage;
 
@@ -83,6 +84,7 @@ public class GatewayConnection {
    private static final Supplier<Integer> CONNECT_TIMEOUT = ConfigService.supplier("iris.gateway.timeout.connect", Integer.class, 90000);
    private static final Supplier<Long> SSL_HANDSHAKE_TIMEOUT = ConfigService.supplier("iris.gateway.timeout.ssl.handshake", Long.class, 90000L);
    private static final Supplier<Long> SSL_CLOSE_NOTIFY_TIMEOUT = ConfigService.supplier("iris.gateway.timeout.ssl.closenotify", Long.class, 15000L);
+   private static final Supplier<Boolean> BINARY_FRAMING = ConfigService.supplier("iris.gateway.framing.binary", Boolean.class, true);
    private static final Supplier<Long> FAILURES_BEFORE_FALLBACK = ConfigService.supplier("iris.gatway.fallback.fails", Long.class, 25L);
    private static final Supplier<String> configConnectUri = ConfigService.supplier("iris.gateway.uri", "wss://bh.irisbylowes.com/hub/1.0");
 
@@ -438,7 +440,13 @@ public class GatewayConnection {
                         ch.pipeline().addLast("ssl", sslHandler);
                      }
 
-                     WebSocketClientHandshaker handshaker = WebSocketClientHandshakerFactory.newHandshaker(connectUri, WebSocketVersion.V13, null, false, new DefaultHttpHeaders(), WEBSOCKETS_MAX_FRAME_LENGTH);
+                     // the platform only switches to binary framing if it echoes this header
+                     DefaultHttpHeaders headers = new DefaultHttpHeaders();
+                     if (BINARY_FRAMING.get()) {
+                        headers.set(BinaryHubMessageFormat.HEADER_FRAMING, BinaryHubMessageFormat.FRAMING_BINARY);
+                     }
+
+                     WebSocketClientHandshaker handshaker = WebSocketClientHandshakerFactory.newHandshaker(connectUri, WebSocketVersion.V13, null, false, headers, WEBSOCKETS_MAX_FRAME_LENGTH);
                      GatewayHandler handler = new GatewayHandler(handshaker);
 
                      ch.pipeline()
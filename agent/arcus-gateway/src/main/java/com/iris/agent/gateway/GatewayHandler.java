@@ -35,6 +35,7 @@ import com.google.gson.JsonObject;
 import com.iris.agent.attributes.HubAttributesService;
 import com.iris.io.Deserializer;
 import com.iris.io.Serializer;
+import com.iris.io.binary.BinaryHubMessageFormat;
 import com.iris.io.json.JSON;
 import com.iris.messages.HubMessage;
 import com.iris.messages.MessageConstants;
@@ -95,6 +96,8 @@ class GatewayHandler extends SimpleChannelInboundHandler<Object> {
 
    private final AtomicBoolean authorized = new AtomicBoolean(false);
    private boolean connected;
+   // negotiated during the websocket handshake, see BinaryHubMessageFormat
+   private volatile boolean binaryFraming;
    
    private long lastPlatformMsg;
    private long lastHubMsg;
@@ -202,14 +205,8 @@ class GatewayHandler extends SimpleChannelInboundHandler<Object> {
       }
 
       try {
-         ByteBuf buffer = ctx.alloc().ioBuffer();
          byte[] payload = platformSerializer.serialize(msg);
-         ByteBufOutputStream out = new ByteBufOutputStream(buffer);
-         hubSerializer.serialize(HubMessage.createPlatform(payload), out);
-         IOUtils.closeQuietly(out);
-   
-         BinaryWebSocketFrame frame = new BinaryWebSocketFrame(buffer);
-         c.writeAndFlush(frame);
+         writeHubMessage(c, HubMessage.Type.PLATFORM, payload);
          lastHubMsg = System.nanoTime();
 
          return true;
@@ -232,14 +229,8 @@ class GatewayHandler extends SimpleChannelInboundHandler<Object> {
       }
    
       try {
-         ByteBuf buffer = ctx.alloc().ioBuffer();
          byte[] payload = protocolSerializer.serialize(msg);
-         ByteBufOutputStream out = new ByteBufOutputStream(buffer);
-         hubSerializer.serialize(HubMessage.createProtocol(payload), out);
-         IOUtils.closeQuietly(out);
-   
-         BinaryWebSocketFrame frame = new BinaryWebSocketFrame(buffer);
-         c.writeAndFlush(frame);
+         writeHubMessage(c, HubMessage.Type.PROTOCOL, payload);
          lastHubMsg = System.nanoTime();
 
          return true;
@@ -268,14 +259,7 @@ class GatewayHandler extends SimpleChannelInboundHandler<Object> {
       try {
          String spayload = JSON.toJson(lgs);
          byte[] payload = spayload.getBytes(StandardCharsets.UTF_8);
-   
-         ByteBuf buffer = c.alloc().ioBuffer();
-         ByteBufOutputStream out = new ByteBufOutputStream(buffer);
-         hubSerializer.serialize(HubMessage.createLog(payload), out);
-         IOUtils.closeQuietly(out);
-   
-         BinaryWebSocketFrame frame = new BinaryWebSocketFrame(buffer);
-         c.writeAndFlush(frame);
+         writeHubMessage(c, HubMessage.Type.LOG, payload);
    
          lastHubMsg = System.nanoTime();
       } catch (IOException ex) {
@@ -292,14 +276,7 @@ class GatewayHandler extends SimpleChannelInboundHandler<Object> {
       try {
          String spayload = JSON.toJson(metrics);
          byte[] payload = spayload.getBytes(StandardCharsets.UTF_8);
-   
-         ByteBuf buffer = c.alloc().ioBuffer();
-         OutputStream out = new ByteBufOutputStream(buffer);
-         hubSerializer.serialize(HubMessage.createMetrics(payload), out);
-         IOUtils.closeQuietly(out);
-
-         BinaryWebSocketFrame frame = new BinaryWebSocketFrame(buffer);
-         c.writeAndFlush(frame);
+         writeHubMessage(c, HubMessage.Type.METRICS, payload);
    
          lastHubMsg = System.nanoTime();
       } catch (IOException ex) {
@@ -307,6 +284,27 @@ class GatewayHandler extends SimpleChannelInboundHandler<Object> {
       }
    }
    
+   private void writeHubMessage(ChannelHandlerContext c, HubMessage.Type type, byte[] payload) throws IOException {
+      ByteBuf buffer = c.alloc().ioBuffer();
+      try {
+         if (binaryFraming) {
+            buffer.writeByte(BinaryHubMessageFormat.MAGIC);
+            buffer.writeByte(BinaryHubMessageFormat.toCode(type));
+            buffer.writeInt(payload.length);
+            buffer.writeBytes(payload);
+         } else {
+            OutputStream out = new ByteBufOutputStream(buffer);
+            hubSerializer.serialize(HubMessage.create(type, payload), out);
+            IOUtils.closeQuietly(out);
+         }
+      } catch (IOException | RuntimeException ex) {
+         buffer.release();
+         throw ex;
+      }
+
+      c.writeAndFlush(new BinaryWebSocketFrame(buffer));
+   }
+   
    boolean sendPing() {
       final ChannelHandlerContext c = ctx;
       if (c == null) {
@@ -363,7 +361,10 @@ class GatewayHandler extends SimpleChannelInboundHandler<Object> {
       lastPlatformMsg = System.nanoTime();
       Channel ch = ctx.channel();
       if (!handshaker.isHandshakeComplete()) {
-         handshaker.finishHandshake(ch, (FullHttpResponse) msg);
+         FullHttpResponse response = (FullHttpResponse) msg;
+         handshaker.finishHandshake(ch, response);
+         binaryFraming = BinaryHubMessageFormat.isFramingRequested(response.headers().get(BinaryHubMessageFormat.HEADER_FRAMING));
+         log.info("gateway handshake complete using {} framing", binaryFraming ? "binary" : "json");
 
          connected = true;
          handshakeFuture.setSuccess();
@@ -408,7 +409,7 @@ class GatewayHandler extends SimpleChannelInboundHandler<Object> {
    
    private void decodeHubFrame(ChannelHandlerContext ctx, ByteBuf buffer) {
       try {
-         HubMessage message = hubDeserializer.deserialize(new ByteBufInputStream(buffer));
+         HubMessage message = decodeHubMessage(buffer);
 
          switch (message.getType()) {
          case PROTOCOL: {
@@ -438,6 +439,22 @@ class GatewayHandler extends SimpleChannelInboundHandler<Object> {
       }
    }
    
+   private HubMessage decodeHubMessage(ByteBuf buffer) throws IOException {
+      // the platform may send either framing regardless of what was negotiated
+      int length = buffer.readableBytes();
+      if (length < BinaryHubMessageFormat.HEADER_LENGTH || buffer.getUnsignedByte(buffer.readerIndex()) != BinaryHubMessageFormat.MAGIC) {
+         return hubDeserializer.deserialize(new ByteBufInputStream(buffer));
+      }
+
+      if (buffer.hasArray()) {
+         return BinaryHubMessageFormat.decode(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), length);
+      }
+
+      byte[] frame = new byte[length];
+      buffer.getBytes(buffer.readerIndex(), frame);
+      return BinaryHubMessageFormat.decode(frame);
+   }
+   
    private void dispatch(ChannelHandlerContext ctx, PlatformMessage msg) {
       switch (msg.getMessageType()) {
       case MessageConstants.MSG_HUB_REGISTERED_REQUEST:
@@ -15,10 +15,7 @@
  */
 package com.iris.agent.router;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
@@ -36,16 +33,11 @@ abstract class AbstractMessageProcessor implements Runnable, PortInternal {
       }
    };
 
-   private static final int QUEUE_SIZE_WARN = 10;
-   private static final int QUEUE_SIZE_GRANULARITY = 10;
-
    private final String name;
    private final AtomicBoolean running = new AtomicBoolean(false);
-   private final BlockingQueue<Message> queue;
-   private final AtomicInteger queueSize = new AtomicInteger();
-   private int lastWarnQueueSize = 0;
+   private final PortQueue queue;
 
-   public AbstractMessageProcessor(String name, BlockingQueue<Message> queue) {
+   public AbstractMessageProcessor(String name, PortQueue queue) {
       this.name = name;
       this.queue = queue;
    }
@@ -65,7 +57,6 @@ abstract class AbstractMessageProcessor implements Runnable, PortInternal {
          isRingThread.set(Boolean.TRUE);
          while (true) {
             Message next = queue.take();
-            queueSize.getAndDecrement();
             if (next.isPoisonPill(this)) {
                break;
             }
@@ -95,15 +86,8 @@ abstract class AbstractMessageProcessor implements Runnable, PortInternal {
    
    @Override
    public void enqueue(@Nullable HubAddr addr, Message message, boolean snoop) throws InterruptedException {
-      queue.put(message);
-      int size = queueSize.incrementAndGet();
-      if (size >= QUEUE_SIZE_WARN) {
-         int gran = (size / QUEUE_SIZE_GRANULARITY);
-         if (gran != lastWarnQueueSize && size % QUEUE_SIZE_GRANULARITY == 0) {
-            lastWarnQueueSize = gran;
-            log.warn("queue size {}: {}", getName(), size);
-         }
-      } else if (EnvUtils.isDevTraceEnabled(log)) {
+      int size = queue.put(message);
+      if (EnvUtils.isDevTraceEnabled(log)) {
          EnvUtils.devTrace(log,"queue size {}: {}", getName(), size);
       }
    }
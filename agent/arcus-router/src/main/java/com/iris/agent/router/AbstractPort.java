@@ -15,8 +15,6 @@
  */
 package com.iris.agent.router;
 
-import java.util.concurrent.BlockingQueue;
-
 import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +30,7 @@ abstract class AbstractPort extends AbstractMessageProcessor implements PortInte
    private final Router parent;
    private final @Nullable DelegateChain chain;
 
-   public AbstractPort(Router parent, @Nullable PortHandler handler, String name, BlockingQueue<Message> queue) {
+   public AbstractPort(Router parent, @Nullable PortHandler handler, String name, PortQueue queue) {
       super(name, queue);
 
       this.parent = parent;
@@ -15,8 +15,6 @@
  */
 package com.iris.agent.router;
 
-import java.util.concurrent.BlockingQueue;
-
 import org.eclipse.jdt.annotation.Nullable;
 
 import com.google.common.base.Preconditions;
@@ -32,7 +30,7 @@ class BridgePort extends AddressMatchingPort {
    private volatile @Nullable Address platformAddress;
    private volatile @Nullable Address protocolAddress;
 
-   BridgePort(HubBridgeAddress address, Router parent, PortHandler handler, String name, BlockingQueue<Message> queue) {
+   BridgePort(HubBridgeAddress address, Router parent, PortHandler handler, String name, PortQueue queue) {
       super(parent, handler, name, queue);
 
       Preconditions.checkNotNull(address, "bridge disruptor port only works with non-null device protocol addresses");
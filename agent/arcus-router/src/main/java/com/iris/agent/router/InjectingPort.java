@@ -15,8 +15,6 @@
  */
 package com.iris.agent.router;
 
-import java.util.concurrent.BlockingQueue;
-
 import org.eclipse.jdt.annotation.Nullable;
 
 import com.iris.agent.addressing.HubAddr;
@@ -28,7 +26,7 @@ import com.iris.protocol.ProtocolMessage;
 
 
 class InjectingPort extends AbstractPort {
-   InjectingPort(Router parent, String name, BlockingQueue<Message> queue) {
+   InjectingPort(Router parent, String name, PortQueue queue) {
       super(parent, null, name, queue);
    }
 
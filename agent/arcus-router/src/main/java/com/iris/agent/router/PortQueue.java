@@ -0,0 +1,483 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.agent.router;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.google.common.collect.ImmutableSet;
+import com.iris.agent.addressing.HubAddr;
+import com.iris.agent.metrics.MetricsService;
+import com.iris.messages.PlatformMessage;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+import com.iris.protocol.ProtocolMessage;
+import com.iris.protocol.reflex.ReflexProtocol;
+
+/**
+ * The queue between the router's dispatcher and a single port.  Messages
+ * are split into priority lanes so that alarm, security and reflex traffic
+ * is taken before everything else and metrics and debug traffic after
+ * everything else.  The queue is bounded by an estimate of the memory used
+ * by the messages in it, and what happens when it is full is decided by the
+ * port's {@link Overflow} policy.
+ *
+ * There is a single consumer, the port's own thread, and the router's
+ * dispatcher is the only producer.
+ */
+final class PortQueue {
+   private static final Logger log = LoggerFactory.getLogger(PortQueue.class);
+
+   static final long DEFAULT_BUDGET = 1024 * 1024;
+   static final long DEFAULT_BLOCK_TIMEOUT_MS = 5000;
+
+   // rough heap cost of a queued message, protocol messages add their payload
+   private static final int PLATFORM_MESSAGE_BYTES = 512;
+   private static final int PROTOCOL_MESSAGE_BYTES = 256;
+   private static final int OTHER_MESSAGE_BYTES = 64;
+
+   private static final int QUEUE_SIZE_WARN = 10;
+   private static final int QUEUE_SIZE_GRANULARITY = 10;
+
+   static enum Lane {
+      HIGH, NORMAL, LOW;
+
+      private static final Set<String> HIGH_NAMESPACES = ImmutableSet.of("alarm", "hubalarm", "keypad", "subalarm", "subsecuritymode", "hubrflx", "security");
+      private static final Set<String> LOW_NAMESPACES = ImmutableSet.of("hubmetric", "hubdebug");
+      private static final Set<String> HIGH_SERVICES = ImmutableSet.of("alarm", "reflex");
+
+      static Lane of(Message message) {
+         Object msg = message.getMessage();
+         switch (message.getType()) {
+         case PLATFORM:
+            Object dst = message.getDestination();
+            if (dst instanceof HubAddr && HIGH_SERVICES.contains(((HubAddr)dst).getServiceId())) {
+               return HIGH;
+            }
+
+            String ns = StringUtils.substringBefore(((PlatformMessage)msg).getMessageType(), ":");
+            if (HIGH_NAMESPACES.contains(ns)) {
+               return HIGH;
+            }
+            return LOW_NAMESPACES.contains(ns) ? LOW : NORMAL;
+
+         case PROTOCOL:
+            // reflex messages are the hub's local device logic
+            return ReflexProtocol.NAMESPACE.equals(((ProtocolMessage)msg).getMessageType()) ? HIGH : NORMAL;
+
+         default:
+            return NORMAL;
+         }
+      }
+   }
+
+   static enum Overflow {
+      /** drop the oldest message in the lowest priority lane that isn't above the new message */
+      DROP_OLDEST,
+      /** replace a queued message of the same type from the same source to the same destination, otherwise drop oldest */
+      COALESCE,
+      /**
+       * wait for the port to make room, for at most the block timeout, otherwise drop oldest.
+       * the wait happens on the dispatcher so every other port is held up as well, only opt
+       * into this for a port that must not lose messages and is known to keep up.
+       */
+      BLOCK;
+
+      static Overflow parse(@Nullable String value, Overflow def) {
+         if (StringUtils.isBlank(value)) {
+            return def;
+         }
+
+         try {
+            return Overflow.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+         } catch (IllegalArgumentException ex) {
+            log.warn("unknown router overflow policy {}, using {}", value, def);
+            return def;
+         }
+      }
+   }
+
+   private final String name;
+   private final long budget;
+   private final Overflow overflow;
+   private final long blockTimeoutNanos;
+
+   private final ReentrantLock lock = new ReentrantLock();
+   private final Condition notEmpty = lock.newCondition();
+   private final Condition notFull = lock.newCondition();
+   private final ArrayDeque<Entry>[] lanes;
+   private int size;
+   private long bytes;
+   private int lastWarnQueueSize;
+
+   private final Counter dropped;
+   private final Counter coalesced;
+   private final Counter blocked;
+   private final Histogram latency;
+
+   @SuppressWarnings("unchecked")
+   PortQueue(String name, long budget, Overflow overflow, long blockTimeoutMs) {
+      this.name = name;
+      this.budget = budget;
+      this.overflow = overflow;
+      this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+      this.lanes = new ArrayDeque[Lane.values().length];
+      for (int i = 0; i < lanes.length; ++i) {
+         lanes[i] = new ArrayDeque<>();
+      }
+
+      IrisMetricSet metrics = IrisMetrics.metrics("hub.router." + name);
+      this.dropped = metrics.counter("dropped");
+      this.coalesced = metrics.counter("coalesced");
+      this.blocked = metrics.counter("blocked");
+      this.latency = metrics.histogram("latency");
+
+      Gauge<Integer> depth = () -> size();
+      Gauge<Long> droppedCount = () -> dropped.getCount();
+      metrics.gauge("depth", depth);
+      metrics.gauge("bytes", (Gauge<Long>)() -> bytes());
+      MetricsService.registerAggregatedMetricMedium("hub.router." + name + ".depth", depth);
+      MetricsService.registerAggregatedMetricMedium("hub.router." + name + ".dropped", droppedCount);
+   }
+
+   /**
+    * Reads the budget and overflow policy for the named port from the
+    * environment or system properties, for example {@code IRIS_ROUTER_SPY_OVERFLOW=coalesce}
+    * or {@code -Diris.router.queue.budget=524288}.
+    */
+   static PortQueue create(String name, Overflow def) {
+      long budget = getConfig("iris.router." + name + ".budget", getConfig("iris.router.queue.budget", DEFAULT_BUDGET));
+      long blockTimeoutMs = getConfig("iris.router.queue.block.timeout", DEFAULT_BLOCK_TIMEOUT_MS);
+      Overflow overflow = Overflow.parse(getConfig("iris.router." + name + ".overflow"), def);
+      return new PortQueue(name, budget, overflow, blockTimeoutMs);
+   }
+
+   String getName() {
+      return name;
+   }
+
+   Overflow getOverflow() {
+      return overflow;
+   }
+
+   int size() {
+      lock.lock();
+      try {
+         return size;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   long bytes() {
+      lock.lock();
+      try {
+         return bytes;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * Adds the message to the queue, making room according to the overflow
+    * policy if the queue is over its budget.
+    *
+    * @return the number of messages in the queue after adding this one
+    */
+   int put(Message message) throws InterruptedException {
+      Entry entry = new Entry(message, Lane.of(message), weigh(message), System.nanoTime());
+
+      lock.lockInterruptibly();
+      try {
+         // shutdown must always get through
+         if (message.getType() != Message.Type.POISON && bytes + entry.weight > budget && size > 0) {
+            if (!makeRoom(entry)) {
+               return size;
+            }
+         }
+
+         lanes[entry.lane.ordinal()].addLast(entry);
+         size++;
+         bytes += entry.weight;
+         notEmpty.signal();
+         warnIfGrowing();
+         return size;
+      } finally {
+         lock.unlock();
+      }
+   }
+
+   Message take() throws InterruptedException {
+      Entry entry;
+      lock.lockInterruptibly();
+      try {
+         while ((entry = poll()) == null) {
+            notEmpty.await();
+         }
+
+         size--;
+         bytes -= entry.weight;
+         notFull.signal();
+      } finally {
+         lock.unlock();
+      }
+
+      latency.update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.enqueued));
+      return entry.message;
+   }
+
+   private @Nullable Entry poll() {
+      for (ArrayDeque<Entry> lane : lanes) {
+         Entry entry = lane.pollFirst();
+         if (entry != null) {
+            return entry;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Called with the lock held when adding the entry would exceed the budget.
+    *
+    * @return false if the new entry was dropped or coalesced and should not be added
+    */
+   private boolean makeRoom(Entry entry) throws InterruptedException {
+      switch (overflow) {
+      case COALESCE:
+         if (coalesce(entry)) {
+            return false;
+         }
+         break;
+
+      case BLOCK:
+         long remaining = blockTimeoutNanos;
+         if (remaining > 0) {
+            blocked.inc();
+         }
+         while (bytes + entry.weight > budget && size > 0 && remaining > 0) {
+            remaining = notFull.awaitNanos(remaining);
+         }
+         if (bytes + entry.weight <= budget || size == 0) {
+            return true;
+         }
+         break;
+
+      default:
+         break;
+      }
+
+      return dropOldest(entry);
+   }
+
+   private boolean coalesce(Entry entry) {
+      Object key = entry.coalesceKey();
+      if (key == null) {
+         return false;
+      }
+
+      ArrayDeque<Entry> lane = lanes[entry.lane.ordinal()];
+      Iterator<Entry> it = lane.descendingIterator();
+      while (it.hasNext()) {
+         Entry queued = it.next();
+         if (key.equals(queued.coalesceKey())) {
+            // the newer message supersedes the queued one but keeps its place in line
+            queued.replace(entry);
+            bytes += entry.weight - queued.weight;
+            queued.weight = entry.weight;
+            coalesced.inc();
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   private boolean dropOldest(Entry entry) {
+      while (bytes + entry.weight > budget && size > 0) {
+         Entry victim = null;
+         for (int i = lanes.length - 1; i >= entry.lane.ordinal(); --i) {
+            victim = pollDroppable(lanes[i]);
+            if (victim != null) {
+               break;
+            }
+         }
+
+         if (victim == null) {
+            // everything queued is more important than the new message
+            drop(entry);
+            return false;
+         }
+
+         size--;
+         bytes -= victim.weight;
+         drop(victim);
+      }
+
+      return true;
+   }
+
+   private static @Nullable Entry pollDroppable(ArrayDeque<Entry> lane) {
+      Iterator<Entry> it = lane.iterator();
+      while (it.hasNext()) {
+         Entry queued = it.next();
+         if (queued.message.getType() != Message.Type.POISON) {
+            it.remove();
+            return queued;
+         }
+      }
+      return null;
+   }
+
+   private void drop(Entry entry) {
+      dropped.inc();
+      long count = dropped.getCount();
+      if (count == 1 || count % 1000 == 0) {
+         log.warn("router queue {} over budget, dropped {} messages, latest: {}", name, count, entry.message);
+      }
+   }
+
+   private void warnIfGrowing() {
+      if (size >= QUEUE_SIZE_WARN) {
+         int gran = size / QUEUE_SIZE_GRANULARITY;
+         if (gran != lastWarnQueueSize && size % QUEUE_SIZE_GRANULARITY == 0) {
+            lastWarnQueueSize = gran;
+            log.warn("queue size {}: {}", name, size);
+         }
+      }
+   }
+
+   private static int weigh(Message message) {
+      Object msg = message.getMessage();
+      if (msg instanceof PlatformMessage) {
+         return PLATFORM_MESSAGE_BYTES;
+      }
+
+      if (msg instanceof ProtocolMessage) {
+         String encoded = ((ProtocolMessage)msg).getEncodedPayloadIfExists();
+         return PROTOCOL_MESSAGE_BYTES + (encoded == null ? 0 : encoded.length());
+      }
+
+      return OTHER_MESSAGE_BYTES;
+   }
+
+   static long getConfig(String name, long def) {
+      String value = getConfig(name);
+      if (value == null) {
+         return def;
+      }
+
+      try {
+         return Long.parseLong(value.trim());
+      } catch (NumberFormatException ex) {
+         log.warn("invalid value for {}: {}", name, value);
+         return def;
+      }
+   }
+
+   private static @Nullable String getConfig(String name) {
+      String result = System.getenv(name.toUpperCase(Locale.ROOT).replace('.', '_'));
+      if (StringUtils.isBlank(result)) {
+         result = System.getProperty(name);
+      }
+      return StringUtils.isBlank(result) ? null : result;
+   }
+
+   private static final class Entry {
+      private Message message;
+      private final Lane lane;
+      private int weight;
+      private final long enqueued;
+
+      Entry(Message message, Lane lane, int weight, long enqueued) {
+         this.message = message;
+         this.lane = lane;
+         this.weight = weight;
+         this.enqueued = enqueued;
+      }
+
+      void replace(Entry newer) {
+         this.message = newer.message;
+      }
+
+      /**
+       * Requests are never coalesced since each one needs a response.
+       */
+      @Nullable Object coalesceKey() {
+         Object msg = message.getMessage();
+         if (!(msg instanceof com.iris.messages.Message)) {
+            return null;
+         }
+
+         com.iris.messages.Message m = (com.iris.messages.Message)msg;
+         if (m.isRequest()) {
+            return null;
+         }
+         return new CoalesceKey(message.getType(), message.isForwarded(), message.getSource(), m.getDestination(), m.getMessageType());
+      }
+   }
+
+   private static final class CoalesceKey {
+      private final Message.Type type;
+      private final boolean forwarded;
+      private final @Nullable Object source;
+      private final @Nullable Object destination;
+      private final @Nullable String messageType;
+
+      CoalesceKey(Message.Type type, boolean forwarded, @Nullable Object source, @Nullable Object destination, @Nullable String messageType) {
+         this.type = type;
+         this.forwarded = forwarded;
+         this.source = source;
+         this.destination = destination;
+         this.messageType = messageType;
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hash(type, forwarded, source, destination, messageType);
+      }
+
+      @Override
+      public boolean equals(@Nullable Object obj) {
+         if (this == obj) {
+            return true;
+         }
+         if (!(obj instanceof CoalesceKey)) {
+            return false;
+         }
+
+         CoalesceKey other = (CoalesceKey)obj;
+         return type == other.type &&
+            forwarded == other.forwarded &&
+            Objects.equals(source, other.source) &&
+            Objects.equals(destination, other.destination) &&
+            Objects.equals(messageType, other.messageType);
+      }
+   }
+}
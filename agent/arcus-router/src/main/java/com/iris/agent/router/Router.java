@@ -22,7 +22,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
@@ -43,6 +43,7 @@ import com.iris.protocol.ProtocolMessage;
 
 public final class Router {
    private static final Logger log = LoggerFactory.getLogger(Router.class);
+   private static final long DEFAULT_DISPATCH_QUEUE_SIZE = 4096;
 
    private final Set<PortInternal> ports;
    private final Set<PortInternal> snoopers;
@@ -66,7 +67,10 @@ public final class Router {
    public void start() {
       log.info("starting up iris hub ring buffer router");
 
-      this.dispatcher = new MessageDispatcher(new LinkedTransferQueue<>());
+      // senders wait for the dispatcher when this fills up, the dispatcher itself
+      // never waits on a port unless the port has opted into blocking overflow
+      int size = (int)Math.max(1, PortQueue.getConfig("iris.router.dispatch.queue.size", DEFAULT_DISPATCH_QUEUE_SIZE));
+      this.dispatcher = new MessageDispatcher(new LinkedBlockingQueue<>(size));
       executor.submit(dispatcher);
    }
 
@@ -91,36 +95,41 @@ public final class Router {
       }
    }
 
-   private BlockingQueue<Message> createQueue() {
-      return new LinkedTransferQueue<>();
+   /**
+    * Ports drop their oldest messages when they fall behind so that a slow port
+    * can never stall the dispatcher.  The policy can be overridden per port, see
+    * {@link PortQueue#create(String, PortQueue.Overflow)}.
+    */
+   private PortQueue createQueue(String name) {
+      return PortQueue.create(name, PortQueue.Overflow.DROP_OLDEST);
    }
 
    public Port injector(String name) {
-      return new InjectingPort(this, name, createQueue());
+      return new InjectingPort(this, name, createQueue(name));
    }
 
    public Port connect(String name, SnoopingPortHandler handler) {
-      return createConnection(new SnoopingPort(this, handler, null, name, createQueue()));
+      return createConnection(new SnoopingPort(this, handler, null, name, createQueue(name)));
    }
 
    public Port connect(String name, SnoopingPortHandler handler, HubAddr address, PortHandler addressableHandler) {
       AddressMatchingPort addressablePort = createAddressMatchingPort(address, addressableHandler, name, null);
-      return createConnection(new SnoopingPort(this, handler, addressablePort, name, createQueue()));
+      return createConnection(new SnoopingPort(this, handler, addressablePort, name, createQueue(name)));
    }
 
    public Port gateway(String name, SnoopingPortHandler handler, HubAddr address, PortHandler addressableHandler) {
       AddressMatchingPort addressablePort = createAddressMatchingPort(address, addressableHandler, name, null);
-      return createConnection(new SnoopingPort(this, handler, addressablePort, name, createQueue(), true));
+      return createConnection(new SnoopingPort(this, handler, addressablePort, name, createQueue(name), true));
    }
 
    public Port connect(String name, HubAddr address, PortHandler handler) {
       Preconditions.checkNotNull(address, "port address cannot be null");
 
-      AbstractPort port = createAddressMatchingPort(address, handler, name, createQueue());
+      AbstractPort port = createAddressMatchingPort(address, handler, name, createQueue(name));
       return createConnection(port);
    }
 
-   private AddressMatchingPort createAddressMatchingPort(HubAddr address, PortHandler handler, String name, @Nullable BlockingQueue<Message> queue) {
+   private AddressMatchingPort createAddressMatchingPort(HubAddr address, PortHandler handler, String name, @Nullable PortQueue queue) {
       Preconditions.checkNotNull(address, "port address cannot be null");
 
       if (address instanceof HubServiceAddress) {
@@ -16,7 +16,6 @@
 package com.iris.agent.router;
 
 import java.util.Objects;
-import java.util.concurrent.BlockingQueue;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
@@ -37,11 +36,11 @@ class SnoopingPort extends AbstractPort {
    private final @Nullable AddressMatchingPort addressablePort;
    private final boolean gateway;
 
-   SnoopingPort(Router parent, SnoopingPortHandler handler, @Nullable AddressMatchingPort addressablePort, String name, BlockingQueue<Message> queue) {
+   SnoopingPort(Router parent, SnoopingPortHandler handler, @Nullable AddressMatchingPort addressablePort, String name, PortQueue queue) {
       this(parent, handler, addressablePort, name, queue, false);
    }
 
-   SnoopingPort(Router parent, SnoopingPortHandler handler, @Nullable AddressMatchingPort addressablePort, String name, BlockingQueue<Message> queue, boolean gateway) {
+   SnoopingPort(Router parent, SnoopingPortHandler handler, @Nullable AddressMatchingPort addressablePort, String name, PortQueue queue, boolean gateway) {
       super(parent, handler, name, queue);
       this.addressablePort = addressablePort;
       this.gateway = gateway;
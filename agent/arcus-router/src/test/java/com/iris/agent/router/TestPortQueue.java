@@ -0,0 +1,188 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.agent.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
+
+public class TestPortQueue {
+   private static final AtomicInteger NEXT = new AtomicInteger();
+   private static final long PLATFORM_WEIGHT = 512;
+
+   private static final Address SOURCE1 = Address.platformService("source1");
+   private static final Address SOURCE2 = Address.platformService("source2");
+
+   private static PortQueue queue(int messages, PortQueue.Overflow overflow, long blockTimeoutMs) {
+      // each test gets its own metrics
+      return new PortQueue("test" + NEXT.getAndIncrement(), messages * PLATFORM_WEIGHT, overflow, blockTimeoutMs);
+   }
+
+   private static Message event(String type, Address source) {
+      PlatformMessage msg = PlatformMessage.buildEvent(type, ImmutableMap.<String,Object>of(), source).create();
+      return new Message(Message.Type.PLATFORM, source, null, msg, false);
+   }
+
+   private static Message poison() {
+      return new Message(Message.Type.POISON, null, null, null, false);
+   }
+
+   @Test
+   public void testLanesDrainInPriorityOrder() throws Exception {
+      PortQueue queue = queue(10, PortQueue.Overflow.DROP_OLDEST, 0);
+      Message low = event("hubmetric:Metrics", SOURCE1);
+      Message normal = event("base:ValueChange", SOURCE1);
+      Message high = event("alarm:Alert", SOURCE1);
+
+      queue.put(low);
+      queue.put(normal);
+      queue.put(high);
+
+      assertSame(high, queue.take());
+      assertSame(normal, queue.take());
+      assertSame(low, queue.take());
+      assertEquals(0, queue.size());
+      assertEquals(0, queue.bytes());
+   }
+
+   @Test
+   public void testDropOldest() throws Exception {
+      PortQueue queue = queue(2, PortQueue.Overflow.DROP_OLDEST, 0);
+      Message first = event("base:ValueChange", SOURCE1);
+      Message second = event("base:ValueChange", SOURCE1);
+      Message third = event("base:ValueChange", SOURCE1);
+
+      queue.put(first);
+      queue.put(second);
+      assertEquals(2, queue.put(third));
+
+      assertSame(second, queue.take());
+      assertSame(third, queue.take());
+   }
+
+   @Test
+   public void testDropOldestKeepsHigherPriority() throws Exception {
+      PortQueue queue = queue(2, PortQueue.Overflow.DROP_OLDEST, 0);
+      Message high1 = event("alarm:Alert", SOURCE1);
+      Message high2 = event("alarm:Alert", SOURCE1);
+
+      queue.put(high1);
+      queue.put(high2);
+      // everything queued is more important, the new message is the one dropped
+      assertEquals(2, queue.put(event("base:ValueChange", SOURCE1)));
+
+      assertSame(high1, queue.take());
+      assertSame(high2, queue.take());
+      assertEquals(0, queue.size());
+   }
+
+   @Test
+   public void testCoalesceReplacesInPlace() throws Exception {
+      PortQueue queue = queue(2, PortQueue.Overflow.COALESCE, 0);
+      Message value1 = event("base:ValueChange", SOURCE1);
+      Message added = event("base:Added", SOURCE1);
+      Message value2 = event("base:ValueChange", SOURCE1);
+
+      queue.put(value1);
+      queue.put(added);
+      assertEquals(2, queue.put(value2));
+
+      // the newer value keeps the older one's place in line
+      assertSame(value2, queue.take());
+      assertSame(added, queue.take());
+   }
+
+   @Test
+   public void testCoalesceRequiresSameSource() throws Exception {
+      PortQueue queue = queue(2, PortQueue.Overflow.COALESCE, 0);
+      Message value1 = event("base:ValueChange", SOURCE1);
+      Message value2 = event("base:ValueChange", SOURCE1);
+      Message other = event("base:ValueChange", SOURCE2);
+
+      queue.put(value1);
+      queue.put(value2);
+      // nothing from source2 is queued so this falls back to dropping the oldest
+      queue.put(other);
+
+      assertSame(value2, queue.take());
+      assertSame(other, queue.take());
+   }
+
+   @Test
+   public void testBlockWaitsForRoom() throws Exception {
+      PortQueue queue = queue(1, PortQueue.Overflow.BLOCK, 5000);
+      Message first = event("base:ValueChange", SOURCE1);
+      Message second = event("base:ValueChange", SOURCE1);
+      queue.put(first);
+
+      Thread consumer = new Thread(() -> {
+         try {
+            Thread.sleep(50);
+            queue.take();
+         } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+         }
+      });
+      consumer.start();
+
+      queue.put(second);
+      consumer.join();
+
+      assertEquals(1, queue.size());
+      assertSame(second, queue.take());
+   }
+
+   @Test
+   public void testBlockTimesOutAndDropsOldest() throws Exception {
+      PortQueue queue = queue(1, PortQueue.Overflow.BLOCK, 50);
+      Message first = event("base:ValueChange", SOURCE1);
+      Message second = event("base:ValueChange", SOURCE1);
+      queue.put(first);
+
+      long start = System.nanoTime();
+      queue.put(second);
+      long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      assertTrue("only waited " + waited + "ms", waited >= 50);
+      assertEquals(1, queue.size());
+      assertSame(second, queue.take());
+   }
+
+   @Test
+   public void testPoisonIsNeverDropped() throws Exception {
+      PortQueue queue = queue(1, PortQueue.Overflow.DROP_OLDEST, 0);
+      Message first = event("base:ValueChange", SOURCE1);
+      Message poison = poison();
+
+      queue.put(first);
+      // over budget but shutdown must always get through
+      assertEquals(2, queue.put(poison));
+      // the only droppable message goes first, after that the new one is dropped instead of the poison
+      queue.put(event("base:ValueChange", SOURCE1));
+
+      assertSame(poison, queue.take());
+      assertEquals(0, queue.size());
+   }
+}
@@ -43,12 +43,19 @@ import com.almworks.sqlite4java.SQLiteConnection;
 import com.almworks.sqlite4java.SQLiteConstants;
 import com.almworks.sqlite4java.SQLiteException;
 import com.almworks.sqlite4java.SQLiteStatement;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.iris.agent.metrics.MetricsService;
 import com.iris.agent.storage.StorageService;
 import com.iris.agent.watchdog.WatchdogPoke;
 import com.iris.agent.watchdog.WatchdogService;
 import com.iris.agent.util.Backoff;
 import com.iris.agent.util.Backoffs;
 import com.iris.agent.util.ThreadUtils;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
 
 public final class Db implements AutoCloseable {
    private static final Logger log = LoggerFactory.getLogger(Db.class);
@@ -65,19 +72,58 @@ public final class Db implements AutoCloseable {
    private final String name;
    private final int numWorkers;
    private final long walModeCheckpointNs;
+   private final int groupCommitMaxBatch;
+   private final long groupCommitMaxLatencyNs;
    private final BlockingQueue<DbTask<?>> queue;
+   private final @Nullable BlockingQueue<DbTask<?>> readQueue;
    private final @Nullable DbCheckpointer checkpointer;
 
    @Nullable
    private final File dbFile;
 
-   Db(String name, @Nullable File dbFile, int numWorkers, long walModeCheckpointMs) {
+   @Nullable
+   private final File walFile;
+   private long lastWalSize;
+
+   private final Meter transactions;
+   private final Histogram groupSize;
+   private final Counter flashWriteBytes;
+
+   /**
+    * @param groupCommitMaxBatch
+    *    The maximum number of writes committed in a single transaction, a value
+    *    of 1 or less disables group commit.
+    * @param groupCommitMaxLatencyMs
+    *    How long a worker will wait for more writes to join a transaction that
+    *    has already been started, 0 only groups writes that are already waiting.
+    * @param readConnection
+    *    If true, and the database is a file in write ahead log mode, queries
+    *    are run on a separate query only connection so they don't wait behind writes.
+    */
+   Db(String name, @Nullable File dbFile, int numWorkers, long walModeCheckpointMs, int groupCommitMaxBatch, long groupCommitMaxLatencyMs, boolean readConnection) {
       this.name = name;
       this.walModeCheckpointNs = TimeUnit.NANOSECONDS.convert(walModeCheckpointMs, TimeUnit.MILLISECONDS);
+      this.groupCommitMaxBatch = groupCommitMaxBatch;
+      this.groupCommitMaxLatencyNs = TimeUnit.NANOSECONDS.convert(groupCommitMaxLatencyMs, TimeUnit.MILLISECONDS);
       this.dbFile = dbFile;
       this.numWorkers = numWorkers;
       this.queue = new SynchronousQueue<>();
       this.checkpointer = (walModeCheckpointMs > 0) ? new DbCheckpointer() : null;
+
+      File wal = (dbFile != null && walModeCheckpointMs > 0) ? new File(dbFile.getPath() + "-wal") : null;
+      this.walFile = wal;
+      this.lastWalSize = (wal != null) ? wal.length() : 0;
+      this.readQueue = (wal != null && readConnection) ? new SynchronousQueue<DbTask<?>>() : null;
+
+      IrisMetricSet metrics = IrisMetrics.metrics("hub.db." + name);
+      this.transactions = metrics.meter("transactions");
+      this.groupSize = metrics.histogram("group.size");
+      this.flashWriteBytes = metrics.counter("flash.write.bytes");
+
+      Gauge<Long> txCount = () -> transactions.getCount();
+      Gauge<Long> writeBytes = () -> flashWriteBytes.getCount();
+      MetricsService.registerAggregatedMetricSlow("hub.db." + name + ".transactions", txCount);
+      MetricsService.registerAggregatedMetricSlow("hub.db." + name + ".flash.write.bytes", writeBytes);
    }
 
    public String getName() {
@@ -86,7 +132,12 @@ public final class Db implements AutoCloseable {
 
    void start(ExecutorService es, @Nullable ExecutorService walEs) {
       for (int i = 0; i < numWorkers; ++i) {
-         es.submit(new DbWorker(WatchdogService.createWatchdogPoke(name + " db" + i)));
+         es.submit(new DbWorker(WatchdogService.createWatchdogPoke(name + " db" + i), queue, false));
+      }
+
+      BlockingQueue<DbTask<?>> rq = readQueue;
+      if (rq != null) {
+         es.submit(new DbWorker(WatchdogService.createWatchdogPoke(name + " db reader"), rq, true));
       }
 
       if (walEs != null && checkpointer != null) {
@@ -95,13 +146,18 @@ public final class Db implements AutoCloseable {
    }
 
    void kill() {
-      for (int i = 0; i < numWorkers; ++i) {
-         try {
+      try {
+         for (int i = 0; i < numWorkers; ++i) {
             queue.put(POISON_PILL);
-         } catch (InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(ex);
          }
+
+         BlockingQueue<DbTask<?>> rq = readQueue;
+         if (rq != null) {
+            rq.put(POISON_PILL);
+         }
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException(ex);
       }
    }
 
@@ -300,7 +356,7 @@ public final class Db implements AutoCloseable {
    public <I,O> Future<O> asyncQuery(String sql, DbBinder<I> binder, I value, DbExtractor<O> extractor) {
       try {
          QueryTask<I,O> task = new QueryTask<>(sql, binder, value, extractor);
-         queue.put(task);
+         getQueryQueue().put(task);
          return task;
       } catch (InterruptedException ex) {
          Thread.currentThread().interrupt();
@@ -315,7 +371,7 @@ public final class Db implements AutoCloseable {
    public <I,O> Future<List<O>> asyncQueryAll(String sql, DbBinder<I> binder, I value, DbExtractor<O> extractor) {
       try {
          QueryBulkTask<I,O> task = new QueryBulkTask<>(sql, binder, value, extractor);
-         queue.put(task);
+         getQueryQueue().put(task);
          return task;
       } catch (InterruptedException ex) {
          Thread.currentThread().interrupt();
@@ -327,6 +383,54 @@ public final class Db implements AutoCloseable {
    // Implementation details
    /////////////////////////////////////////////////////////////////////////////
 
+   /**
+    * Queries go to the read connection when there is one. The read connection
+    * only sees committed data, which is no weaker than the ordering already
+    * provided when there are multiple workers.
+    */
+   private BlockingQueue<DbTask<?>> getQueryQueue() {
+      BlockingQueue<DbTask<?>> rq = readQueue;
+      return (rq != null) ? rq : queue;
+   }
+
+   private static boolean isWrite(DbTask<?> task) {
+      return task instanceof ExecTask || task instanceof ExecBulkTask;
+   }
+
+   /**
+    * Only prepared statements can join a group commit, raw sql may
+    * be a script with its own transaction control statements.
+    */
+   private static boolean canGroup(DbTask<?> task) {
+      return task instanceof ExecBulkTask || (task instanceof ExecTask && ((ExecTask<?>)task).isPrepared());
+   }
+
+   /**
+    * Accounts for the growth of the write ahead log since the last call, which
+    * is the data written to flash by the transactions committed in between. The
+    * log only shrinks when it is checkpointed, in which case all of the current
+    * log is new.
+    */
+   private synchronized long recordWalGrowth() {
+      File wal = walFile;
+      if (wal == null) {
+         return 0;
+      }
+
+      long size = wal.length();
+      long growth = (size >= lastWalSize) ? size - lastWalSize : size;
+      lastWalSize = size;
+      flashWriteBytes.inc(growth);
+      return size;
+   }
+
+   /**
+    * Opens a connection to the database.  Connections always use a private
+    * cache, overriding the shared cache enabled globally by {@link DbService}:
+    * in a shared cache readers take table locks against the writers instead
+    * of reading from a WAL snapshot, which would make the read connection
+    * wait behind (or fail as locked during) a group commit.
+    */
    private SQLiteConnection createConnection() {
       try {
          SQLiteConnection db = new SQLiteConnection(dbFile);
@@ -372,8 +476,15 @@ public final class Db implements AutoCloseable {
    }
 
    private static final class ExecTask<T> extends DbUtils.DbTaskImpl<T,Void> {
+      private final boolean prepared;
+
       ExecTask(String sql, @Nullable DbBinder<T> binder, @Nullable T value) {
          super(sql, binder, value);
+         this.prepared = binder != null && value != null;
+      }
+
+      boolean isPrepared() {
+         return prepared;
       }
 
       @Override
@@ -394,7 +505,12 @@ public final class Db implements AutoCloseable {
 
       @Override
       protected boolean runInTransaction(SQLiteConnection conn, SQLiteStatement stmt) {
-         return true;
+         // when part of a group commit the values are already in a transaction
+         try {
+            return conn.getAutoCommit();
+         } catch (SQLiteException ex) {
+            return true;
+         }
       }
 
       @Override
@@ -539,6 +655,8 @@ public final class Db implements AutoCloseable {
                } else {
                   conn.exec("PRAGMA journal_mode=DELETE");
                }
+
+               configure(conn);
             } catch (Throwable e) {
                log.error("could not start sql db worker: {}", e.getMessage(), e);
                throw new RuntimeException(e);
@@ -558,6 +676,9 @@ public final class Db implements AutoCloseable {
          }
       }
 
+      protected void configure(SQLiteConnection conn) throws Exception {
+      }
+
       protected abstract void execute(SQLiteConnection conn) throws Exception;
    }
 
@@ -608,7 +729,10 @@ public final class Db implements AutoCloseable {
          }
 
          try {
+            // the pages in the log are copied into the database file
+            flashWriteBytes.inc(recordWalGrowth());
             stmt.stepThrough();
+            recordWalGrowth();
          } catch (SQLiteException ex) {
             switch (ex.getBaseErrorCode()) {
             case SQLiteConstants.SQLITE_BUSY:
@@ -641,6 +765,9 @@ public final class Db implements AutoCloseable {
 
    private final class DbWorker extends AbstractDbWorker {
       private final WatchdogPoke watchdog;
+      private final BlockingQueue<DbTask<?>> tasks;
+      private final boolean reader;
+      private final List<DbTask<?>> group = new ArrayList<>();
       private final Backoff backoff = Backoffs.exponential()
          .initial(0, TimeUnit.MILLISECONDS)
          .delay(5, TimeUnit.MILLISECONDS)
@@ -648,18 +775,31 @@ public final class Db implements AutoCloseable {
          .max(500, TimeUnit.MILLISECONDS)
          .build();
 
-      public DbWorker(WatchdogPoke watchdog) {
+      public DbWorker(WatchdogPoke watchdog, BlockingQueue<DbTask<?>> tasks, boolean reader) {
          this.watchdog = watchdog;
+         this.tasks = tasks;
+         this.reader = reader;
+      }
+
+      @Override
+      protected void configure(SQLiteConnection conn) throws Exception {
+         if (reader) {
+            conn.exec("PRAGMA query_only=ON");
+         }
       }
 
       @Override
-      @SuppressWarnings("unchecked")
       protected void execute(SQLiteConnection conn) throws Exception {
          log.trace("starting sqlite db worker...");
+         boolean groupCommit = !reader && groupCommitMaxBatch > 1;
+
+         DbTask<?> next = null;
          while (true) {
             watchdog.poke();
 
-            DbTask<?> task = queue.poll(10, TimeUnit.SECONDS);
+            DbTask<?> task = (next != null) ? next : tasks.poll(10, TimeUnit.SECONDS);
+            next = null;
+
             if (task == POISON_PILL) {
                log.trace("killing sqlite db worker...");
                return;
@@ -669,44 +809,184 @@ public final class Db implements AutoCloseable {
                continue;
             }
 
-            //long start = System.nanoTime();
-            boolean retry = true;
-            backoff.onSuccess();
-            while (retry) {
-               try {
-                  retry = false;
-                  Object result = task.execute(conn);
-
-                  //long elapsed = TimeUnit.MICROSECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS);
-                  //log.info("sql statment took {}us: {}", elapsed, task);
-
-                  ((DbTask<Object>)task).set(result);
-               } catch (SQLiteException ex) {
-                  switch (ex.getBaseErrorCode()) {
-                  case SQLiteConstants.SQLITE_BUSY:
-                     if (backoff.attempt() < SQLITE_MAX_ATTEMPTS) {
-                        log.info("sqlite statement failed on attempt {} of {}: db busy", backoff.attempt(), SQLITE_MAX_ATTEMPTS);
-                        retry = true;
-                        ThreadUtils.sleep(backoff.nextDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
-                     } else {
-                        fail(conn, task, ex);
-                     }
-                     break;
-
-                  case SQLiteConstants.SQLITE_LOCKED:
-                     if (backoff.attempt() < SQLITE_MAX_ATTEMPTS) {
-                        log.info("sqlite statement failed on attempt {} of {}: db locked", backoff.attempt(), SQLITE_MAX_ATTEMPTS);
-                        retry = true;
-                        ThreadUtils.sleep(backoff.nextDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
-                     } else {
-                        fail(conn, task, ex);
+            if (groupCommit && canGroup(task)) {
+               next = executeGroup(conn, task);
+               continue;
+            }
+
+            execute(conn, task);
+            if (!reader && isWrite(task)) {
+               transactions.mark();
+               recordWalGrowth();
+            }
+         }
+      }
+
+      /**
+       * Runs the given write and any other writes that are waiting, or that
+       * arrive within the configured latency, in a single transaction. Each
+       * write runs in its own savepoint so that a failed write doesn't roll
+       * back the others, and no write is completed until the transaction
+       * has been committed.
+       *
+       * @return A task taken from the queue that could not be added to the group,
+       *         which should be run next.
+       */
+      @Nullable
+      private DbTask<?> executeGroup(SQLiteConnection conn, DbTask<?> first) throws Exception {
+         try {
+            // acquire the write lock up front so that statements in the group can't fail as busy
+            conn.exec("BEGIN IMMEDIATE");
+         } catch (SQLiteException ex) {
+            log.info("sqlite group commit could not begin transaction, executing alone: {}", ex.getMessage());
+            execute(conn, first);
+            return null;
+         }
+
+         DbTask<?> next = null;
+         boolean interrupted = false;
+         long deadline = System.nanoTime() + groupCommitMaxLatencyNs;
+         try {
+            DbTask<?> task = first;
+            int attempted = 0;
+            while (task != null) {
+               // tasks cancelled while waiting in the queue are skipped
+               if (!task.isDone()) {
+                  executeInGroup(conn, task);
+                  attempted++;
+               }
+
+               if (attempted >= groupCommitMaxBatch) {
+                  break;
+               }
+
+               task = tasks.poll();
+               if (task == null && !interrupted) {
+                  long remaining = deadline - System.nanoTime();
+                  if (remaining > 0) {
+                     try {
+                        task = tasks.poll(remaining, TimeUnit.NANOSECONDS);
+                     } catch (InterruptedException ex) {
+                        interrupted = true;
                      }
-                     break;
+                  }
+               }
+
+               if (task != null && !canGroup(task)) {
+                  next = task;
+                  task = null;
+               }
+            }
+
+            conn.exec("COMMIT");
+         } catch (Exception ex) {
+            log.debug("sqlite group commit failed: {}", ex.getMessage());
+            try {
+               conn.exec("ROLLBACK");
+            } catch (SQLiteException rex) {
+               // ignore
+            }
+
+            for (DbTask<?> task : group) {
+               fail(conn, task, ex);
+            }
+
+            group.clear();
+            if (interrupted) {
+               Thread.currentThread().interrupt();
+            }
+
+            return next;
+         }
+
+         transactions.mark();
+         groupSize.update(group.size());
+         recordWalGrowth();
 
-                  default:
+         // grouped tasks are all writes, which have no results
+         for (DbTask<?> task : group) {
+            task.set(null);
+         }
+
+         group.clear();
+         if (interrupted) {
+            // the next poll of the queue will see the interrupt and shutdown the worker
+            Thread.currentThread().interrupt();
+         }
+
+         return next;
+      }
+
+      /**
+       * Runs a single write of a group in its own savepoint, a busy or locked
+       * write is rolled back to the savepoint and retried with the same backoff
+       * as a write that is run alone.
+       */
+      private void executeInGroup(SQLiteConnection conn, DbTask<?> task) throws Exception {
+         boolean retry = true;
+         backoff.onSuccess();
+         while (retry) {
+            retry = false;
+            conn.exec("SAVEPOINT grp");
+            try {
+               task.execute(conn);
+               conn.exec("RELEASE grp");
+               group.add(task);
+            } catch (Exception ex) {
+               conn.exec("ROLLBACK TO grp");
+               conn.exec("RELEASE grp");
+
+               int code = (ex instanceof SQLiteException) ? ((SQLiteException)ex).getBaseErrorCode() : -1;
+               if ((code == SQLiteConstants.SQLITE_BUSY || code == SQLiteConstants.SQLITE_LOCKED) && backoff.attempt() < SQLITE_MAX_ATTEMPTS) {
+                  log.info("sqlite grouped statement failed on attempt {} of {}: db {}", backoff.attempt(), SQLITE_MAX_ATTEMPTS, (code == SQLiteConstants.SQLITE_BUSY) ? "busy" : "locked");
+                  retry = true;
+                  ThreadUtils.sleep(backoff.nextDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+               } else {
+                  fail(conn, task, ex);
+               }
+            }
+         }
+      }
+
+      @SuppressWarnings("unchecked")
+      private void execute(SQLiteConnection conn, DbTask<?> task) throws Exception {
+         //long start = System.nanoTime();
+         boolean retry = true;
+         backoff.onSuccess();
+         while (retry) {
+            try {
+               retry = false;
+               Object result = task.execute(conn);
+
+               //long elapsed = TimeUnit.MICROSECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+               //log.info("sql statment took {}us: {}", elapsed, task);
+
+               ((DbTask<Object>)task).set(result);
+            } catch (SQLiteException ex) {
+               switch (ex.getBaseErrorCode()) {
+               case SQLiteConstants.SQLITE_BUSY:
+                  if (backoff.attempt() < SQLITE_MAX_ATTEMPTS) {
+                     log.info("sqlite statement failed on attempt {} of {}: db busy", backoff.attempt(), SQLITE_MAX_ATTEMPTS);
+                     retry = true;
+                     ThreadUtils.sleep(backoff.nextDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                  } else {
                      fail(conn, task, ex);
-                     break;
                   }
+                  break;
+
+               case SQLiteConstants.SQLITE_LOCKED:
+                  if (backoff.attempt() < SQLITE_MAX_ATTEMPTS) {
+                     log.info("sqlite statement failed on attempt {} of {}: db locked", backoff.attempt(), SQLITE_MAX_ATTEMPTS);
+                     retry = true;
+                     ThreadUtils.sleep(backoff.nextDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                  } else {
+                     fail(conn, task, ex);
+                  }
+                  break;
+
+               default:
+                  fail(conn, task, ex);
+                  break;
                }
             }
          }
@@ -48,8 +48,13 @@ public final class DbService {
    private static final Object START_LOCK = new Object();
    private static final boolean ALLOW_MULTITHREADED;
    private static final long WAL_CHECKPOINT_MS;
+   private static final int GROUP_COMMIT_MAX_BATCH;
+   private static final long GROUP_COMMIT_MAX_LATENCY_MS;
+   private static final boolean READ_CONNECTION;
    private static final int DEFAULT_MULTITHREADED_DB_WORKER_THREADS = 4;
    private static final long DEFAULT_WAL_CHECKPOINT_MS = TimeUnit.MILLISECONDS.convert(60, TimeUnit.MINUTES);
+   private static final int DEFAULT_GROUP_COMMIT_MAX_BATCH = 64;
+   private static final long DEFAULT_GROUP_COMMIT_MAX_LATENCY_MS = 0;
 
    private static int DEFAULT_DB_WORKER_THREADS = 1;
 
@@ -79,8 +84,29 @@ public final class DbService {
          }
       }
 
+      int groupCommitMaxBatch = DEFAULT_GROUP_COMMIT_MAX_BATCH;
+      long groupCommitMaxLatencyMs = DEFAULT_GROUP_COMMIT_MAX_LATENCY_MS;
+      if (System.getenv("IRIS_DB_DISABLE_GROUP_COMMIT") != null) {
+         groupCommitMaxBatch = 1;
+      } else {
+         try {
+            if (System.getenv("IRIS_DB_GROUP_COMMIT_MAX_BATCH") != null) {
+               groupCommitMaxBatch = Integer.parseInt(System.getenv("IRIS_DB_GROUP_COMMIT_MAX_BATCH"));
+            }
+
+            if (System.getenv("IRIS_DB_GROUP_COMMIT_MAX_LATENCY_MS") != null) {
+               groupCommitMaxLatencyMs = Long.parseLong(System.getenv("IRIS_DB_GROUP_COMMIT_MAX_LATENCY_MS"));
+            }
+         } catch (Throwable th) {
+            log.warn("cannot parse group commit configuration:", th);
+         }
+      }
+
       ALLOW_MULTITHREADED = allowMulti;
       WAL_CHECKPOINT_MS = walCheckpointMs;
+      GROUP_COMMIT_MAX_BATCH = groupCommitMaxBatch;
+      GROUP_COMMIT_MAX_LATENCY_MS = groupCommitMaxLatencyMs;
+      READ_CONNECTION = System.getenv("IRIS_DB_DISABLE_READ_CONNECTION") == null;
    }
 
    private DbService() {
@@ -120,9 +146,9 @@ public final class DbService {
             Db db;
             if (!memory) {
                File dbFile = StorageService.getFile("db:///" + name + ".db");
-               db = new Db(name, dbFile, workerThreads, WAL_CHECKPOINT_MS);
+               db = new Db(name, dbFile, workerThreads, WAL_CHECKPOINT_MS, GROUP_COMMIT_MAX_BATCH, GROUP_COMMIT_MAX_LATENCY_MS, READ_CONNECTION);
             } else {
-               db = new Db(name, null, workerThreads, -1);
+               db = new Db(name, null, workerThreads, -1, GROUP_COMMIT_MAX_BATCH, GROUP_COMMIT_MAX_LATENCY_MS, false);
             }
 
             db.start(executorService, walEs);
@@ -149,7 +175,7 @@ public final class DbService {
          }
 
          try {
-            Db db = new Db(name, path, workerThreads, WAL_CHECKPOINT_MS);
+            Db db = new Db(name, path, workerThreads, WAL_CHECKPOINT_MS, GROUP_COMMIT_MAX_BATCH, GROUP_COMMIT_MAX_LATENCY_MS, READ_CONNECTION);
             db.start(executorService, walEs);
             openDatabases.put(name, db);
             return db;
@@ -270,6 +296,10 @@ public final class DbService {
                if (WAL_CHECKPOINT_MS > 0) {
                   log.warn("sqlite write ahead log mode enabled, checkpointing every {}ms", WAL_CHECKPOINT_MS);
                }
+
+               if (GROUP_COMMIT_MAX_BATCH > 1) {
+                  log.warn("sqlite group commit enabled, up to {} writes per transaction waiting at most {}ms", GROUP_COMMIT_MAX_BATCH, GROUP_COMMIT_MAX_LATENCY_MS);
+               }
             } catch (IOException | SQLiteException ex) {
                throw new DbException("could not startup database service", ex);
             } finally {
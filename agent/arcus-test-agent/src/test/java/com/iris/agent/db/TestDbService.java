@@ -20,7 +20,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.junit.Assert;
@@ -145,6 +149,66 @@ public class TestDbService extends SystemTestCase {
       }
    }
 
+   @Test
+   public void testGroupCommitAsyncWrites() throws Exception {
+      final int NUM = 1000;
+
+      Db db = DbService.get("testGroupCommitAsyncWrites");
+      db.execute("CREATE TABLE gctest (key TEXT PRIMARY KEY, value INTEGER);");
+
+      List<Future<?>> writes = new ArrayList<>(NUM + 1);
+      for (int i = 0; i < NUM; ++i) {
+         writes.add(db.asyncExecute("INSERT INTO gctest (key,value) VALUES (?,?)", "key" + i, i));
+      }
+
+      // violates the primary key, only this write should fail
+      writes.add(db.asyncExecute("INSERT INTO gctest (key,value) VALUES (?,?)", "key0", -1));
+
+      int failed = 0;
+      for (Future<?> write : writes) {
+         try {
+            write.get();
+         } catch (ExecutionException ex) {
+            failed++;
+         }
+      }
+
+      Assert.assertEquals(1, failed);
+      Assert.assertEquals(Long.valueOf(NUM), db.querySingleColumn(Long.class, "SELECT count(*) FROM gctest"));
+      Assert.assertEquals(Long.valueOf(0), db.querySingleColumn(Long.class, "SELECT value FROM gctest WHERE key=?", "key0"));
+   }
+
+   @Test
+   public void testQueryDuringGroupCommit() throws Exception {
+      Db db = DbService.get("testQueryDuringGroupCommit");
+      db.execute("CREATE TABLE rwtest (key TEXT PRIMARY KEY, value INTEGER);");
+      db.execute("INSERT INTO rwtest (key,value) VALUES (?,?)", "committed", 1);
+
+      // holds the group's transaction open until released
+      CountDownLatch inTransaction = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      Future<?> write = db.asyncExecute("INSERT INTO rwtest (key,value) VALUES (?,?)", (DbBinder<Integer>) (conn, stmt, value) -> {
+         inTransaction.countDown();
+         release.await();
+         stmt.bind(1, "pending");
+         stmt.bind(2, value);
+      }, Arrays.asList(2));
+
+      try {
+         Assert.assertTrue(inTransaction.await(5, TimeUnit.SECONDS));
+
+         // the read connection sees the last committed snapshot without waiting on the writer
+         Future<Long> count = db.asyncQuerySingleColumn(Long.class, "SELECT count(*) FROM rwtest");
+         Assert.assertEquals(Long.valueOf(1), count.get(5, TimeUnit.SECONDS));
+         Assert.assertFalse(write.isDone());
+      } finally {
+         release.countDown();
+      }
+
+      write.get(5, TimeUnit.SECONDS);
+      Assert.assertEquals(Long.valueOf(2), db.querySingleColumn(Long.class, "SELECT count(*) FROM rwtest"));
+   }
+
    private void createAndFill(boolean inmemory) {
       final String TABLE = "testCreateAndFillDb";
       final int NUM = 100000;
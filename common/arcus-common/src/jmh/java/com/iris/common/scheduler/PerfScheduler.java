@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.common.scheduler;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares schedule / cancel churn of the timing wheel against the
+ * {@link ExecutorScheduler} while the scheduler is holding a large
+ * number of distant timeouts, as the rule, subsystem and driver
+ * schedulers do.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class PerfScheduler {
+   private static final Runnable NOOP = () -> { };
+   private static final int TASKS_PER_THREAD = 1024;
+
+   @Benchmark
+   public boolean perfScheduleAndCancel(TestSetup test) {
+      return test.scheduler.scheduleDelayed(NOOP, randomDelay(), TimeUnit.MILLISECONDS).cancel();
+   }
+
+   /**
+    * The common pattern for timeouts, each event cancels the previous
+    * timeout and schedules a new one.
+    */
+   @Benchmark
+   @Threads(4)
+   public ScheduledTask perfReschedule(TestSetup test, ThreadState thread) {
+      int index = thread.next++ & (TASKS_PER_THREAD - 1);
+      ScheduledTask previous = thread.tasks[index];
+      if(previous != null) {
+         previous.cancel();
+      }
+      ScheduledTask task = test.scheduler.scheduleDelayed(NOOP, randomDelay(), TimeUnit.MILLISECONDS);
+      thread.tasks[index] = task;
+      return task;
+   }
+
+   private static long randomDelay() {
+      return ThreadLocalRandom.current().nextLong(TimeUnit.MINUTES.toMillis(1), TimeUnit.HOURS.toMillis(1));
+   }
+
+   @State(Scope.Benchmark)
+   public static class TestSetup {
+      @Param({ "executor", "wheel" })
+      String implementation;
+
+      /** the number of timeouts already scheduled */
+      @Param({ "10000", "1000000" })
+      int outstanding;
+
+      Scheduler scheduler;
+      private Runnable stop;
+
+      @Setup(Level.Trial)
+      public void setup() {
+         if("wheel".equals(implementation)) {
+            HashedWheelScheduler wheel = new HashedWheelScheduler("perf");
+            wheel.start();
+            scheduler = wheel;
+            stop = wheel::stop;
+         }
+         else {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+            executor.setRemoveOnCancelPolicy(true);
+            ExecutorScheduler exec = new ExecutorScheduler(executor);
+            exec.start();
+            scheduler = exec;
+            stop = exec::stop;
+         }
+         for(int i = 0; i < outstanding; i++) {
+            scheduler.scheduleDelayed(NOOP, randomDelay(), TimeUnit.MILLISECONDS);
+         }
+      }
+
+      @TearDown(Level.Trial)
+      public void tearDown() {
+         stop.run();
+      }
+   }
+
+   @State(Scope.Thread)
+   public static class ThreadState {
+      final ScheduledTask[] tasks = new ScheduledTask[TASKS_PER_THREAD];
+      int next;
+   }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.common.collect.ImmutableMap;
+import com.iris.io.Deserializer;
+import com.iris.io.Serializer;
+import com.iris.io.json.JSON;
+import com.iris.messages.HubMessage;
+import com.iris.messages.MessageBody;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
+
+/**
+ * Compares the binary hub message framing against the JSON framing with a
+ * Base64 payload, for platform messages of typical sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class PerfHubMessageFraming {
+   private static final Serializer<HubMessage> JSON_SERIALIZER = JSON.createSerializer(HubMessage.class);
+   private static final Deserializer<HubMessage> JSON_DESERIALIZER = JSON.createDeserializer(HubMessage.class);
+
+   @Benchmark
+   public byte[] perfEncodeJson(TestSetup test) {
+      return JSON_SERIALIZER.serialize(test.message);
+   }
+
+   @Benchmark
+   public byte[] perfEncodeBinary(TestSetup test) {
+      return BinaryHubMessageFormat.encode(test.message);
+   }
+
+   @Benchmark
+   public HubMessage perfDecodeJson(TestSetup test) {
+      return JSON_DESERIALIZER.deserialize(test.json);
+   }
+
+   @Benchmark
+   public HubMessage perfDecodeBinary(TestSetup test) {
+      return BinaryHubMessageFormat.decode(test.binary);
+   }
+
+   public static void main(String[] args) throws Exception {
+      for(int attributes: new int[] { 1, 40 }) {
+         TestSetup test = new TestSetup();
+         test.attributes = attributes;
+         test.setup();
+         System.out.println("Bytes per frame [" + attributes + " attributes]: json=" + test.json.length + " binary=" + test.binary.length);
+      }
+
+      Options opt = new OptionsBuilder()
+         .include(PerfHubMessageFraming.class.getSimpleName())
+         .build();
+
+      new Runner(opt).run();
+   }
+
+   @State(Scope.Benchmark)
+   public static class TestSetup {
+      /**
+       * The number of attributes in the platform message, 1 is a typical
+       * attribute change and 40 is closer to a device added event.
+       */
+      @Param({ "1", "40" })
+      int attributes;
+
+      HubMessage message;
+      byte[] json;
+      byte[] binary;
+
+      @Setup
+      public void setup() {
+         ImmutableMap.Builder<String, Object> values = ImmutableMap.builder();
+         for(int i = 0; i < attributes; i++) {
+            values.put("test:attribute" + i, "value-" + i);
+         }
+         PlatformMessage platform =
+               PlatformMessage
+                  .buildEvent(MessageBody.buildMessage("base:ValueChange", values.build()), Address.platformDriverAddress(UUID.randomUUID()))
+                  .withPlaceId(UUID.randomUUID())
+                  .create();
+         message = HubMessage.createPlatform(JSON.createSerializer(PlatformMessage.class).serialize(platform));
+         json = JSON_SERIALIZER.serialize(message);
+         binary = BinaryHubMessageFormat.encode(message);
+      }
+   }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the compact variables encoding against the Java serialization
+ * previously used for the device variables column.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class PerfVariablesCodec {
+   @Benchmark
+   public byte[] perfEncodeJava(TestSetup test) {
+      return BinaryVariablesCodec.encodeJava(test.variables);
+   }
+
+   @Benchmark
+   public byte[] perfEncodeBinary(TestSetup test) {
+      return BinaryVariablesCodec.encode(test.variables);
+   }
+
+   @Benchmark
+   public Map<String, Object> perfDecodeJava(TestSetup test) {
+      return SerializationUtils.deserialize(test.java);
+   }
+
+   @Benchmark
+   public Map<String, Object> perfDecodeBinary(TestSetup test) {
+      return BinaryVariablesCodec.decode(test.binary);
+   }
+
+   public static void main(String[] args) throws Exception {
+      for(String corpus: new String[] { "zwave", "zigbee", "ipcd" }) {
+         TestSetup test = new TestSetup();
+         test.corpus = corpus;
+         test.setup();
+         System.out.println("Bytes per variables [" + corpus + "]: java=" + test.java.length + " binary=" + test.binary.length);
+      }
+
+      Options opt = new OptionsBuilder()
+         .include(PerfVariablesCodec.class.getSimpleName())
+         .build();
+
+      new Runner(opt).run();
+   }
+
+   @State(Scope.Benchmark)
+   public static class TestSetup {
+      /**
+       * zwave is a couple of scalars as most simple drivers store, zigbee
+       * adds nested reporting configuration and ipcd is a larger map of
+       * strings and timestamps
+       */
+      @Param({ "zwave", "zigbee", "ipcd" })
+      String corpus;
+
+      HashMap<String, Object> variables;
+      byte[] java;
+      byte[] binary;
+
+      @Setup
+      public void setup() {
+         switch(corpus) {
+         case "zigbee":
+            variables = zigbee();
+            break;
+         case "ipcd":
+            variables = ipcd();
+            break;
+         default:
+            variables = zwave();
+            break;
+         }
+         java = BinaryVariablesCodec.encodeJava(variables);
+         binary = BinaryVariablesCodec.encode(variables);
+      }
+
+      private static HashMap<String, Object> zwave() {
+         HashMap<String, Object> variables = new HashMap<>();
+         variables.put("CURRENT_HEARTBEAT", 120);
+         variables.put("OFFLINE_TIMEOUT", 1800);
+         variables.put("lastReportTime", System.currentTimeMillis());
+         variables.put("isLocked", Boolean.FALSE);
+         return variables;
+      }
+
+      private static HashMap<String, Object> zigbee() {
+         HashMap<String, Object> variables = zwave();
+         List<Object> endpoints = new ArrayList<>();
+         for(int i = 1; i <= 3; i++) {
+            Map<String, Object> reporting = new LinkedHashMap<>();
+            reporting.put("endpoint", i);
+            reporting.put("cluster", "0x0402");
+            reporting.put("minInterval", 30);
+            reporting.put("maxInterval", 3600);
+            reporting.put("configured", true);
+            endpoints.add(reporting);
+         }
+         variables.put("reporting", endpoints);
+         variables.put("temperatureOffset", -0.5);
+         variables.put("lastConfigured", new Date());
+         return variables;
+      }
+
+      private static HashMap<String, Object> ipcd() {
+         HashMap<String, Object> variables = new HashMap<>();
+         variables.put("deviceId", UUID.randomUUID());
+         variables.put("sn", "ABC123456789");
+         variables.put("fwver", "2.1.14");
+         variables.put("connection", "wifi");
+         for(int i = 0; i < 10; i++) {
+            variables.put("param" + i, "value-" + i);
+            variables.put("param" + i + ".updated", System.currentTimeMillis() - i * 1000);
+         }
+         return variables;
+      }
+   }
+}
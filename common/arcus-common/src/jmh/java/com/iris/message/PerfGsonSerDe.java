@@ -30,10 +30,14 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 import org.msgpack.jackson.dataformat.MessagePackFactory;
 import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
@@ -42,6 +46,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.iris.io.Deserializer;
+import com.iris.io.Serializer;
+import com.iris.io.binary.BinaryPlatformMessageDeserializer;
+import com.iris.io.binary.BinaryPlatformMessageSerializer;
+import com.iris.io.json.JSON;
 import com.iris.messages.MessageBody;
 import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
@@ -73,10 +82,64 @@ public class PerfGsonSerDe {
       return test.mpmapper.writeValueAsBytes(test.msg);
    }
 
+   @Benchmark
+   public byte[] perfSerToBytesPlatformJson(TestSetup test) throws InterruptedException {
+      return test.jsonSerializer.serialize(test.msg);
+   }
+
+   @Benchmark
+   public byte[] perfSerToBytesPlatformBinary(TestSetup test) throws InterruptedException {
+      return test.binarySerializer.serialize(test.msg);
+   }
+
+   @Benchmark
+   public PlatformMessage perfDeserFromBytesPlatformJson(TestSetup test) throws InterruptedException {
+      return test.jsonDeserializer.deserialize(test.json);
+   }
+
+   @Benchmark
+   public MessageBody perfDeserFromBytesPlatformBinary(TestSetup test) throws InterruptedException {
+      return test.binaryDeserializer.deserialize(test.binary).getValue();
+   }
+
+   @Benchmark
+   public PlatformMessage perfDeserFromBytesPlatformBinaryEnvelope(TestSetup test) throws InterruptedException {
+      return test.binaryDeserializer.deserialize(test.binary);
+   }
+
+   public static void main(String[] args) throws Exception {
+      for(PlatformMessage message: new PlatformMessage[] { TestSetup.simple(), TestSetup.valueChange() }) {
+         System.out.println(
+               "Bytes per [" + message.getMessageType() + "]: " +
+               "json=" + JSON.createSerializer(PlatformMessage.class).serialize(message).length + " " +
+               "binary=" + BinaryPlatformMessageSerializer.INSTANCE.serialize(message).length
+         );
+      }
+
+      Options opt = new OptionsBuilder()
+         .include(PerfGsonSerDe.class.getSimpleName())
+         .build();
+
+      new Runner(opt).run();
+   }
+
    @State(Scope.Benchmark)
    public static class TestSetup {
+      /**
+       * simple is the original three attribute request, valueChange is closer
+       * to the bulk of the traffic on the platform topic
+       */
+      @Param({ "simple", "valueChange" })
+      String message;
+
       Gson gson;
       PlatformMessage msg;
+      Serializer<PlatformMessage> jsonSerializer = JSON.createSerializer(PlatformMessage.class);
+      Deserializer<PlatformMessage> jsonDeserializer = JSON.createDeserializer(PlatformMessage.class);
+      Serializer<PlatformMessage> binarySerializer = BinaryPlatformMessageSerializer.INSTANCE;
+      Deserializer<PlatformMessage> binaryDeserializer = new BinaryPlatformMessageDeserializer();
+      byte[] json;
+      byte[] binary;
       ObjectMapper mapper = new ObjectMapper();
       ObjectMapper abmapper = new ObjectMapper();
       ObjectMapper mpmapper = new ObjectMapper(new MessagePackFactory());
@@ -88,6 +151,12 @@ public class PerfGsonSerDe {
          abmapper.registerModule(new AfterburnerModule());
          mpmapper.registerModule(new AfterburnerModule());
 
+         msg = "valueChange".equals(message) ? valueChange() : simple();
+         json = jsonSerializer.serialize(msg);
+         binary = binarySerializer.serialize(msg);
+      }
+
+      private static PlatformMessage simple() {
          Map<String,Object> attrs = ImmutableMap.<String,Object>of(
             "test1", Integer.valueOf(1),
             "test2", "this is a string",
@@ -98,7 +167,25 @@ public class PerfGsonSerDe {
          Address src = Address.deviceAddress("test", UUID.randomUUID());
          Address dst = Address.deviceAddress("test", UUID.randomUUID());
 
-         msg = PlatformMessage.buildRequest(payload, src, dst).create();
+         return PlatformMessage.buildRequest(payload, src, dst).create();
+      }
+
+      private static PlatformMessage valueChange() {
+         Map<String,Object> attrs = ImmutableMap.<String,Object>of(
+            "swit:state", "ON",
+            "swit:statechanged", System.currentTimeMillis(),
+            "devpow:battery", 87,
+            "temp:temperature", 21.5
+         );
+
+         MessageBody payload = MessageBody.buildMessage("base:ValueChange", attrs);
+         Address src = Address.deviceAddress("dev", UUID.randomUUID());
+
+         return PlatformMessage
+               .buildBroadcast(payload, src)
+               .withPlaceId(UUID.randomUUID())
+               .withPopulation("general")
+               .create();
       }
    }
 }
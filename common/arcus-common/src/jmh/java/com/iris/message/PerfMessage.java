@@ -29,9 +29,16 @@ import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 import com.google.common.collect.ImmutableMap;
+import com.iris.io.Deserializer;
 import com.iris.io.Serializer;
+import com.iris.io.binary.BinaryPlatformMessageDeserializer;
+import com.iris.io.binary.BinaryPlatformMessageSerializer;
+import com.iris.io.json.JSON;
 import com.iris.messages.MessageBody;
 import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
@@ -65,6 +72,44 @@ public class PerfMessage {
          .create();
    }
 
+   @Benchmark
+   public byte[] perfEncodeJson(TestSetup test) throws InterruptedException {
+      return test.jsonSerializer.serialize(test.message);
+   }
+
+   @Benchmark
+   public byte[] perfEncodeBinary(TestSetup test) throws InterruptedException {
+      return BinaryPlatformMessageSerializer.INSTANCE.serialize(test.message);
+   }
+
+   @Benchmark
+   public PlatformMessage perfDecodeJson(TestSetup test) throws InterruptedException {
+      return test.jsonDeserializer.deserialize(test.json);
+   }
+
+   @Benchmark
+   public MessageBody perfDecodeBinary(TestSetup test) throws InterruptedException {
+      return test.binaryDeserializer.deserialize(test.binary).getValue();
+   }
+
+   /** the cost of routing or dropping a message without reading its payload */
+   @Benchmark
+   public PlatformMessage perfDecodeBinaryEnvelope(TestSetup test) throws InterruptedException {
+      return test.binaryDeserializer.deserialize(test.binary);
+   }
+
+   public static void main(String[] args) throws Exception {
+      TestSetup test = new TestSetup();
+      test.setup();
+      System.out.println("Bytes per message: json=" + test.json.length + " binary=" + test.binary.length);
+
+      Options opt = new OptionsBuilder()
+         .include(PerfMessage.class.getSimpleName())
+         .build();
+
+      new Runner(opt).run();
+   }
+
    @State(Scope.Benchmark)
    public static class TestSetup {
       Address src = Address.deviceAddress("test", UUID.randomUUID());
@@ -77,8 +122,18 @@ public class PerfMessage {
 
       MessageBody payload = MessageBody.buildMessage("test", attrs);
 
+      Serializer<PlatformMessage> jsonSerializer = JSON.createSerializer(PlatformMessage.class);
+      Deserializer<PlatformMessage> jsonDeserializer = JSON.createDeserializer(PlatformMessage.class);
+      Deserializer<PlatformMessage> binaryDeserializer = new BinaryPlatformMessageDeserializer();
+      PlatformMessage message;
+      byte[] json;
+      byte[] binary;
+
       @Setup
       public void setup() {
+         message = PlatformMessage.buildRequest(payload, src, dst).create();
+         json = jsonSerializer.serialize(message);
+         binary = BinaryPlatformMessageSerializer.INSTANCE.serialize(message);
       }
    }
 
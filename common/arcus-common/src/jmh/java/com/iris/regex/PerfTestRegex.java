@@ -16,6 +16,7 @@
 package com.iris.regex;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -60,7 +61,27 @@ public class PerfTestRegex {
       return test.dfabyte.matches(test.bytetest);
    }
 
+   @Benchmark
+   public boolean dfatableMatch(TestSetup test) throws InterruptedException {
+      return test.dfatable.matches(test.bytetest);
+   }
+
+   @Benchmark
+   public Object dfabyteProtocolMatch(TestSetup test) throws InterruptedException {
+      return test.protocolbyte.matching(test.protocoltest);
+   }
+
+   @Benchmark
+   public Object dfatableProtocolMatch(TestSetup test) throws InterruptedException {
+      return test.protocoltable.matching(test.protocoltest);
+   }
+
    public static void main(String[] args) throws Exception {
+      TestSetup test = new TestSetup();
+      test.setup();
+      System.out.println("Footprint [test]: graph=" + footprint(test.dfabyte) + " bytes (" + test.dfabyte.getNumStates() + " states), table=" + test.dfatable.getMemoryFootprint() + " bytes (" + test.dfatable.getNumStates() + " states, " + test.dfatable.getNumClasses() + " classes)");
+      System.out.println("Footprint [protocol]: graph=" + footprint(test.protocolbyte) + " bytes (" + test.protocolbyte.getNumStates() + " states), table=" + test.protocoltable.getMemoryFootprint() + " bytes (" + test.protocoltable.getNumStates() + " states, " + test.protocoltable.getNumClasses() + " classes)");
+
       Options opt = new OptionsBuilder()
          .include(PerfTestRegex.class.getSimpleName())
          .build();
@@ -80,8 +101,14 @@ public class PerfTestRegex {
       RegexDfa<Character,List<Object>> dfa;
       RegexDfa<Character,List<Object>> dfamin;
       RegexDfaByte<List<Object>> dfabyte;
+      RegexDfaTable<List<Object>> dfatable;
       Pattern pat;
 
+      // something closer to a reflex driver, a zigbee zcl report for one of several attributes
+      byte[] protocoltest;
+      RegexDfaByte<List<String>> protocolbyte;
+      RegexDfaTable<List<String>> protocoltable;
+
       @Setup
       public void setup() {
          //String regex = "(a?|a+)b*(a?|a+)|(b+|(ca)+)?|((((((((((((((((ba*b))))))))))))))))|cac";
@@ -120,7 +147,55 @@ public class PerfTestRegex {
                return (byte)ch.charValue();
             }
          }));
+         dfatable = dfabyte.compile();
+
+         List<RegexNfa<Byte,String>> reports = new ArrayList<>();
+         for (int attr = 0; attr < 16; ++attr) {
+            String id = String.format("%02x", attr);
+            reports.add(Regex.parseByteRegex("05 01 04 02 " + id + " 00 (10|20|21|29) . .?", "attr" + id));
+         }
+         protocolbyte = RegexUtil.dfaToByteRep(RegexUtil.dfaMinimize(RegexUtil.nfaConvertToDfa(RegexNfa.append(reports))));
+         protocoltable = protocolbyte.compile();
+         protocoltest = new byte[] { 0x05, 0x01, 0x04, 0x02, 0x0F, 0x00, 0x29, 0x12, 0x34 };
       }
    }
+
+   /**
+    * Estimates the heap used by the states and transition tables of the
+    * dfa, using the same 16 byte headers and 4 byte references as
+    * {@link RegexDfaTable#getMemoryFootprint()}.
+    */
+   private static long footprint(RegexDfaByte<?> dfa) {
+      long total = 0;
+      for (RegexDfaByte.State<?> state : dfa.getStates()) {
+         total += 16 + 3 * 4;
+         total += footprint(state.getTransitions());
+      }
+
+      return total;
+   }
+
+   private static long footprint(RegexDfaByte.TransitionTable<?> tt) {
+      if (tt == null || tt instanceof RegexDfaByte.EmptyTransitionTable) {
+         return 0;
+      }
+
+      if (tt instanceof RegexDfaByte.LookupTransitionTable) {
+         return 16 + 2 * 4 + 16 + 4L * ((RegexDfaByte.LookupTransitionTable<?>)tt).getStates().length;
+      }
+
+      if (tt instanceof RegexDfaByte.AlternatesTransitionTable) {
+         RegexDfaByte.AlternatesTransitionTable<?> alt = (RegexDfaByte.AlternatesTransitionTable<?>)tt;
+         long total = 16 + 2 * 4 + 16 + 4L * alt.getLowers().length + 16 + 4L * alt.getAlternates().length;
+         for (RegexDfaByte.TransitionTable<?> sub : alt.getAlternates()) {
+            total += footprint(sub);
+         }
+
+         return total;
+      }
+
+      // singleton, range and all tables are a couple of fields
+      return 16 + 3 * 4;
+   }
 }
 
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.common.scheduler;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+
+/**
+ * A {@link Scheduler} backed by a hierarchical timing wheel rather than
+ * the heap of a {@link java.util.concurrent.ScheduledExecutorService}.
+ * Scheduling and cancelling are O(1) and lock free, the calling thread only
+ * enqueues the request and a single timer thread moves it into the wheel
+ * on the next tick.  Deadlines are rounded up to the next tick, so tasks
+ * never run early but may run up to one tick late.
+ *
+ * Tasks run on the timer thread unless a work pool is supplied, in which
+ * case they should not block.
+ */
+public class HashedWheelScheduler extends BaseScheduler {
+   private static final Logger logger =
+         LoggerFactory.getLogger(HashedWheelScheduler.class);
+
+   public static final long DEFAULT_TICK_MS = 10;
+   public static final int DEFAULT_WHEEL_SIZE = 512;
+   /** occupancy is reported for this many levels of the wheel */
+   private static final int REPORTED_LEVELS = 4;
+
+   private static final int STATE_INIT = 0;
+   private static final int STATE_STARTED = 1;
+   private static final int STATE_STOPPED = 2;
+
+   private static final int TASK_PENDING = 0;
+   private static final int TASK_CANCELLED = 1;
+   private static final int TASK_EXPIRED = 2;
+
+   private final long tickNanos;
+   @Nullable
+   private final Executor workPool;
+   private final TimingWheel wheel;
+   private final Queue<WheelTask> added = new ConcurrentLinkedQueue<>();
+   private final Queue<WheelTask> cancelled = new ConcurrentLinkedQueue<>();
+   private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+   private final Thread timer;
+   private volatile long startNanos;
+   private volatile int pending;
+
+   private final Counter scheduledCount;
+   private final Counter cancelledCount;
+   private final Counter expiredCount;
+
+   public HashedWheelScheduler(String name) {
+      this(name, null);
+   }
+
+   public HashedWheelScheduler(String name, @Nullable Executor workPool) {
+      this(name, DEFAULT_TICK_MS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, workPool);
+   }
+
+   /**
+    * @param name
+    *    Used for the timer thread name and metrics.
+    * @param tickDuration
+    *    The resolution of the timer, tasks will run up to this long after their deadline.
+    * @param wheelSize
+    *    The number of buckets per level of the wheel, must be a power of 2.  Level 0
+    *    covers {@code tickDuration * wheelSize}, each level after that covers
+    *    {@code wheelSize} times the previous level.
+    * @param workPool
+    *    When non-null tasks are run on this pool, otherwise they run on the timer thread.
+    */
+   public HashedWheelScheduler(String name, long tickDuration, TimeUnit unit, int wheelSize, @Nullable Executor workPool) {
+      Preconditions.checkNotNull(name, "name may not be null");
+      Preconditions.checkArgument(tickDuration > 0, "tickDuration must be positive");
+      this.tickNanos = unit.toNanos(tickDuration);
+      this.workPool = workPool;
+      this.wheel = new TimingWheel(wheelSize);
+      this.timer = new Thread(this::run, name + "-timer");
+      this.timer.setDaemon(true);
+
+      IrisMetricSet metrics = IrisMetrics.metrics("scheduler." + name);
+      this.scheduledCount = metrics.counter("scheduled");
+      this.cancelledCount = metrics.counter("cancelled");
+      this.expiredCount = metrics.counter("expired");
+      metrics.gauge("pending", (Supplier<Integer>) () -> pending);
+      for(int i = 0; i < REPORTED_LEVELS; i++) {
+         final int level = i;
+         metrics.gauge("wheel" + level + ".occupancy", (Supplier<Integer>) () -> wheel.getOccupancy(level));
+      }
+   }
+
+   @PostConstruct
+   public void start() {
+      if(state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+         startNanos = System.nanoTime();
+         timer.start();
+      }
+   }
+
+   @PreDestroy
+   public void stop() {
+      if(state.getAndSet(STATE_STOPPED) != STATE_STARTED) {
+         return;
+      }
+      timer.interrupt();
+      try {
+         timer.join(TimeUnit.SECONDS.toMillis(30));
+      }
+      catch(InterruptedException e) {
+         Thread.currentThread().interrupt();
+         logger.warn("Failed clean shutdown", e);
+      }
+   }
+
+   @Override
+   protected ScheduledTask doSchedule(Runnable task, Date time, long delay, TimeUnit unit) {
+      if(state.get() == STATE_INIT) {
+         start();
+      }
+      if(state.get() == STATE_STOPPED) {
+         throw new RejectedExecutionException("Scheduler has been stopped");
+      }
+
+      WheelTask scheduled = new WheelTask(task, System.nanoTime(), unit.toNanos(delay));
+      added.offer(scheduled);
+      scheduledCount.inc();
+      return scheduled;
+   }
+
+   private void run() {
+      List<TimingWheel.Entry> expired = new ArrayList<>();
+      while(state.get() == STATE_STARTED) {
+         long sleepNanos = startNanos + (wheel.getCurrentTick() + 1) * tickNanos - System.nanoTime();
+         if(sleepNanos > 0) {
+            try {
+               TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            }
+            catch(InterruptedException e) {
+               // stop() interrupts to wake the timer up
+            }
+            continue;
+         }
+
+         try {
+            removeCancelled();
+            addScheduled(expired);
+            long now = (System.nanoTime() - startNanos) / tickNanos;
+            while(wheel.getCurrentTick() < now) {
+               wheel.tick(expired);
+            }
+            pending = wheel.size();
+            for(TimingWheel.Entry entry: expired) {
+               ((WheelTask) entry).expire();
+            }
+         }
+         catch(Throwable t) {
+            logger.error("Error advancing timer", t);
+         }
+         finally {
+            expired.clear();
+         }
+      }
+   }
+
+   private void removeCancelled() {
+      WheelTask task;
+      while((task = cancelled.poll()) != null) {
+         wheel.remove(task);
+      }
+   }
+
+   private void addScheduled(List<TimingWheel.Entry> expired) {
+      WheelTask task;
+      while((task = added.poll()) != null) {
+         if(!task.isPending()) {
+            continue;
+         }
+         task.setDeadline(toTick(task.scheduledNanos, task.delayNanos));
+         if(!wheel.add(task)) {
+            expired.add(task);
+         }
+      }
+   }
+
+   /**
+    * Converts the deadline to a tick, rounding up so the task doesn't run early.
+    */
+   private long toTick(long scheduledNanos, long delayNanos) {
+      long elapsed = scheduledNanos - startNanos;
+      if(delayNanos > 0 && elapsed > Long.MAX_VALUE - delayNanos) {
+         return Long.MAX_VALUE;
+      }
+      long deadline = elapsed + delayNanos;
+      if(deadline <= 0) {
+         return 0;
+      }
+      return (deadline - 1) / tickNanos + 1;
+   }
+
+   private void execute(Runnable task) {
+      if(workPool != null) {
+         try {
+            workPool.execute(task);
+         }
+         catch(RejectedExecutionException e) {
+            logger.warn("Unable to run scheduled task [{}], work pool rejected it", task, e);
+         }
+         return;
+      }
+
+      try {
+         task.run();
+      }
+      catch(Throwable t) {
+         logger.warn("Error running scheduled task [{}]", task, t);
+      }
+   }
+
+   private final class WheelTask extends TimingWheel.Entry implements ScheduledTask {
+      private final Runnable task;
+      private final long scheduledNanos;
+      private final long delayNanos;
+      private final AtomicInteger state = new AtomicInteger(TASK_PENDING);
+
+      WheelTask(Runnable task, long scheduledNanos, long delayNanos) {
+         this.task = task;
+         this.scheduledNanos = scheduledNanos;
+         this.delayNanos = delayNanos;
+      }
+
+      @Override
+      public boolean isPending() {
+         return state.get() == TASK_PENDING;
+      }
+
+      @Override
+      public boolean cancel() {
+         if(!state.compareAndSet(TASK_PENDING, TASK_CANCELLED)) {
+            return false;
+         }
+         // the timer thread removes it from the wheel on the next tick
+         cancelled.offer(this);
+         cancelledCount.inc();
+         return true;
+      }
+
+      void expire() {
+         if(state.compareAndSet(TASK_PENDING, TASK_EXPIRED)) {
+            expiredCount.inc();
+            execute(task);
+         }
+      }
+
+      @Override
+      public String toString() {
+         return "WheelTask [task=" + task + ", deadline=" + getDeadline() + "]";
+      }
+   }
+}
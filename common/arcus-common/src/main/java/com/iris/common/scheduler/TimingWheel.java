@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.common.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A hierarchical timing wheel measured in ticks.  Level 0 has one bucket per
+ * tick, each following level has buckets which span a full rotation of the level
+ * below it, levels are added as needed for more distant deadlines.  Adding and
+ * removing an entry is O(1), each {@link #tick(List)} expires the entries in one
+ * level 0 bucket and, when a higher level bucket comes due, cascades its entries
+ * down to the lower levels.
+ *
+ * This is not thread safe, it is intended to be owned by a single timer thread.
+ */
+class TimingWheel {
+   private final int wheelSize;
+   private final long mask;
+   private final List<Level> levels = new ArrayList<>();
+   private long currentTick;
+   private int size;
+
+   TimingWheel(int wheelSize) {
+      Preconditions.checkArgument(wheelSize > 1 && Integer.bitCount(wheelSize) == 1, "wheelSize must be a power of 2 greater than 1");
+      this.wheelSize = wheelSize;
+      this.mask = wheelSize - 1;
+      this.levels.add(new Level(1, wheelSize));
+   }
+
+   long getCurrentTick() {
+      return currentTick;
+   }
+
+   /**
+    * The number of entries currently in the wheel.
+    */
+   int size() {
+      return size;
+   }
+
+   int getLevelCount() {
+      return levels.size();
+   }
+
+   /**
+    * The number of entries in the given level, levels which haven't
+    * been created yet are always empty.
+    */
+   int getOccupancy(int level) {
+      return level < levels.size() ? levels.get(level).occupancy : 0;
+   }
+
+   /**
+    * Adds the entry to the wheel.
+    * @return {@code false} if the entry's deadline has already been reached, in
+    *    which case it was not added and should be expired by the caller
+    */
+   boolean add(Entry entry) {
+      Preconditions.checkState(entry.bucket == null, "entry is already in a wheel");
+      if(entry.deadline <= currentTick) {
+         return false;
+      }
+      insert(entry);
+      size++;
+      return true;
+   }
+
+   /**
+    * Removes the entry if it is currently in the wheel.
+    */
+   boolean remove(Entry entry) {
+      Bucket bucket = entry.bucket;
+      if(bucket == null) {
+         return false;
+      }
+      bucket.unlink(entry);
+      size--;
+      return true;
+   }
+
+   /**
+    * Advances the wheel one tick, any entries which are now due
+    * are removed and added to {@code expired}.
+    */
+   void tick(List<? super Entry> expired) {
+      long tick = ++currentTick;
+      // higher levels first so that anything cascaded into level 0 for this tick
+      // is picked up below
+      for(int i = levels.size() - 1; i > 0; i--) {
+         Level level = levels.get(i);
+         if(tick % level.span == 0) {
+            Entry entry = level.bucket(tick).clear();
+            while(entry != null) {
+               Entry next = entry.next;
+               entry.next = null;
+               insert(entry);
+               entry = next;
+            }
+         }
+      }
+
+      Entry entry = levels.get(0).bucket(tick).clear();
+      while(entry != null) {
+         Entry next = entry.next;
+         entry.next = null;
+         expired.add(entry);
+         size--;
+         entry = next;
+      }
+   }
+
+   private void insert(Entry entry) {
+      long deadline = entry.deadline;
+      for(int i = 0; ; i++) {
+         Level level = level(i);
+         if(deadline / level.span - currentTick / level.span < wheelSize) {
+            level.bucket(deadline).link(entry);
+            return;
+         }
+      }
+   }
+
+   private Level level(int i) {
+      if(i < levels.size()) {
+         return levels.get(i);
+      }
+
+      long span = levels.get(i - 1).span;
+      // once a bucket would span more than the range of a long every deadline fits in the level
+      Level level = new Level(span > Long.MAX_VALUE / wheelSize ? Long.MAX_VALUE : span * wheelSize, wheelSize);
+      levels.add(level);
+      return level;
+   }
+
+   private final class Level {
+      private final long span;
+      private final Bucket[] buckets;
+      // written only by the owning thread but may be read for metrics
+      private volatile int occupancy;
+
+      Level(long span, int wheelSize) {
+         this.span = span;
+         this.buckets = new Bucket[wheelSize];
+         for(int i = 0; i < wheelSize; i++) {
+            buckets[i] = new Bucket(this);
+         }
+      }
+
+      Bucket bucket(long tick) {
+         return buckets[(int) ((tick / span) & mask)];
+      }
+   }
+
+   private static final class Bucket {
+      private final Level level;
+      private Entry head;
+      private Entry tail;
+      private int count;
+
+      Bucket(Level level) {
+         this.level = level;
+      }
+
+      void link(Entry entry) {
+         entry.bucket = this;
+         entry.prev = tail;
+         entry.next = null;
+         if(tail == null) {
+            head = entry;
+         }
+         else {
+            tail.next = entry;
+         }
+         tail = entry;
+         count++;
+         level.occupancy++;
+      }
+
+      void unlink(Entry entry) {
+         if(entry.prev == null) {
+            head = entry.next;
+         }
+         else {
+            entry.prev.next = entry.next;
+         }
+         if(entry.next == null) {
+            tail = entry.prev;
+         }
+         else {
+            entry.next.prev = entry.prev;
+         }
+         entry.prev = null;
+         entry.next = null;
+         entry.bucket = null;
+         count--;
+         level.occupancy--;
+      }
+
+      /**
+       * Empties the bucket, returning the previous head.  The entries
+       * are still linked together via {@link Entry#next}.
+       */
+      Entry clear() {
+         Entry entry = head;
+         for(Entry e = head; e != null; e = e.next) {
+            e.bucket = null;
+            e.prev = null;
+         }
+         level.occupancy -= count;
+         head = null;
+         tail = null;
+         count = 0;
+         return entry;
+      }
+   }
+
+   /**
+    * An element in the wheel, the deadline is the tick on which the entry expires.
+    */
+   static class Entry {
+      private long deadline;
+      private Bucket bucket;
+      private Entry prev;
+      private Entry next;
+
+      long getDeadline() {
+         return deadline;
+      }
+
+      void setDeadline(long deadline) {
+         Preconditions.checkState(bucket == null, "may not change the deadline while in a wheel");
+         this.deadline = deadline;
+      }
+   }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A fixed, ordered set of strings which both sides of a binary encoding
+ * agree on.  The order is part of the wire format, entries may only ever be
+ * appended and doing so requires a new format version.
+ */
+public final class BinaryDictionary {
+   public static final BinaryDictionary EMPTY = new BinaryDictionary(ImmutableList.<String>of());
+
+   public static BinaryDictionary of(String... names) {
+      return new BinaryDictionary(ImmutableList.copyOf(names));
+   }
+
+   private final List<String> names;
+   private final Map<String, Integer> indexes;
+
+   private BinaryDictionary(List<String> names) {
+      ImmutableMap.Builder<String, Integer> indexes = ImmutableMap.builder();
+      for(int i = 0; i < names.size(); i++) {
+         indexes.put(names.get(i), i);
+      }
+      this.names = names;
+      // will fail on duplicate entries
+      this.indexes = indexes.build();
+   }
+
+   public int size() {
+      return names.size();
+   }
+
+   List<String> names() {
+      return names;
+   }
+
+   Map<String, Integer> indexes() {
+      return indexes;
+   }
+}
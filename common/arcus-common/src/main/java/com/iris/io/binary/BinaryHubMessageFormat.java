@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import com.google.common.base.Preconditions;
+import com.iris.messages.HubMessage;
+
+/**
+ * A binary framing for {@link HubMessage}s exchanged over the hub websocket,
+ * replacing the JSON object with a Base64 encoded payload.
+ *
+ * <pre>
+ * magic (1) | type (1) | payload length (4, big endian) | payload
+ * </pre>
+ *
+ * The hub requests the framing by sending {@link #HEADER_FRAMING} with the
+ * websocket upgrade request, and only switches to it when the bridge echoes the
+ * header in the upgrade response, so older firmware and older bridges keep
+ * using JSON.  Since JSON framing always starts with '{' or whitespace
+ * receivers may accept both, see {@link #isBinary(byte[], int, int)}.
+ */
+public final class BinaryHubMessageFormat {
+   public static final int MAGIC = 0xB1;
+   public static final int HEADER_LENGTH = 6;
+
+   public static final String HEADER_FRAMING = "X-Hub-Framing";
+   public static final String FRAMING_BINARY = "binary-1";
+
+   private static final int TYPE_PLATFORM = 1;
+   private static final int TYPE_PROTOCOL = 2;
+   private static final int TYPE_LOG = 3;
+   private static final int TYPE_METRICS = 4;
+
+   // {"type":"<type>","buffer":"<base64>"}
+   private static final int JSON_OVERHEAD = 23;
+
+   public static boolean isBinary(byte[] buffer, int offset, int length) {
+      return length >= HEADER_LENGTH && (buffer[offset] & 0xFF) == MAGIC;
+   }
+
+   public static boolean isFramingRequested(String header) {
+      return FRAMING_BINARY.equals(header);
+   }
+
+   public static int toCode(HubMessage.Type type) {
+      Preconditions.checkNotNull(type, "type may not be null");
+      switch(type) {
+      case PLATFORM:
+         return TYPE_PLATFORM;
+      case PROTOCOL:
+         return TYPE_PROTOCOL;
+      case LOG:
+         return TYPE_LOG;
+      case METRICS:
+         return TYPE_METRICS;
+      default:
+         throw new IllegalArgumentException("Unsupported hub message type " + type);
+      }
+   }
+
+   public static HubMessage.Type fromCode(int code) {
+      switch(code) {
+      case TYPE_PLATFORM:
+         return HubMessage.Type.PLATFORM;
+      case TYPE_PROTOCOL:
+         return HubMessage.Type.PROTOCOL;
+      case TYPE_LOG:
+         return HubMessage.Type.LOG;
+      case TYPE_METRICS:
+         return HubMessage.Type.METRICS;
+      default:
+         throw new IllegalArgumentException("Unrecognized hub message type " + code);
+      }
+   }
+
+   public static byte[] encode(HubMessage message) {
+      byte[] payload = message.getPayload() != null ? message.getPayload() : new byte[0];
+      byte[] buffer = new byte[HEADER_LENGTH + payload.length];
+      writeHeader(message.getType(), payload.length, buffer, 0);
+      System.arraycopy(payload, 0, buffer, HEADER_LENGTH, payload.length);
+      return buffer;
+   }
+
+   public static void writeHeader(HubMessage.Type type, int payloadLength, byte[] buffer, int offset) {
+      buffer[offset] = (byte) MAGIC;
+      buffer[offset + 1] = (byte) toCode(type);
+      buffer[offset + 2] = (byte) (payloadLength >>> 24);
+      buffer[offset + 3] = (byte) (payloadLength >>> 16);
+      buffer[offset + 4] = (byte) (payloadLength >>> 8);
+      buffer[offset + 5] = (byte) payloadLength;
+   }
+
+   public static HubMessage decode(byte[] buffer) {
+      return decode(buffer, 0, buffer.length);
+   }
+
+   public static HubMessage decode(byte[] buffer, int offset, int length) {
+      Preconditions.checkArgument(isBinary(buffer, offset, length), "Not a binary hub message");
+      HubMessage.Type type = fromCode(buffer[offset + 1] & 0xFF);
+      int payloadLength =
+            (buffer[offset + 2] & 0xFF) << 24 |
+            (buffer[offset + 3] & 0xFF) << 16 |
+            (buffer[offset + 4] & 0xFF) << 8 |
+            (buffer[offset + 5] & 0xFF);
+      Preconditions.checkArgument(payloadLength >= 0 && payloadLength <= length - HEADER_LENGTH, "Invalid payload length %s for a frame of %s bytes", payloadLength, length);
+
+      byte[] payload = new byte[payloadLength];
+      System.arraycopy(buffer, offset + HEADER_LENGTH, payload, 0, payloadLength);
+      return HubMessage.create(type, payload);
+   }
+
+   /**
+    * The size of the same message using the JSON framing, used to report
+    * the bytes saved by the binary framing.
+    */
+   public static int jsonLength(HubMessage.Type type, int payloadLength) {
+      return JSON_OVERHEAD + type.name().length() + (payloadLength + 2) / 3 * 4;
+   }
+
+   /**
+    * The number of bytes the binary framing saves over JSON for a
+    * payload of the given size.
+    */
+   public static int bytesSaved(HubMessage.Type type, int payloadLength) {
+      return jsonLength(type, payloadLength) - (HEADER_LENGTH + payloadLength);
+   }
+
+   private BinaryHubMessageFormat() {
+   }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+/**
+ * Constants for the binary {@link com.iris.messages.PlatformMessage} encoding.
+ *
+ * <pre>
+ * magic (1) | version (1) | flags (1) | ttl (zigzag) | timestamp (varlong)
+ * source | destination | type (name) | actor | placeId | population (name) |
+ * correlationId | clientTime (varlong, if flagged) | payload
+ * </pre>
+ *
+ * Addresses are written as a kind byte followed by their group / id parts,
+ * UUIDs are written as 16 raw bytes and message types and attribute names are
+ * written through {@link #DICTIONARY}.  The first byte of a JSON message is
+ * always '{' or whitespace so {@link #MAGIC} is enough to tell the two
+ * formats apart.
+ */
+public final class BinaryMessageFormat {
+   public static final int MAGIC = 0xA5;
+   public static final int VERSION = 1;
+
+   static final int FLAG_REQUEST = 0x01;
+   static final int FLAG_CLIENT_TIME = 0x02;
+
+   static final int ADDRESS_NULL = 0;
+   static final int ADDRESS_BROADCAST = 1;
+   static final int ADDRESS_DRIVER = 2;
+   static final int ADDRESS_SERVICE = 3;
+   static final int ADDRESS_HUB_SERVICE = 4;
+   static final int ADDRESS_CLIENT = 5;
+   static final int ADDRESS_HUB = 6;
+   static final int ADDRESS_BRIDGE = 7;
+   /** any other address, written as its string representation */
+   static final int ADDRESS_OTHER = 8;
+
+   static final int PAYLOAD_NONE = 0;
+   static final int PAYLOAD_BUFFER = 1;
+   static final int PAYLOAD_BODY = 2;
+
+   /** version 1 dictionary, may only be appended to along with a version bump */
+   static final BinaryDictionary DICTIONARY = BinaryDictionary.of(
+         // message types
+         "base:ValueChange",
+         "base:GetAttributes",
+         "base:GetAttributesResponse",
+         "base:SetAttributes",
+         "base:SetAttributesResponse",
+         "base:Added",
+         "base:Deleted",
+         "EmptyMessage",
+         "Error",
+         "DeviceCommand",
+         "subs:SubsystemChanged",
+         // groups, services and populations
+         "dev",
+         "rule",
+         "subsystems",
+         "scene",
+         "place",
+         "person",
+         "account",
+         "hub",
+         "alarmservice",
+         "general",
+         "beta",
+         "qa",
+         // attribute names
+         "code",
+         "message",
+         "names",
+         "base:address",
+         "base:id",
+         "base:type",
+         "base:tags",
+         "base:caps",
+         "base:images",
+         "dev:name",
+         "dev:devtypehint",
+         "devadv:errors",
+         "devconn:state",
+         "devconn:lastchange",
+         "devconn:signal",
+         "devpow:battery",
+         "devpow:source",
+         "swit:state",
+         "temp:temperature",
+         "cont:contact",
+         "mot:motion",
+         "dim:brightness",
+         "hubconn:lastchange"
+   );
+
+   /**
+    * Determines if the buffer holds a binary encoded message, when this is {@code false}
+    * the message should be decoded as JSON.
+    */
+   public static boolean isBinary(byte[] buffer) {
+      return isBinary(buffer, 0, buffer.length);
+   }
+
+   public static boolean isBinary(byte[] buffer, int offset, int length) {
+      return length > 1 && (buffer[offset] & 0xFF) == MAGIC;
+   }
+
+   private BinaryMessageFormat() {
+   }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import static com.iris.io.binary.BinaryMessageFormat.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+import com.codahale.metrics.Counter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.iris.io.Deserializer;
+import com.iris.io.Serializer;
+import com.iris.io.json.JSON;
+import com.iris.messages.Message;
+import com.iris.messages.MessageBody;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+
+/**
+ * Reads a {@link PlatformMessage} in either the binary format described by
+ * {@link BinaryMessageFormat} or, when the magic byte is absent, by delegating
+ * to the JSON deserializer.  Accepting both allows producers to be switched
+ * over one at a time.
+ *
+ * The envelope of a binary message is always decoded immediately, but the
+ * {@link MessageBody} is only decoded on the first call to
+ * {@link PlatformMessage#getValue()}, so messages which are dropped for
+ * being on the wrong partition, expired or having no interested listener never
+ * build their attributes.  The {@code messages.binary.payload.*} metrics track
+ * how many payloads were deferred and how many of those were eventually decoded.
+ */
+public class BinaryPlatformMessageDeserializer implements Deserializer<PlatformMessage> {
+   private static final byte[] EMPTY_BUFFER = new byte[0];
+
+   private static final IrisMetricSet METRICS = IrisMetrics.metrics("messages.binary");
+   private static final Counter PAYLOAD_DEFERRED = METRICS.counter("payload.deferred");
+   private static final Counter PAYLOAD_DECODED = METRICS.counter("payload.decoded");
+
+   static {
+      METRICS.gauge("payload.skipped", (Counter deferred) -> deferred.getCount() - PAYLOAD_DECODED.getCount(), PAYLOAD_DEFERRED);
+   }
+
+   private final Deserializer<PlatformMessage> fallback;
+   private final long optimizeExpiredMessagesDefaultTtl;
+
+   public BinaryPlatformMessageDeserializer() {
+      this(JSON.createDeserializer(PlatformMessage.class), 0);
+   }
+
+   /**
+    * @param fallback
+    *    Used for any buffer which is not binary encoded.
+    * @param optimizeExpiredMessagesDefaultTtl
+    *    When non-zero messages which have expired are returned with only the
+    *    source, destination and type populated, see {@link PlatformMessage.Builder#createExpired(String)}.
+    */
+   public BinaryPlatformMessageDeserializer(Deserializer<PlatformMessage> fallback, int optimizeExpiredMessagesDefaultTtl) {
+      this.fallback = fallback;
+      this.optimizeExpiredMessagesDefaultTtl = optimizeExpiredMessagesDefaultTtl;
+   }
+
+   @Override
+   public PlatformMessage deserialize(byte[] input) throws IllegalArgumentException {
+      if(!BinaryMessageFormat.isBinary(input)) {
+         return fallback.deserialize(input);
+      }
+      return read(new BinaryReader(input, 0, input.length, DICTIONARY));
+   }
+
+   @Override
+   public PlatformMessage deserialize(InputStream input) throws IOException, IllegalArgumentException {
+      return deserialize(ByteStreams.toByteArray(input));
+   }
+
+   private PlatformMessage read(BinaryReader in) {
+      in.readByte(); // magic
+      int version = in.readByte();
+      if(version != VERSION) {
+         throw new IllegalArgumentException("Unsupported binary message version " + version);
+      }
+      int flags = in.readByte();
+      int ttl = in.readSignedVarInt();
+      long timestamp = in.readSignedVarLong();
+
+      PlatformMessage.Builder bld = PlatformMessage.builder()
+            .withTimeToLive(ttl)
+            .withTimestamp(timestamp)
+            .from(readAddress(in))
+            .to(readAddress(in));
+      String type = in.readName();
+
+      long now = System.currentTimeMillis();
+      if(optimizeExpiredMessagesDefaultTtl != 0 && Message.isExpired(optimizeExpiredMessagesDefaultTtl, now, timestamp, ttl)) {
+         return bld.createExpired(type);
+      }
+
+      bld
+         .withActor(readAddress(in))
+         .withPlaceId(readId(in))
+         .withPopulation(in.readName())
+         .withCorrelationId(readId(in))
+         .isRequestMessage((flags & FLAG_REQUEST) != 0);
+      if((flags & FLAG_CLIENT_TIME) != 0) {
+         bld.withClientTime(in.readSignedVarLong());
+      }
+
+      int payload = in.readByte();
+      switch(payload) {
+      case PAYLOAD_BODY:
+         // nothing else is read from this reader, so it is handed off to decode the body later
+         PAYLOAD_DEFERRED.inc();
+         bld.withLazyPayload(type, () -> {
+            PAYLOAD_DECODED.inc();
+            return readBody(in);
+         });
+         break;
+      case PAYLOAD_BUFFER:
+         bld.withPayload(type, ByteArraySerializer.INSTANCE, in.readBytes());
+         break;
+      case PAYLOAD_NONE:
+         bld.withPayload(type, ByteArraySerializer.INSTANCE, EMPTY_BUFFER);
+         break;
+      default:
+         throw new IllegalArgumentException("Unrecognized payload type " + payload);
+      }
+      return bld.create();
+   }
+
+   private static Address readAddress(BinaryReader in) {
+      int kind = in.readByte();
+      switch(kind) {
+      case ADDRESS_NULL:
+         return null;
+      case ADDRESS_BROADCAST:
+         return Address.broadcastAddress();
+      case ADDRESS_DRIVER:
+         return Address.deviceAddress(in.readName(), in.readUuid());
+      case ADDRESS_SERVICE: {
+         String service = in.readName();
+         Object contextId = in.readValue();
+         Integer qualifier = (Integer) in.readValue();
+         return Address.platformService(contextId, service, qualifier);
+      }
+      case ADDRESS_HUB_SERVICE: {
+         String hubId = in.readString();
+         return Address.hubService(hubId, in.readName());
+      }
+      case ADDRESS_CLIENT: {
+         String serverId = in.readName();
+         return Address.clientAddress(serverId, in.readString());
+      }
+      case ADDRESS_HUB:
+         return Address.hubAddress(in.readString());
+      case ADDRESS_BRIDGE:
+         return Address.bridgeAddress(in.readName());
+      case ADDRESS_OTHER:
+         return Address.fromString(in.readString());
+      default:
+         throw new IllegalArgumentException("Unrecognized address kind " + kind);
+      }
+   }
+
+   private static String readId(BinaryReader in) {
+      Object id = in.readValue();
+      return id instanceof UUID ? id.toString() : (String) id;
+   }
+
+   private static MessageBody readBody(BinaryReader in) {
+      String messageType = in.readName();
+      int count = in.readVarInt();
+      if(count == 0) {
+         return MessageBody.buildMessage(messageType, ImmutableMap.<String, Object>of());
+      }
+      ImmutableMap.Builder<String, Object> attributes = ImmutableMap.builder();
+      for(int i = 0; i < count; i++) {
+         String name = in.readName();
+         Object value = in.readJsonValue();
+         // a null may only appear here via a JSON encoded value
+         if(value != null) {
+            attributes.put(name, value);
+         }
+      }
+      return MessageBody.buildMessage(messageType, attributes.build());
+   }
+
+   static enum ByteArraySerializer implements Serializer<byte[]> {
+      INSTANCE;
+
+      @Override
+      public byte[] serialize(byte[] value) throws IllegalArgumentException {
+         return value;
+      }
+
+      @Override
+      public void serialize(byte[] value, OutputStream out) throws IOException, IllegalArgumentException {
+         out.write(value);
+      }
+   }
+}
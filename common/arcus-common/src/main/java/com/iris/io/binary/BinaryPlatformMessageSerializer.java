@@ -0,0 +1,189 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import static com.iris.io.binary.BinaryMessageFormat.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import com.iris.io.Serializer;
+import com.iris.messages.MessageBody;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
+import com.iris.messages.address.BridgeAddress;
+import com.iris.messages.address.ClientAddress;
+import com.iris.messages.address.DeviceDriverAddress;
+import com.iris.messages.address.HubAddress;
+import com.iris.messages.address.HubServiceAddress;
+import com.iris.messages.address.PlatformServiceAddress;
+
+/**
+ * Writes a {@link PlatformMessage} in the format described by {@link BinaryMessageFormat}.
+ * This is stateless and thread safe.
+ */
+public class BinaryPlatformMessageSerializer implements Serializer<PlatformMessage> {
+   public static final BinaryPlatformMessageSerializer INSTANCE = new BinaryPlatformMessageSerializer();
+
+   private static final int INITIAL_BUFFER_SIZE = 256;
+
+   @Override
+   public byte[] serialize(PlatformMessage value) throws IllegalArgumentException {
+      BinaryWriter out = new BinaryWriter(INITIAL_BUFFER_SIZE, DICTIONARY);
+      write(value, out);
+      return out.toByteArray();
+   }
+
+   @Override
+   public void serialize(PlatformMessage value, OutputStream out) throws IOException, IllegalArgumentException {
+      out.write(serialize(value));
+   }
+
+   private void write(PlatformMessage value, BinaryWriter out) {
+      Date clientTime = value.getClientTime();
+      int flags = 0;
+      if(value.isRequest()) {
+         flags |= FLAG_REQUEST;
+      }
+      if(clientTime != null) {
+         flags |= FLAG_CLIENT_TIME;
+      }
+
+      out
+         .writeByte(MAGIC)
+         .writeByte(VERSION)
+         .writeByte(flags)
+         // ttl and timestamp first so expired messages may be skipped early, same as the JSON format
+         .writeSignedVarInt(value.getTimeToLive())
+         .writeSignedVarLong(value.getTimestamp().getTime());
+      writeAddress(value.getSource(), out);
+      writeAddress(value.getDestination(), out);
+      out.writeName(value.getMessageType());
+      writeAddress(value.getActor(), out);
+      writeId(value.getPlaceId(), out);
+      out.writeName(value.getPopulation());
+      writeId(value.getCorrelationId(), out);
+      if(clientTime != null) {
+         out.writeSignedVarLong(clientTime.getTime());
+      }
+      writePayload(value, out);
+   }
+
+   private static void writeAddress(Address address, BinaryWriter out) {
+      if(address == null) {
+         out.writeByte(ADDRESS_NULL);
+      }
+      else if(address.isBroadcast()) {
+         out.writeByte(ADDRESS_BROADCAST);
+      }
+      else if(address instanceof DeviceDriverAddress) {
+         DeviceDriverAddress driver = (DeviceDriverAddress) address;
+         out.writeByte(ADDRESS_DRIVER).writeName(driver.getGroup()).writeUuid(driver.getId());
+      }
+      else if(address instanceof PlatformServiceAddress && isSupportedContext(((PlatformServiceAddress) address).getContextId())) {
+         PlatformServiceAddress service = (PlatformServiceAddress) address;
+         out
+            .writeByte(ADDRESS_SERVICE)
+            .writeName(service.getServiceName())
+            .writeValue(service.getContextId())
+            .writeValue(service.getContextQualifier());
+      }
+      else if(address instanceof HubServiceAddress) {
+         HubServiceAddress service = (HubServiceAddress) address;
+         out.writeByte(ADDRESS_HUB_SERVICE).writeString(service.getHubId()).writeName(service.getServiceName());
+      }
+      else if(address instanceof ClientAddress) {
+         ClientAddress client = (ClientAddress) address;
+         out.writeByte(ADDRESS_CLIENT).writeName(client.getGroup()).writeString(client.getId());
+      }
+      else if(address instanceof HubAddress) {
+         out.writeByte(ADDRESS_HUB).writeString(((HubAddress) address).getHubId());
+      }
+      else if(address instanceof BridgeAddress) {
+         out.writeByte(ADDRESS_BRIDGE).writeName(((BridgeAddress) address).getId());
+      }
+      else {
+         out.writeByte(ADDRESS_OTHER).writeString(address.getRepresentation());
+      }
+   }
+
+   private static boolean isSupportedContext(Object contextId) {
+      return contextId == null || contextId instanceof UUID || contextId instanceof String;
+   }
+
+   /**
+    * Place ids and correlation ids are usually UUIDs, in which case they are
+    * written as 16 bytes instead of 36 characters.
+    */
+   private static void writeId(String id, BinaryWriter out) {
+      UUID uuid = id != null && id.length() == 36 ? parseUuid(id) : null;
+      if(uuid != null) {
+         out.writeValue(uuid);
+      }
+      else {
+         out.writeValue(id);
+      }
+   }
+
+   private static UUID parseUuid(String id) {
+      try {
+         UUID uuid = UUID.fromString(id);
+         // only use the compact form when it will produce the exact same string
+         return uuid.toString().equals(id) ? uuid : null;
+      }
+      catch(IllegalArgumentException e) {
+         return null;
+      }
+   }
+
+   private static void writePayload(PlatformMessage value, BinaryWriter out) {
+      MessageBody body = value.getValue();
+      if(body != null) {
+         out.writeByte(PAYLOAD_BODY).writeName(body.getMessageType());
+         Map<String, Object> attributes = body.getAttributes();
+         int count = 0;
+         if(attributes != null) {
+            for(Object attribute: attributes.values()) {
+               if(attribute != null) {
+                  count++;
+               }
+            }
+         }
+         out.writeVarInt(count);
+         if(count > 0) {
+            // null attributes are dropped to match the JSON encoding
+            for(Map.Entry<String, Object> e: attributes.entrySet()) {
+               if(e.getValue() != null) {
+                  out.writeName(e.getKey());
+                  out.writeValue(e.getValue());
+               }
+            }
+         }
+         return;
+      }
+
+      byte[] buffer = value.getBuffer();
+      if(buffer != null) {
+         out.writeByte(PAYLOAD_BUFFER).writeBytes(buffer);
+      }
+      else {
+         out.writeByte(PAYLOAD_NONE);
+      }
+   }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.iris.io.json.JSON;
+
+/**
+ * Reads values written by {@link BinaryWriter}.  All read methods throw
+ * {@link IllegalArgumentException} if the buffer is truncated or malformed.
+ */
+public class BinaryReader {
+   private final byte[] buffer;
+   private final int limit;
+   private final List<String> dictionary;
+   private final List<String> names;
+   private int position;
+
+   public BinaryReader(byte[] buffer) {
+      this(buffer, 0, buffer.length, BinaryDictionary.EMPTY);
+   }
+
+   public BinaryReader(byte[] buffer, int offset, int length, BinaryDictionary dictionary) {
+      if(offset < 0 || length < 0 || offset + length > buffer.length) {
+         throw new IllegalArgumentException("Invalid offset / length for buffer");
+      }
+      this.buffer = buffer;
+      this.position = offset;
+      this.limit = offset + length;
+      this.dictionary = dictionary.names();
+      this.names = new ArrayList<>();
+   }
+
+   public int position() {
+      return position;
+   }
+
+   public int remaining() {
+      return limit - position;
+   }
+
+   public int readByte() {
+      require(1);
+      return buffer[position++] & 0xFF;
+   }
+
+   public byte[] readBytes() {
+      int length = readVarInt();
+      require(length);
+      byte[] value = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return value;
+   }
+
+   public int readVarInt() {
+      int value = 0;
+      for(int shift = 0; shift < 35; shift += 7) {
+         int b = readByte();
+         value |= (b & 0x7F) << shift;
+         if((b & 0x80) == 0) {
+            return value;
+         }
+      }
+      throw new IllegalArgumentException("Malformed varint");
+   }
+
+   public long readVarLong() {
+      long value = 0;
+      for(int shift = 0; shift < 70; shift += 7) {
+         int b = readByte();
+         value |= (long) (b & 0x7F) << shift;
+         if((b & 0x80) == 0) {
+            return value;
+         }
+      }
+      throw new IllegalArgumentException("Malformed varlong");
+   }
+
+   public int readSignedVarInt() {
+      int value = readVarInt();
+      return (value >>> 1) ^ -(value & 1);
+   }
+
+   public long readSignedVarLong() {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+   }
+
+   public long readLong() {
+      require(8);
+      long value = 0;
+      for(int i = 0; i < 8; i++) {
+         value = (value << 8) | (buffer[position++] & 0xFF);
+      }
+      return value;
+   }
+
+   public double readDouble() {
+      return Double.longBitsToDouble(readLong());
+   }
+
+   public UUID readUuid() {
+      long msb = readLong();
+      long lsb = readLong();
+      return new UUID(msb, lsb);
+   }
+
+   public String readString() {
+      int length = readVarInt();
+      if(length == 0) {
+         return null;
+      }
+      return readUtf8(length - 1);
+   }
+
+   public String readName() {
+      int header = readVarInt();
+      if(header == 0) {
+         return null;
+      }
+      if((header & 1) == 1) {
+         int index = header >>> 1;
+         if(index < dictionary.size()) {
+            return dictionary.get(index);
+         }
+         index -= dictionary.size();
+         if(index >= names.size()) {
+            throw new IllegalArgumentException("Invalid name reference " + (header >>> 1));
+         }
+         return names.get(index);
+      }
+      String value = readUtf8((header >>> 1) - 1);
+      names.add(value);
+      return value;
+   }
+
+   public Object readValue() {
+      int tag = readByte();
+      switch(tag) {
+      case BinaryWriter.TAG_NULL:
+         return null;
+      case BinaryWriter.TAG_FALSE:
+         return Boolean.FALSE;
+      case BinaryWriter.TAG_TRUE:
+         return Boolean.TRUE;
+      case BinaryWriter.TAG_INT:
+         return readSignedVarInt();
+      case BinaryWriter.TAG_LONG:
+         return readSignedVarLong();
+      case BinaryWriter.TAG_DOUBLE:
+         return readDouble();
+      case BinaryWriter.TAG_STRING:
+         return readString();
+      case BinaryWriter.TAG_UUID:
+         return readUuid();
+      case BinaryWriter.TAG_DATE:
+         return new Date(readSignedVarLong());
+      case BinaryWriter.TAG_BYTES:
+         return readBytes();
+      case BinaryWriter.TAG_LIST: {
+         int size = readVarInt();
+         List<Object> values = new ArrayList<>(Math.min(size, remaining()));
+         for(int i = 0; i < size; i++) {
+            values.add(readValue());
+         }
+         return values;
+      }
+      case BinaryWriter.TAG_MAP: {
+         int size = readVarInt();
+         Map<String, Object> values = new LinkedHashMap<>();
+         for(int i = 0; i < size; i++) {
+            String key = readName();
+            values.put(key, readValue());
+         }
+         return values;
+      }
+      case BinaryWriter.TAG_JSON:
+         return JSON.fromJson(readString(), Object.class);
+      default:
+         throw new IllegalArgumentException("Unrecognized value tag " + tag);
+      }
+   }
+
+   /**
+    * Reads a value as the JSON codec would have produced it: integral numbers
+    * and dates as {@link Long}, UUIDs as {@link String} and byte arrays as a
+    * base64 {@link String}.  This allows consumers to see the same attribute
+    * types regardless of which codec the producer used.
+    */
+   public Object readJsonValue() {
+      int tag = readByte();
+      switch(tag) {
+      case BinaryWriter.TAG_INT:
+         return (long) readSignedVarInt();
+      case BinaryWriter.TAG_DATE:
+         return readSignedVarLong();
+      case BinaryWriter.TAG_UUID:
+         return readUuid().toString();
+      case BinaryWriter.TAG_BYTES:
+         return Base64.encodeBase64String(readBytes());
+      case BinaryWriter.TAG_LIST: {
+         int size = readVarInt();
+         List<Object> values = new ArrayList<>(Math.min(size, remaining()));
+         for(int i = 0; i < size; i++) {
+            values.add(readJsonValue());
+         }
+         return values;
+      }
+      case BinaryWriter.TAG_MAP: {
+         int size = readVarInt();
+         Map<String, Object> values = new LinkedHashMap<>();
+         for(int i = 0; i < size; i++) {
+            String key = readName();
+            values.put(key, readJsonValue());
+         }
+         return values;
+      }
+      default:
+         position--;
+         return readValue();
+      }
+   }
+
+   private String readUtf8(int length) {
+      require(length);
+      String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+   }
+
+   private void require(int length) {
+      if(length < 0 || position + length > limit) {
+         throw new IllegalArgumentException("Unexpected end of buffer");
+      }
+   }
+}
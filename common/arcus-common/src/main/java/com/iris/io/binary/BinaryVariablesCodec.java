@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.lang3.SerializationUtils;
+
+import com.codahale.metrics.Counter;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+
+/**
+ * Encodes the variables a driver stores alongside its attributes.
+ *
+ * <pre>
+ * magic (1) | version (1) | count (varint) | (name (name) | value (tagged))*
+ * </pre>
+ *
+ * Values use the tagged encoding from {@link BinaryWriter}, but only maps whose
+ * values would come back as exactly the same types are written this way:
+ * booleans, integers, longs, doubles, strings, UUIDs, dates, byte arrays and
+ * {@link ArrayList}s / {@link LinkedHashMap}s of those, which are the types groovy
+ * list and map literals create and the types the reader produces.  Anything else
+ * (other list and map implementations, sets, shorts, floats, enums, groovy
+ * strings...) causes the whole map to be written with Java serialization
+ * instead, which is also how every blob was written prior to this format.
+ * {@link #decode(byte[])} accepts either, a Java serialization stream always
+ * starts with {@code 0xACED} so {@link #MAGIC} is enough to tell them apart.
+ *
+ * Legacy blobs are not rewritten in place, they are replaced the next time
+ * the owning driver saves its variables.  The {@code variables.codec.*}
+ * metrics track how much of the read traffic is still using Java serialization.
+ */
+public final class BinaryVariablesCodec {
+   public static final int MAGIC = 0xD7;
+   public static final int VERSION = 1;
+
+   private static final int INITIAL_BUFFER_SIZE = 128;
+
+   private static final IrisMetricSet METRICS = IrisMetrics.metrics("variables.codec");
+   private static final Counter READ_BINARY = METRICS.counter("read.binary");
+   private static final Counter READ_JAVA = METRICS.counter("read.java");
+   private static final Counter WRITE_BINARY = METRICS.counter("write.binary");
+   private static final Counter WRITE_JAVA = METRICS.counter("write.java");
+
+   /**
+    * Encodes the variables in the binary format when all of the values are supported,
+    * otherwise falls back to Java serialization.
+    */
+   public static byte[] encode(Map<String, Object> variables) {
+      if(isCompact(variables)) {
+         WRITE_BINARY.inc();
+         return encodeBinary(variables);
+      }
+      WRITE_JAVA.inc();
+      return encodeJava(variables);
+   }
+
+   /**
+    * Always uses Java serialization, this is the format that may be read by
+    * nodes which pre-date {@link BinaryVariablesCodec}.
+    */
+   public static byte[] encodeJava(Map<String, Object> variables) {
+      HashMap<String, Object> copy = variables instanceof HashMap ? (HashMap<String, Object>) variables : new HashMap<>(variables);
+      return SerializationUtils.serialize(copy);
+   }
+
+   public static HashMap<String, Object> decode(byte[] buffer) {
+      if(isBinary(buffer)) {
+         READ_BINARY.inc();
+         return decodeBinary(buffer);
+      }
+      READ_JAVA.inc();
+      return SerializationUtils.deserialize(buffer);
+   }
+
+   public static boolean isBinary(byte[] buffer) {
+      return buffer.length > 1 && (buffer[0] & 0xFF) == MAGIC;
+   }
+
+   /**
+    * Determines if every value in the map will be decoded as an equal
+    * value of the same type.
+    */
+   public static boolean isCompact(Map<String, Object> variables) {
+      for(Map.Entry<String, Object> e: variables.entrySet()) {
+         if(e.getKey() == null || !isCompactValue(e.getValue())) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private static boolean isCompactValue(Object value) {
+      if(
+            value == null ||
+            value instanceof Boolean ||
+            value instanceof Integer ||
+            value instanceof Long ||
+            value instanceof Double ||
+            value instanceof String ||
+            value instanceof UUID ||
+            value instanceof byte[]
+      ) {
+         return true;
+      }
+      if(value instanceof Date) {
+         // subclasses such as java.sql.Timestamp carry more than the millis
+         return value.getClass() == Date.class;
+      }
+      if(value.getClass() == ArrayList.class) {
+         for(Object v: (List<?>) value) {
+            if(!isCompactValue(v)) {
+               return false;
+            }
+         }
+         return true;
+      }
+      if(value.getClass() == LinkedHashMap.class) {
+         for(Map.Entry<?, ?> e: ((Map<?, ?>) value).entrySet()) {
+            if(!(e.getKey() instanceof String) || !isCompactValue(e.getValue())) {
+               return false;
+            }
+         }
+         return true;
+      }
+      return false;
+   }
+
+   private static byte[] encodeBinary(Map<String, Object> variables) {
+      BinaryWriter out = new BinaryWriter(INITIAL_BUFFER_SIZE, BinaryDictionary.EMPTY);
+      out
+         .writeByte(MAGIC)
+         .writeByte(VERSION)
+         .writeVarInt(variables.size());
+      for(Map.Entry<String, Object> e: variables.entrySet()) {
+         out.writeName(e.getKey());
+         out.writeValue(e.getValue());
+      }
+      return out.toByteArray();
+   }
+
+   private static HashMap<String, Object> decodeBinary(byte[] buffer) {
+      BinaryReader in = new BinaryReader(buffer, 0, buffer.length, BinaryDictionary.EMPTY);
+      in.readByte(); // magic
+      int version = in.readByte();
+      if(version != VERSION) {
+         throw new IllegalArgumentException("Unsupported variables version " + version);
+      }
+      int count = in.readVarInt();
+      HashMap<String, Object> variables = new HashMap<>(Math.max(4, count * 4 / 3 + 1));
+      for(int i = 0; i < count; i++) {
+         String name = in.readName();
+         variables.put(name, in.readValue());
+      }
+      return variables;
+   }
+
+   private BinaryVariablesCodec() {
+   }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import com.iris.io.json.JSON;
+
+/**
+ * Growable buffer that writes the varint / tagged value encoding shared by
+ * the binary codecs.  Values written with {@link #writeValue(Object)} are
+ * read back with {@link BinaryReader#readValue()}.
+ *
+ * Strings written with {@link #writeName(String)} are interned: the first
+ * occurrence is written inline and subsequent occurrences are written as a
+ * reference, names found in the optional static dictionary are always written
+ * as a reference.
+ */
+public class BinaryWriter {
+   public static final int TAG_NULL = 0;
+   public static final int TAG_FALSE = 1;
+   public static final int TAG_TRUE = 2;
+   public static final int TAG_INT = 3;
+   public static final int TAG_LONG = 4;
+   public static final int TAG_DOUBLE = 5;
+   public static final int TAG_STRING = 6;
+   public static final int TAG_UUID = 7;
+   public static final int TAG_DATE = 8;
+   public static final int TAG_BYTES = 9;
+   public static final int TAG_LIST = 10;
+   public static final int TAG_MAP = 11;
+   /** values with no native representation are carried as JSON */
+   public static final int TAG_JSON = 12;
+
+   private final Map<String, Integer> dictionary;
+   private final Map<String, Integer> names;
+   private byte[] buffer;
+   private int position = 0;
+
+   public BinaryWriter() {
+      this(256, BinaryDictionary.EMPTY);
+   }
+
+   public BinaryWriter(int initialSize, BinaryDictionary dictionary) {
+      this.buffer = new byte[initialSize];
+      this.dictionary = dictionary.indexes();
+      this.names = new HashMap<>();
+   }
+
+   public int size() {
+      return position;
+   }
+
+   public byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+   }
+
+   public BinaryWriter writeByte(int value) {
+      ensure(1);
+      buffer[position++] = (byte) value;
+      return this;
+   }
+
+   public BinaryWriter writeBytes(byte[] value) {
+      writeVarInt(value.length);
+      writeRaw(value, 0, value.length);
+      return this;
+   }
+
+   public BinaryWriter writeRaw(byte[] value, int offset, int length) {
+      ensure(length);
+      System.arraycopy(value, offset, buffer, position, length);
+      position += length;
+      return this;
+   }
+
+   public BinaryWriter writeVarInt(int value) {
+      ensure(5);
+      while((value & ~0x7F) != 0) {
+         buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+         value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+      return this;
+   }
+
+   public BinaryWriter writeVarLong(long value) {
+      ensure(10);
+      while((value & ~0x7FL) != 0) {
+         buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+         value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+      return this;
+   }
+
+   public BinaryWriter writeSignedVarInt(int value) {
+      return writeVarInt((value << 1) ^ (value >> 31));
+   }
+
+   public BinaryWriter writeSignedVarLong(long value) {
+      return writeVarLong((value << 1) ^ (value >> 63));
+   }
+
+   public BinaryWriter writeLong(long value) {
+      ensure(8);
+      for(int shift = 56; shift >= 0; shift -= 8) {
+         buffer[position++] = (byte) (value >>> shift);
+      }
+      return this;
+   }
+
+   public BinaryWriter writeDouble(double value) {
+      return writeLong(Double.doubleToLongBits(value));
+   }
+
+   public BinaryWriter writeUuid(UUID value) {
+      writeLong(value.getMostSignificantBits());
+      return writeLong(value.getLeastSignificantBits());
+   }
+
+   /**
+    * Writes a nullable string, the length is offset by one so that
+    * {@code null} and the empty string are distinct.
+    */
+   public BinaryWriter writeString(String value) {
+      if(value == null) {
+         return writeVarInt(0);
+      }
+      byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(utf8.length + 1);
+      return writeRaw(utf8, 0, utf8.length);
+   }
+
+   /**
+    * Writes a nullable, frequently repeated string such as a message type
+    * or attribute name.  Encoded as {@code 0} for null, {@code (index << 1) | 1}
+    * for a reference or {@code (length + 1) << 1} followed by the UTF-8 bytes
+    * for the first occurrence.
+    */
+   public BinaryWriter writeName(String value) {
+      if(value == null) {
+         return writeVarInt(0);
+      }
+      Integer index = dictionary.get(value);
+      if(index == null) {
+         index = names.get(value);
+      }
+      if(index != null) {
+         return writeVarInt((index << 1) | 1);
+      }
+
+      names.put(value, dictionary.size() + names.size());
+      byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt((utf8.length + 1) << 1);
+      return writeRaw(utf8, 0, utf8.length);
+   }
+
+   public BinaryWriter writeValue(Object value) {
+      if(value == null) {
+         return writeByte(TAG_NULL);
+      }
+      if(value instanceof Boolean) {
+         return writeByte(((Boolean) value) ? TAG_TRUE : TAG_FALSE);
+      }
+      if(value instanceof Integer || value instanceof Short || value instanceof Byte) {
+         return writeByte(TAG_INT).writeSignedVarInt(((Number) value).intValue());
+      }
+      if(value instanceof Long) {
+         return writeByte(TAG_LONG).writeSignedVarLong((Long) value);
+      }
+      if(value instanceof Double || value instanceof Float) {
+         return writeByte(TAG_DOUBLE).writeDouble(((Number) value).doubleValue());
+      }
+      if(value instanceof String) {
+         return writeByte(TAG_STRING).writeString((String) value);
+      }
+      if(value instanceof UUID) {
+         return writeByte(TAG_UUID).writeUuid((UUID) value);
+      }
+      if(value instanceof Date) {
+         return writeByte(TAG_DATE).writeSignedVarLong(((Date) value).getTime());
+      }
+      if(value instanceof byte[]) {
+         return writeByte(TAG_BYTES).writeBytes((byte[]) value);
+      }
+      if(value instanceof Collection) {
+         Collection<?> values = (Collection<?>) value;
+         writeByte(TAG_LIST).writeVarInt(values.size());
+         for(Object v: values) {
+            writeValue(v);
+         }
+         return this;
+      }
+      if(value instanceof Map && hasStringKeys((Map<?, ?>) value)) {
+         Map<?, ?> values = (Map<?, ?>) value;
+         writeByte(TAG_MAP).writeVarInt(values.size());
+         for(Map.Entry<?, ?> e: values.entrySet()) {
+            writeName((String) e.getKey());
+            writeValue(e.getValue());
+         }
+         return this;
+      }
+      return writeByte(TAG_JSON).writeString(JSON.toJson(value));
+   }
+
+   private static boolean hasStringKeys(Map<?, ?> value) {
+      for(Object key: value.keySet()) {
+         if(!(key instanceof String)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private void ensure(int length) {
+      if(position + length > buffer.length) {
+         buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+      }
+   }
+}
@@ -15,7 +15,9 @@
  */
 package com.iris.messages;
 
+import java.io.ObjectStreamException;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
@@ -183,19 +185,38 @@ public class PlatformMessage extends Message {
    }
 
    private final MessageBody value;
+   private final LazyValue lazyValue;
 
    PlatformMessage(Builder builder) {
       super(builder, true);
       this.value = builder.value;
+      this.lazyValue = builder.value == null ? builder.lazyValue : null;
    }
 
+   /**
+    * The payload of this message, if the message was created with
+    * {@link Builder#withLazyPayload(String, Supplier)} the payload
+    * is decoded on the first call to this method.
+    */
    @Override
    public MessageBody getValue() {
-      return value;
+      if(value != null) {
+         return value;
+      }
+      return lazyValue != null ? lazyValue.get() : null;
+   }
+
+   /**
+    * @return {@code true} if the payload is available without decoding it,
+    *         this does not decode the payload
+    */
+   public boolean isValueDecoded() {
+      return lazyValue == null || lazyValue.isDecoded();
    }
 
    @Override
    public byte[] computeBuffer() {
+      MessageBody value = getValue();
       if (value == null) {
          return Utils.EMPTY_BYTE_ARRAY;
       }
@@ -203,6 +224,17 @@ public class PlatformMessage extends Message {
       return PlatformMessage.getSerializer(getMessageType()).serialize(value);
    }
 
+   /**
+    * The lazy payload is not serializable, so the payload is decoded before
+    * the message is written.
+    */
+   private Object writeReplace() throws ObjectStreamException {
+      if(lazyValue == null) {
+         return this;
+      }
+      return new Builder(this).withPayload(getValue()).create();
+   }
+
    /**
     * Determines if a message requires a response. This method will return
     * true iff all of the following conditions are met:
@@ -217,19 +249,22 @@ public class PlatformMessage extends Message {
 
    public static class Builder extends Message.Builder<Builder> {
       private MessageBody value;
+      private LazyValue lazyValue;
 
       Builder() { }
       
       Builder(PlatformMessage message) {
       	super.populate(message);
-      	value = message.getValue();
+      	value = message.value;
+      	lazyValue = message.lazyValue;
       }
 
       @Override
       protected Builder populate(Message message) {
          super.populate(message);
          if (PlatformMessage.class == message.getClass()) {
-            value = ((PlatformMessage) message).getValue();
+            value = ((PlatformMessage) message).value;
+            lazyValue = ((PlatformMessage) message).lazyValue;
          }
 
          return this;
@@ -244,9 +279,28 @@ public class PlatformMessage extends Message {
       public Builder withPayload(MessageBody payload) {
          this.type = payload.getMessageType();
          this.value = payload;
+         this.lazyValue = null;
          isErrorMessage(ErrorEvent.MESSAGE_TYPE.equals(this.type));
          return this;
       }
+
+      /**
+       * Sets a payload which won't be decoded until {@link PlatformMessage#getValue()}
+       * is first called, this allows the envelope to be inspected and the
+       * message routed or dropped without building the attributes.
+       * @param type
+       *    The message type, this must match the type of the decoded payload.
+       * @param payload
+       *    Decodes the payload, this will be invoked at most once.
+       */
+      public Builder withLazyPayload(String type, Supplier<MessageBody> payload) {
+         Preconditions.checkNotNull(payload, "payload may not be null");
+         this.type = type;
+         this.value = null;
+         this.lazyValue = new LazyValue(payload);
+         isErrorMessage(ErrorEvent.MESSAGE_TYPE.equals(type));
+         return this;
+      }
       
       public Builder withPayload(String eventName) {
          MessageBody mb = MessageBody.buildMessage(eventName);
@@ -261,6 +315,7 @@ public class PlatformMessage extends Message {
       @Deprecated
       public <T> Builder withPayload(String type, Serializer<T> serializer, T payload) {
          this.value = null;
+         this.lazyValue = null;
          isErrorMessage(ErrorEvent.MESSAGE_TYPE.equals(type));
          // contract with serializer is that a new buffer is returned so unsafe is safe here
          withPayloadUnsafe(type, serializer.serialize(payload));
@@ -279,7 +334,7 @@ public class PlatformMessage extends Message {
          Utils.assertNotNull(source, "Must specify a source");
          Utils.assertFalse(source.isBroadcast(), "Source address may not be the broadcast address");
          Utils.assertNotNull(type, "Must specify a type");
-         Utils.assertTrue(value != null, "Must specify a payload");
+         Utils.assertTrue(value != null || lazyValue != null, "Must specify a payload");
 
          if(timestamp <= 0) {
             timestamp = System.currentTimeMillis();
@@ -290,6 +345,35 @@ public class PlatformMessage extends Message {
 
    }
    
+   private static class LazyValue {
+      private Supplier<MessageBody> decoder;
+      private volatile MessageBody value;
+
+      LazyValue(Supplier<MessageBody> decoder) {
+         this.decoder = decoder;
+      }
+
+      boolean isDecoded() {
+         return value != null;
+      }
+
+      MessageBody get() {
+         MessageBody value = this.value;
+         if(value == null) {
+            synchronized(this) {
+               value = this.value;
+               if(value == null) {
+                  value = decoder.get();
+                  this.value = value;
+                  // release the raw payload
+                  this.decoder = null;
+               }
+            }
+         }
+         return value;
+      }
+   }
+
    private static class LazyInitializer {
       private static final Serializer<MessageBody> SERIALIZER = JSON.createSerializer(MessageBody.class);
       private static final Deserializer<MessageBody> DESERIALIZER = JSON.createDeserializer(MessageBody.class);
@@ -297,7 +381,7 @@ public class PlatformMessage extends Message {
 
    @Override
    public String toString() {
-      return "PlatformMessage [value=" + value + ", [" + super.toString() + "]]";
+      return "PlatformMessage [value=" + getValue() + ", [" + super.toString() + "]]";
    }
 
    
@@ -153,6 +153,14 @@ public class RegexDfaByte<V> {
       return new Matcher();
    }
 
+   /**
+    * Compiles this dfa into a minimized table, which is much faster to
+    * match against but can't be transformed or inspected state by state.
+    */
+   public RegexDfaTable<V> compile() {
+      return RegexDfaTable.compile(this);
+   }
+
    public String toDotGraph() {
       return toDotGraph("", " ");
    }
@@ -0,0 +1,496 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A minimized {@link RegexDfaByte} compiled into flat tables.  Input bytes are
+ * first mapped to an equivalence class, bytes which every state treats the same
+ * share a class, so each state only needs one entry per class rather than one
+ * per byte.  The transition table stores the offset of the next state's row
+ * rather than its index so matching is a single array lookup per byte.
+ *
+ * State 0 is the dead state, every transition out of it leads back to itself
+ * and it never accepts, so matching stops as soon as it is reached.
+ */
+public final class RegexDfaTable<V> {
+   private static final int DEAD = 0;
+   private static final int REJECT = -1;
+
+   // byte -> equivalence class, stored unsigned
+   private final byte[] classes;
+   private final int numClasses;
+   // (state * numClasses + class) -> next state * numClasses
+   private final int[] transitions;
+   // state -> index into values or REJECT
+   private final int[] accepts;
+   private final Object[] values;
+   private final int initial;
+
+   private RegexDfaTable(byte[] classes, int numClasses, int[] transitions, int[] accepts, Object[] values, int initial) {
+      this.classes = classes;
+      this.numClasses = numClasses;
+      this.transitions = transitions;
+      this.accepts = accepts;
+      this.values = values;
+      this.initial = initial;
+   }
+
+   /**
+    * Compiles the dfa into a minimized table.  Final states are only merged
+    * when their values are equal.
+    */
+   public static <V> RegexDfaTable<V> compile(RegexDfaByte<V> dfa) {
+      List<RegexDfaByte.State<V>> states = new ArrayList<>(dfa.getStates());
+      Map<RegexDfaByte.State<V>,Integer> index = new IdentityHashMap<>();
+      for (int i = 0; i < states.size(); ++i) {
+         // state 0 is reserved for the dead state
+         index.put(states.get(i), i + 1);
+      }
+
+      int num = states.size() + 1;
+      int[][] next = new int[num][256];
+      boolean[] accepting = new boolean[num];
+      Object[] values = new Object[num];
+      for (RegexDfaByte.State<V> state : states) {
+         int st = index.get(state);
+         accepting[st] = state.isFinalState();
+         values[st] = state.getValue();
+
+         RegexDfaByte.TransitionTable<V> tt = state.getTransitions();
+         if (tt == null) {
+            continue;
+         }
+
+         for (int sym = 0; sym < 256; ++sym) {
+            RegexDfaByte.State<V> to = tt.get((byte)sym);
+            next[st][sym] = (to == null) ? DEAD : index.get(to);
+         }
+      }
+
+      return build(next, accepting, values, index.get(dfa.getInitialState()));
+   }
+
+   /**
+    * Merges several dfas into a single automaton which runs all of them in
+    * one pass over the input.  The value of a match holds the value of every
+    * dfa which accepted the input, keyed the same as {@code dfas}, dfas which
+    * accept with a {@code null} value are left out.
+    *
+    * @param maxStates
+    *    The product of the dfas can be much larger than any of them, if
+    *    it would need more than this many states an {@link IllegalStateException}
+    *    is thrown.
+    */
+   public static <K,V> RegexDfaTable<Map<K,V>> merge(Map<K,RegexDfaByte<V>> dfas, int maxStates) {
+      List<K> keys = new ArrayList<>(dfas.size());
+      List<RegexDfaTable<V>> tables = new ArrayList<>(dfas.size());
+      for (Map.Entry<K,RegexDfaByte<V>> entry : dfas.entrySet()) {
+         keys.add(entry.getKey());
+         tables.add(compile(entry.getValue()));
+      }
+
+      int parts = tables.size();
+      Map<Rows,Integer> index = new HashMap<>();
+      List<int[]> next = new ArrayList<>();
+      List<Object> values = new ArrayList<>();
+      ArrayDeque<Rows> pending = new ArrayDeque<>();
+
+      // the dead state of the product is every component being dead
+      Rows dead = new Rows(new int[parts]);
+      index.put(dead, DEAD);
+      next.add(new int[256]);
+      values.add(null);
+
+      int[] start = new int[parts];
+      for (int i = 0; i < parts; ++i) {
+         start[i] = tables.get(i).initial;
+      }
+
+      Rows initial = new Rows(start);
+      if (!index.containsKey(initial)) {
+         index.put(initial, next.size());
+         next.add(new int[256]);
+         values.add(null);
+         pending.add(initial);
+      }
+
+      while (!pending.isEmpty()) {
+         Rows current = pending.poll();
+         int st = index.get(current);
+
+         Map<K,V> accepted = new LinkedHashMap<>();
+         for (int i = 0; i < parts; ++i) {
+            V value = tables.get(i).accepted(current.rows[i]);
+            if (value != null) {
+               accepted.put(keys.get(i), value);
+            }
+         }
+         values.set(st, accepted.isEmpty() ? null : ImmutableMap.copyOf(accepted));
+
+         for (int sym = 0; sym < 256; ++sym) {
+            int[] to = new int[parts];
+            for (int i = 0; i < parts; ++i) {
+               to[i] = tables.get(i).step(current.rows[i], (byte)sym);
+            }
+
+            Rows target = new Rows(to);
+            Integer existing = index.get(target);
+            if (existing == null) {
+               if (next.size() >= maxStates) {
+                  throw new IllegalStateException("merged dfa requires more than " + maxStates + " states");
+               }
+
+               existing = next.size();
+               index.put(target, existing);
+               next.add(new int[256]);
+               values.add(null);
+               pending.add(target);
+            }
+
+            next.get(st)[sym] = existing;
+         }
+      }
+
+      int num = next.size();
+      boolean[] accepting = new boolean[num];
+      for (int i = 0; i < num; ++i) {
+         accepting[i] = values.get(i) != null;
+      }
+
+      return build(next.toArray(new int[num][]), accepting, values.toArray(), index.get(initial));
+   }
+
+   /////////////////////////////////////////////////////////////////////////////
+   // Matching
+   /////////////////////////////////////////////////////////////////////////////
+
+   public boolean matches(byte[] input) {
+      int row = run(input);
+      return row != DEAD && accepts[row / numClasses] != REJECT;
+   }
+
+   @Nullable
+   public V matching(byte[] input) {
+      int row = run(input);
+      return (row == DEAD) ? null : accepted(row);
+   }
+
+   private int run(byte[] input) {
+      final int[] transitions = this.transitions;
+      final byte[] classes = this.classes;
+
+      int row = initial;
+      for (int i = 0, e = input.length; i < e; ++i) {
+         row = transitions[row + (classes[input[i] & 0xFF] & 0xFF)];
+         if (row == DEAD) {
+            break;
+         }
+      }
+
+      return row;
+   }
+
+   @SuppressWarnings("unchecked")
+   @Nullable
+   private V accepted(int row) {
+      int idx = accepts[row / numClasses];
+      return (idx == REJECT) ? null : (V)values[idx];
+   }
+
+   private int step(int row, byte symbol) {
+      return transitions[row + (classes[symbol & 0xFF] & 0xFF)];
+   }
+
+   public Matcher matcher() {
+      return new Matcher();
+   }
+
+   /////////////////////////////////////////////////////////////////////////////
+   // Introspection
+   /////////////////////////////////////////////////////////////////////////////
+
+   /**
+    * The number of states, including the dead state.
+    */
+   public int getNumStates() {
+      return accepts.length;
+   }
+
+   /**
+    * The number of byte equivalence classes.
+    */
+   public int getNumClasses() {
+      return numClasses;
+   }
+
+   /**
+    * The distinct values of the accepting states.
+    */
+   @SuppressWarnings("unchecked")
+   public List<V> getValues() {
+      List<V> result = new ArrayList<>(values.length);
+      for (Object value : values) {
+         if (value != null) {
+            result.add((V)value);
+         }
+      }
+
+      return Collections.unmodifiableList(result);
+   }
+
+   /**
+    * An estimate of the heap used by the tables, not including the values.
+    */
+   public long getMemoryFootprint() {
+      // object headers are estimated at 16 bytes and references at 4 bytes
+      return 16 + 5 * 4 +
+         16 + classes.length +
+         16 + 4L * transitions.length +
+         16 + 4L * accepts.length +
+         16 + 4L * values.length;
+   }
+
+   public final class Matcher {
+      private int row = initial;
+
+      /**
+       * @return {@code true} once the input can no longer match
+       */
+      public boolean process(byte symbol) {
+         if (row != DEAD) {
+            row = step(row, symbol);
+         }
+
+         return row == DEAD;
+      }
+
+      public boolean matched() {
+         return row != DEAD && accepts[row / numClasses] != REJECT;
+      }
+
+      @Nullable
+      public V match() {
+         return (row == DEAD) ? null : accepted(row);
+      }
+
+      /**
+       * The bytes which don't lead to the dead state from the current state.
+       */
+      public List<Byte> getTransitionsFromCurrent() {
+         if (row == DEAD) {
+            return ImmutableList.of();
+         }
+
+         ImmutableList.Builder<Byte> bld = ImmutableList.builder();
+         for (int sym = 0; sym < 256; ++sym) {
+            if (step(row, (byte)sym) != DEAD) {
+               bld.add((byte)sym);
+            }
+         }
+
+         return bld.build();
+      }
+   }
+
+   /////////////////////////////////////////////////////////////////////////////
+   // Compilation
+   /////////////////////////////////////////////////////////////////////////////
+
+   /**
+    * Minimizes the dfa described by {@code next}, where state 0 must be the
+    * dead state, and packs the result into a table.
+    */
+   private static <V> RegexDfaTable<V> build(int[][] next, boolean[] accepting, Object[] values, int initial) {
+      int num = next.length;
+
+      // Moore's algorithm: start with states partitioned by what they accept
+      // and split blocks until every state in a block agrees on the block
+      // reached by each symbol.
+      int[] block = new int[num];
+      Map<Object,Integer> initialBlocks = new HashMap<>();
+      initialBlocks.put(Reject.INSTANCE, 0);
+      for (int st = 0; st < num; ++st) {
+         Object key = accepting[st] ? new Accept(values[st]) : Reject.INSTANCE;
+         Integer b = initialBlocks.get(key);
+         if (b == null) {
+            b = initialBlocks.size();
+            initialBlocks.put(key, b);
+         }
+         block[st] = b;
+      }
+
+      int numBlocks = initialBlocks.size();
+      while (true) {
+         Map<Rows,Integer> signatures = new HashMap<>();
+         int[] refined = new int[num];
+         for (int st = 0; st < num; ++st) {
+            int[] sig = new int[257];
+            sig[0] = block[st];
+            for (int sym = 0; sym < 256; ++sym) {
+               sig[sym + 1] = block[next[st][sym]];
+            }
+
+            Rows key = new Rows(sig);
+            Integer b = signatures.get(key);
+            if (b == null) {
+               b = signatures.size();
+               signatures.put(key, b);
+            }
+            refined[st] = b;
+         }
+
+         block = refined;
+         if (signatures.size() == numBlocks) {
+            break;
+         }
+         numBlocks = signatures.size();
+      }
+
+      // renumber so the dead state's block is state 0
+      int[] renumber = new int[numBlocks];
+      Arrays.fill(renumber, -1);
+      renumber[block[DEAD]] = DEAD;
+      int numStates = 1;
+      int[] representative = new int[numBlocks];
+      for (int st = 0; st < num; ++st) {
+         int b = block[st];
+         if (renumber[b] == -1) {
+            renumber[b] = numStates++;
+         }
+         representative[renumber[b]] = st;
+      }
+      representative[DEAD] = DEAD;
+
+      int[][] minimized = new int[numStates][256];
+      for (int st = 0; st < numStates; ++st) {
+         int[] from = next[representative[st]];
+         for (int sym = 0; sym < 256; ++sym) {
+            minimized[st][sym] = renumber[block[from[sym]]];
+         }
+      }
+
+      // split bytes into classes which every state treats the same
+      int[] cls = new int[256];
+      int numClasses = 1;
+      for (int st = 0; st < numStates; ++st) {
+         Map<Long,Integer> split = new HashMap<>();
+         for (int sym = 0; sym < 256; ++sym) {
+            long key = ((long)cls[sym] << 32) | minimized[st][sym];
+            Integer c = split.get(key);
+            if (c == null) {
+               c = split.size();
+               split.put(key, c);
+            }
+            cls[sym] = c;
+         }
+         numClasses = split.size();
+      }
+
+      byte[] classes = new byte[256];
+      int[] classRep = new int[numClasses];
+      for (int sym = 0; sym < 256; ++sym) {
+         classes[sym] = (byte)cls[sym];
+         classRep[cls[sym]] = sym;
+      }
+
+      int[] transitions = new int[numStates * numClasses];
+      for (int st = 0; st < numStates; ++st) {
+         for (int c = 0; c < numClasses; ++c) {
+            transitions[st * numClasses + c] = minimized[st][classRep[c]] * numClasses;
+         }
+      }
+
+      List<Object> distinct = new ArrayList<>();
+      Map<Accept,Integer> valueIndex = new HashMap<>();
+      int[] accepts = new int[numStates];
+      for (int st = 0; st < numStates; ++st) {
+         int rep = representative[st];
+         if (st == DEAD || !accepting[rep]) {
+            accepts[st] = REJECT;
+            continue;
+         }
+
+         Accept key = new Accept(values[rep]);
+         Integer idx = valueIndex.get(key);
+         if (idx == null) {
+            idx = distinct.size();
+            valueIndex.put(key, idx);
+            distinct.add(values[rep]);
+         }
+         accepts[st] = idx;
+      }
+
+      return new RegexDfaTable<>(classes, numClasses, transitions, accepts, distinct.toArray(), renumber[block[initial]] * numClasses);
+   }
+
+   private static enum Reject {
+      INSTANCE;
+   }
+
+   private static final class Accept {
+      private final @Nullable Object value;
+
+      Accept(@Nullable Object value) {
+         this.value = value;
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hashCode(value);
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+         return obj instanceof Accept && Objects.equals(value, ((Accept)obj).value);
+      }
+   }
+
+   private static final class Rows {
+      private final int[] rows;
+      private final int hash;
+
+      Rows(int[] rows) {
+         this.rows = rows;
+         this.hash = Arrays.hashCode(rows);
+      }
+
+      @Override
+      public int hashCode() {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+         return obj instanceof Rows && Arrays.equals(rows, ((Rows)obj).rows);
+      }
+   }
+}
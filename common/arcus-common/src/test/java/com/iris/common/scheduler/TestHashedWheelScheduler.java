@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.common.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Function;
+
+public class TestHashedWheelScheduler {
+   HashedWheelScheduler scheduler;
+   QueueFunction<Integer> queue = new QueueFunction<Integer>();
+
+   @Before
+   public void setUp() throws Exception {
+      scheduler = new HashedWheelScheduler("test", 1, TimeUnit.MILLISECONDS, 8, null);
+      scheduler.start();
+   }
+
+   @After
+   public void tearDown() {
+      scheduler.stop();
+   }
+
+   @Test
+   public void testScheduleInThePast() throws Exception {
+      ScheduledTask task = scheduler.scheduleAt(queue, 1, new Date(100));
+      assertEquals(Integer.valueOf(1), queue.take());
+      assertFalse(task.isPending());
+   }
+
+   @Test
+   public void testScheduleWith0Delay() throws Exception {
+      ScheduledTask task = scheduler.scheduleDelayed(queue, 1, 0, TimeUnit.MILLISECONDS);
+      assertEquals(Integer.valueOf(1), queue.take());
+      assertFalse(task.isPending());
+   }
+
+   @Test
+   public void testRunsInDeadlineOrder() throws Exception {
+      // long enough to need the overflow levels of an 8 bucket wheel
+      long start = System.nanoTime();
+      scheduler.scheduleDelayed(queue, 3, 150, TimeUnit.MILLISECONDS);
+      scheduler.scheduleDelayed(queue, 1, 5, TimeUnit.MILLISECONDS);
+      scheduler.scheduleDelayed(queue, 2, 40, TimeUnit.MILLISECONDS);
+
+      assertEquals(Integer.valueOf(1), queue.take());
+      assertEquals(Integer.valueOf(2), queue.take());
+      assertEquals(Integer.valueOf(3), queue.take());
+      assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+   }
+
+   @Test
+   public void testScheduleAtAndCancel() throws Exception {
+      ScheduledTask task = scheduler.scheduleAt(queue, 1, new Date(System.currentTimeMillis() + 50));
+      assertTrue(task.isPending());
+
+      assertTrue(task.cancel());
+      assertFalse(task.isPending());
+      assertFalse(task.cancel());
+      assertNull(queue.poll(100));
+   }
+
+   @Test
+   public void testScheduleDelayedAndCancel() throws Exception {
+      ScheduledTask task = scheduler.scheduleDelayed(queue, 1, 100, TimeUnit.MINUTES);
+      assertTrue(task.isPending());
+
+      assertTrue(task.cancel());
+      assertFalse(task.isPending());
+   }
+
+   private static class QueueFunction<I> implements Function<I, Boolean> {
+      private final BlockingQueue<I> queue = new ArrayBlockingQueue<>(100);
+
+      public I take() throws InterruptedException {
+         return poll(TimeUnit.SECONDS.toMillis(30));
+      }
+
+      public I poll(long timeoutMs) throws InterruptedException {
+         return queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+      }
+
+      @Override
+      public Boolean apply(I input) {
+         return queue.offer(input);
+      }
+
+   }
+}
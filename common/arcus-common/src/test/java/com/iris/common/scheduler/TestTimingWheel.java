@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.common.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TestTimingWheel {
+   TimingWheel wheel;
+   List<TimingWheel.Entry> expired;
+
+   @Before
+   public void setUp() {
+      wheel = new TimingWheel(4);
+      expired = new ArrayList<>();
+   }
+
+   @Test
+   public void testPastDeadlineIsNotAdded() {
+      assertFalse(wheel.add(entry(0)));
+      assertEquals(0, wheel.size());
+   }
+
+   @Test
+   public void testExpiresOnDeadline() {
+      TimingWheel.Entry entry = entry(3);
+      assertTrue(wheel.add(entry));
+
+      advanceTo(2);
+      assertEquals(ImmutableList.of(), expired);
+      advanceTo(3);
+      assertEquals(ImmutableList.of(entry), expired);
+      assertEquals(0, wheel.size());
+   }
+
+   @Test
+   public void testDistantDeadlinesCascade() {
+      // with 4 buckets per level these land in levels 0, 1, 2 and 3
+      List<TimingWheel.Entry> entries = ImmutableList.of(entry(2), entry(7), entry(21), entry(100));
+      for(TimingWheel.Entry entry: entries) {
+         assertTrue(wheel.add(entry));
+      }
+      assertEquals(4, wheel.getLevelCount());
+      for(int level = 0; level < 4; level++) {
+         assertEquals(1, wheel.getOccupancy(level));
+      }
+
+      for(TimingWheel.Entry entry: entries) {
+         advanceTo(entry.getDeadline() - 1);
+         assertFalse(expired.contains(entry));
+         advanceTo(entry.getDeadline());
+         assertTrue(expired.contains(entry));
+      }
+      assertEquals(entries, expired);
+      assertEquals(0, wheel.size());
+   }
+
+   @Test
+   public void testRemove() {
+      TimingWheel.Entry keep = entry(5);
+      TimingWheel.Entry remove = entry(5);
+      wheel.add(keep);
+      wheel.add(remove);
+
+      assertTrue(wheel.remove(remove));
+      assertFalse(wheel.remove(remove));
+      assertEquals(1, wheel.size());
+
+      advanceTo(5);
+      assertEquals(ImmutableList.of(keep), expired);
+   }
+
+   private void advanceTo(long tick) {
+      while(wheel.getCurrentTick() < tick) {
+         wheel.tick(expired);
+      }
+   }
+
+   private static TimingWheel.Entry entry(long deadline) {
+      TimingWheel.Entry entry = new TimingWheel.Entry();
+      entry.setDeadline(deadline);
+      return entry;
+   }
+}
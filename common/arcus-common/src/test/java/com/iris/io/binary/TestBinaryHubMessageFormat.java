@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.iris.io.json.JSON;
+import com.iris.messages.HubMessage;
+
+public class TestBinaryHubMessageFormat {
+
+   @Test
+   public void testRoundTrip() {
+      byte[] payload = "{\"type\":\"base:Ping\"}".getBytes(StandardCharsets.UTF_8);
+      for(HubMessage.Type type: HubMessage.Type.values()) {
+         byte[] encoded = BinaryHubMessageFormat.encode(HubMessage.create(type, payload));
+         assertEquals(BinaryHubMessageFormat.HEADER_LENGTH + payload.length, encoded.length);
+         assertTrue(BinaryHubMessageFormat.isBinary(encoded, 0, encoded.length));
+
+         HubMessage decoded = BinaryHubMessageFormat.decode(encoded);
+         assertEquals(type, decoded.getType());
+         assertArrayEquals(payload, decoded.getPayload());
+      }
+   }
+
+   @Test
+   public void testEmptyPayload() {
+      byte[] encoded = BinaryHubMessageFormat.encode(HubMessage.createLog(new byte[0]));
+      HubMessage decoded = BinaryHubMessageFormat.decode(encoded);
+      assertEquals(HubMessage.Type.LOG, decoded.getType());
+      assertEquals(0, decoded.getPayload().length);
+   }
+
+   @Test
+   public void testJsonIsNotBinary() {
+      byte[] json = JSON.createSerializer(HubMessage.class).serialize(HubMessage.createPlatform(new byte[] { 1, 2, 3 }));
+      assertFalse(BinaryHubMessageFormat.isBinary(json, 0, json.length));
+   }
+
+   @Test
+   public void testJsonLength() {
+      // multiples of 3 so there is no Base64 padding, which JSON may escape
+      for(int length = 3; length <= 12; length += 3) {
+         byte[] json = JSON.createSerializer(HubMessage.class).serialize(HubMessage.createProtocol(new byte[length]));
+         assertEquals(json.length, BinaryHubMessageFormat.jsonLength(HubMessage.Type.PROTOCOL, length));
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testTruncated() {
+      byte[] encoded = BinaryHubMessageFormat.encode(HubMessage.createPlatform(new byte[] { 1, 2, 3 }));
+      BinaryHubMessageFormat.decode(encoded, 0, encoded.length - 1);
+   }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.iris.io.Deserializer;
+import com.iris.io.Serializer;
+import com.iris.io.json.JSON;
+import com.iris.messages.MessageBody;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
+
+public class TestBinaryPlatformMessageSerDe {
+   private final Serializer<PlatformMessage> json = JSON.createSerializer(PlatformMessage.class);
+   private final Deserializer<PlatformMessage> jsonDeserializer = JSON.createDeserializer(PlatformMessage.class);
+   private final Serializer<PlatformMessage> binary = BinaryPlatformMessageSerializer.INSTANCE;
+   private final Deserializer<PlatformMessage> deserializer = new BinaryPlatformMessageDeserializer();
+
+   @Test
+   public void testRequestRoundTrip() {
+      PlatformMessage message =
+            PlatformMessage
+               .buildRequest(
+                     MessageBody.buildMessage("swit:SetAttributes", ImmutableMap.<String, Object>of("swit:state", "ON")),
+                     Address.clientAddress("client-bridge-1", UUID.randomUUID().toString()),
+                     Address.deviceAddress("dev", UUID.randomUUID())
+               )
+               .withPlaceId(UUID.randomUUID())
+               .withPopulation("general")
+               .withActor(Address.platformService(UUID.randomUUID(), "person"))
+               .withCorrelationId(UUID.randomUUID().toString())
+               .withClientTime(new Date(1000))
+               .withTimeToLive(30000)
+               .create();
+
+      assertRoundTrip(message);
+   }
+
+   @Test
+   public void testAddressRoundTrip() {
+      Address [] addresses = new Address [] {
+            Address.platformService("rule"),
+            Address.platformService(UUID.randomUUID(), "rule", 3),
+            Address.platformService("ABC-1234", "hub"),
+            Address.hubService("ABC-1234", "hub"),
+            Address.hubAddress("ABC-1234"),
+            Address.bridgeAddress("ipcd"),
+            Address.protocolAddress("IPCD", "some-device-id"),
+      };
+      for(Address address: addresses) {
+         PlatformMessage message =
+               PlatformMessage
+                  .buildMessage(MessageBody.emptyMessage(), address, Address.broadcastAddress())
+                  .withCorrelationId("not-a-uuid")
+                  .create();
+         assertRoundTrip(message);
+      }
+   }
+
+   @Test
+   public void testAttributesMatchJsonTypes() {
+      Map<String, Object> attributes = new LinkedHashMap<>();
+      attributes.put("int", 5);
+      attributes.put("long", Long.MAX_VALUE);
+      attributes.put("double", 2.5);
+      attributes.put("bool", true);
+      attributes.put("string", "value");
+      attributes.put("date", new Date(12345));
+      attributes.put("uuid", UUID.randomUUID());
+      attributes.put("bytes", new byte[] { 1, 2, 3 });
+      attributes.put("set", ImmutableSet.of("a", "b"));
+      attributes.put("map", ImmutableMap.of("nested", ImmutableList.of(1, 2, 3)));
+      attributes.put("null", null);
+      PlatformMessage message =
+            PlatformMessage
+               .buildEvent(MessageBody.buildMessage("test:Event", attributes), Address.platformDriverAddress(UUID.randomUUID()))
+               .create();
+
+      PlatformMessage fromJson = jsonDeserializer.deserialize(json.serialize(message));
+      PlatformMessage fromBinary = deserializer.deserialize(binary.serialize(message));
+      assertEquals(fromJson, fromBinary);
+      assertEquals(fromJson.getValue().getAttributes(), fromBinary.getValue().getAttributes());
+      assertFalse(fromBinary.getValue().getAttributes().containsKey("null"));
+   }
+
+   @SuppressWarnings("deprecation")
+   @Test
+   public void testRawBufferPayload() throws IOException {
+      byte[] payload = "raw".getBytes(StandardCharsets.UTF_8);
+      PlatformMessage message =
+            PlatformMessage
+               .builder()
+               .from(Address.platformService("test"))
+               .withPayload("test:Raw", BinaryPlatformMessageDeserializer.ByteArraySerializer.INSTANCE, payload)
+               .create();
+
+      PlatformMessage decoded = deserializer.deserialize(binary.serialize(message));
+      assertEquals("test:Raw", decoded.getMessageType());
+      assertArrayEquals(payload, decoded.getBuffer());
+
+      // a decoded buffer re-encodes to the same message
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      binary.serialize(decoded, out);
+      PlatformMessage reencoded = deserializer.deserialize(out.toByteArray());
+      assertEquals("test:Raw", reencoded.getMessageType());
+      assertArrayEquals(payload, reencoded.getBuffer());
+
+      out.reset();
+      BinaryPlatformMessageDeserializer.ByteArraySerializer.INSTANCE.serialize(payload, out);
+      assertArrayEquals(payload, out.toByteArray());
+   }
+
+   @Test
+   public void testAcceptsJson() {
+      PlatformMessage message = PlatformMessage.buildEvent(MessageBody.ping(), Address.platformService("test")).create();
+      byte[] encoded = json.serialize(message);
+      assertFalse(BinaryMessageFormat.isBinary(encoded));
+      assertTrue(BinaryMessageFormat.isBinary(binary.serialize(message)));
+      assertEquals(message, deserializer.deserialize(encoded));
+   }
+
+   @Test
+   public void testExpiredMessageSkipsBody() {
+      PlatformMessage message =
+            PlatformMessage
+               .buildEvent(MessageBody.ping(), Address.platformService("test"))
+               .withTimestamp(System.currentTimeMillis() - 60000)
+               .withTimeToLive(1000)
+               .create();
+
+      PlatformMessage decoded = new BinaryPlatformMessageDeserializer(jsonDeserializer, 1000).deserialize(binary.serialize(message));
+      assertEquals(message.getSource(), decoded.getSource());
+      assertEquals(message.getMessageType(), decoded.getMessageType());
+      assertEquals(null, decoded.getValue());
+   }
+
+   @Test
+   public void testPayloadDecodedLazily() {
+      MessageBody body = MessageBody.buildMessage("base:ValueChange", ImmutableMap.<String, Object>of("swit:state", "ON"));
+      PlatformMessage message =
+            PlatformMessage
+               .buildBroadcast(body, Address.deviceAddress("dev", UUID.randomUUID()))
+               .withPlaceId(UUID.randomUUID())
+               .create();
+
+      PlatformMessage decoded = deserializer.deserialize(binary.serialize(message));
+      assertFalse(decoded.isValueDecoded());
+      assertEquals(message.getSource(), decoded.getSource());
+      assertEquals(message.getPlaceId(), decoded.getPlaceId());
+      assertEquals("base:ValueChange", decoded.getMessageType());
+      assertFalse(decoded.isValueDecoded());
+
+      // copies share the undecoded payload
+      PlatformMessage copy = PlatformMessage.builder(decoded).withPlaceId(UUID.randomUUID()).create();
+      assertFalse(copy.isValueDecoded());
+
+      assertEquals(body, decoded.getValue());
+      assertTrue(decoded.isValueDecoded());
+      assertTrue(copy.isValueDecoded());
+      assertEquals(body, copy.getValue());
+      // the decoded value is cached
+      assertTrue(decoded.getValue() == decoded.getValue());
+   }
+
+   @Test
+   public void testSmallerThanJson() {
+      PlatformMessage message =
+            PlatformMessage
+               .buildBroadcast(
+                     MessageBody.buildMessage("base:ValueChange", ImmutableMap.<String, Object>of("swit:state", "ON", "devpow:battery", 87)),
+                     Address.deviceAddress("dev", UUID.randomUUID())
+               )
+               .withPlaceId(UUID.randomUUID())
+               .withPopulation("general")
+               .create();
+
+      assertTrue(binary.serialize(message).length * 3 < json.serialize(message).length);
+   }
+
+   private void assertRoundTrip(PlatformMessage message) {
+      PlatformMessage decoded = deserializer.deserialize(binary.serialize(message));
+      assertEquals(message, decoded);
+      assertEquals(message.getValue(), decoded.getValue());
+      assertEquals(message.getPlaceId(), decoded.getPlaceId());
+      assertEquals(message.getPopulation(), decoded.getPopulation());
+      assertEquals(message.getCorrelationId(), decoded.getCorrelationId());
+   }
+}
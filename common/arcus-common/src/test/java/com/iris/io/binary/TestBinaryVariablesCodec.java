@@ -0,0 +1,148 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.io.binary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Test;
+
+public class TestBinaryVariablesCodec {
+
+   @Test
+   public void testEmpty() {
+      byte[] encoded = BinaryVariablesCodec.encode(new HashMap<>());
+      assertTrue(BinaryVariablesCodec.isBinary(encoded));
+      assertEquals(new HashMap<>(), BinaryVariablesCodec.decode(encoded));
+   }
+
+   @Test
+   public void testRoundTrip() {
+      Map<String, Object> nested = new LinkedHashMap<>();
+      nested.put("endpoint", 1);
+      nested.put("cluster", "0x0006");
+      List<Object> list = new ArrayList<>();
+      list.add("a");
+      list.add(2L);
+      list.add(null);
+
+      HashMap<String, Object> variables = new HashMap<>();
+      variables.put("null", null);
+      variables.put("bool", true);
+      variables.put("int", -12);
+      variables.put("long", System.currentTimeMillis());
+      variables.put("double", 21.5);
+      variables.put("string", "value");
+      variables.put("emptyString", "");
+      variables.put("uuid", UUID.randomUUID());
+      variables.put("date", new Date(1000));
+      variables.put("list", list);
+      variables.put("map", nested);
+
+      byte[] encoded = BinaryVariablesCodec.encode(variables);
+      assertTrue(BinaryVariablesCodec.isBinary(encoded));
+
+      HashMap<String, Object> decoded = BinaryVariablesCodec.decode(encoded);
+      assertEquals(variables, decoded);
+      for(String key: variables.keySet()) {
+         Object value = variables.get(key);
+         if(value != null) {
+            assertEquals(key, value.getClass(), decoded.get(key).getClass());
+         }
+      }
+   }
+
+   @Test
+   public void testBytesRoundTrip() {
+      HashMap<String, Object> variables = new HashMap<>();
+      variables.put("bytes", new byte[] { 1, 2, 3 });
+
+      HashMap<String, Object> decoded = BinaryVariablesCodec.decode(BinaryVariablesCodec.encode(variables));
+      assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) decoded.get("bytes"));
+   }
+
+   @Test
+   public void testUnsupportedTypesFallBackToJava() {
+      Object [] values = new Object [] {
+            (short) 1,
+            1.5f,
+            new HashSet<>(Arrays.asList("a", "b")),
+            new TreeMap<>(),
+            new Timestamp(1000),
+            TimeUnitHolder.VALUE,
+            Arrays.asList(1, (byte) 2),
+            // would decode as an ArrayList / LinkedHashMap
+            Arrays.asList(1, 2),
+            new LinkedList<>(Arrays.asList(1, 2)),
+            new HashMap<>(Collections.singletonMap("a", 1))
+      };
+      for(Object value: values) {
+         HashMap<String, Object> variables = new HashMap<>();
+         variables.put("value", value);
+
+         byte[] encoded = BinaryVariablesCodec.encode(variables);
+         assertFalse(String.valueOf(value), BinaryVariablesCodec.isBinary(encoded));
+         assertEquals(variables, BinaryVariablesCodec.decode(encoded));
+      }
+   }
+
+   @Test
+   public void testDecodeLegacy() {
+      HashMap<String, Object> variables = new HashMap<>();
+      variables.put("string", "value");
+      variables.put("int", 1);
+
+      byte[] legacy = SerializationUtils.serialize(variables);
+      assertFalse(BinaryVariablesCodec.isBinary(legacy));
+      assertEquals(variables, BinaryVariablesCodec.decode(legacy));
+   }
+
+   @Test
+   public void testBinaryIsSmaller() {
+      HashMap<String, Object> variables = new HashMap<>();
+      variables.put("CURRENT_HEARTBEAT", 120);
+      variables.put("lastReportTime", System.currentTimeMillis());
+      variables.put("readingsEnabled", true);
+
+      assertTrue(BinaryVariablesCodec.encode(variables).length < BinaryVariablesCodec.encodeJava(variables).length);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testUnsupportedVersion() {
+      BinaryVariablesCodec.decode(new byte[] { (byte) BinaryVariablesCodec.MAGIC, 2, 0 });
+   }
+
+   private static enum TimeUnitHolder {
+      VALUE;
+   }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class TestRegexDfaTable extends RegexTestCase {
+   private static final List<String> REGEXS = ImmutableList.of(
+      "00",
+      "00*",
+      "01+ 02",
+      "00 ((AA|55) 01)+ 00",
+      "(..)+",
+      "10 . 20",
+      "."
+   );
+
+   @Test
+   public void testMatchesSameAsDfa() {
+      for (String regex : REGEXS) {
+         RegexDfaByte<List<String>> dfa = parse(regex, regex);
+         RegexDfaTable<List<String>> table = dfa.compile();
+         for (byte[] input : inputs()) {
+            assertEquals(regex, dfa.matches(input), table.matches(input));
+            assertEquals(regex, dfa.matching(input), table.matching(input));
+         }
+      }
+   }
+
+   @Test
+   public void testMultipleValues() {
+      Map<String,String> regexs = new LinkedHashMap<>();
+      regexs.put("01 02", "a");
+      regexs.put("01 03", "b");
+      regexs.put("02 .", "c");
+
+      RegexDfaByte<List<String>> dfa = parse(regexs);
+      RegexDfaTable<List<String>> table = dfa.compile();
+      assertEquals(ImmutableList.of("a"), table.matching(new byte[] { 1, 2 }));
+      assertEquals(ImmutableList.of("b"), table.matching(new byte[] { 1, 3 }));
+      assertEquals(ImmutableList.of("c"), table.matching(new byte[] { 2, 9 }));
+      assertNull(table.matching(new byte[] { 1, 4 }));
+      assertNull(table.matching(new byte[] { 1, 2, 3 }));
+      for (byte[] input : inputs()) {
+         assertEquals(dfa.matching(input), table.matching(input));
+      }
+   }
+
+   @Test
+   public void testEquivalenceClasses() {
+      // 00, 01-FF and the dead transitions out of the final state
+      RegexDfaTable<List<String>> table = parse("00 .", "a").compile();
+      assertEquals(2, table.getNumClasses());
+      // initial, after 00, final and dead
+      assertEquals(4, table.getNumStates());
+   }
+
+   @Test
+   public void testMinimizes() {
+      // (ab|cb) needs 2 middle states in a naive dfa but only one after minimization
+      Map<String,String> regexs = new LinkedHashMap<>();
+      regexs.put("0A 0B", "x");
+      regexs.put("0C 0B", "x");
+
+      RegexDfaTable<List<String>> table = parse(regexs).compile();
+      assertEquals(4, table.getNumStates());
+   }
+
+   @Test
+   public void testTransitionsFromCurrent() {
+      RegexDfaTable<List<String>> table = parse("01 (02|03)", "a").compile();
+      RegexDfaTable<List<String>>.Matcher match = table.matcher();
+      assertEquals(ImmutableList.of((byte)1), match.getTransitionsFromCurrent());
+      assertFalse(match.process((byte)1));
+      assertEquals(ImmutableList.of((byte)2, (byte)3), match.getTransitionsFromCurrent());
+      assertTrue(match.process((byte)4));
+      assertFalse(match.matched());
+      assertEquals(ImmutableList.of(), match.getTransitionsFromCurrent());
+   }
+
+   @Test
+   public void testMerge() {
+      Map<String,RegexDfaByte<List<String>>> dfas = new LinkedHashMap<>();
+      dfas.put("dev1", parse("01 .", "on"));
+      dfas.put("dev2", parse("01 02", "level"));
+      dfas.put("dev3", parse("03", "off"));
+
+      RegexDfaTable<Map<String,List<String>>> merged = RegexDfaTable.merge(dfas, 1000);
+      assertEquals(
+         ImmutableMap.of("dev1", ImmutableList.of("on"), "dev2", ImmutableList.of("level")),
+         merged.matching(new byte[] { 1, 2 })
+      );
+      assertEquals(ImmutableMap.of("dev1", ImmutableList.of("on")), merged.matching(new byte[] { 1, 5 }));
+      assertEquals(ImmutableMap.of("dev3", ImmutableList.of("off")), merged.matching(new byte[] { 3 }));
+      assertNull(merged.matching(new byte[] { 2 }));
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testMergeTooLarge() {
+      Map<String,RegexDfaByte<List<String>>> dfas = new LinkedHashMap<>();
+      dfas.put("dev1", parse("(..)+", "a"));
+      dfas.put("dev2", parse("(...)+", "b"));
+      RegexDfaTable.merge(dfas, 3);
+   }
+
+   private static List<byte[]> inputs() {
+      byte[] symbols = { 0x00, 0x01, 0x02, 0x10, 0x20, 0x55, (byte)0xAA, (byte)0xFF };
+      List<byte[]> inputs = new ArrayList<>();
+      inputs.add(new byte[0]);
+      for (byte a : symbols) {
+         inputs.add(new byte[] { a });
+         for (byte b : symbols) {
+            inputs.add(new byte[] { a, b });
+            for (byte c : symbols) {
+               inputs.add(new byte[] { a, b, c });
+               for (byte d : symbols) {
+                  inputs.add(new byte[] { a, b, c, d });
+               }
+            }
+         }
+      }
+
+      return inputs;
+   }
+
+   private RegexDfaByte<List<String>> parse(String regex, @Nullable String value) {
+      return RegexUtil.dfaToByteRep(RegexUtil.dfaMinimize(RegexUtil.nfaConvertToDfa(Regex.parseByteRegex(regex,value))));
+   }
+
+   private RegexDfaByte<List<String>> parse(Map<String,String> regexs) {
+      List<RegexNfa<Byte,String>> all = new ArrayList<>();
+      for (Map.Entry<String,String> entry : regexs.entrySet()) {
+         all.add(Regex.parseByteRegex(entry.getKey(),entry.getValue()));
+      }
+
+      RegexNfa<Byte,String> top = RegexNfa.<Byte,String>append(all);
+      return RegexUtil.dfaToByteRep(RegexUtil.dfaMinimize(RegexUtil.nfaConvertToDfa(top)));
+   }
+}
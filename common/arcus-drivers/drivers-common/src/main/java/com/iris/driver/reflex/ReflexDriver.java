@@ -34,7 +34,6 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import com.iris.driver.reflex.ReflexAction;
 import com.iris.driver.reflex.ReflexActionAlertmeLifesign;
 import com.iris.driver.reflex.ReflexActionDelay;
@@ -69,6 +68,7 @@ import com.iris.protocol.zigbee.msg.ZigbeeMessage;
 import com.iris.protocol.zigbee.zcl.IasZone;
 import com.iris.protocol.zwave.Protocol;
 import com.iris.regex.RegexDfaByte;
+import com.iris.regex.RegexDfaTable;
 
 public class ReflexDriver {
    private static final Logger log = LoggerFactory.getLogger(ReflexDriver.class);
@@ -504,7 +504,7 @@ public class ReflexDriver {
             }
          });
 
-         matchers.add(new RegexMatch(actionsDfa));
+         matchers.add(new RegexMatch(actionsDfa.compile()));
       }
 
       onAdded.trimToSize();
@@ -1425,9 +1425,9 @@ public class ReflexDriver {
    }
 
    private static final class RegexMatch extends AbstractProtocolMatch {
-      RegexDfaByte<List<Action>> dfa;
+      final RegexDfaTable<List<Action>> dfa;
 
-      public RegexMatch(RegexDfaByte<List<Action>> dfa) {
+      public RegexMatch(RegexDfaTable<List<Action>> dfa) {
          this.dfa = dfa;
       }
 
@@ -1443,11 +1443,8 @@ public class ReflexDriver {
       @Override
       public @Nullable List<Action> getActions() {
          ImmutableList.Builder<Action> bld = ImmutableList.<Action>builder();
-         for (RegexDfaByte.State<List<Action>> state : dfa.getStates()) {
-            List<Action> actions = state.getValue();
-            if (actions != null) {
-               bld.addAll(actions);
-            }
+         for (List<Action> actions : dfa.getValues()) {
+            bld.addAll(actions);
          }
 
          return bld.build();
@@ -1492,9 +1489,7 @@ public class ReflexDriver {
          int mismatchLocation = -1;
          byte mismatchByte = 0;
 
-         RegexDfaByte<?>.Matcher match = dfa.matcher();
-         RegexDfaByte.State<?> lastGoodState = match.current();
-
+         RegexDfaTable<?>.Matcher match = dfa.matcher();
          for (int i=0, e=protocol.length; i<e; ++i) {
             if (match.process(protocol[i])) {
                mismatchLocation = i;
@@ -1502,17 +1497,19 @@ public class ReflexDriver {
                break;
             }
 
-            lastGoodState = match.current();
             if (prefixMatched.length() != 0) prefixMatched.append(" ");
             prefixMatched.append(ProtocUtil.toHexString(protocol[i]));
          }
 
          if (!match.matched()) {
-            Set<Byte> available = (lastGoodState != null)
-               ? ImmutableSet.<Byte>copyOf(lastGoodState.getTransitions().knownTransitionSymbols())
-               : ImmutableSet.<Byte>of();
+            // replay the matched prefix to find the transitions out of the last good state
+            RegexDfaTable<?>.Matcher lastGood = dfa.matcher();
+            int prefix = (mismatchLocation >= 0) ? mismatchLocation : protocol.length;
+            for (int i=0; i<prefix; ++i) {
+               lastGood.process(protocol[i]);
+            }
 
-            List<Byte> sorted = new ArrayList<>(available);
+            List<Byte> sorted = new ArrayList<>(lastGood.getTransitionsFromCurrent());
             Collections.sort(sorted);
 
             StringBuilder avail = new StringBuilder();
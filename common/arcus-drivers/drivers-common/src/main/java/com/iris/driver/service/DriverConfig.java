@@ -66,6 +66,14 @@ public class DriverConfig {
    @Inject(optional = true)
    @Named("driver.tombstoneTimeoutSec")
    private long driverTombstoneTimeoutSec = TimeUnit.MINUTES.toSeconds(5);
+
+   @Inject(optional = true)
+   @Named("driver.load.parallelism")
+   private int driverLoadParallelism = Runtime.getRuntime().availableProcessors();
+
+   @Inject(optional = true)
+   @Named("driver.reload.incremental")
+   private boolean driverReloadIncremental = false;
    
    public String getApplicationDirectory() {
       return applicationDirectory;
@@ -155,6 +163,31 @@ public class DriverConfig {
       this.driverTombstoneTimeoutSec = driverTombstoneTimeoutSec;
    }
 
+   /**
+    * The number of driver scripts which may be compiled concurrently.
+    */
+   public int getDriverLoadParallelism() {
+      return driverLoadParallelism;
+   }
+
+   public void setDriverLoadParallelism(int driverLoadParallelism) {
+      this.driverLoadParallelism = driverLoadParallelism;
+   }
+
+   /**
+    * When enabled only the driver scripts whose contents have changed are
+    * re-compiled when the driver directory changes.  Only the driver script itself
+    * is hashed, so a driver is not re-compiled when a capability script it uses
+    * is edited in place; this is disabled by default for that reason.
+    */
+   public boolean isDriverReloadIncremental() {
+      return driverReloadIncremental;
+   }
+
+   public void setDriverReloadIncremental(boolean driverReloadIncremental) {
+      this.driverReloadIncremental = driverReloadIncremental;
+   }
+
    // TODO move this to a utility
    public Properties toProperties() {
       Properties props = new Properties();
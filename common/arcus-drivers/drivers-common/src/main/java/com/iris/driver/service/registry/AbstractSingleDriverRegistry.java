@@ -102,6 +102,18 @@ public abstract class AbstractSingleDriverRegistry extends AbstractDriverRegistr
       fireOnInvalidated();
    }
 
+   /**
+    * Loads the drivers and swaps them in once they are ready, unlike
+    * {@link #invalidate()} lookups continue to be served by the previous
+    * drivers while the new ones are loading.
+    */
+   protected void reload() {
+      synchronized(driverRef) {
+         driverRef.set(rebuild(loadDrivers()));
+      }
+      fireOnInvalidated();
+   }
+
    protected abstract Collection<DeviceDriver> loadDrivers();
 
    // TODO should this be removed? just use invalidate / loadDrivers?
@@ -45,7 +45,12 @@ public abstract class FilesystemDriverRegistry extends AbstractSingleDriverRegis
       watcher.addListener(new DriverWatcherListener() {
          @Override
          public void onChange() {
-            invalidate();
+            try {
+               reload();
+            }
+            catch(Exception e) {
+               logger.error("Unable to reload drivers from [{}], the previous drivers will remain active", getDirectoryPath(), e);
+            }
          }
       });
       watcher.watch();
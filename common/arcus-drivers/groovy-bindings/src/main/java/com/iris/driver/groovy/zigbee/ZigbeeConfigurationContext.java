@@ -411,9 +411,11 @@ public class ZigbeeConfigurationContext extends GroovyObjectSupport {
                return;
             }
 
-            ZigbeeMessage.Zcl zcl = ZigbeeMessage.Zcl.serde().fromBytes(ByteOrder.LITTLE_ENDIAN, zmsg.getPayload());
-            switch (zcl.getZclMessageId()) {
+            // most messages seen here are not the response, so only the message id is read until one is
+            ZigbeeMessage.Zcl.View zclView = ZigbeeMessage.Zcl.view(ByteOrder.LITTLE_ENDIAN, zmsg.getPayload());
+            switch (zclView.getZclMessageId()) {
                case com.iris.protocol.zigbee.zcl.General.ZclReadReportingConfigurationResponse.ID: {
+                  ZigbeeMessage.Zcl zcl = zclView.toValue();
                   com.iris.protocol.zigbee.zcl.General.ZclReadReportingConfigurationResponse rsp = com.iris.protocol.zigbee.zcl.General.ZclReadReportingConfigurationResponse.serde().fromBytes(ByteOrder.LITTLE_ENDIAN, zcl.getPayload());
 
                   boolean matched = false;
@@ -16,9 +16,17 @@
 package com.iris.driver.registry;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -26,6 +34,11 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
 import com.google.inject.Inject;
 import com.iris.driver.DeviceDriver;
 import com.iris.driver.groovy.GroovyDriverFactory;
@@ -33,14 +46,32 @@ import com.iris.driver.service.DriverConfig;
 import com.iris.driver.service.registry.DriverScriptInfo;
 import com.iris.driver.service.registry.FilesystemDriverRegistry;
 import com.iris.messages.model.DriverId;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
 import com.iris.validators.ValidationException;
 import com.netflix.governator.annotations.WarmUp;
 
+/**
+ * Loads all the drivers in the driver directory.  Scripts are compiled in parallel
+ * on a pool bounded by {@link DriverConfig#getDriverLoadParallelism()}, but the results
+ * are always collected in file name order so the registry contents do not depend on
+ * which script finished first.  If incremental reloads are enabled only the scripts
+ * whose contents have changed are re-compiled, see {@link DriverConfig#isDriverReloadIncremental()}.
+ */
 public class GroovyDriverRegistry extends FilesystemDriverRegistry {
    private final static Logger logger = LoggerFactory.getLogger(GroovyDriverRegistry.class);
+
+   private static final IrisMetricSet METRICS = IrisMetrics.metrics("driver.registry");
+   private static final Timer LOAD_TIMER = METRICS.timer("load");
+   private static final Timer DRIVER_LOAD_TIMER = METRICS.timer("driver.load");
+   private static final Counter DRIVERS_COMPILED = METRICS.counter("driver.compiled");
+   private static final Counter DRIVERS_UNCHANGED = METRICS.counter("driver.unchanged");
+
    private final DriverConfig driverConfig;
    private GroovyDriverFactory factory;
    private Pattern filterPattern = null;
+   // the successfully loaded drivers from the last load, keyed by file name
+   private volatile Map<String, LoadedDriver> loadedDrivers = Collections.emptyMap();
 
    @Inject
    public GroovyDriverRegistry(DriverConfig driverConfig, GroovyDriverFactory factory) {
@@ -65,20 +96,51 @@ public class GroovyDriverRegistry extends FilesystemDriverRegistry {
    protected Map<DriverId, DeviceDriver> getScriptedDrivers(File driverDir, List<DriverScriptInfo> driversInfo) {
       Map<DriverId, DeviceDriver> newDrivers = new HashMap<>();
       File[] files = driverDir.listFiles();
+      if(files == null) {
+         return newDrivers;
+      }
+      Arrays.sort(files);
 
-      long loaded = 0;
-      long total = 0;
-      long start = System.nanoTime();
+      Timer.Context timer = LOAD_TIMER.time();
+      List<File> scripts = new ArrayList<>(files.length);
       for (File driver : files) {
          if (driver.isFile() && driver.canRead() && (filterPattern == null || filterPattern.matcher(driver.getName()).matches())) {
-            total++;
-            try {
-               DeviceDriver deviceDriver = factory.load(driver.getName());
+            scripts.add(driver);
+         }
+      }
+
+      Map<String, LoadedDriver> previous = driverConfig.isDriverReloadIncremental() ? loadedDrivers : Collections.<String, LoadedDriver>emptyMap();
+      Map<String, LoadedDriver> loaded = new HashMap<>(scripts.size());
+      List<CompletableFuture<LoadedDriver>> results = new ArrayList<>(scripts.size());
+      long loadedCount = 0;
+      long unchanged = 0;
+      ForkJoinPool pool = new ForkJoinPool(Math.max(1, driverConfig.getDriverLoadParallelism()), GroovyDriverRegistry::newLoaderThread, null, false);
+      try {
+         for (File driver : scripts) {
+            String hash = hash(driver);
+            LoadedDriver result = previous.get(driver.getName());
+            if(result != null && hash != null && hash.equals(result.hash)) {
+               unchanged++;
+               results.add(CompletableFuture.completedFuture(result));
+            }
+            else {
+               results.add(CompletableFuture.supplyAsync(() -> load(driver, hash), pool));
+            }
+         }
+
+         for (int i = 0; i < scripts.size(); i++) {
+            File driver = scripts.get(i);
+            LoadedDriver result = join(results.get(i));
+            if (result.error == null) {
+               DeviceDriver deviceDriver = result.driver;
                newDrivers.put(deviceDriver.getDriverId(), deviceDriver);
                driversInfo.add(new DriverScriptInfo(driver.getName(), deviceDriver.getDriverId()));
-               logger.debug("Loaded driver [{}] from driver directory", deviceDriver.getDriverId().getName());
-               loaded++;
-            } catch (ValidationException e) {
+               if(result.hash != null) {
+                  loaded.put(driver.getName(), result);
+               }
+               loadedCount++;
+            } else {
+               ValidationException e = result.error;
                driversInfo.add(new DriverScriptInfo(driver.getName(), e));
                if (logger.isDebugEnabled()) {
                   logger.error("Driver [{}] failed to validate [{}]", driver.getName(), e.getMessage(), e);
@@ -88,10 +150,69 @@ public class GroovyDriverRegistry extends FilesystemDriverRegistry {
             }
          }
       }
-      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
-      logger.info("loaded {} of {} drivers in {}ms", loaded, total, elapsed);
+      finally {
+         pool.shutdownNow();
+      }
+      // failed drivers aren't kept so they are retried on the next load
+      loadedDrivers = loaded;
+      DRIVERS_UNCHANGED.inc(unchanged);
+
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(timer.stop());
+      logger.info("loaded {} of {} drivers ({} unchanged) in {}ms", loadedCount, scripts.size(), unchanged, elapsed);
 
       return newDrivers;
    }
-}
 
+   private LoadedDriver load(File driver, String hash) {
+      Timer.Context timer = DRIVER_LOAD_TIMER.time();
+      try {
+         DeviceDriver deviceDriver = factory.load(driver.getName());
+         logger.debug("Loaded driver [{}] from driver directory in {}ms", deviceDriver.getDriverId().getName(), TimeUnit.NANOSECONDS.toMillis(timer.stop()));
+         return new LoadedDriver(hash, deviceDriver, null);
+      }
+      catch (ValidationException e) {
+         timer.stop();
+         return new LoadedDriver(hash, null, e);
+      }
+      finally {
+         DRIVERS_COMPILED.inc();
+      }
+   }
+
+   private static LoadedDriver join(CompletableFuture<LoadedDriver> result) {
+      try {
+         return result.join();
+      }
+      catch(CompletionException e) {
+         throw Throwables.propagate(e.getCause());
+      }
+   }
+
+   private static String hash(File driver) {
+      try {
+         return Files.hash(driver, Hashing.sha1()).toString();
+      }
+      catch(IOException e) {
+         logger.warn("Unable to hash driver [{}], it will always be re-compiled", driver.getName(), e);
+         return null;
+      }
+   }
+
+   private static ForkJoinWorkerThread newLoaderThread(ForkJoinPool pool) {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("driver-loader-" + thread.getPoolIndex());
+      return thread;
+   }
+
+   private static class LoadedDriver {
+      private final String hash;
+      private final DeviceDriver driver;
+      private final ValidationException error;
+
+      LoadedDriver(String hash, DeviceDriver driver, ValidationException error) {
+         this.hash = hash;
+         this.driver = driver;
+         this.error = error;
+      }
+   }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.model.predicate;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.iris.messages.model.IndexablePredicate;
+import com.iris.messages.model.Model;
+
+/**
+ * Same as {@link com.google.common.base.Predicates#and(Predicate...)} but
+ * exposes the required values of its components so that a model store
+ * may satisfy the query from an index.
+ */
+public class AndPredicate implements Predicate<Model>, IndexablePredicate, Serializable {
+   private final List<Predicate<? super Model>> components;
+
+   @SafeVarargs
+   public AndPredicate(Predicate<? super Model>... components) {
+      Preconditions.checkArgument(components.length > 0, "must specify at least one predicate");
+      this.components = ImmutableList.copyOf(components);
+   }
+
+   @Override
+   public boolean apply(Model model) {
+      for(Predicate<? super Model> component: components) {
+         if(!component.apply(model)) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   @Override
+   public Map<String, Object> getRequiredValues() {
+      // every component must match, so any of their required values is required
+      Map<String, Object> required = new LinkedHashMap<>();
+      for(Predicate<? super Model> component: components) {
+         if(component instanceof IndexablePredicate) {
+            for(Map.Entry<String, Object> e: ((IndexablePredicate) component).getRequiredValues().entrySet()) {
+               if(!required.containsKey(e.getKey())) {
+                  required.put(e.getKey(), e.getValue());
+               }
+            }
+         }
+      }
+      return required;
+   }
+
+   @Override
+   public String toString() {
+      return "(" + Joiner.on(" and ").join(components) + ")";
+   }
+
+   @Override
+   public int hashCode() {
+      return components.hashCode() + 0x12472c2c;
+   }
+
+   @Override
+   public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (obj == null) return false;
+      if (getClass() != obj.getClass()) return false;
+      AndPredicate other = (AndPredicate) obj;
+      return components.equals(other.components);
+   }
+
+}
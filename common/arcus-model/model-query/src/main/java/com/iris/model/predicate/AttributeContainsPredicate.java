@@ -20,17 +20,20 @@ package com.iris.model.predicate;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableMap;
+import com.iris.messages.model.IndexablePredicate;
 import com.iris.messages.model.Model;
 
 /**
  * 
  */
-public class AttributeContainsPredicate implements Predicate<Model>, Serializable {
+public class AttributeContainsPredicate implements Predicate<Model>, IndexablePredicate, Serializable {
    private final String attributeName;
    private final Object attributeValue;
 
@@ -62,6 +65,11 @@ public class AttributeContainsPredicate implements Predicate<Model>, Serializabl
       return true;
    }
 
+   @Override
+   public Map<String, Object> getRequiredValues() {
+      return ImmutableMap.of(attributeName, attributeValue);
+   }
+
    @Override
    public String toString() {
       return attributeName + " contains " + attributeValue;
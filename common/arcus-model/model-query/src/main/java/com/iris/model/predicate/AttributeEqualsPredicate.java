@@ -19,6 +19,8 @@
 package com.iris.model.predicate;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -27,12 +29,14 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableMap;
+import com.iris.messages.model.IndexablePredicate;
 import com.iris.messages.model.Model;
 
 /**
  * 
  */
-public class AttributeEqualsPredicate implements Predicate<Model>, Serializable {
+public class AttributeEqualsPredicate implements Predicate<Model>, IndexablePredicate, Serializable {
    private static final Logger logger = LoggerFactory.getLogger(AttributeEqualsPredicate.class);
 
    private final String attributeName;
@@ -67,6 +71,15 @@ public class AttributeEqualsPredicate implements Predicate<Model>, Serializable
       return true;
    }
 
+   @Override
+   public Map<String, Object> getRequiredValues() {
+      // collections are indexed by their elements, so equality to a whole collection can't be looked up
+      if(attributeValue == null || attributeValue instanceof Collection) {
+         return ImmutableMap.of();
+      }
+      return ImmutableMap.of(attributeName, attributeValue);
+   }
+
    @Override
    public String toString() {
       return attributeName + " equals " + attributeValue;
@@ -94,6 +94,14 @@ public class Predicates {
    	return new AttributeValueContainsPredicate(Capability.ATTR_INSTANCES, namespace);
    }
    
+   /**
+    * Like {@link com.google.common.base.Predicates#and(Predicate, Predicate)} but
+    * allows a model store to use its indexes for the combined predicate.
+    */
+   public static Predicate<Model> and(Predicate<? super Model> first, Predicate<? super Model> second) {
+      return new AndPredicate(first, second);
+   }
+
    public static Predicate<Model> attributeEquals(String attributeName, Object attributeValue) {
       return new AttributeEqualsPredicate(attributeName, coerce(attributeName, attributeValue));
    }
@@ -206,7 +206,7 @@ public class ExpressionBuilder {
                return leftPredicate;
             }
             else {
-               return com.google.common.base.Predicates.and(leftPredicate, rightPredicate);
+               return Predicates.and(leftPredicate, rightPredicate);
             }
          case OR:
             if(isAlwaysTrue(leftPredicate) || isAlwaysTrue(rightPredicate)) {
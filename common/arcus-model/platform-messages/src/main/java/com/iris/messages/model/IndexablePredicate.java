@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.messages.model;
+
+import java.util.Map;
+
+/**
+ * Implemented by model predicates which can only match models that have
+ * specific attribute values.  {@link SimpleModelStore} uses this to start
+ * from the models in one of its indexes rather than scanning every model,
+ * the predicate is still applied to each of those candidates.
+ */
+public interface IndexablePredicate {
+
+   /**
+    * Attribute name / value pairs which every matching model is guaranteed
+    * to have, where a collection valued attribute has a value if it contains
+    * it.  Any one of these must be enough to narrow the search, so an empty
+    * map means the predicate can't be answered from an index.
+    */
+   Map<String, Object> getRequiredValues();
+
+}
@@ -33,6 +33,12 @@ public interface ModelStore {
    Iterable<Model> getModelsByType(String type);
    
    Iterable<Model> getModels(Predicate<? super Model> p);
+
+   /**
+    * Creates a view of the models matching the predicate which this store
+    * will keep up to date until it is closed.
+    */
+   ModelView createView(Predicate<? super Model> p);
    
    @Nullable
    Model getModelByAddress(Address address);
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.messages.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.iris.messages.address.Address;
+import com.iris.messages.event.Listener;
+import com.iris.messages.event.ListenerList;
+import com.iris.messages.event.ModelAddedEvent;
+import com.iris.messages.event.ModelEvent;
+import com.iris.messages.event.ModelRemovedEvent;
+import com.iris.util.Subscription;
+
+/**
+ * The set of models which currently match a predicate.  Rather than re-testing
+ * every model whenever anything changes the view is told which model changed
+ * and only re-tests that one, listeners receive a {@link ModelAddedEvent} when
+ * a model starts matching and a {@link ModelRemovedEvent} when it stops.
+ * 
+ * Views created via {@link ModelStore#createView(Predicate)} are kept up to date
+ * by the store and should be {@link #close() closed} when no longer needed.  A
+ * view may also be created directly and fed changes via {@link #update(Model)}
+ * and {@link #remove(Model)}.
+ * 
+ * Like the model store this is not thread safe.
+ */
+public class ModelView {
+   private final Predicate<? super Model> predicate;
+   private final Map<Address, Model> matches = new LinkedHashMap<>();
+   private final ListenerList<ModelEvent> listeners = new ListenerList<>();
+   private final Consumer<ModelView> onClose;
+
+   public ModelView(Predicate<? super Model> predicate) {
+      this(predicate, null);
+   }
+
+   ModelView(Predicate<? super Model> predicate, @Nullable Consumer<ModelView> onClose) {
+      Preconditions.checkNotNull(predicate, "predicate may not be null");
+      this.predicate = predicate;
+      this.onClose = onClose;
+   }
+
+   public Predicate<? super Model> getPredicate() {
+      return predicate;
+   }
+
+   public Set<Address> getAddresses() {
+      return Collections.unmodifiableSet(matches.keySet());
+   }
+
+   public Collection<Model> getModels() {
+      return Collections.unmodifiableCollection(matches.values());
+   }
+
+   public boolean contains(Address address) {
+      return matches.containsKey(address);
+   }
+
+   public int size() {
+      return matches.size();
+   }
+
+   public boolean isEmpty() {
+      return matches.isEmpty();
+   }
+
+   public Subscription addListener(Listener<? super ModelEvent> listener) {
+      Preconditions.checkNotNull(listener, "listener may not be null");
+      return listeners.addListener(listener);
+   }
+
+   /**
+    * Re-tests the given model against the predicate.
+    * @return {@code true} if the model was added to or removed from the view
+    */
+   public boolean update(Model model) {
+      Address address = model.getAddress();
+      if(address == null) {
+         return false;
+      }
+      if(predicate.apply(model)) {
+         if(matches.put(address, model) == null) {
+            listeners.fireEvent(new ModelAddedEvent(address));
+            return true;
+         }
+         return false;
+      }
+      return remove(model);
+   }
+
+   /**
+    * Removes the model from the view, used when the model itself has been deleted.
+    * @return {@code true} if the model was previously in the view
+    */
+   public boolean remove(Model model) {
+      Address address = model.getAddress();
+      if(address == null || matches.remove(address) == null) {
+         return false;
+      }
+      listeners.fireEvent(ModelRemovedEvent.create(model));
+      return true;
+   }
+
+   /**
+    * Re-builds the view from the given models, only models which are
+    * added or removed as a result generate events.
+    */
+   public void reset(Iterable<Model> models) {
+      Map<Address, Model> removed = new LinkedHashMap<>(matches);
+      for(Model model: models) {
+         Address address = model.getAddress();
+         if(address != null && predicate.apply(model)) {
+            removed.remove(address);
+            update(model);
+         }
+      }
+      for(Model model: removed.values()) {
+         remove(model);
+      }
+   }
+
+   /**
+    * Stops the owning store from updating this view, the current
+    * matches are left in place.
+    */
+   public void close() {
+      if(onClose != null) {
+         onClose.accept(this);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "ModelView [predicate=" + predicate + ", matches=" + matches.size() + "]";
+   }
+}
@@ -21,10 +21,13 @@ package com.iris.messages.model;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
@@ -34,10 +37,11 @@ import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
 import com.iris.messages.capability.Capability;
+import com.iris.messages.capability.DeviceCapability;
 import com.iris.messages.event.Listener;
 import com.iris.messages.event.ListenerList;
 import com.iris.messages.event.ModelAddedEvent;
@@ -49,21 +53,40 @@ import com.iris.util.IrisAttributeLookup;
 import com.iris.util.Subscription;
 
 /**
- *
+ * Models are always indexed by {@link Capability#ATTR_TYPE} and by default
+ * also by {@link Capability#ATTR_CAPS} and {@link DeviceCapability#ATTR_DEVTYPEHINT},
+ * see {@link #setIndexedAttributes(Collection)}.  Collection valued attributes
+ * are indexed by each of their elements.  {@link #getModelsByType(String)} and
+ * {@link #getModels(Predicate)} with an {@link IndexablePredicate} only visit
+ * the models in the smallest matching index rather than every model.
+ * 
+ * Indexes are maintained as attributes change through the store, an indexed
+ * attribute which is modified directly on a {@link Model} won't be reflected
+ * until {@link #updateIndex(Address, Model, String, Object, Object)} is invoked.
  */
 public class SimpleModelStore implements ModelStore {
    private static final Logger logger = LoggerFactory.getLogger(SimpleModelStore.class);
 
+   public static final Set<String> DEFAULT_INDEXED_ATTRIBUTES =
+         ImmutableSet.of(Capability.ATTR_TYPE, Capability.ATTR_CAPS, DeviceCapability.ATTR_DEVTYPEHINT);
+
    private Map<String, Model> models;
    private Collection<Model> unmodifiableModels;
    private ListenerList<ModelEvent> listeners;
    private Set<String> types = null;
+   // attribute name -> attribute value -> model key -> model
+   private Map<String, Map<Object, Map<String, Model>>> indexes;
+   // views are created far less often than models change
+   private List<ModelView> views;
 
    public SimpleModelStore() {
       // use linked implementations because we want efficient iteration
       this.models = new LinkedHashMap<String, Model>();
       this.unmodifiableModels = Collections.unmodifiableCollection(models.values());
       this.listeners = new ListenerList<>();
+      this.indexes = new HashMap<>();
+      this.views = new CopyOnWriteArrayList<>();
+      setIndexedAttributes(DEFAULT_INDEXED_ATTRIBUTES);
    }
 
    // TODO push down to ModelStore interface?
@@ -79,6 +102,27 @@ public class SimpleModelStore implements ModelStore {
          this.types = ImmutableSet.copyOf(namespaces);
       }
    }
+
+   public Set<String> getIndexedAttributes() {
+      return Collections.unmodifiableSet(indexes.keySet());
+   }
+
+   /**
+    * Replaces the set of indexed attributes and re-builds the indexes, {@link Capability#ATTR_TYPE}
+    * is always indexed.
+    */
+   public void setIndexedAttributes(Collection<String> attributeNames) {
+      indexes.clear();
+      indexes.put(Capability.ATTR_TYPE, new HashMap<>());
+      if(attributeNames != null) {
+         for(String attributeName: attributeNames) {
+            indexes.put(attributeName, new HashMap<>());
+         }
+      }
+      for(Map.Entry<String, Model> e: models.entrySet()) {
+         index(e.getKey(), e.getValue());
+      }
+   }
    
    public void addModel(Collection<Map<String, Object>> attributes) {
       if (attributes != null) {
@@ -101,7 +145,7 @@ public class SimpleModelStore implements ModelStore {
          return null;
       }
 
-      models.put(key, model);
+      put(key, model);
       fireModelAdded(addr);
       return model;
    }
@@ -117,19 +161,25 @@ public class SimpleModelStore implements ModelStore {
          return false;
       }
 
+      List<Object[]> changes = new ArrayList<>(attributes.size());
       for(Map.Entry<String, Object> attribute: attributes.entrySet()) {
          String name = attribute.getKey();
          Object newValue = attribute.getValue();
          Object oldValue = model.setAttribute(name, newValue);
          if(!Objects.equal(newValue, oldValue)) {
-            fireAttributeValueChanged(model.getAddress(), name, newValue, oldValue);
+            updateIndex(key, model, name, oldValue, newValue);
+            changes.add(new Object[] { name, newValue, oldValue });
          }
       }
+      if(!changes.isEmpty()) {
+         updateViews(model);
+      }
+      emitModelChanges(model.getAddress(), changes);
       return true;
    }
 
    public boolean removeModel(Address address) {
-      Model model = models.remove( getKey(address) );
+      Model model = remove( getKey(address) );
       if(model == null) {
          // TODO use the context logger
          logger.debug("Received delete for un-tracked model [{}]", address);
@@ -145,6 +195,14 @@ public class SimpleModelStore implements ModelStore {
       return unmodifiableModels;
    }
 
+   @Override
+   public ModelView createView(Predicate<? super Model> p) {
+      ModelView view = new ModelView(p, views::remove);
+      view.reset(getModels(p));
+      views.add(view);
+      return view;
+   }
+
    @Override
    @Nullable
    public Model getModelByAddress(Address address) {
@@ -154,17 +212,23 @@ public class SimpleModelStore implements ModelStore {
 
    @Override
    public Iterable<Model> getModelsByType(final String type) {
-      return Iterables.filter(models.values(), new Predicate<Model>() {
+      // the bucket is looked up on each iteration so the result stays live like getModels()
+      return new Iterable<Model>() {
          @Override
-         public boolean apply(Model input) {
-            return input != null && input.getType().equals(type);
+         public Iterator<Model> iterator() {
+            return Iterators.unmodifiableIterator(getIndexed(Capability.ATTR_TYPE, type).iterator());
          }
-      });
+      };
    }
 
    @Override
    public Iterable<Model> getModels(final Predicate<? super Model> p) {
-      return Iterables.filter(models.values(), p);
+      return new Iterable<Model>() {
+         @Override
+         public Iterator<Model> iterator() {
+            return Iterators.filter(getCandidates(p).iterator(), p);
+         }
+      };
    }
 
    @Override
@@ -212,7 +276,7 @@ public class SimpleModelStore implements ModelStore {
       String key = getKey(source);
 
       Model model = newModel(message.getValue().getAttributes());
-      models.put(key, model);
+      put(key, model);
       fireModelAdded(source);
    }
 
@@ -231,7 +295,7 @@ public class SimpleModelStore implements ModelStore {
    }
 
    protected void updateEventValueChange(PlatformMessage message, Address source, Model model) {
-      List<Object[]> changes = updateDifferences(model, message);
+      List<Object[]> changes = updateDifferences(source, model, message);
       emitModelChanges(source, changes);
    }
 
@@ -250,7 +314,7 @@ public class SimpleModelStore implements ModelStore {
    }
 
    protected void updateEventAttrReport(PlatformMessage message, Address source, Model model) {
-      List<Object[]> changes = updateDifferences(model, message);
+      List<Object[]> changes = updateDifferences(source, model, message);
       ModelReportEvent.Builder builder = ModelReportEvent.builder();
       builder.withAddress(source);
 
@@ -261,17 +325,22 @@ public class SimpleModelStore implements ModelStore {
       emitModelChanges(source, changes);
    }
 
-   private List<Object[]> updateDifferences(Model model, PlatformMessage message) {
+   private List<Object[]> updateDifferences(Address source, Model model, PlatformMessage message) {
       Set<Map.Entry<String, Object>> updates = message.getValue().getAttributes().entrySet();
+      String key = getKey(source);
 
       List<Object[]> changes = new ArrayList<>(updates.size());
       for(Map.Entry<String, Object> e : updates) {
          Object value = IrisAttributeLookup.coerce(e.getKey(), e.getValue());
          Object oldValue = model.setAttribute(e.getKey(), value);
          if (!Objects.equal(value, oldValue)) {
+            updateIndex(key, model, e.getKey(), oldValue, value);
             changes.add(new Object[] { e.getKey(), value, oldValue });
          }
       }
+      if(!changes.isEmpty()) {
+         updateViews(model);
+      }
       return changes;
    }
 
@@ -310,6 +379,134 @@ public class SimpleModelStore implements ModelStore {
       fire(ModelChangedEvent.create(source, attributeName, newValue, oldValue));
    }
 
+   /**
+    * Should be invoked by sub-classes which change model attributes without
+    * going through {@link #updateModel(Address, Map)} or {@link #update(PlatformMessage)}.
+    */
+   protected void updateIndex(Address address, Model model, String attributeName, Object oldValue, Object newValue) {
+      updateIndex(getKey(address), model, attributeName, oldValue, newValue);
+   }
+
+   /**
+    * Re-tests the model against each view, this is done after the store has been
+    * updated but before the associated {@link ModelEvent}s are fired so views are
+    * current when listeners are notified.  Should be invoked by sub-classes which
+    * change model attributes without going through this class.
+    */
+   protected void updateViews(Model model) {
+      for(ModelView view: views) {
+         view.update(model);
+      }
+   }
+
+   private void updateIndex(@Nullable String key, Model model, String attributeName, Object oldValue, Object newValue) {
+      Map<Object, Map<String, Model>> index = indexes.get(attributeName);
+      if(index == null || key == null || models.get(key) != model) {
+         return;
+      }
+      unindex(index, key, oldValue);
+      index(index, key, model, newValue);
+   }
+
+   private void put(String key, Model model) {
+      Model old = models.put(key, model);
+      if(old != null) {
+         unindex(key, old);
+      }
+      index(key, model);
+      updateViews(model);
+   }
+
+   private @Nullable Model remove(@Nullable String key) {
+      if(key == null) {
+         return null;
+      }
+      Model model = models.remove(key);
+      if(model != null) {
+         unindex(key, model);
+         for(ModelView view: views) {
+            view.remove(model);
+         }
+      }
+      return model;
+   }
+
+   private void index(String key, Model model) {
+      for(Map.Entry<String, Map<Object, Map<String, Model>>> e: indexes.entrySet()) {
+         index(e.getValue(), key, model, model.getAttribute(e.getKey()));
+      }
+   }
+
+   private void unindex(String key, Model model) {
+      for(Map.Entry<String, Map<Object, Map<String, Model>>> e: indexes.entrySet()) {
+         unindex(e.getValue(), key, model.getAttribute(e.getKey()));
+      }
+   }
+
+   private static void index(Map<Object, Map<String, Model>> index, String key, Model model, @Nullable Object value) {
+      if(value instanceof Collection) {
+         for(Object v: (Collection<?>) value) {
+            index(index, key, model, v);
+         }
+      }
+      else if(value != null) {
+         Map<String, Model> bucket = index.get(value);
+         if(bucket == null) {
+            bucket = new LinkedHashMap<>();
+            index.put(value, bucket);
+         }
+         bucket.put(key, model);
+      }
+   }
+
+   private static void unindex(Map<Object, Map<String, Model>> index, String key, @Nullable Object value) {
+      if(value instanceof Collection) {
+         for(Object v: (Collection<?>) value) {
+            unindex(index, key, v);
+         }
+      }
+      else if(value != null) {
+         Map<String, Model> bucket = index.get(value);
+         if(bucket != null) {
+            bucket.remove(key);
+            if(bucket.isEmpty()) {
+               index.remove(value);
+            }
+         }
+      }
+   }
+
+   private Collection<Model> getIndexed(String attributeName, Object value) {
+      Map<Object, Map<String, Model>> index = indexes.get(attributeName);
+      if(index == null) {
+         return models.values();
+      }
+      Map<String, Model> bucket = index.get(value);
+      return bucket == null ? Collections.<Model>emptyList() : bucket.values();
+   }
+
+   /**
+    * Picks the smallest index bucket which is guaranteed to contain every model matching
+    * the predicate, or all the models if the predicate can't be narrowed.
+    */
+   private Collection<Model> getCandidates(Predicate<? super Model> p) {
+      if(!(p instanceof IndexablePredicate)) {
+         return models.values();
+      }
+
+      Collection<Model> candidates = models.values();
+      for(Map.Entry<String, Object> required: ((IndexablePredicate) p).getRequiredValues().entrySet()) {
+         if(!indexes.containsKey(required.getKey())) {
+            continue;
+         }
+         Collection<Model> bucket = getIndexed(required.getKey(), required.getValue());
+         if(bucket.size() < candidates.size()) {
+            candidates = bucket;
+         }
+      }
+      return candidates;
+   }
+
    private @Nullable Model getByKey(@Nullable String key) {
       if(key == null) {
          return null;
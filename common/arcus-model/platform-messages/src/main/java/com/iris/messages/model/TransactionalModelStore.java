@@ -37,6 +37,7 @@ public class TransactionalModelStore extends SimpleModelStore {
       }
 
       List<ModelChangedEvent> events = model.commit(attributes);
+      onCommitted(model, events);
 		for(ModelChangedEvent event: events) {
 			fire(event);
 		}
@@ -47,13 +48,25 @@ public class TransactionalModelStore extends SimpleModelStore {
 		for(Model model: getModels()) {
 			TransactionalModel m = (TransactionalModel) model;
 			if(m.isDirty()) {
-				for(ModelChangedEvent event: m.commit()) {
+				List<ModelChangedEvent> events = m.commit();
+				onCommitted(m, events);
+				for(ModelChangedEvent event: events) {
 					fire(event);
 				}
 			}
 		}
 	}
 
+	private void onCommitted(Model model, List<ModelChangedEvent> events) {
+		if(events.isEmpty()) {
+			return;
+		}
+		for(ModelChangedEvent event: events) {
+			updateIndex(event.getAddress(), model, event.getAttributeName(), event.getOldValue(), event.getAttributeValue());
+		}
+		updateViews(model);
+	}
+
 	@Override
 	protected Model newModel(Map<String, Object> attributes) {
 		return new TransactionalModel(attributes);
@@ -16,8 +16,10 @@
 package com.iris.messages.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -25,16 +27,23 @@ import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.iris.messages.MessageBody;
 import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
 import com.iris.messages.capability.Capability;
 import com.iris.messages.capability.DeviceCapability;
 import com.iris.messages.capability.RecordingCapability;
+import com.iris.messages.capability.SwitchCapability;
 import com.iris.messages.event.Listener;
+import com.iris.messages.event.ModelAddedEvent;
+import com.iris.messages.event.ModelChangedEvent;
 import com.iris.messages.event.ModelEvent;
+import com.iris.messages.event.ModelRemovedEvent;
 
 public class TestSimpleModelStore {
    private SimpleModelStore store;
@@ -72,13 +81,159 @@ public class TestSimpleModelStore {
       assertEquals(1, events.size());
    }
 
+   @Test
+   public void testGetModelsByType() {
+      store.update(baseAdded(DeviceCapability.NAMESPACE));
+      store.update(baseAdded(DeviceCapability.NAMESPACE));
+      store.update(baseAdded(RecordingCapability.NAMESPACE));
+
+      Iterable<Model> devices = store.getModelsByType(DeviceCapability.NAMESPACE);
+      assertEquals(2, Iterables.size(devices));
+      assertEquals(1, Iterables.size(store.getModelsByType(RecordingCapability.NAMESPACE)));
+      assertEquals(0, Iterables.size(store.getModelsByType("nothing")));
+
+      // the result is a live view
+      PlatformMessage added = baseAdded(DeviceCapability.NAMESPACE);
+      store.update(added);
+      assertEquals(3, Iterables.size(devices));
+      store.update(deleted(added.getSource()));
+      assertEquals(2, Iterables.size(devices));
+   }
+
+   @Test
+   public void testCapabilityIndexFollowsValueChanges() {
+      PlatformMessage added = baseAdded(DeviceCapability.NAMESPACE);
+      store.update(added);
+      store.update(baseAdded(DeviceCapability.NAMESPACE));
+
+      CountingPredicate isSwitch = new CountingPredicate(Capability.ATTR_CAPS, SwitchCapability.NAMESPACE);
+      assertEquals(0, Iterables.size(store.getModels(isSwitch)));
+      assertEquals(0, isSwitch.applied);
+
+      store.update(valueChange(added.getSource(), Capability.ATTR_CAPS, ImmutableSet.of(Capability.NAMESPACE, SwitchCapability.NAMESPACE)));
+      assertEquals(1, Iterables.size(store.getModels(isSwitch)));
+      assertEquals(1, isSwitch.applied);
+
+      store.updateModel(added.getSource(), ImmutableMap.<String, Object>of(Capability.ATTR_CAPS, ImmutableSet.of(Capability.NAMESPACE)));
+      assertEquals(0, Iterables.size(store.getModels(isSwitch)));
+   }
+
+   @Test
+   public void testNonIndexedPredicateScans() {
+      store.update(baseAdded(DeviceCapability.NAMESPACE));
+      store.update(baseAdded(RecordingCapability.NAMESPACE));
+
+      CountingPredicate unindexed = new CountingPredicate(Capability.ATTR_ID, null);
+      assertEquals(0, Iterables.size(store.getModels(unindexed)));
+      assertEquals(2, unindexed.applied);
+   }
+
+   @Test
+   public void testSetIndexedAttributes() {
+      store.update(baseAdded(DeviceCapability.NAMESPACE));
+      store.setIndexedAttributes(ImmutableList.of(DeviceCapability.ATTR_NAME));
+
+      assertEquals(ImmutableSet.of(Capability.ATTR_TYPE, DeviceCapability.ATTR_NAME), store.getIndexedAttributes());
+      assertEquals(1, Iterables.size(store.getModelsByType(DeviceCapability.NAMESPACE)));
+   }
+
+   @Test
+   public void testViewTracksMatches() {
+      PlatformMessage added = baseAdded(DeviceCapability.NAMESPACE);
+      store.update(added);
+      store.update(baseAdded(DeviceCapability.NAMESPACE));
+
+      CountingPredicate isSwitch = new CountingPredicate(Capability.ATTR_CAPS, SwitchCapability.NAMESPACE);
+      ModelView view = store.createView(isSwitch);
+      List<ModelEvent> deltas = new ArrayList<>();
+      view.addListener(deltas::add);
+      assertTrue(view.isEmpty());
+
+      isSwitch.applied = 0;
+      store.update(valueChange(added.getSource(), Capability.ATTR_CAPS, ImmutableSet.of(Capability.NAMESPACE, SwitchCapability.NAMESPACE)));
+      assertEquals(ImmutableSet.of(added.getSource()), view.getAddresses());
+      // only the changed model is re-tested
+      assertEquals(1, isSwitch.applied);
+      assertEquals(1, deltas.size());
+      assertTrue(deltas.get(0) instanceof ModelAddedEvent);
+
+      // changes which don't affect the match don't generate deltas
+      store.update(valueChange(added.getSource(), DeviceCapability.ATTR_NAME, "Switch"));
+      assertEquals(1, deltas.size());
+
+      store.updateModel(added.getSource(), ImmutableMap.<String, Object>of(Capability.ATTR_CAPS, ImmutableSet.of(Capability.NAMESPACE)));
+      assertTrue(view.isEmpty());
+      assertEquals(2, deltas.size());
+      assertTrue(deltas.get(1) instanceof ModelRemovedEvent);
+   }
+
+   @Test
+   public void testViewRemovesDeletedModels() {
+      PlatformMessage added = baseAdded(DeviceCapability.NAMESPACE);
+      store.update(added);
+      store.update(baseAdded(RecordingCapability.NAMESPACE));
+
+      ModelView view = store.createView(new CountingPredicate(Capability.ATTR_CAPS, DeviceCapability.NAMESPACE));
+      assertEquals(ImmutableSet.of(added.getSource()), view.getAddresses());
+
+      store.update(deleted(added.getSource()));
+      assertEquals(0, view.size());
+   }
+
+   @Test
+   public void testViewIsUpdatedBeforeChangeEvents() {
+      PlatformMessage added = baseAdded(DeviceCapability.NAMESPACE);
+      store.update(added);
+
+      ModelView view = store.createView(new CountingPredicate(Capability.ATTR_CAPS, SwitchCapability.NAMESPACE));
+      List<Boolean> containedOnChange = new ArrayList<>();
+      store.addListener((event) -> {
+         if(event instanceof ModelChangedEvent) {
+            containedOnChange.add(view.contains(event.getAddress()));
+         }
+      });
+
+      store.update(valueChange(added.getSource(), Capability.ATTR_CAPS, ImmutableSet.of(Capability.NAMESPACE, SwitchCapability.NAMESPACE)));
+      assertEquals(ImmutableList.of(true), containedOnChange);
+   }
+
+   @Test
+   public void testClosedViewIsNotUpdated() {
+      ModelView view = store.createView(new CountingPredicate(Capability.ATTR_CAPS, DeviceCapability.NAMESPACE));
+      store.update(baseAdded(DeviceCapability.NAMESPACE));
+      assertEquals(1, view.size());
+
+      view.close();
+      store.update(baseAdded(DeviceCapability.NAMESPACE));
+      assertEquals(1, view.size());
+   }
+
+   private PlatformMessage valueChange(Address address, String attribute, Object value) {
+      return
+            PlatformMessage
+               .broadcast()
+               .from(address)
+               .withPayload(Capability.EVENT_VALUE_CHANGE, ImmutableMap.<String, Object>of(attribute, value))
+               .create();
+   }
+
+   private PlatformMessage deleted(Address address) {
+      return
+            PlatformMessage
+               .broadcast()
+               .from(address)
+               .withPayload(Capability.EVENT_DELETED, ImmutableMap.<String, Object>of())
+               .create();
+   }
+
    private PlatformMessage baseAdded(String namespace) {
       UUID id = UUID.randomUUID();
       Address address = Address.platformService(id, namespace);
       Map<String, Object> attributes = ImmutableMap.<String, Object>of(
             Capability.ATTR_ID, id,
             Capability.ATTR_ADDRESS, address,
-            Capability.ATTR_TYPE, namespace
+            Capability.ATTR_TYPE, namespace,
+            Capability.ATTR_CAPS, ImmutableSet.of(Capability.NAMESPACE, namespace)
       );
       return 
             PlatformMessage
@@ -87,5 +242,27 @@ public class TestSimpleModelStore {
                .withPayload(Capability.EVENT_ADDED, attributes)
                .create();
    }
-}
 
+   private static class CountingPredicate implements Predicate<Model>, IndexablePredicate {
+      private final String attribute;
+      private final Object value;
+      private int applied = 0;
+
+      CountingPredicate(String attribute, Object value) {
+         this.attribute = attribute;
+         this.value = value;
+      }
+
+      @Override
+      public boolean apply(Model input) {
+         applied++;
+         Object current = input.getAttribute(attribute);
+         return value != null && current instanceof Collection && ((Collection<?>) current).contains(value);
+      }
+
+      @Override
+      public Map<String, Object> getRequiredValues() {
+         return value == null ? ImmutableMap.<String, Object>of() : ImmutableMap.of(attribute, value);
+      }
+   }
+}
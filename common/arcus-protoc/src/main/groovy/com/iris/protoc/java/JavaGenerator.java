@@ -273,6 +273,7 @@ public class JavaGenerator implements ProtocGenerator {
 
       String lastField = null;
       List<String> previous = new ArrayList<>();
+      int viewOffset = 0;
       for (Map.Entry<String,FieldNode> snext : struct.getFields().entrySet()) {
          String key = snext.getKey();
          boolean isStored = isFieldStored(snext.getValue());
@@ -280,6 +281,11 @@ public class JavaGenerator implements ProtocGenerator {
          Map<String,Object> fieldContext = getFieldContext(key, snext.getValue(), previous);
          lastField = key;
 
+         String viewGetterValue = viewGetterValue(snext.getValue(), viewOffset);
+         fieldContext.put("hasView", viewGetterValue != null);
+         fieldContext.put("viewGetterValue", viewGetterValue);
+         viewOffset = viewNextOffset(snext.getValue(), viewOffset);
+
          fieldContext.put("first", fieldsFirst);
          fieldContext.put("comma", fieldsFirst ? "" : ",");
          fieldContext.put("storedComma", (!isStored || storedFirst) ? "" : ",");
@@ -736,6 +742,57 @@ public class JavaGenerator implements ProtocGenerator {
       return last + "Offset(context) + " + last + "Size(context)";
    }
    
+   /////////////////////////////////////////////////////////////////////////////
+   // Flyweight view support
+   /////////////////////////////////////////////////////////////////////////////
+   //
+   // A field can be read in place by the generated View only when every field
+   // before it has a size known at generation time, the offset is tracked
+   // while walking the fields and becomes -1 once that is no longer true.
+
+   public String viewGetterValue(FieldNode field, int offset) {
+      TypeNode fieldType = field.getType(ast);
+      if (offset < 0 || field.getWhen() != null || field.getEncoding() != null || field.getDecoding() != null || !(fieldType instanceof PrimitiveTypeNode)) {
+         return null;
+      }
+
+      String index = (offset == 0) ? "offset" : "offset + " + offset;
+      PrimitiveTypeNode prim = (PrimitiveTypeNode)fieldType;
+      switch (prim.getPrimitiveType()) {
+      case U8:  return "buffer.getUnsignedByte(" + index + ")";
+      case I8:  return "buffer.getByte(" + index + ")";
+      case U16: return "buffer.getUnsignedShort(" + index + ")";
+      case I16: return "buffer.getShort(" + index + ")";
+      case U32: case I32: return "buffer.getInt(" + index + ")";
+      case U64: case I64: return "buffer.getLong(" + index + ")";
+      case F32: return "buffer.getFloat(" + index + ")";
+      case F64: return "buffer.getDouble(" + index + ")";
+      default:  throw new IllegalStateException("unknown primitive type: " + fieldType);
+      }
+   }
+
+   public int viewNextOffset(FieldNode field, int offset) {
+      if (offset < 0 || field.getWhen() != null || field.getEncoding() != null || field.getDecoding() != null) {
+         return -1;
+      }
+
+      TypeNode fieldType = field.getType(ast);
+      if (fieldType instanceof PrimitiveTypeNode) {
+         return offset + Integer.parseInt(typeByteSize("", fieldType));
+      }
+
+      if (fieldType instanceof FixedArrayTypeNode) {
+         FixedArrayTypeNode atn = (FixedArrayTypeNode)fieldType;
+         TypeNode vt = atn.getValueType(ast);
+         String length = atn.getLength(ast);
+         if (vt instanceof PrimitiveTypeNode && length != null && length.matches("\\d+")) {
+            return offset + Integer.parseInt(typeByteSize("", vt)) * Integer.parseInt(length);
+         }
+      }
+
+      return -1;
+   }
+
    /////////////////////////////////////////////////////////////////////////////
    // Byte size support
    /////////////////////////////////////////////////////////////////////////////
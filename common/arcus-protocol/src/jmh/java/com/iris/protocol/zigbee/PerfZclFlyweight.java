@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.protocol.zigbee;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iris.protocol.zigbee.msg.ZigbeeMessage;
+import com.iris.protocol.zigbee.zcl.General;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Compares fully decoding the common ZCL messages against reading only the
+ * header fields needed for dispatch through the generated flyweight views.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class PerfZclFlyweight {
+   private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+   @Benchmark
+   public int perfDecodeZclHeader(TestSetup test) {
+      ZigbeeMessage.Zcl zcl = ZigbeeMessage.Zcl.serde().fromBytes(ORDER, test.report);
+      return zcl.getClusterId() ^ zcl.getZclMessageId();
+   }
+
+   @Benchmark
+   public int perfViewZclHeader(TestSetup test) {
+      ZigbeeMessage.Zcl.View zcl = ZigbeeMessage.Zcl.view(ORDER, test.report);
+      return zcl.getClusterId() ^ zcl.getZclMessageId();
+   }
+
+   @Benchmark
+   public int perfReusedViewZclHeader(TestSetup test) {
+      ZigbeeMessage.Zcl.View zcl = test.view.wrap(ORDER, test.reportBuf, 0);
+      return zcl.getClusterId() ^ zcl.getZclMessageId();
+   }
+
+   @Benchmark
+   public General.ZclReportAttributes perfDecodeReport(TestSetup test) {
+      ZigbeeMessage.Zcl zcl = ZigbeeMessage.Zcl.serde().fromBytes(ORDER, test.report);
+      return General.ZclReportAttributes.serde().fromBytes(ORDER, zcl.getPayload());
+   }
+
+   @Benchmark
+   public General.ZclReportAttributes perfViewThenDecodeReport(TestSetup test) throws IOException {
+      ZigbeeMessage.Zcl zcl = ZigbeeMessage.Zcl.view(ORDER, test.report).toValue();
+      return General.ZclReportAttributes.serde().fromBytes(ORDER, zcl.getPayload());
+   }
+
+   @Benchmark
+   public int perfDecodeDefaultResponse(TestSetup test) {
+      return General.ZclDefaultResponse.serde().fromBytes(ORDER, test.defaultResponse).getStatus();
+   }
+
+   @Benchmark
+   public int perfViewDefaultResponse(TestSetup test) {
+      return General.ZclDefaultResponse.view(ORDER, test.defaultResponse).getStatus();
+   }
+
+   @Benchmark
+   public int perfEncodeToBytes(TestSetup test) throws IOException {
+      return test.zcl.toBytes(ORDER).length;
+   }
+
+   @Benchmark
+   public int perfEncodeToPooledByteBuf(TestSetup test) throws IOException {
+      ByteBuf buffer = test.zcl.toByteBuf(PooledByteBufAllocator.DEFAULT, ORDER);
+      try {
+         return buffer.readableBytes();
+      }
+      finally {
+         buffer.release();
+      }
+   }
+
+   @State(Scope.Thread)
+   public static class TestSetup {
+      ZigbeeMessage.Zcl zcl;
+      byte[] report;
+      ByteBuf reportBuf;
+      byte[] defaultResponse;
+      ZigbeeMessage.Zcl.View view;
+
+      @Setup
+      public void setup() throws IOException {
+         // a temperature and humidity report, about as large as most reports get
+         General.ZclReportAttributes attributes = General.ZclReportAttributes.builder()
+               .setAttributes(new General.ZclAttributeReport[] {
+                  General.ZclAttributeReport.builder()
+                     .setAttributeIdenifier(0x0000)
+                     .setAttributeData(ZclData.builder().set16Bit((short) 2150).create())
+                     .create(),
+                  General.ZclAttributeReport.builder()
+                     .setAttributeIdenifier(0x0001)
+                     .setAttributeData(ZclData.builder().set16Bit((short) 4500).create())
+                     .create()
+               })
+               .create();
+
+         zcl = ZigbeeMessage.Zcl.builder()
+               .setZclMessageId(General.ZclReportAttributes.ID)
+               .setFlags(ZigbeeMessage.Zcl.FROM_SERVER)
+               .setProfileId(0x0104)
+               .setClusterId(0x0402)
+               .setEndpoint(1)
+               .setPayload(attributes.toBytes(ORDER))
+               .create();
+         report = zcl.toBytes(ORDER);
+         reportBuf = Unpooled.wrappedBuffer(report);
+         view = ZigbeeMessage.Zcl.view(ORDER, reportBuf);
+
+         defaultResponse = General.ZclDefaultResponse.builder()
+               .setCommandIdentifier(0x01)
+               .setStatus(0x00)
+               .create()
+               .toBytes(ORDER);
+      }
+   }
+}
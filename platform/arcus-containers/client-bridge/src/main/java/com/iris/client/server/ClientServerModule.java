@@ -53,8 +53,10 @@ import com.iris.bridge.server.netty.Authenticator;
 import com.iris.bridge.server.netty.WebSocketServerHandlerProvider;
 import com.iris.bridge.server.session.DefaultSessionFactoryImpl;
 import com.iris.bridge.server.session.DefaultSessionRegistryImpl;
+import com.iris.bridge.server.session.PlaceInterestPublisher;
 import com.iris.bridge.server.session.SessionFactory;
 import com.iris.bridge.server.session.SessionListener;
+import com.iris.bridge.server.session.SessionPlaceInterest;
 import com.iris.bridge.server.session.SessionRegistry;
 import com.iris.bridge.server.shiro.ShiroAuthenticator;
 import com.iris.bridge.server.shiro.ShiroModule;
@@ -100,6 +102,7 @@ import com.iris.client.server.rest.VerifyEmailRESTHandler;
 import com.iris.client.server.rest.VerifyPinRESTHandler;
 import com.iris.client.server.session.HandshakeSessionListener;
 import com.iris.client.server.session.StopCameraPreviewsUploadSessionListener;
+import com.iris.core.messaging.PlaceInterest;
 import com.iris.core.template.TemplateModule;
 import com.iris.messages.MessageConstants;
 import com.iris.messages.address.Address;
@@ -203,6 +206,9 @@ public class ClientServerModule extends AbstractIrisModule {
       bind(Authenticator.class).to(ShiroAuthenticator.class);
       bind(SessionFactory.class).to(DefaultSessionFactoryImpl.class);
       bind(SessionRegistry.class).to(DefaultSessionRegistryImpl.class);      
+      // only decode broadcasts for places with a session on this bridge
+      bind(PlaceInterest.class).to(SessionPlaceInterest.class);
+      bind(PlaceInterestPublisher.class).asEagerSingleton();
       bind(NotificationAuditor.class).to(CassandraAuditor.class);
 
       if(algorithm.equalsIgnoreCase(AUTHZ_LOADER_NONE)) {
@@ -54,6 +54,7 @@ import com.iris.driver.pin.PinManager;
 import com.iris.driver.pin.PlatformPinManager;
 import com.iris.driver.reflex.ReflexDriverContext;
 import com.iris.driver.reflex.ReflexDriverDefinition;
+import com.iris.driver.service.DriverStateWriter;
 import com.iris.driver.service.executor.DriverExecutors;
 import com.iris.driver.service.executor.PlatformMessageTimeout;
 import com.iris.messages.Message;
@@ -262,6 +263,10 @@ public class PlatformDeviceDriverContext implements DeviceDriverContext {
       return ServiceLocator.getInstance(Scheduler.class);
    }
 
+   protected DriverStateWriter getStateWriter() {
+      return ServiceLocator.getInstance(DriverStateWriter.class);
+   }
+
    @Override
    public UUID getPlaceId() {
       return this.device.getPlace();
@@ -841,6 +846,8 @@ public class PlatformDeviceDriverContext implements DeviceDriverContext {
 
       DeviceDAO deviceDao = getDeviceDao();
       saveDeviceIfDirty(deviceDao);
+      // anything still pending belongs to the state being replaced
+      getStateWriter().discard(device.getId());
       deviceDao.replaceDriverState(device, new DeviceDriverStateHolder(attributes, variables));
       Map<String,Object> deviceAttrs = new HashMap<>();
       for(AttributeKey<?> key: getAttributeKeys()) {
@@ -913,7 +920,7 @@ public class PlatformDeviceDriverContext implements DeviceDriverContext {
       }
       AttributeMap dirty = AttributeMap.filterKeys(attributes, dirtyAttributes);
       if(!dirty.isEmpty() || !dirtyVariables.isEmpty()) {
-         deviceDao.updateDriverState(device, new DeviceDriverStateHolder(dirty, dirtyVariables.isEmpty() ? Collections.emptyMap() : variables));
+         getStateWriter().update(device, new DeviceDriverStateHolder(dirty, dirtyVariables.isEmpty() ? Collections.emptyMap() : variables));
          dirtyVariables.clear();
       }
       // not this isn't in the if block b/c the dirty attributes might have been on the device
@@ -998,12 +1005,15 @@ public class PlatformDeviceDriverContext implements DeviceDriverContext {
       if(tombstone) {
          logger.debug("Tombstoning device [{}] named [{}]", device.getId(), device.getName());
          device.setState(Device.STATE_TOMBSTONED);
+         getStateWriter().flush(device.getId());
          this.persisted = getDeviceDao().save(device);
          this.device = persisted.copy();
       }
       else {
          logger.debug("Deleting device [{}] named [{}]", device.getId(), device.getName());
          // TODO set persisted to null?
+         // a late state update would re-create the row
+         getStateWriter().discard(device.getId());
          getDeviceDao().delete(device);
       }
       Map<String, Object> attributeMap = new HashMap<>(2);
@@ -21,6 +21,7 @@ package com.iris.driver.platform;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -54,6 +55,7 @@ import com.iris.driver.ProxyDeviceDriver;
 import com.iris.driver.event.DriverEvent;
 import com.iris.driver.reflex.ReflexDriverDefinition;
 import com.iris.driver.service.DriverConfig;
+import com.iris.driver.service.DriverStateWriter;
 import com.iris.driver.service.executor.DefaultDriverExecutor;
 import com.iris.driver.service.executor.DriverExecutor;
 import com.iris.driver.service.executor.DriverExecutorRegistry;
@@ -84,6 +86,7 @@ public class PlatformDriverExecutorRegistry implements DriverExecutorRegistry {
    private final DeviceDAO deviceDao;
    private final Scheduler scheduler;
    private final PlacePopulationCacheManager populationCacheMgr;
+   private final DriverStateWriter stateWriter;
 
    private final int driverQueueBacklog;
    private final long tombstonedDriverTimeoutMs;
@@ -110,7 +113,8 @@ public class PlatformDriverExecutorRegistry implements DriverExecutorRegistry {
          DriverRegistry registry, 
          DeviceDAO deviceDao, 
          Scheduler scheduler, 
-         PlacePopulationCacheManager populationCacheMgr
+         PlacePopulationCacheManager populationCacheMgr,
+         DriverStateWriter stateWriter
    ) {
       this.driverQueueBacklog = config.getDriverBacklogSize();
       this.tombstonedDriverTimeoutMs = config.getDriverTombstoneTimeout(TimeUnit.MILLISECONDS);
@@ -118,6 +122,7 @@ public class PlatformDriverExecutorRegistry implements DriverExecutorRegistry {
       this.deviceDao = deviceDao;
       this.scheduler = scheduler;
       this.populationCacheMgr = populationCacheMgr;
+      this.stateWriter = stateWriter;
       IrisMetricSet drivers = IrisMetrics.metrics("drivers");
       drivers.monitor("cache.executor", executorCache);
       drivers.monitor("cache.protocol", protocolToDriverCache);
@@ -284,7 +289,12 @@ public class PlatformDriverExecutorRegistry implements DriverExecutorRegistry {
       logger.debug("Message consumer cache entry expired: [{}]", consumer);
       DeviceProtocolAddress protocolAddress =  (DeviceProtocolAddress) consumer.context().getProtocolAddress();
       protocolToDriverCache.invalidate(protocolAddress);
-      scheduler.scheduleDelayed(consumer::stop, 0, TimeUnit.MILLISECONDS);
+      UUID deviceId = consumer.context().getDeviceId();
+      scheduler.scheduleDelayed(() -> {
+         consumer.stop();
+         // write out anything still held back so the next load sees it
+         stateWriter.flush(deviceId);
+      }, 0, TimeUnit.MILLISECONDS);
    }
    
    protected DriverExecutor doLoadConsumer(Address address, Mode mode) {
@@ -441,6 +451,8 @@ public class PlatformDriverExecutorRegistry implements DriverExecutorRegistry {
          throw new IllegalArgumentException("Unable to load driver for id [" + driverId + "]");
       }
 
+      // the device may have been evicted before its last update was written
+      stateWriter.flush(device.getId());
       return new PlatformDeviceDriverContext(device, driver.getDefinition(), deviceDao.loadDriverState(device), populationCacheMgr);
    }
 
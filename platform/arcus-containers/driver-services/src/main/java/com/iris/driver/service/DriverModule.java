@@ -43,6 +43,7 @@ import com.iris.driver.service.handler.UpgradeDriverRequestHandler;
 import com.iris.driver.service.init.DefaultNameInitializer;
 import com.iris.driver.service.registry.CompositeDriverRegistry;
 import com.iris.driver.service.registry.DriverRegistry;
+import com.iris.driver.service.state.CoalescingDriverStateWriter;
 import com.iris.messages.MessageConstants;
 import com.iris.messages.address.Address;
 import com.iris.messages.address.AddressMatcher;
@@ -77,6 +78,7 @@ public class DriverModule extends AbstractIrisModule {
          .to(DefaultNameInitializer.class);
 
 		bind(DriverExecutorRegistry.class).to(PlatformDriverExecutorRegistry.class);
+      bind(DriverStateWriter.class).to(CoalescingDriverStateWriter.class);
 	}
 
 	@Provides @Singleton @Named(DriverConfig.NAMED_EXECUTOR)
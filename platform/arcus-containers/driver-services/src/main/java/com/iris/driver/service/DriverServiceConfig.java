@@ -15,11 +15,26 @@
  */
 package com.iris.driver.service;
 
+import java.util.Set;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import com.iris.messages.capability.AlertCapability;
+import com.iris.messages.capability.CarbonMonoxideCapability;
+import com.iris.messages.capability.ContactCapability;
+import com.iris.messages.capability.DeviceConnectionCapability;
+import com.iris.messages.capability.DoorLockCapability;
+import com.iris.messages.capability.GlassCapability;
+import com.iris.messages.capability.KeyPadCapability;
+import com.iris.messages.capability.LeakH2OCapability;
+import com.iris.messages.capability.MotionCapability;
+import com.iris.messages.capability.SmokeCapability;
 
 public class DriverServiceConfig {
    private static final Logger log = LoggerFactory.getLogger(DriverServiceConfig.class);
@@ -37,6 +52,25 @@ public class DriverServiceConfig {
    @Inject(optional=true) @Named("driver.service.sync.size.warning")
    private int syncSizeWarning = 512 * 1024;
 
+   // how long driver state writes are held so that multiple commits for the same device may be combined, 0 to disable
+   @Inject(optional=true) @Named("driver.state.writebehind.ms")
+   private long stateWriteBehindMs = 1000;
+
+   // comma separated capability namespaces whose attributes are always written immediately
+   @Inject(optional=true) @Named("driver.state.writebehind.critical")
+   private String stateCriticalNamespaces = Joiner.on(',').join(
+         AlertCapability.NAMESPACE,
+         CarbonMonoxideCapability.NAMESPACE,
+         ContactCapability.NAMESPACE,
+         DeviceConnectionCapability.NAMESPACE,
+         DoorLockCapability.NAMESPACE,
+         GlassCapability.NAMESPACE,
+         KeyPadCapability.NAMESPACE,
+         LeakH2OCapability.NAMESPACE,
+         MotionCapability.NAMESPACE,
+         SmokeCapability.NAMESPACE
+   );
+
    /**
     * @return the maxThreads
     */
@@ -68,5 +102,21 @@ public class DriverServiceConfig {
    public int getSyncSizeWarning() {
       return syncSizeWarning;
    }
+
+   public long getStateWriteBehindMs() {
+      return stateWriteBehindMs;
+   }
+
+   public void setStateWriteBehindMs(long stateWriteBehindMs) {
+      this.stateWriteBehindMs = stateWriteBehindMs;
+   }
+
+   public Set<String> getStateCriticalNamespaces() {
+      return ImmutableSet.copyOf(Splitter.on(',').omitEmptyStrings().trimResults().split(stateCriticalNamespaces));
+   }
+
+   public void setStateCriticalNamespaces(String stateCriticalNamespaces) {
+      this.stateCriticalNamespaces = stateCriticalNamespaces;
+   }
 }
 
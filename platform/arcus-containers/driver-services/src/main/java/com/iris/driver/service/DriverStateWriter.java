@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.driver.service;
+
+import java.util.UUID;
+
+import com.iris.core.driver.DeviceDriverStateHolder;
+import com.iris.messages.model.Device;
+
+/**
+ * Persists the attributes and variables changed by a driver commit.  Implementations
+ * may defer the write, so anything which reads driver state back from the
+ * database or replaces / removes it must {@link #flush(UUID)} or
+ * {@link #discard(UUID)} first.
+ */
+public interface DriverStateWriter {
+
+   void update(Device device, DeviceDriverStateHolder state);
+
+   /**
+    * Immediately writes any pending state for the given device.
+    */
+   void flush(UUID deviceId);
+
+   /**
+    * Drops any pending state for the given device without writing it,
+    * used when the state is about to be replaced or deleted.
+    */
+   void discard(UUID deviceId);
+}
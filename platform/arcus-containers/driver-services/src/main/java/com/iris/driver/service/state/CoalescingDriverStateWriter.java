@@ -0,0 +1,256 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.driver.service.state;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.Striped;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.iris.common.scheduler.Scheduler;
+import com.iris.core.dao.DeviceDAO;
+import com.iris.core.driver.DeviceDriverStateHolder;
+import com.iris.device.attributes.AttributeKey;
+import com.iris.device.attributes.AttributeMap;
+import com.iris.driver.service.DriverServiceConfig;
+import com.iris.driver.service.DriverStateWriter;
+import com.iris.messages.model.Device;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+
+/**
+ * Holds driver state updates for {@code driver.state.writebehind.ms} and
+ * merges any further updates for the same device into a single write.  Later
+ * attribute values replace earlier ones and the most recent set of variables
+ * wins, which matches the result of applying each update in order.
+ * 
+ * Updates which touch a critical namespace (see {@code driver.state.writebehind.critical})
+ * are written immediately along with anything already pending for that device.
+ * All writes for a device are made while holding that device's lock so a
+ * delayed flush can never land after a newer write.
+ * 
+ * A failed flush puts the state back and tries again after another window, up to
+ * {@code MAX_RETRIES} times, merging in any updates which arrive in the meantime.
+ */
+@Singleton
+public class CoalescingDriverStateWriter implements DriverStateWriter {
+   private static final Logger logger = LoggerFactory.getLogger(CoalescingDriverStateWriter.class);
+   private static final int MAX_RETRIES = 3;
+
+   private final DeviceDAO deviceDao;
+   private final Scheduler scheduler;
+   private final long windowMs;
+   private final Set<String> criticalNamespaces;
+   private final ConcurrentMap<UUID, PendingState> pending = new ConcurrentHashMap<>();
+   private final Striped<Lock> locks = Striped.lock(256);
+   private final WriterMetrics metrics;
+
+   @Inject
+   public CoalescingDriverStateWriter(DeviceDAO deviceDao, Scheduler scheduler, DriverServiceConfig config) {
+      this.deviceDao = deviceDao;
+      this.scheduler = scheduler;
+      this.windowMs = config.getStateWriteBehindMs();
+      this.criticalNamespaces = config.getStateCriticalNamespaces();
+      this.metrics = new WriterMetrics(IrisMetrics.metrics("driver.state"));
+   }
+
+   @Override
+   public void update(Device device, DeviceDriverStateHolder state) {
+      UUID deviceId = device.getId();
+      Lock lock = locks.get(deviceId);
+      lock.lock();
+      try {
+         PendingState current = pending.get(deviceId);
+         if(current == null) {
+            current = new PendingState(device);
+         }
+         else {
+            metrics.onCoalesced();
+         }
+         current.merge(device, state);
+
+         if(windowMs <= 0 || isCritical(state)) {
+            pending.remove(deviceId);
+            if(windowMs > 0) {
+               metrics.onCritical();
+            }
+            write(current);
+         }
+         else if(pending.putIfAbsent(deviceId, current) == null) {
+            scheduler.scheduleDelayed(() -> flush(deviceId), windowMs, TimeUnit.MILLISECONDS);
+         }
+      }
+      finally {
+         lock.unlock();
+      }
+   }
+
+   @Override
+   public void flush(UUID deviceId) {
+      flush(deviceId, true);
+   }
+
+   @Override
+   public void discard(UUID deviceId) {
+      Lock lock = locks.get(deviceId);
+      lock.lock();
+      try {
+         if(pending.remove(deviceId) != null) {
+            metrics.onDiscarded();
+         }
+      }
+      finally {
+         lock.unlock();
+      }
+   }
+
+   @PreDestroy
+   public void flushAll() {
+      logger.info("Flushing driver state for [{}] devices", pending.size());
+      for(UUID deviceId: pending.keySet()) {
+         // the scheduler is going away, so there is nothing to retry on
+         flush(deviceId, false);
+      }
+   }
+
+   private void flush(UUID deviceId, boolean retry) {
+      Lock lock = locks.get(deviceId);
+      lock.lock();
+      try {
+         PendingState current = pending.remove(deviceId);
+         if(current == null) {
+            return;
+         }
+
+         try {
+            write(current);
+         }
+         catch(Exception e) {
+            // update() can't run while we hold the lock, so nothing newer has been queued
+            if(retry && current.retries < MAX_RETRIES) {
+               current.retries++;
+               pending.put(deviceId, current);
+               scheduler.scheduleDelayed(() -> flush(deviceId), windowMs, TimeUnit.MILLISECONDS);
+               metrics.onRetry();
+               logger.warn("Unable to write driver state for device [{}], retrying in [{}] ms", current.device.getAddress(), windowMs, e);
+            }
+            else {
+               metrics.onFailed();
+               logger.error("Unable to write driver state for device [{}], dropping pending state", current.device.getAddress(), e);
+            }
+         }
+      }
+      finally {
+         lock.unlock();
+      }
+   }
+
+   private boolean isCritical(DeviceDriverStateHolder state) {
+      for(AttributeKey<?> key: state.getAttributes().keySet()) {
+         if(criticalNamespaces.contains(key.getNamespace())) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private void write(PendingState state) {
+      metrics.onWrite();
+      deviceDao.updateDriverState(state.device, state.toHolder());
+   }
+
+   private static class PendingState {
+      private Device device;
+      private final AttributeMap attributes = AttributeMap.newMap();
+      private Map<String, Object> variables = null;
+      private int retries = 0;
+
+      PendingState(Device device) {
+         this.device = device;
+      }
+
+      void merge(Device device, DeviceDriverStateHolder state) {
+         this.device = device;
+         this.attributes.addAll(state.getAttributes());
+         // the context always sends the full set of variables when any of them change,
+         // copy them since the holder is a view onto the live driver variables
+         if(!state.getVariables().isEmpty()) {
+            this.variables = new HashMap<>(state.getVariables());
+         }
+      }
+
+      DeviceDriverStateHolder toHolder() {
+         return new DeviceDriverStateHolder(attributes, variables);
+      }
+   }
+
+   private class WriterMetrics {
+      private final Counter writes;
+      private final Counter coalesced;
+      private final Counter critical;
+      private final Counter discarded;
+      private final Counter retried;
+      private final Counter failed;
+
+      WriterMetrics(IrisMetricSet metrics) {
+         this.writes = metrics.counter("writes");
+         this.coalesced = metrics.counter("coalesced");
+         this.critical = metrics.counter("critical");
+         this.discarded = metrics.counter("discarded");
+         this.retried = metrics.counter("retried");
+         this.failed = metrics.counter("failed");
+         metrics.gauge("pending", (Supplier<Integer>) () -> pending.size());
+      }
+
+      void onWrite() {
+         writes.inc();
+      }
+
+      void onCoalesced() {
+         coalesced.inc();
+      }
+
+      void onCritical() {
+         critical.inc();
+      }
+
+      void onDiscarded() {
+         discarded.inc();
+      }
+
+      void onRetry() {
+         retried.inc();
+      }
+
+      void onFailed() {
+         failed.inc();
+      }
+   }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.driver.service.state;
+
+import java.util.UUID;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.iris.core.dao.DeviceDAO;
+import com.iris.core.driver.DeviceDriverStateHolder;
+import com.iris.driver.service.DriverStateWriter;
+import com.iris.messages.model.Device;
+
+/**
+ * Writes every update as it happens.
+ */
+@Singleton
+public class DirectDriverStateWriter implements DriverStateWriter {
+   private final DeviceDAO deviceDao;
+
+   @Inject
+   public DirectDriverStateWriter(DeviceDAO deviceDao) {
+      this.deviceDao = deviceDao;
+   }
+
+   @Override
+   public void update(Device device, DeviceDriverStateHolder state) {
+      deviceDao.updateDriverState(device, state);
+   }
+
+   @Override
+   public void flush(UUID deviceId) {
+      // no-op
+   }
+
+   @Override
+   public void discard(UUID deviceId) {
+      // no-op
+   }
+
+}
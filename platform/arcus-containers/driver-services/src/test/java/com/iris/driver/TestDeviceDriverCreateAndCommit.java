@@ -46,6 +46,8 @@ import com.iris.core.driver.DeviceDriverStateHolder;
 import com.iris.core.messaging.memory.InMemoryMessageModule;
 import com.iris.core.messaging.memory.InMemoryPlatformMessageBus;
 import com.iris.device.attributes.AttributeMap;
+import com.iris.driver.service.DriverStateWriter;
+import com.iris.driver.service.state.DirectDriverStateWriter;
 import com.iris.messages.ErrorEvent;
 import com.iris.messages.MessageBody;
 import com.iris.messages.PlatformMessage;
@@ -83,6 +85,11 @@ public class TestDeviceDriverCreateAndCommit extends IrisMockTestCase {
       return new ExecutorScheduler(Executors.newScheduledThreadPool(1));
    }
 
+   @Provides
+   public DriverStateWriter stateWriter(DeviceDAO deviceDao) {
+      return new DirectDriverStateWriter(deviceDao);
+   }
+
    @Override
    @Before
    public void setUp() throws Exception {
@@ -28,6 +28,7 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
+import com.google.inject.Provides;
 import com.iris.core.dao.DeviceDAO;
 import com.iris.core.dao.PersonDAO;
 import com.iris.core.dao.PersonPlaceAssocDAO;
@@ -40,6 +41,8 @@ import com.iris.driver.event.DeviceDisassociatedEvent;
 import com.iris.driver.event.DeviceDisconnectedEvent;
 import com.iris.driver.event.DriverEvent;
 import com.iris.driver.handler.ContextualEventHandler;
+import com.iris.driver.service.DriverStateWriter;
+import com.iris.driver.service.state.DirectDriverStateWriter;
 import com.iris.messages.capability.DeviceConnectionCapability;
 import com.iris.messages.model.Fixtures;
 import com.iris.messages.type.Population;
@@ -59,6 +62,11 @@ public class TestDeviceDriverEvents extends IrisMockTestCase {
    @Inject PlacePopulationCacheManager populationCacheMgr;
 
 
+   @Provides
+   public DriverStateWriter stateWriter(DeviceDAO deviceDao) {
+      return new DirectDriverStateWriter(deviceDao);
+   }
+
    @Override
    @Before
    public void setUp() throws Exception {
@@ -29,6 +29,7 @@ import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
+import com.google.inject.Provides;
 import com.iris.capability.attribute.transform.AttributeMapTransformModule;
 import com.iris.capability.registry.CapabilityRegistry;
 import com.iris.core.dao.DeviceDAO;
@@ -51,6 +52,7 @@ import com.iris.driver.service.executor.DefaultDriverExecutor;
 import com.iris.driver.service.executor.DriverExecutor;
 import com.iris.driver.service.executor.DriverExecutorRegistry;
 import com.iris.driver.service.registry.DriverRegistry;
+import com.iris.driver.service.state.DirectDriverStateWriter;
 import com.iris.messages.address.Address;
 import com.iris.messages.capability.DeviceCapability;
 import com.iris.messages.capability.DeviceConnectionCapability;
@@ -93,6 +95,11 @@ public class TestDeviceServiceUpgradeDriver extends IrisMockTestCase {
    DeviceDriver fallbackDriver;
    DeviceDriver switchDriver;
    
+   @Provides
+   public DriverStateWriter stateWriter(DeviceDAO deviceDao) {
+      return new DirectDriverStateWriter(deviceDao);
+   }
+
    @Before
    public void initializeDrivers() {
       fallbackDriver =
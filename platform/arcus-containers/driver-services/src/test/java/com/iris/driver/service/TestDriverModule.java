@@ -45,6 +45,7 @@ import com.iris.driver.service.handler.UpgradeDriverRequestHandler;
 import com.iris.driver.service.registry.CompositeDriverRegistry;
 import com.iris.driver.service.registry.DriverRegistry;
 import com.iris.driver.service.registry.MapDriverRegistry;
+import com.iris.driver.service.state.DirectDriverStateWriter;
 import com.iris.messages.MessageConstants;
 import com.iris.messages.address.AddressMatcher;
 import com.iris.messages.address.AddressMatchers;
@@ -84,6 +85,7 @@ public class TestDriverModule extends AbstractIrisModule {
          .to(MapDriverRegistry.class);
 
       bind(DriverExecutorRegistry.class).to(PlatformDriverExecutorRegistry.class);
+      bind(DriverStateWriter.class).to(DirectDriverStateWriter.class);
    }
    
    @Provides @Singleton
@@ -20,10 +20,14 @@ import groovy.util.GroovyScriptEngine;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import com.google.common.io.Files;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.iris.bootstrap.ServiceLocator;
@@ -31,6 +35,7 @@ import com.iris.capability.registry.CapabilityRegistry;
 import com.iris.capability.registry.CapabilityRegistryModule;
 import com.iris.device.attributes.AttributeMap;
 import com.iris.device.attributes.AttributeValue;
+import com.iris.driver.DeviceDriver;
 import com.iris.driver.groovy.GroovyDriverFactory;
 import com.iris.driver.groovy.GroovyProtocolPluginModule;
 import com.iris.driver.groovy.customizer.DriverCompilationCustomizer;
@@ -44,6 +49,11 @@ import com.netflix.governator.annotations.WarmUp;
 
 @Modules({ CapabilityRegistryModule.class, GroovyProtocolPluginModule.class } )
 public class TestGroovyDriverRegistry extends IrisTestCase {
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+
+   private File driverDir;
+   private TestDriverConfig driverConfig;
    private GroovyDriverRegistry groovyDriverRegistry;
 
    @Provides
@@ -61,12 +71,14 @@ public class TestGroovyDriverRegistry extends IrisTestCase {
             new File("src/main/resources").toURI().toURL()
       } );
       engine.getConfig().addCompilationCustomizers(new DriverCompilationCustomizer(registry));
+      // pick up edits made by the test immediately
+      engine.getConfig().setMinimumRecompilationInterval(0);
       return engine;
    }
 
    @Provides
    public TestDriverConfig provideTestDriverConfig() {
-      return new TestDriverConfig(getDriverDir().getAbsolutePath());
+      return driverConfig;
    }
 
    @WarmUp
@@ -78,6 +90,12 @@ public class TestGroovyDriverRegistry extends IrisTestCase {
    @Override
    @Before
    public void setUp() throws Exception {
+      // work on a copy so the drivers may be edited
+      driverDir = folder.newFolder("drivers");
+      for(File driver: getDriverDir().listFiles()) {
+         Files.copy(driver, new File(driverDir, driver.getName()));
+      }
+      driverConfig = new TestDriverConfig(driverDir.getAbsolutePath());
       super.setUp();
    }
 
@@ -147,6 +165,48 @@ public class TestGroovyDriverRegistry extends IrisTestCase {
       assertNull(groovyDriverRegistry.loadDriverById("Driver1", new com.iris.model.Version(3)));
    }
 
+   @Test
+   public void testReloadRecompilesAllDriversByDefault() {
+      assertFalse(driverConfig.isDriverReloadIncremental());
+      DeviceDriver driver = groovyDriverRegistry.loadDriverById("Driver1", new com.iris.model.Version(2));
+      assertNotNull(driver);
+
+      groovyDriverRegistry.reload();
+      DeviceDriver reloaded = groovyDriverRegistry.loadDriverById("Driver1", new com.iris.model.Version(2));
+      assertNotNull(reloaded);
+      assertNotSame(driver, reloaded);
+   }
+
+   @Test
+   public void testReloadKeepsUnchangedDrivers() {
+      driverConfig.setDriverReloadIncremental(true);
+      DeviceDriver driver = groovyDriverRegistry.loadDriverById("Driver1", new com.iris.model.Version(2));
+      assertNotNull(driver);
+
+      groovyDriverRegistry.reload();
+      assertSame(driver, groovyDriverRegistry.loadDriverById("Driver1", new com.iris.model.Version(2)));
+      assertEquals(new DriverId("Driver2", new com.iris.model.Version(1)), groovyDriverRegistry.loadDriverByName("general", "Driver2", 0).getDriverId());
+   }
+
+   @Test
+   public void testReloadRecompilesChangedDrivers() throws Exception {
+      driverConfig.setDriverReloadIncremental(true);
+      DeviceDriver unchanged = groovyDriverRegistry.loadDriverById("Driver1", new com.iris.model.Version(2));
+      DeviceDriver changed = groovyDriverRegistry.loadDriverById("Driver2", new com.iris.model.Version(1));
+      assertEquals("Fake driver 2 for a fake switch version 1", changed.getDefinition().getDescription());
+
+      File script = new File(driverDir, "driver2v1.driver");
+      String source = Files.toString(script, StandardCharsets.UTF_8);
+      Files.write(source.replace("fake switch version 1", "fake switch version 1, edited"), script, StandardCharsets.UTF_8);
+      script.setLastModified(script.lastModified() + 60000);
+
+      groovyDriverRegistry.reload();
+      DeviceDriver reloaded = groovyDriverRegistry.loadDriverById("Driver2", new com.iris.model.Version(1));
+      assertNotSame(changed, reloaded);
+      assertEquals("Fake driver 2 for a fake switch version 1, edited", reloaded.getDefinition().getDescription());
+      assertSame(unchanged, groovyDriverRegistry.loadDriverById("Driver1", new com.iris.model.Version(2)));
+   }
+
    private File getDriverDir() {
       return new File("src/test/resources");
    }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.driver.service.state;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.iris.common.scheduler.BaseScheduler;
+import com.iris.common.scheduler.ScheduledTask;
+import com.iris.core.dao.DeviceDAO;
+import com.iris.core.driver.DeviceDriverStateHolder;
+import com.iris.device.attributes.AttributeKey;
+import com.iris.device.attributes.AttributeMap;
+import com.iris.driver.service.DriverServiceConfig;
+import com.iris.messages.model.Device;
+import com.iris.messages.model.Fixtures;
+
+public class TestCoalescingDriverStateWriter extends Assert {
+   private static final AttributeKey<String> KEY_NAME = AttributeKey.create("test:name", String.class);
+   private static final AttributeKey<Integer> KEY_LEVEL = AttributeKey.create("test:level", Integer.class);
+   private static final AttributeKey<String> KEY_STATE = AttributeKey.create("crit:state", String.class);
+
+   private DeviceDAO mockDeviceDao;
+   private ManualScheduler scheduler;
+   private CoalescingDriverStateWriter writer;
+   private Device device;
+
+   @Before
+   public void setUp() {
+      mockDeviceDao = EasyMock.createMock(DeviceDAO.class);
+      scheduler = new ManualScheduler();
+
+      DriverServiceConfig config = new DriverServiceConfig();
+      config.setStateWriteBehindMs(1000);
+      config.setStateCriticalNamespaces("crit");
+      writer = new CoalescingDriverStateWriter(mockDeviceDao, scheduler, config);
+
+      device = createDevice();
+   }
+
+   @Test
+   public void testUpdatesAreCoalescedUntilTheWindowExpires() {
+      mockDeviceDao.updateDriverState(device, state(attributes(KEY_NAME, "second", KEY_LEVEL, 10), ImmutableMap.of("var", 2)));
+      EasyMock.expectLastCall().once();
+      EasyMock.replay(mockDeviceDao);
+
+      writer.update(device, state(attributes(KEY_NAME, "first"), ImmutableMap.of("var", 1)));
+      writer.update(device, state(attributes(KEY_NAME, "second", KEY_LEVEL, 10), ImmutableMap.<String, Object>of()));
+      writer.update(device, state(AttributeMap.emptyMap(), ImmutableMap.of("var", 2)));
+      assertEquals(1, scheduler.pending());
+
+      scheduler.runPending();
+      assertEquals(0, scheduler.pending());
+
+      EasyMock.verify(mockDeviceDao);
+   }
+
+   @Test
+   public void testCriticalUpdateWritesPendingStateImmediately() {
+      mockDeviceDao.updateDriverState(device, state(attributes(KEY_NAME, "name", KEY_STATE, "OPEN"), null));
+      EasyMock.expectLastCall().once();
+      EasyMock.replay(mockDeviceDao);
+
+      writer.update(device, state(attributes(KEY_NAME, "name"), null));
+      writer.update(device, state(attributes(KEY_STATE, "OPEN"), null));
+      EasyMock.verify(mockDeviceDao);
+
+      // the delayed flush has nothing left to write
+      scheduler.runPending();
+      EasyMock.verify(mockDeviceDao);
+   }
+
+   @Test
+   public void testFlushAllWritesPendingStateOnShutdown() {
+      Device other = createDevice();
+      mockDeviceDao.updateDriverState(device, state(attributes(KEY_NAME, "device"), null));
+      EasyMock.expectLastCall().once();
+      mockDeviceDao.updateDriverState(other, state(attributes(KEY_NAME, "other"), null));
+      EasyMock.expectLastCall().once();
+      EasyMock.replay(mockDeviceDao);
+
+      writer.update(device, state(attributes(KEY_NAME, "device"), null));
+      writer.update(other, state(attributes(KEY_NAME, "other"), null));
+      writer.flushAll();
+      EasyMock.verify(mockDeviceDao);
+
+      scheduler.runPending();
+      EasyMock.verify(mockDeviceDao);
+   }
+
+   @Test
+   public void testDiscardDropsPendingState() {
+      EasyMock.replay(mockDeviceDao);
+
+      writer.update(device, state(attributes(KEY_NAME, "name"), null));
+      writer.discard(device.getId());
+      scheduler.runPending();
+
+      EasyMock.verify(mockDeviceDao);
+   }
+
+   @Test
+   public void testFailedFlushIsRequeued() {
+      mockDeviceDao.updateDriverState(device, state(attributes(KEY_NAME, "first"), null));
+      EasyMock.expectLastCall().andThrow(new RuntimeException("BOOM"));
+      mockDeviceDao.updateDriverState(device, state(attributes(KEY_NAME, "first", KEY_LEVEL, 5), null));
+      EasyMock.expectLastCall().once();
+      EasyMock.replay(mockDeviceDao);
+
+      writer.update(device, state(attributes(KEY_NAME, "first"), null));
+      scheduler.runPending();
+      // the failed state was put back and another flush scheduled
+      assertEquals(1, scheduler.pending());
+
+      // anything new is merged into the retry
+      writer.update(device, state(attributes(KEY_LEVEL, 5), null));
+      assertEquals(1, scheduler.pending());
+      scheduler.runPending();
+
+      assertEquals(0, scheduler.pending());
+      EasyMock.verify(mockDeviceDao);
+   }
+
+   @Test
+   public void testFailedFlushIsDroppedAfterRetries() {
+      mockDeviceDao.updateDriverState(device, state(attributes(KEY_NAME, "name"), null));
+      EasyMock.expectLastCall().andThrow(new RuntimeException("BOOM")).times(4);
+      EasyMock.replay(mockDeviceDao);
+
+      writer.update(device, state(attributes(KEY_NAME, "name"), null));
+      for(int i = 0; i < 4; i++) {
+         scheduler.runPending();
+      }
+      assertEquals(0, scheduler.pending());
+
+      // nothing left to flush on shutdown
+      writer.flushAll();
+      EasyMock.verify(mockDeviceDao);
+   }
+
+   private static Device createDevice() {
+      Device device = Fixtures.createDevice();
+      device.setId(UUID.randomUUID());
+      return device;
+   }
+
+   private static <A> AttributeMap attributes(AttributeKey<A> key, A value) {
+      AttributeMap attributes = AttributeMap.newMap();
+      attributes.set(key, value);
+      return attributes;
+   }
+
+   private static <A, B> AttributeMap attributes(AttributeKey<A> key1, A value1, AttributeKey<B> key2, B value2) {
+      AttributeMap attributes = attributes(key1, value1);
+      attributes.set(key2, value2);
+      return attributes;
+   }
+
+   private static DeviceDriverStateHolder state(AttributeMap attributes, Map<String, Object> variables) {
+      return new DeviceDriverStateHolder(attributes, variables);
+   }
+
+   private static class ManualScheduler extends BaseScheduler {
+      private List<Runnable> tasks = new ArrayList<>();
+
+      int pending() {
+         return tasks.size();
+      }
+
+      void runPending() {
+         List<Runnable> run = tasks;
+         tasks = new ArrayList<>();
+         for(Runnable task: run) {
+            task.run();
+         }
+      }
+
+      @Override
+      protected ScheduledTask doSchedule(Runnable task, Date time, long delay, TimeUnit unit) {
+         tasks.add(task);
+         return new ScheduledTask() {
+            @Override
+            public boolean isPending() {
+               return tasks.contains(task);
+            }
+
+            @Override
+            public boolean cancel() {
+               return tasks.remove(task);
+            }
+         };
+      }
+   }
+}
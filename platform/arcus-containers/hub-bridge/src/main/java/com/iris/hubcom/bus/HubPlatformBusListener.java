@@ -45,14 +45,12 @@ public class HubPlatformBusListener implements PlatformBusListener {
    private final HubMessageFilter filter;
    private final SessionRegistry sessionRegistry;
    private final Serializer<PlatformMessage> platformSerializer;
-   private final Serializer<HubMessage> hubSerializer;
 
    @Inject
    public HubPlatformBusListener(HubMessageFilter filter, SessionRegistry sessionRegistry) {
       this.filter = filter;
       this.sessionRegistry = sessionRegistry;
       this.platformSerializer = JSON.createSerializer(PlatformMessage.class);
-      this.hubSerializer = JSON.createSerializer(HubMessage.class);
    }
 
    @Override
@@ -88,8 +86,7 @@ public class HubPlatformBusListener implements PlatformBusListener {
          }
 
          byte[] payload = platformSerializer.serialize(msg);
-         byte[] message = hubSerializer.serialize(HubMessage.createPlatform(payload));
-         session.sendMessage(message);
+         ((HubSession) session).sendMessage(HubMessage.createPlatform(payload));
       }
    }
 
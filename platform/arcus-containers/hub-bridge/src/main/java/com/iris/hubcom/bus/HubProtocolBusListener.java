@@ -39,7 +39,6 @@ public class HubProtocolBusListener implements ProtocolBusListener {
    private final HubMessageFilter filter;
    private final SessionRegistry sessionRegistry;
    private final Serializer<ProtocolMessage> protocolSerializer;
-   private final Serializer<HubMessage> hubSerializer;
 
    @Inject
    public HubProtocolBusListener(ProtocolMessageBus protocolMessageBus, HubMessageFilter filter, SessionRegistry sessionRegistry) {
@@ -47,7 +46,6 @@ public class HubProtocolBusListener implements ProtocolBusListener {
       this.filter = filter;
       this.sessionRegistry = sessionRegistry;
       this.protocolSerializer = JSON.createSerializer(ProtocolMessage.class);
-      this.hubSerializer = JSON.createSerializer(HubMessage.class);
    }
 
    @Override
@@ -66,8 +64,7 @@ public class HubProtocolBusListener implements ProtocolBusListener {
          }
 
          byte[] payload = protocolSerializer.serialize(msg);
-         byte[] message = hubSerializer.serialize(HubMessage.createProtocol(payload));
-         session.sendMessage(message);
+         ((HubSession) session).sendMessage(HubMessage.createProtocol(payload));
       }
 
    }
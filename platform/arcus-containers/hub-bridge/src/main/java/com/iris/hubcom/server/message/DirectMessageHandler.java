@@ -45,7 +45,6 @@ public abstract class DirectMessageHandler {
 
    private final PlatformBusService platformBus;
    private final Serializer<PlatformMessage> platformMessageSerializer = JSON.createSerializer(PlatformMessage.class);
-   private final Serializer<HubMessage> hubMessageSerializer = JSON.createSerializer(HubMessage.class);
    private final PlacePopulationCacheManager populationCacheMgr;
 
    protected DirectMessageHandler(PlatformBusService platformBus, PlacePopulationCacheManager populationCacheMgr) {
@@ -90,9 +89,8 @@ public abstract class DirectMessageHandler {
 
    protected void sendToHub(Session session, PlatformMessage msg) {
       byte[] payload = platformMessageSerializer.serialize(msg);
-      byte[] message = hubMessageSerializer.serialize(HubMessage.createPlatform(payload));
       if (session.getChannel().isActive()) {
-         session.sendMessage(message);
+         ((HubSession) session).sendMessage(HubMessage.createPlatform(payload));
       } else {
          log.warn("discarding message {} disconnected session {}", msg, session.getClientToken());
       }
@@ -60,6 +60,7 @@ import com.iris.hubcom.server.session.HubSession;
 import com.iris.hubcom.server.session.HubSession.State;
 import com.iris.info.IrisApplicationInfo;
 import com.iris.io.Deserializer;
+import com.iris.io.binary.BinaryHubMessageFormat;
 import com.iris.io.json.JSON;
 import com.iris.messages.HubMessage;
 import com.iris.messages.MessageConstants;
@@ -90,6 +91,7 @@ public class HubMessageHandler implements Closeable, DeviceMessageHandler<ByteBu
    private final PlatformBusService platformBusService;
    private final ProtocolBusService protocolBusService;
    private final HubMessageFilter filter;
+   private final Deserializer<HubMessage> hubDeserializer = JSON.createDeserializer(HubMessage.class);
    private final Deserializer<PlatformMessage> platformDeserializer = JSON.createDeserializer(PlatformMessage.class);
    private final Deserializer<ProtocolMessage> protocolDeserializer = JSON.createDeserializer(ProtocolMessage.class);
    private final DirectMessageExecutor directExecutor;
@@ -132,7 +134,7 @@ public class HubMessageHandler implements Closeable, DeviceMessageHandler<ByteBu
 
    @Override
    public ByteBuf handleMessage(Session session, ByteBuf byteBuf) {
-      HubMessage msgObj = byteBufToObject(byteBuf);
+      HubMessage msgObj = byteBufToObject((HubSession) session, byteBuf);
       if(logger.isTraceEnabled()) {
         logger.trace("Received hub message type: [{}] message: [{}]", msgObj.getType(), new String(msgObj.getPayload(), Charsets.UTF_8));
       }
@@ -426,7 +428,7 @@ public class HubMessageHandler implements Closeable, DeviceMessageHandler<ByteBu
               .create();
    }
 
-   private HubMessage byteBufToObject(ByteBuf byteBuf) {
+   private HubMessage byteBufToObject(HubSession session, ByteBuf byteBuf) {
       byte[] bytes;
       if (byteBuf.hasArray()) {
          bytes = byteBuf.array();
@@ -436,7 +438,10 @@ public class HubMessageHandler implements Closeable, DeviceMessageHandler<ByteBu
          byteBuf.getBytes(byteBuf.readerIndex(), bytes);
       }
 
-      HubMessage msgObj = JSON.createDeserializer(HubMessage.class).deserialize(bytes);
+      // hubs which negotiated binary framing may still send JSON, so check each frame
+      boolean binary = BinaryHubMessageFormat.isBinary(bytes, 0, bytes.length);
+      HubMessage msgObj = binary ? BinaryHubMessageFormat.decode(bytes) : hubDeserializer.deserialize(bytes);
+      session.onMessageReceived(msgObj, binary);
       return msgObj;
    }
 
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.metrics;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A growable batch of KairosDB data points held in parallel primitive arrays
+ * rather than as a JSON tree.  The tags are rendered to JSON once per distinct
+ * set of tags and shared by every data point which uses them.
+ *
+ * This is not thread safe, a buffer is filled by the consumer thread and then
+ * handed off to be posted.
+ */
+final class DataPointBuffer {
+   private String[] names;
+   private double[] values;
+   private long[] timestamps;
+   private long[] ttls;
+   private String[] tags;
+   private int size;
+
+   DataPointBuffer(int capacity) {
+      int initial = Math.max(capacity, 16);
+      this.names = new String[initial];
+      this.values = new double[initial];
+      this.timestamps = new long[initial];
+      this.ttls = new long[initial];
+      this.tags = new String[initial];
+   }
+
+   /**
+    * @param tags
+    *    The JSON object for the tags as returned by {@link #renderTags(Map)}.
+    */
+   void add(String name, double value, long timestamp, long ttl, String tags) {
+      ensureCapacity(size + 1);
+      this.names[size] = name;
+      this.values[size] = value;
+      this.timestamps[size] = timestamp;
+      this.ttls[size] = ttl;
+      this.tags[size] = tags;
+      size++;
+   }
+
+   void addAll(DataPointBuffer points) {
+      int n = points.size;
+      ensureCapacity(size + n);
+      System.arraycopy(points.names, 0, names, size, n);
+      System.arraycopy(points.values, 0, values, size, n);
+      System.arraycopy(points.timestamps, 0, timestamps, size, n);
+      System.arraycopy(points.ttls, 0, ttls, size, n);
+      System.arraycopy(points.tags, 0, tags, size, n);
+      size += n;
+   }
+
+   int size() {
+      return size;
+   }
+
+   boolean isEmpty() {
+      return size == 0;
+   }
+
+   String getName(int i) {
+      return names[i];
+   }
+
+   double getValue(int i) {
+      return values[i];
+   }
+
+   long getTimestamp(int i) {
+      return timestamps[i];
+   }
+
+   long getTtl(int i) {
+      return ttls[i];
+   }
+
+   String getTags(int i) {
+      return tags[i];
+   }
+
+   void clear() {
+      Arrays.fill(names, 0, size, null);
+      Arrays.fill(tags, 0, size, null);
+      size = 0;
+   }
+
+   /**
+    * Renders the data points as the gzip compressed JSON array accepted by
+    * the KairosDB datapoints API.
+    */
+   byte[] toGzipJson() throws IOException {
+      // data points compress to roughly a tenth of their JSON size
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(size * 16, 512));
+      try (Writer out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8))) {
+         out.write('[');
+         for (int i = 0; i < size; i++) {
+            if (i > 0) {
+               out.write(',');
+            }
+
+            out.write("{\"name\":");
+            writeString(out, names[i]);
+            out.write(",\"timestamp\":");
+            out.write(Long.toString(timestamps[i]));
+            out.write(",\"value\":");
+            writeNumber(out, values[i]);
+            out.write(",\"ttl\":");
+            out.write(Long.toString(ttls[i]));
+            out.write(",\"tags\":");
+            out.write(tags[i]);
+            out.write('}');
+         }
+         out.write(']');
+      }
+      return bytes.toByteArray();
+   }
+
+   /**
+    * Renders the tags as a JSON object suitable for {@link #add(String, double, long, long, String)}.
+    */
+   static String renderTags(Map<String, String> tags) {
+      StringBuilder out = new StringBuilder(32 * tags.size() + 2);
+      out.append('{');
+      boolean first = true;
+      for (Map.Entry<String, String> tag : tags.entrySet()) {
+         if (!first) {
+            out.append(',');
+         }
+         first = false;
+
+         appendString(out, tag.getKey());
+         out.append(':');
+         appendString(out, tag.getValue());
+      }
+      out.append('}');
+      return out.toString();
+   }
+
+   private void ensureCapacity(int capacity) {
+      if (capacity <= names.length) {
+         return;
+      }
+
+      int next = Math.max(capacity, names.length * 2);
+      names = Arrays.copyOf(names, next);
+      values = Arrays.copyOf(values, next);
+      timestamps = Arrays.copyOf(timestamps, next);
+      ttls = Arrays.copyOf(ttls, next);
+      tags = Arrays.copyOf(tags, next);
+   }
+
+   private static void writeNumber(Writer out, double value) throws IOException {
+      // counters and most gauges are integral, write them without the trailing .0
+      if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+         out.write(Long.toString((long) value));
+      } else {
+         out.write(Double.toString(value));
+      }
+   }
+
+   private static void writeString(Writer out, String value) throws IOException {
+      StringBuilder sb = new StringBuilder(value.length() + 2);
+      appendString(sb, value);
+      out.append(sb);
+   }
+
+   private static void appendString(StringBuilder out, String value) {
+      out.append('"');
+      for (int i = 0; i < value.length(); i++) {
+         char c = value.charAt(i);
+         switch (c) {
+         case '"':
+            out.append("\\\"");
+            break;
+         case '\\':
+            out.append("\\\\");
+            break;
+         case '\n':
+            out.append("\\n");
+            break;
+         case '\r':
+            out.append("\\r");
+            break;
+         case '\t':
+            out.append("\\t");
+            break;
+         default:
+            if (c < 0x20) {
+               out.append(String.format("\\u%04x", (int) c));
+            } else {
+               out.append(c);
+            }
+         }
+      }
+      out.append('"');
+   }
+}
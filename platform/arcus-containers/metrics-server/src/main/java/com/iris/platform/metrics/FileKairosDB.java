@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.metrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * A stand-in for KairosDB which appends each batch of data points to a local
+ * file as a single line of JSON, used for local development and tests by
+ * configuring a {@code file:} URL as {@code kairos.url}.
+ */
+public final class FileKairosDB implements KairosTransport {
+   private static final Logger log = LoggerFactory.getLogger(FileKairosDB.class);
+   private static final int NO_CONTENT = 204;
+
+   private final Path file;
+
+   public FileKairosDB(Path file) {
+      this.file = file;
+      log.info("writing metrics to file: {}", file);
+   }
+
+   public Path getFile() {
+      return file;
+   }
+
+   @Override
+   public synchronized int post(byte[] gzippedJson) throws IOException {
+      try (
+         GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(gzippedJson));
+         OutputStream os = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+      ) {
+         ByteStreams.copy(is, os);
+         os.write('\n');
+      }
+      return NO_CONTENT;
+   }
+}
@@ -17,8 +17,6 @@ package com.iris.platform.metrics;
 
 import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PreDestroy;
@@ -31,7 +29,8 @@ import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
@@ -40,40 +39,25 @@ import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.iris.metrics.IrisMetricSet;
 import com.iris.metrics.IrisMetrics;
-import com.iris.util.ThreadPoolBuilder;
 
 @Singleton
-public final class KairosDB {
+public final class KairosDB implements KairosTransport {
    private static final Logger log = LoggerFactory.getLogger(KairosDB.class);
    private static final IrisMetricSet METRICS = IrisMetrics.metrics("kairos.post");
 
-   private final Gson gson;
-   private final MetricsServerConfig config;
+   // KairosDB accepts a gzip compressed body in place of JSON with this content type
+   private static final ContentType GZIP = ContentType.create("application/gzip");
+
    private final CloseableHttpClient client;
    private final URI uri;
    
-   private final ExecutorService executor;
-   
    @Inject
-   private KairosDB(Gson gson, MetricsServerConfig config) {
-      this.gson = gson;
-      this.config = config;
-      
-      this.executor = new ThreadPoolBuilder()
-              .withMaxPoolSize(config.getKairosPostThreadsMax())
-              .withKeepAliveMs(1000)
-              .withBlockingBacklog()
-              .withNameFormat("kairos-producer-%d")
-              .withMetrics("metrics-server.kairos-producer")
-              .build();
-
-      this.uri = URI.create(this.config.getUrl() + "/api/v1/datapoints");
+   KairosDB(MetricsServerConfig config) {
+      this.uri = URI.create(config.getUrl() + "/api/v1/datapoints");
       log.info("posting metrics to kairos at: {}", this.uri);
 
       try {
@@ -89,8 +73,8 @@ public final class KairosDB {
          PoolingHttpClientConnectionManager conman = new PoolingHttpClientConnectionManager(registry);
          this.client = HttpClientBuilder.create()
             .setConnectionManager(conman)
-            .setMaxConnTotal(config.getKairosPostThreadsMax()) // connections == threads
-            .setMaxConnPerRoute(config.getKairosPostThreadsMax()) // connections == threads
+            .setMaxConnTotal(config.getKairosPostThreadsMax()) // connections == posts in flight
+            .setMaxConnPerRoute(config.getKairosPostThreadsMax()) // connections == posts in flight
             .evictIdleConnections(60L, TimeUnit.SECONDS)
             .evictExpiredConnections()
             .build();
@@ -101,37 +85,38 @@ public final class KairosDB {
    
    @PreDestroy
    public void shutdown() {
-      this.executor.shutdownNow();
+      try {
+         this.client.close();
+      } catch (IOException ex) {
+         log.debug("error closing kairos client", ex);
+      }
    }
 
-   public void post(JsonArray metrics) {    
-	   executor.submit(() -> {
-		   long startTime = System.nanoTime();
-		   HttpPost post = new HttpPost(uri);
-		   StringEntity entity = new StringEntity(gson.toJson(metrics), StandardCharsets.UTF_8);
-		   post.setEntity(entity);
-
-		   try (CloseableHttpResponse rsp = this.client.execute(post)) {
-
-			   int sc = rsp.getStatusLine().getStatusCode();		  
-			   if (sc == 204) {
-				   METRICS.counter("success").inc();
-				   METRICS.timer("post." + sc + ".success").update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
-			   } else {
-				   METRICS.counter("failure." + sc).inc();
-				   METRICS.timer("post." + sc + ".fail").update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
-                   log.warn("could not post metrics to kairosdb: {}", gson.toJson(metrics));
-			   }
-
-               log.debug("posted metrics to kairosdb: response status code is {}", sc);
-
-			   EntityUtils.consumeQuietly(rsp.getEntity());
-		   } catch (IOException ex) {
-			   METRICS.counter("failure").inc();
-			   METRICS.timer("post.exception.fail").update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
-			   log.warn("could not post metrics to kairosdb: {}", ex.getMessage(), ex);
-		   } 
-	   });
+   @Override
+   public int post(byte[] gzippedJson) throws IOException {
+      long startTime = System.nanoTime();
+      HttpPost post = new HttpPost(uri);
+      post.setEntity(new ByteArrayEntity(gzippedJson, GZIP));
+
+      try (CloseableHttpResponse rsp = this.client.execute(post)) {
+         int sc = rsp.getStatusLine().getStatusCode();
+         if (sc == 204) {
+            METRICS.counter("success").inc();
+            METRICS.timer("post." + sc + ".success").update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+         } else {
+            METRICS.counter("failure." + sc).inc();
+            METRICS.timer("post." + sc + ".fail").update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            log.warn("could not post metrics to kairosdb: status code is {}, response is {}", sc, rsp.getEntity() == null ? "" : EntityUtils.toString(rsp.getEntity()));
+         }
+
+         log.debug("posted metrics to kairosdb: response status code is {}", sc);
+
+         EntityUtils.consumeQuietly(rsp.getEntity());
+         return sc;
+      } catch (IOException ex) {
+         METRICS.counter("failure").inc();
+         METRICS.timer("post.exception.fail").update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+         throw ex;
+      }
    }
 }
-
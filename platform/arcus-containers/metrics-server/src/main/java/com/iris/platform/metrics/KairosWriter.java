@@ -0,0 +1,241 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.metrics;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.google.common.base.Supplier;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+import com.iris.util.ThreadPoolBuilder;
+
+/**
+ * Batches data points by size and by age and posts the batches to KairosDB
+ * with several posts in flight at once.  Batches are assembled on the consumer
+ * thread and rendered, compressed and posted on the producer threads, a
+ * failed post is retried with a backoff and then dropped.
+ *
+ * Posting never blocks the consumer, instead {@link #isBackedUp()} reports when
+ * too many batches are waiting so that the consumer can pause until
+ * {@link #canResume()}.
+ */
+@Singleton
+final class KairosWriter {
+   private static final Logger log = LoggerFactory.getLogger(KairosWriter.class);
+
+   private static final IrisMetricSet METRICS = IrisMetrics.metrics("kairos.writer");
+   private static final Counter POSTED = METRICS.counter("points.posted");
+   private static final Counter RETRIED = METRICS.counter("points.retried");
+   private static final Counter DROPPED = METRICS.counter("points.dropped");
+   private static final Counter BATCHES = METRICS.counter("batches.posted");
+
+   private final KairosTransport transport;
+   private final ExecutorService executor;
+   private final int batchSize;
+   private final long lingerNanos;
+   private final int maxPending;
+   private final int retries;
+   private final long retryBackoffMs;
+
+   private final AtomicInteger pending = new AtomicInteger();
+   private final Queue<DataPointBuffer> free = new ConcurrentLinkedQueue<>();
+
+   // only accessed from the consumer thread
+   private DataPointBuffer batch;
+   private long batchStarted;
+
+   @Inject
+   KairosWriter(MetricsServerConfig config, KairosTransport transport) {
+      this.transport = transport;
+      this.batchSize = config.getKairosBatchSize();
+      this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(config.getKairosBatchLingerMs());
+      this.maxPending = Math.max(1, config.getKairosBatchMaxPending());
+      this.retries = config.getKairosPostRetries();
+      this.retryBackoffMs = config.getKairosPostRetryBackoffMs();
+      this.batch = new DataPointBuffer(batchSize);
+
+      this.executor = new ThreadPoolBuilder()
+              .withCorePoolSize(config.getKairosPostThreadsMax())
+              .withMaxPoolSize(config.getKairosPostThreadsMax())
+              .withQueue(new LinkedBlockingQueue<>())
+              .withNameFormat("kairos-producer-%d")
+              .withMetrics("metrics-server.kairos-producer")
+              .build();
+
+      METRICS.gauge("batches.pending", (Supplier<Integer>) pending::get);
+   }
+
+   @PreDestroy
+   public void shutdown() {
+      executor.shutdown();
+      try {
+         if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("timed out waiting for {} batches to be posted", pending.get());
+            executor.shutdownNow();
+         }
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         executor.shutdownNow();
+      }
+   }
+
+   /**
+    * Adds the data points to the current batch, posting it once it is full.
+    */
+   void write(DataPointBuffer points) {
+      if (points.isEmpty()) {
+         return;
+      }
+
+      if (batch.isEmpty()) {
+         batchStarted = System.nanoTime();
+      }
+
+      batch.addAll(points);
+      if (batch.size() >= batchSize) {
+         flush();
+      }
+   }
+
+   /**
+    * Posts the current batch if it has waited longer than the linger time, this
+    * should be called whenever the consumer polls so that partial batches are
+    * sent while traffic is light.
+    */
+   void flushIfExpired() {
+      if (!batch.isEmpty() && System.nanoTime() - batchStarted >= lingerNanos) {
+         flush();
+      }
+   }
+
+   /**
+    * Posts the current batch, if any.
+    */
+   void flush() {
+      if (batch.isEmpty()) {
+         return;
+      }
+
+      DataPointBuffer posting = batch;
+      DataPointBuffer next = free.poll();
+      batch = next == null ? new DataPointBuffer(batchSize) : next;
+
+      pending.incrementAndGet();
+      try {
+         executor.execute(() -> post(posting));
+      } catch (RejectedExecutionException ex) {
+         pending.decrementAndGet();
+         DROPPED.inc(posting.size());
+         log.warn("dropping {} data points, the writer has been shutdown", posting.size());
+         recycle(posting);
+      }
+   }
+
+   /**
+    * True when enough batches are waiting to be posted that the consumer should stop
+    * reading more.
+    */
+   boolean isBackedUp() {
+      return pending.get() >= maxPending;
+   }
+
+   /**
+    * True once enough of the waiting batches have been posted that a paused consumer
+    * may start reading again.
+    */
+   boolean canResume() {
+      return pending.get() <= maxPending / 2;
+   }
+
+   int getPending() {
+      return pending.get();
+   }
+
+   private void post(DataPointBuffer points) {
+      int count = points.size();
+      try {
+         byte[] body;
+         try {
+            body = points.toGzipJson();
+         } finally {
+            recycle(points);
+         }
+
+         for (int attempt = 0; ; attempt++) {
+            int status;
+            try {
+               status = transport.post(body);
+            } catch (IOException ex) {
+               log.debug("could not post metrics to kairosdb: {}", ex.getMessage(), ex);
+               status = -1;
+            }
+
+            if (status >= 200 && status < 300) {
+               POSTED.inc(count);
+               BATCHES.inc();
+               return;
+            }
+
+            if (!isRetryable(status) || attempt >= retries || executor.isShutdown()) {
+               DROPPED.inc(count);
+               log.warn("dropping {} data points after {} attempts, last status code was {}", count, attempt + 1, status);
+               return;
+            }
+
+            RETRIED.inc(count);
+            Thread.sleep(retryBackoffMs * (attempt + 1));
+         }
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         DROPPED.inc(count);
+      } catch (Exception ex) {
+         DROPPED.inc(count);
+         log.warn("could not post metrics to kairosdb: {}", ex.getMessage(), ex);
+      } finally {
+         pending.decrementAndGet();
+      }
+   }
+
+   private void recycle(DataPointBuffer points) {
+      points.clear();
+      if (free.size() < maxPending) {
+         free.offer(points);
+      }
+   }
+
+   /**
+    * Connection failures, throttling and server errors may succeed on a later attempt,
+    * any other client error means KairosDB rejected the data points.
+    */
+   private static boolean isRetryable(int status) {
+      return status < 0 || status == 429 || status >= 500;
+   }
+}
@@ -17,19 +17,17 @@ package com.iris.platform.metrics;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.function.BiPredicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-
-import static com.iris.platform.metrics.MetricUtils.*;
-
+/**
+ * Filters over a data point's name and tags.
+ */
 public final class MetricFilters {
    private static final Logger log = LoggerFactory.getLogger(MetricFilters.class);
 
@@ -40,134 +38,128 @@ public final class MetricFilters {
    // Match on host name
    /////////////////////////////////////////////////////////////////////////////
 
-   public static final Predicate<JsonObject> fromHost(String host) {
+   public static final BiPredicate<String, Map<String, String>> fromHost(String host) {
       log.info("filtering on host name: {}", host);
-      return (report) -> host.equals(getTagProperty(report,"host"));
+      return (name, tags) -> host.equals(tags.get("host"));
    }
 
-   public static final Predicate<JsonObject> fromHost(String... hosts) {
+   public static final BiPredicate<String, Map<String, String>> fromHost(String... hosts) {
       return fromHost(Arrays.asList(hosts));
    }
 
-   public static final Predicate<JsonObject> fromHost(List<String> hosts) {
+   public static final BiPredicate<String, Map<String, String>> fromHost(List<String> hosts) {
       return hosts.stream()
          .map((host) -> fromHost(host))
-         .reduce(Predicate::or)
-         .orElse((report) -> false);
+         .reduce(BiPredicate::or)
+         .orElse((name, tags) -> false);
    }
 
    /////////////////////////////////////////////////////////////////////////////
    // Match on container name
    /////////////////////////////////////////////////////////////////////////////
 
-   public static final Predicate<JsonObject> fromContainer(String ctn) {
+   public static final BiPredicate<String, Map<String, String>> fromContainer(String ctn) {
       log.info("filtering on container name: {}", ctn);
-      return (report) -> ctn.equals(getTagProperty(report,"container"));
+      return (name, tags) -> ctn.equals(tags.get("container"));
    }
 
-   public static final Predicate<JsonObject> fromContainer(String... ctns) {
+   public static final BiPredicate<String, Map<String, String>> fromContainer(String... ctns) {
       return fromContainer(Arrays.asList(ctns));
    }
 
-   public static final Predicate<JsonObject> fromContainer(List<String> ctns) {
+   public static final BiPredicate<String, Map<String, String>> fromContainer(List<String> ctns) {
       return ctns.stream()
          .map((ctn) -> fromContainer(ctn))
-         .reduce(Predicate::or)
-         .orElse((report) -> false);
+         .reduce(BiPredicate::or)
+         .orElse((name, tags) -> false);
    }
 
    /////////////////////////////////////////////////////////////////////////////
    // Match on service name
    /////////////////////////////////////////////////////////////////////////////
 
-   public static final Predicate<JsonObject> fromService(String svc) {
+   public static final BiPredicate<String, Map<String, String>> fromService(String svc) {
       log.info("filtering on service name: {}", svc);
-      return (report) -> svc.equals(getTagProperty(report,"service"));
+      return (name, tags) -> svc.equals(tags.get("service"));
    }
 
-   public static final Predicate<JsonObject> fromService(String... svcs) {
+   public static final BiPredicate<String, Map<String, String>> fromService(String... svcs) {
       return fromService(Arrays.asList(svcs));
    }
 
-   public static final Predicate<JsonObject> fromService(List<String> svcs) {
+   public static final BiPredicate<String, Map<String, String>> fromService(List<String> svcs) {
       return svcs.stream()
          .map((svc) -> fromService(svc))
-         .reduce(Predicate::or)
-         .orElse((report) -> false);
+         .reduce(BiPredicate::or)
+         .orElse((name, tags) -> false);
    }
 
    /////////////////////////////////////////////////////////////////////////////
    // Exact match on metric name
    /////////////////////////////////////////////////////////////////////////////
 
-   public static final Predicate<JsonObject> nameEquals(String name) {
-      log.info("filtering on metric name exact match: {}", name);
-      return (report) -> name.equals(getAsStringOrNull(report,"name"));
+   public static final BiPredicate<String, Map<String, String>> nameEquals(String match) {
+      log.info("filtering on metric name exact match: {}", match);
+      return (name, tags) -> match.equals(name);
    }
 
-   public static final Predicate<JsonObject> nameEquals(String... names) {
+   public static final BiPredicate<String, Map<String, String>> nameEquals(String... names) {
       return nameEquals(Arrays.asList(names));
    }
 
-   public static final Predicate<JsonObject> nameEquals(List<String> names) {
+   public static final BiPredicate<String, Map<String, String>> nameEquals(List<String> names) {
       return names.stream()
-         .map((name) -> nameEquals(name))
-         .reduce(Predicate::or)
-         .orElse((report) -> false);
+         .map((match) -> nameEquals(match))
+         .reduce(BiPredicate::or)
+         .orElse((name, tags) -> false);
    }
 
    /////////////////////////////////////////////////////////////////////////////
    // Prefix match on metric name
    /////////////////////////////////////////////////////////////////////////////
 
-   public static final Predicate<JsonObject> namePrefixedBy(String prefix) {
+   public static final BiPredicate<String, Map<String, String>> namePrefixedBy(String prefix) {
       log.info("filtering on metric name prefix match: {}", prefix);
-      return (report) -> {
-         String name = getAsStringOrNull(report,"name");
-         return (name == null) ? false : name.startsWith(prefix);
-      };
+      return (name, tags) -> name.startsWith(prefix);
    }
 
-   public static final Predicate<JsonObject> namePrefixedBy(String... prefixes) {
+   public static final BiPredicate<String, Map<String, String>> namePrefixedBy(String... prefixes) {
       return namePrefixedBy(Arrays.asList(prefixes));
    }
 
-   public static final Predicate<JsonObject> namePrefixedBy(List<String> prefixes) {
+   public static final BiPredicate<String, Map<String, String>> namePrefixedBy(List<String> prefixes) {
       return prefixes.stream()
          .map((prefix) -> namePrefixedBy(prefix))
-         .reduce(Predicate::or)
-         .orElse((report) -> false);
+         .reduce(BiPredicate::or)
+         .orElse((name, tags) -> false);
    }
 
    /////////////////////////////////////////////////////////////////////////////
    // Regex match on metric name
    /////////////////////////////////////////////////////////////////////////////
 
-   public static final Predicate<JsonObject> nameMatches(String regex) {
+   public static final BiPredicate<String, Map<String, String>> nameMatches(String regex) {
       return nameMatches(Pattern.compile(regex));
    }
 
-   public static final Predicate<JsonObject> nameMatches(String regex, int flags) {
+   public static final BiPredicate<String, Map<String, String>> nameMatches(String regex, int flags) {
       return nameMatches(Pattern.compile(regex,flags));
    }
 
-   public static final Predicate<JsonObject> nameMatches(Pattern pattern) {
+   public static final BiPredicate<String, Map<String, String>> nameMatches(Pattern pattern) {
       log.info("filtering on metric name regex match: {}", pattern);
-      return (report) -> {
-         String name = getAsStringOrNull(report, "name");
-         return (name == null) ? false : pattern.matcher(name).matches();
-      };
+      return (name, tags) -> pattern.matcher(name).matches();
    }
 
-   public static final Predicate<JsonObject> nameMatches(String... regexes) {
+   public static final BiPredicate<String, Map<String, String>> nameMatches(String... regexes) {
       return nameMatchesList(Arrays.asList(regexes));
    }
 
-   public static final Predicate<JsonObject> nameMatches(Pattern... patterns) {
+   public static final BiPredicate<String, Map<String, String>> nameMatches(Pattern... patterns) {
       return nameMatches(Arrays.asList(patterns));
    }
 
-   public static final Predicate<JsonObject> nameMatchesList(List<String> regexes) {
+   public static final BiPredicate<String, Map<String, String>> nameMatchesList(List<String> regexes) {
       List<Pattern> patterns = regexes.stream()
          .map((regex) -> Pattern.compile(regex))
          .collect(Collectors.toList());
@@ -175,35 +167,10 @@ public final class MetricFilters {
       return nameMatches(patterns);
    }
 
-   public static final Predicate<JsonObject> nameMatches(List<Pattern> patterns) {
+   public static final BiPredicate<String, Map<String, String>> nameMatches(List<Pattern> patterns) {
       return patterns.stream()
          .map((pattern) -> nameMatches(pattern))
-         .reduce(Predicate::or)
-         .orElse((report) -> false);
-   }
-
-   /////////////////////////////////////////////////////////////////////////////
-   // Utilities
-   /////////////////////////////////////////////////////////////////////////////
-
-   @Nullable
-   private static JsonObject getTags(JsonObject report) {
-      JsonElement elem = report.get("tags");
-      if (elem == null || !elem.isJsonObject()) {
-         return null;
-      }
-
-      return elem.getAsJsonObject();
-   }
-
-   @Nullable
-   private static String getTagProperty(JsonObject report, String name) {
-      JsonObject tags = getTags(report);
-      if (tags == null) {
-         return null;
-      }
-
-      return getAsStringOrNull(tags, name);
+         .reduce(BiPredicate::or)
+         .orElse((name, tags) -> false);
    }
 }
-
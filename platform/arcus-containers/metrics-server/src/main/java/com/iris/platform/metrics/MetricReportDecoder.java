@@ -0,0 +1,374 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.metrics;
+
+import static com.iris.platform.metrics.MetricUtils.CONTAINER;
+import static com.iris.platform.metrics.MetricUtils.HOST;
+import static com.iris.platform.metrics.MetricUtils.SERVICE;
+import static com.iris.platform.metrics.MetricUtils.TS;
+import static com.iris.platform.metrics.MetricUtils.VERSION;
+import static com.iris.platform.metrics.MetricUtils.getTags;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+
+/**
+ * Decodes a metrics report straight from its JSON bytes into a {@link DataPointBuffer},
+ * streaming over the report rather than building a JSON tree for it and for
+ * each of the data points it produces.
+ *
+ * A report may list its timestamp and tags after the metrics, so the values are
+ * collected first and the timestamp, ttl and tags are applied once the whole
+ * report has been read.
+ *
+ * This is not thread safe, an instance is owned by the consumer thread.
+ */
+final class MetricReportDecoder {
+   private static final Logger log = LoggerFactory.getLogger(MetricReportDecoder.class);
+
+   private static final IrisMetricSet METRICS = IrisMetrics.metrics("metrics.decoder");
+   private static final Counter INVALID = METRICS.counter("reports.invalid");
+   private static final Counter FILTERED = METRICS.counter("points.filtered");
+
+   private static final int VALUE = 0;
+   private static final int COUNT = 1;
+   private static final int MIN = 2;
+   private static final int MAX = 3;
+   private static final int MEAN = 4;
+   private static final int STDDEV = 5;
+   private static final int P50 = 6;
+   private static final int P75 = 7;
+   private static final int P95 = 8;
+   private static final int P98 = 9;
+   private static final int P99 = 10;
+   private static final int P999 = 11;
+   private static final int M1 = 12;
+   private static final int M5 = 13;
+   private static final int M15 = 14;
+   private static final int PROPERTY_COUNT = 15;
+
+   private static final Map<String, Integer> PROPERTIES = ImmutableMap.<String, Integer>builder()
+         .put("value", VALUE)
+         .put("count", COUNT)
+         .put("min", MIN)
+         .put("max", MAX)
+         .put("mean", MEAN)
+         .put("stddev", STDDEV)
+         .put("p50", P50)
+         .put("p75", P75)
+         .put("p95", P95)
+         .put("p98", P98)
+         .put("p99", P99)
+         .put("p999", P999)
+         .put("m1", M1)
+         .put("m5", M5)
+         .put("m15", M15)
+         .build();
+
+   // the properties reported for each type of metric and the suffix added to the
+   // metric name for each, a null suffix reports the property under the metric name
+   private static final int[] GAUGE = { VALUE };
+   private static final String[] GAUGE_SUFFIXES = { null };
+   private static final int[] COUNTER = { COUNT };
+   private static final String[] COUNTER_SUFFIXES = { null };
+   private static final int[] HISTOGRAM = { COUNT, MIN, MAX, MEAN, STDDEV, P50, P75, P95, P98, P99, P999 };
+   private static final String[] HISTOGRAM_SUFFIXES = { ".count", ".min", ".max", ".mean", ".stddev", ".p50", ".p75", ".p95", ".p98", ".p99", ".p999" };
+   private static final int[] METER = { COUNT, MEAN, M1, M5, M15 };
+   private static final String[] METER_SUFFIXES = { ".count", ".mean", ".mean1", ".mean5", ".mean15" };
+
+   private final BiPredicate<String, Map<String, String>> filter;
+   private final double defaultTTL;
+   private final double mediumTTL;
+   private final double highTTL;
+   private final long mediumTTLFrequency;
+   private final long highTTLFrequency;
+
+   // the values of the report currently being decoded, reused between reports
+   private final double[] properties = new double[PROPERTY_COUNT];
+   private final boolean[] present = new boolean[PROPERTY_COUNT];
+   private final List<String> pendingNames = new ArrayList<>();
+   private final List<Map<String, String>> metricTags = new ArrayList<>();
+   private double[] pendingValues = new double[64];
+   private int[] pendingTags = new int[64];
+
+   MetricReportDecoder(MetricsServerConfig config) {
+      this.filter = config.getBlackListFilter();
+      this.defaultTTL = config.getDefaultTTL();
+      this.mediumTTL = config.getMediumTTL();
+      this.highTTL = config.getHighTTL();
+      //frequency values must be in minutes to ensure that collectd metrics (10s interval)
+      //and regular metrics (15s interval) are both TTLed properly
+      this.mediumTTLFrequency = TimeUnit.MINUTES.toMillis(config.getMediumTTLFrequencyMinutes());
+      this.highTTLFrequency = TimeUnit.MINUTES.toMillis(config.getHighTTLFrequencyMinutes());
+   }
+
+   /**
+    * Decodes the report and adds its data points to {@code output}.
+    * @return the number of data points added
+    */
+   int decode(byte[] data, DataPointBuffer output) {
+      try {
+         return decodeReport(data, output);
+      } catch (Exception ex) {
+         INVALID.inc();
+         log.warn("could not decode metrics report: {}", new String(data, StandardCharsets.UTF_8), ex);
+         return 0;
+      } finally {
+         pendingNames.clear();
+         metricTags.clear();
+      }
+   }
+
+   private int decodeReport(byte[] data, DataPointBuffer output) throws IOException {
+      double ts = Double.NaN;
+      String host = null;
+      String container = null;
+      String service = null;
+      String version = null;
+      Map<String, String> existingTags = null;
+
+      try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8))) {
+         reader.beginObject();
+         while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+               reader.skipValue();
+               continue;
+            }
+
+            switch (field) {
+            case TS:
+               ts = reader.nextDouble();
+               break;
+            case HOST:
+               host = reader.nextString();
+               break;
+            case CONTAINER:
+               container = reader.nextString();
+               break;
+            case SERVICE:
+               service = reader.nextString();
+               break;
+            case VERSION:
+               version = reader.nextString();
+               break;
+            case "tags":
+               //allows tags to be pushed from collectd
+               existingTags = readTags(reader);
+               break;
+            case "gauges":
+               readMetrics(reader, GAUGE, GAUGE_SUFFIXES);
+               break;
+            case "counters":
+               readMetrics(reader, COUNTER, COUNTER_SUFFIXES);
+               break;
+            case "histograms":
+            case "timers":
+               // Timers have the same structure as a histogram, they just have an implied unit of durations.
+               readMetrics(reader, HISTOGRAM, HISTOGRAM_SUFFIXES);
+               break;
+            case "meters":
+               readMetrics(reader, METER, METER_SUFFIXES);
+               break;
+            default:
+               reader.skipValue();
+               break;
+            }
+         }
+         reader.endObject();
+      }
+
+      if (Double.isNaN(ts)) {
+         INVALID.inc();
+         log.warn("invalid metrics format, missing timestamp: {}", new String(data, StandardCharsets.UTF_8));
+         return 0;
+      }
+
+      double ttl;
+      if (ts % highTTLFrequency == 0) {
+         ttl = highTTL;
+      } else if (ts % mediumTTLFrequency == 0) {
+         ttl = mediumTTL;
+      } else {
+         ttl = defaultTTL;
+      }
+
+      Map<String, String> tags = getTags(host, container, service, version);
+      if (existingTags != null) {
+         for (Map.Entry<String, String> entry : existingTags.entrySet()) {
+            tags.put(entry.getKey(), sanitize(entry.getValue()));
+         }
+      }
+      // the ttl was previously added to the tags as a JSON number, KairosDB turns
+      // that into this string so it is kept to avoid splitting existing series
+      tags.put("ttl", Double.toString(ttl));
+
+      String tagsJson = DataPointBuffer.renderTags(tags);
+      List<Map<String, String>> merged = new ArrayList<>(metricTags.size());
+      List<String> mergedJson = new ArrayList<>(metricTags.size());
+      for (Map<String, String> own : metricTags) {
+         Map<String, String> pointTags = merge(own, tags);
+         merged.add(pointTags);
+         mergedJson.add(DataPointBuffer.renderTags(pointTags));
+      }
+
+      int added = 0;
+      long timestamp = (long) ts;
+      for (int i = 0; i < pendingNames.size(); i++) {
+         String name = pendingNames.get(i);
+         int tagIndex = pendingTags[i];
+         Map<String, String> pointTags = tagIndex < 0 ? tags : merged.get(tagIndex);
+         String pointTagsJson = tagIndex < 0 ? tagsJson : mergedJson.get(tagIndex);
+
+         if (filter.test(name, pointTags)) {
+            output.add(name, pendingValues[i], timestamp, (long) ttl, pointTagsJson);
+            added++;
+         } else {
+            FILTERED.inc();
+            if (log.isTraceEnabled()) {
+               log.trace("metric has been black listed: name={}, tags={}", name, pointTags);
+            }
+         }
+      }
+      return added;
+   }
+
+   private void readMetrics(JsonReader reader, int[] reported, String[] suffixes) throws IOException {
+      reader.beginArray();
+      while (reader.hasNext()) {
+         readMetric(reader, reported, suffixes);
+      }
+      reader.endArray();
+   }
+
+   private void readMetric(JsonReader reader, int[] reported, String[] suffixes) throws IOException {
+      Arrays.fill(present, false);
+      String name = null;
+      Map<String, String> tags = null;
+
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String field = reader.nextName();
+         JsonToken token = reader.peek();
+         if ("name".equals(field) && token == JsonToken.STRING) {
+            name = reader.nextString();
+         } else if ("tags".equals(field) && token == JsonToken.BEGIN_OBJECT) {
+            tags = readTags(reader);
+         } else {
+            Integer property = PROPERTIES.get(field);
+            if (property != null && token == JsonToken.NUMBER) {
+               properties[property] = reader.nextDouble();
+               present[property] = true;
+            } else {
+               reader.skipValue();
+            }
+         }
+      }
+      reader.endObject();
+
+      if (name == null) {
+         return;
+      }
+
+      int tagIndex = -1;
+      if (tags != null) {
+         tagIndex = metricTags.size();
+         metricTags.add(tags);
+      }
+
+      for (int i = 0; i < reported.length; i++) {
+         int property = reported[i];
+         if (present[property]) {
+            addPending(suffixes[i] == null ? name : name + suffixes[i], properties[property], tagIndex);
+         }
+      }
+   }
+
+   private void addPending(String name, double value, int tagIndex) {
+      int i = pendingNames.size();
+      if (i == pendingValues.length) {
+         pendingValues = Arrays.copyOf(pendingValues, i * 2);
+         pendingTags = Arrays.copyOf(pendingTags, i * 2);
+      }
+
+      pendingNames.add(name);
+      pendingValues[i] = value;
+      pendingTags[i] = tagIndex;
+   }
+
+   @Nullable
+   private static Map<String, String> readTags(JsonReader reader) throws IOException {
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+         reader.skipValue();
+         return null;
+      }
+
+      Map<String, String> tags = new LinkedHashMap<>();
+      reader.beginObject();
+      while (reader.hasNext()) {
+         String key = reader.nextName();
+         JsonToken token = reader.peek();
+         if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            tags.put(key, reader.nextString());
+         } else if (token == JsonToken.BOOLEAN) {
+            tags.put(key, String.valueOf(reader.nextBoolean()));
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+      return tags;
+   }
+
+   /**
+    * The metric's own tags overridden by the tags for the whole report.
+    */
+   private static Map<String, String> merge(Map<String, String> metric, Map<String, String> report) {
+      Map<String, String> merged = new LinkedHashMap<>(metric);
+      for (Map.Entry<String, String> tag : report.entrySet()) {
+         // kairos can not accept : or = in tag values.
+         merged.put(tag.getKey(), sanitize(tag.getValue()));
+      }
+      return merged;
+   }
+
+   private static String sanitize(String value) {
+      if (value.indexOf(':') < 0 && value.indexOf('=') < 0) {
+         return value;
+      }
+      return value.replace(':', '.').replace('=', '.');
+   }
+}
@@ -15,11 +15,10 @@
  */
 package com.iris.platform.metrics;
 
-import org.eclipse.jdt.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import org.eclipse.jdt.annotation.Nullable;
 
 public final class MetricUtils {
    public static final String TS = "ts";
@@ -31,45 +30,24 @@ public final class MetricUtils {
    private MetricUtils() {
    }
 
-   @Nullable
-   public static String getAsStringOrNull(JsonObject object, String name) {
-      JsonElement elem = object.get(name);
-      if (elem == null || elem.isJsonNull()) {
-         return null;
-      }
-
-      return elem.getAsString();
-   }
-
-   @Nullable
-   public static JsonArray getAsArrayOrNull(JsonObject object, String name) {
-      JsonElement elem = object.get(name);
-      if (elem == null || elem.isJsonNull()) {
-         return null;
-      }
-
-      return elem.getAsJsonArray();
-   }
-
-   public static JsonObject getTags(@Nullable String host, @Nullable String container, @Nullable String service, @Nullable String version) {
-      JsonObject obj = new JsonObject();
+   public static Map<String, String> getTags(@Nullable String host, @Nullable String container, @Nullable String service, @Nullable String version) {
+      Map<String, String> tags = new LinkedHashMap<>();
       if (host != null) {
-         obj.addProperty("host", host);
+         tags.put("host", host);
       }
 
       if (container != null) {
-         obj.addProperty("container", container);
+         tags.put("container", container);
       }
 
       if (service != null) {
-         obj.addProperty("service", service);
+         tags.put("service", service);
       }
 
       if (version != null) {
-         obj.addProperty("version", version);
+         tags.put("version", version);
       }
 
-      return obj;
+      return tags;
    }
 }
-
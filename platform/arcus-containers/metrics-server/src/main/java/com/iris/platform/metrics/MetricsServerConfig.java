@@ -16,11 +16,11 @@
 package com.iris.platform.metrics;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
+import java.util.function.BiPredicate;
 
 import com.google.common.base.Splitter;
-import com.google.gson.JsonObject;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
@@ -69,9 +69,37 @@ public class MetricsServerConfig {
    @Inject(optional = true) @Named("metrics.cacheMax")
    private int metricsCacheMax = 50;
    
+   /**
+    * The maximum number of posts to KairosDB in flight at once.
+    */
    @Inject(optional = true) @Named("kairos.postThreadsMax")
    private int kairosPostThreadsMax = 50;
-   
+
+   /**
+    * The number of data points sent in each post to KairosDB.
+    */
+   @Inject(optional = true) @Named("kairos.batch.size")
+   private int kairosBatchSize = 5000;
+
+   /**
+    * How long a partial batch may wait for more data points before it is posted.
+    */
+   @Inject(optional = true) @Named("kairos.batch.lingerMs")
+   private long kairosBatchLingerMs = 1000;
+
+   /**
+    * The number of batches waiting to be posted, including those in flight, at
+    * which the consumer is paused.  It is resumed once half of them have been posted.
+    */
+   @Inject(optional = true) @Named("kairos.batch.maxPending")
+   private int kairosBatchMaxPending = 100;
+
+   @Inject(optional = true) @Named("kairos.post.retries")
+   private int kairosPostRetries = 3;
+
+   @Inject(optional = true) @Named("kairos.post.retryBackoffMs")
+   private long kairosPostRetryBackoffMs = 500;
+
    public String getUrl() {
       return url;
    }
@@ -136,7 +164,7 @@ public class MetricsServerConfig {
       this.blackListedHosts = blackListedHosts;
    }
 
-   public Predicate<JsonObject> getBlackListFilter() {
+   public BiPredicate<String, Map<String, String>> getBlackListFilter() {
       return getBlackListedServicesFilter().and(
              getBlackListedHostsFilter()).and(
              getBlackListedNamesFilter()).and(
@@ -145,27 +173,27 @@ public class MetricsServerConfig {
              getBlackListedContainersFilter());
    }
 
-   public Predicate<JsonObject> getBlackListedNamesFilter() {
+   public BiPredicate<String, Map<String, String>> getBlackListedNamesFilter() {
       return MetricFilters.nameEquals(splitOnCommas(getBlackListedNames())).negate();
    }
 
-   public Predicate<JsonObject> getBlackListedPrefixesFilter() {
+   public BiPredicate<String, Map<String, String>> getBlackListedPrefixesFilter() {
       return MetricFilters.namePrefixedBy(splitOnCommas(getBlackListedPrefixes())).negate();
    }
 
-   public Predicate<JsonObject> getBlackListedRegexFilter() {
+   public BiPredicate<String, Map<String, String>> getBlackListedRegexFilter() {
       return MetricFilters.nameMatchesList(splitOnCommas(getBlackListedRegexes())).negate();
    }
 
-   public Predicate<JsonObject> getBlackListedContainersFilter() {
+   public BiPredicate<String, Map<String, String>> getBlackListedContainersFilter() {
       return MetricFilters.fromContainer(splitOnCommas(getBlackListedContainers())).negate();
    }
 
-   public Predicate<JsonObject> getBlackListedServicesFilter() {
+   public BiPredicate<String, Map<String, String>> getBlackListedServicesFilter() {
       return MetricFilters.fromService(splitOnCommas(getBlackListedServices())).negate();
    }
 
-   public Predicate<JsonObject> getBlackListedHostsFilter() {
+   public BiPredicate<String, Map<String, String>> getBlackListedHostsFilter() {
       return MetricFilters.fromHost(splitOnCommas(getBlackListedHosts())).negate();
    }
 
@@ -198,5 +226,44 @@ public class MetricsServerConfig {
 	public void setKairosPostThreadsMax(int kairosPostThreadsMax) {
 		this.kairosPostThreadsMax = kairosPostThreadsMax;
 	}
-}
 
+	public int getKairosBatchSize() {
+		return kairosBatchSize;
+	}
+
+	public void setKairosBatchSize(int kairosBatchSize) {
+		this.kairosBatchSize = kairosBatchSize;
+	}
+
+	public long getKairosBatchLingerMs() {
+		return kairosBatchLingerMs;
+	}
+
+	public void setKairosBatchLingerMs(long kairosBatchLingerMs) {
+		this.kairosBatchLingerMs = kairosBatchLingerMs;
+	}
+
+	public int getKairosBatchMaxPending() {
+		return kairosBatchMaxPending;
+	}
+
+	public void setKairosBatchMaxPending(int kairosBatchMaxPending) {
+		this.kairosBatchMaxPending = kairosBatchMaxPending;
+	}
+
+	public int getKairosPostRetries() {
+		return kairosPostRetries;
+	}
+
+	public void setKairosPostRetries(int kairosPostRetries) {
+		this.kairosPostRetries = kairosPostRetries;
+	}
+
+	public long getKairosPostRetryBackoffMs() {
+		return kairosPostRetryBackoffMs;
+	}
+
+	public void setKairosPostRetryBackoffMs(long kairosPostRetryBackoffMs) {
+		this.kairosPostRetryBackoffMs = kairosPostRetryBackoffMs;
+	}
+}
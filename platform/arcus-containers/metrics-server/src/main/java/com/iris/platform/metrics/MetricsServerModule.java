@@ -15,6 +15,12 @@
  */
 package com.iris.platform.metrics;
 
+import java.net.URI;
+import java.nio.file.Paths;
+
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.iris.bootstrap.guice.AbstractIrisModule;
 
 public class MetricsServerModule extends AbstractIrisModule {
@@ -22,5 +28,14 @@ public class MetricsServerModule extends AbstractIrisModule {
    @Override
    protected void configure() {
    }
-}
 
+   @Provides
+   @Singleton
+   public KairosTransport provideKairosTransport(MetricsServerConfig config, Provider<KairosDB> kairos) {
+      String url = config.getUrl();
+      if (url.startsWith("file:")) {
+         return new FileKairosDB(Paths.get(URI.create(url)));
+      }
+      return kairos.get();
+   }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class TestKairosWriter {
+   private static final long TS = 1500000010000L;
+
+   private MetricsServerConfig config;
+   private Path file;
+
+   @Before
+   public void setUp() throws Exception {
+      config = new MetricsServerConfig();
+      file = Files.createTempFile("kairos", ".json");
+      Files.delete(file);
+   }
+
+   @After
+   public void tearDown() throws Exception {
+      Files.deleteIfExists(file);
+   }
+
+   @Test
+   public void testDecodeReport() throws Exception {
+      DataPointBuffer points = decode(
+            "{\"ts\":" + TS + ",\"hst\":\"host1\",\"ctn\":\"ctn1\",\"svc\":\"svc1\"," +
+            "\"gauges\":[{\"name\":\"g\",\"value\":1.5},{\"name\":\"text\",\"value\":\"a\"}]," +
+            "\"counters\":[{\"name\":\"c\",\"count\":7,\"tags\":{\"zone\":\"a=b\"}}]," +
+            "\"meters\":[{\"name\":\"m\",\"count\":3,\"mean\":0.5,\"m1\":1,\"m5\":2,\"m15\":3}]}"
+      );
+
+      assertEquals(7, points.size());
+      assertEquals("g", points.getName(0));
+      assertEquals(1.5, points.getValue(0), 0.0);
+      assertEquals(TS, points.getTimestamp(0));
+      assertEquals(config.getDefaultTTL(), points.getTtl(0));
+      assertEquals("{\"host\":\"host1\",\"container\":\"ctn1\",\"service\":\"svc1\",\"ttl\":\"1814400.0\"}", points.getTags(0));
+
+      // a metric's own tags are kept as is and the report's tags added to them
+      assertEquals("c", points.getName(1));
+      assertEquals(7.0, points.getValue(1), 0.0);
+      assertEquals("{\"zone\":\"a=b\",\"host\":\"host1\",\"container\":\"ctn1\",\"service\":\"svc1\",\"ttl\":\"1814400.0\"}", points.getTags(1));
+
+      assertEquals("m.count", points.getName(2));
+      assertEquals("m.mean", points.getName(3));
+      assertEquals("m.mean1", points.getName(4));
+      assertEquals("m.mean5", points.getName(5));
+      assertEquals("m.mean15", points.getName(6));
+      assertEquals(3.0, points.getValue(6), 0.0);
+   }
+
+   @Test
+   public void testDecodeTimestampLast() throws Exception {
+      DataPointBuffer points = decode(
+            "{\"histograms\":[{\"name\":\"h\",\"count\":1,\"p99\":9}],\"tags\":{\"plugin\":\"cpu:0\"},\"ts\":" + TS + "}"
+      );
+
+      assertEquals(2, points.size());
+      assertEquals("h.count", points.getName(0));
+      assertEquals("h.p99", points.getName(1));
+      assertEquals(TS, points.getTimestamp(1));
+      assertEquals("{\"plugin\":\"cpu.0\",\"ttl\":\"1814400.0\"}", points.getTags(1));
+   }
+
+   @Test
+   public void testDecodeInvalid() throws Exception {
+      assertEquals(0, decode("{\"gauges\":[{\"name\":\"g\",\"value\":1}]}").size());
+      assertEquals(0, decode("{\"ts\":").size());
+   }
+
+   @Test
+   public void testBlackList() throws Exception {
+      config.setBlackListedPrefixes("jvm.");
+      config.setBlackListedServices("noisy");
+
+      assertEquals(1, decode("{\"ts\":" + TS + ",\"gauges\":[{\"name\":\"jvm.heap\",\"value\":1},{\"name\":\"ok\",\"value\":1}]}").size());
+      assertEquals(0, decode("{\"ts\":" + TS + ",\"svc\":\"noisy\",\"gauges\":[{\"name\":\"ok\",\"value\":1}]}").size());
+   }
+
+   @Test
+   public void testWriteBatches() throws Exception {
+      config.setKairosBatchSize(2);
+      config.setKairosPostThreadsMax(1);
+      KairosWriter writer = new KairosWriter(config, new FileKairosDB(file));
+
+      writer.write(decode("{\"ts\":" + TS + ",\"gauges\":[{\"name\":\"a\",\"value\":1},{\"name\":\"b\",\"value\":2.5}]}"));
+      writer.write(decode("{\"ts\":" + TS + ",\"counters\":[{\"name\":\"c\",\"count\":3}]}"));
+      writer.flush();
+      writer.shutdown();
+      assertEquals(0, writer.getPending());
+
+      List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      assertEquals(2, lines.size());
+
+      JsonArray first = new JsonParser().parse(lines.get(0)).getAsJsonArray();
+      assertEquals(2, first.size());
+      JsonObject a = first.get(0).getAsJsonObject();
+      assertEquals("a", a.get("name").getAsString());
+      assertEquals(TS, a.get("timestamp").getAsLong());
+      assertEquals(1, a.get("value").getAsInt());
+      assertEquals(config.getDefaultTTL(), a.get("ttl").getAsLong());
+      assertEquals(2.5, first.get(1).getAsJsonObject().get("value").getAsDouble(), 0.0);
+
+      JsonArray second = new JsonParser().parse(lines.get(1)).getAsJsonArray();
+      assertEquals(1, second.size());
+      assertEquals("c", second.get(0).getAsJsonObject().get("name").getAsString());
+   }
+
+   @Test
+   public void testBackedUp() throws Exception {
+      config.setKairosBatchSize(1);
+      config.setKairosBatchMaxPending(2);
+      config.setKairosPostThreadsMax(1);
+      Object lock = new Object();
+      KairosWriter writer = new KairosWriter(config, (body) -> {
+         synchronized (lock) {
+            return 204;
+         }
+      });
+
+      synchronized (lock) {
+         writer.write(decode("{\"ts\":" + TS + ",\"gauges\":[{\"name\":\"a\",\"value\":1}]}"));
+         writer.write(decode("{\"ts\":" + TS + ",\"gauges\":[{\"name\":\"b\",\"value\":1}]}"));
+         assertTrue(writer.isBackedUp());
+      }
+      writer.shutdown();
+      assertTrue(writer.canResume());
+   }
+
+   private DataPointBuffer decode(String json) {
+      DataPointBuffer points = new DataPointBuffer(16);
+      new MetricReportDecoder(config).decode(json.getBytes(StandardCharsets.UTF_8), points);
+      return points;
+   }
+}
@@ -29,7 +29,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PreDestroy;
@@ -46,6 +45,8 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
+import com.iris.common.scheduler.HashedWheelScheduler;
+import com.iris.common.scheduler.ScheduledTask;
 import com.iris.core.dao.DeviceDAO;
 import com.iris.core.dao.PlaceDAO;
 import com.iris.core.protocol.ProtocolMessageBus;
@@ -81,7 +82,6 @@ import com.iris.protocol.ipcd.IpcdDevice;
 import com.iris.protocol.ipcd.IpcdDevice.ConnState;
 import com.iris.protocol.ipcd.IpcdDeviceTypeRegistry;
 import com.iris.protocol.ipcd.IpcdProtocol;
-import com.iris.util.ThreadPoolBuilder;
 import com.netflix.governator.annotations.WarmUp;
 
 @Singleton
@@ -101,10 +101,9 @@ public class IpcdRegistry implements PartitionListener {
    private final Partitioner partitioner;
    private final PlatformBusClient busClient;
    private final ProtocolMessageBus protocolBus;
-   private final ScheduledExecutorService watchDogExecutor;
+   private final HashedWheelScheduler expirations;
    private final ConcurrentMap<String, IpcdDeviceState> ipcdDevices = new ConcurrentHashMap<>();
    private final long offlineTimeoutMs;
-   private final long timeoutIntervalMs;
    private final IpcdRegistryMetrics metrics;
    private final PlacePopulationCacheManager populationCacheMgr;
 
@@ -120,6 +119,42 @@ public class IpcdRegistry implements PartitionListener {
          ProtocolMessageBus protocolBus,
          Partitioner partitioner,
          PlacePopulationCacheManager populationCacheMgr
+   ) {
+      this(
+            config,
+            executor,
+            clock,
+            placeDao,
+            ipcdDeviceDao,
+            deviceDao,
+            busClient,
+            protocolBus,
+            partitioner,
+            populationCacheMgr,
+            // the interval is the resolution of the wheel, timeouts only decide on the
+            // timer thread and hand expired devices off to the executor
+            new HashedWheelScheduler(
+                  "ipcd.expirations",
+                  TimeUnit.SECONDS.toMillis(config.getTimeoutIntervalSec()),
+                  TimeUnit.MILLISECONDS,
+                  HashedWheelScheduler.DEFAULT_WHEEL_SIZE,
+                  null
+            )
+      );
+   }
+
+   IpcdRegistry(
+         IpcdRegistryConfig config,
+         Executor executor,
+         Clock clock,
+         PlaceDAO placeDao,
+         IpcdDeviceDao ipcdDeviceDao,
+         DeviceDAO deviceDao,
+         PlatformBusClient busClient,
+         ProtocolMessageBus protocolBus,
+         Partitioner partitioner,
+         PlacePopulationCacheManager populationCacheMgr,
+         HashedWheelScheduler expirations
    ) {
       this.config = config;
       this.executor = executor;
@@ -131,21 +166,20 @@ public class IpcdRegistry implements PartitionListener {
       this.protocolBus = protocolBus;
       this.partitioner = partitioner;
       this.populationCacheMgr = populationCacheMgr;
-      this.watchDogExecutor = ThreadPoolBuilder.newSingleThreadedScheduler("ipcd-heartbeat-watchdog");
       offlineTimeoutMs = TimeUnit.MILLISECONDS.convert(config.getOfflineTimeoutMin(), TimeUnit.MINUTES);
-      timeoutIntervalMs = TimeUnit.MILLISECONDS.convert(config.getTimeoutIntervalSec(), TimeUnit.SECONDS);
+      this.expirations = expirations;
       this.metrics = new IpcdRegistryMetrics(IrisMetrics.metrics("service.platform.ipcdregistry"));
    }
 
    @WarmUp
    public void start() {
       partitioner.addPartitionListener(this);
-      watchDogExecutor.scheduleWithFixedDelay(() -> timeout(), timeoutIntervalMs, timeoutIntervalMs, TimeUnit.MILLISECONDS);
+      expirations.start();
    }
 
    @PreDestroy
    public void stop() {
-      watchDogExecutor.shutdownNow();
+      expirations.stop();
    }
 
    @Override
@@ -267,28 +301,54 @@ public class IpcdRegistry implements PartitionListener {
          logger.warn("heartbeat did not contain a partition id, ignoring");
          return;
       }
-      Set<String> protocolAddresses = com.iris.messages.service.IpcdService.DeviceHeartBeatEvent.getConnectedDevices(body);
       String bridgeId = (String) message.getSource().getId();
-      for(String protocolAddress : protocolAddresses) {
-         online(protocolAddress, partitionId, bridgeId);
-      }
-   }
-
-   private void timeout() {
-      logger.info("Checking for expired ipcd devices");
-      long expirationTime = clock.millis() - offlineTimeoutMs;
-      for(IpcdDeviceState state: ipcdDevices.values()) {
-         if(state.lastHeartbeat < expirationTime) {
-            if(ipcdDevices.remove(state.getProtocolAddress(), state)) {
-               try {
-                  onTimeout(state.getProtocolAddress());
-               }
-               catch(Exception e) {
-                  logger.warn("Error sending timeout for [{}]", state.getProtocolAddress(), e);
-               }
-            }
+      Set<String> protocolAddresses = com.iris.messages.service.IpcdService.DeviceHeartBeatEvent.getConnectedDevices(body);
+      if(protocolAddresses != null) {
+         for(String protocolAddress : protocolAddresses) {
+            online(protocolAddress, partitionId, bridgeId);
          }
       }
+      // only sent by bridges which send delta heartbeats
+      Set<String> disconnected = com.iris.messages.service.IpcdService.DeviceHeartBeatEvent.getDisconnectedDevices(body);
+      if(disconnected != null) {
+         for(String protocolAddress : disconnected) {
+            offline(protocolAddress, bridgeId);
+         }
+      }
+   }
+
+   private void scheduleTimeout(IpcdDeviceState state, long delayMs) {
+      state.setTimeout(expirations.scheduleDelayed(() -> timeout(state), delayMs, TimeUnit.MILLISECONDS));
+   }
+
+   /**
+    * Heartbeats only update the state, so when the timeout comes due the device
+    * is either expired or the timeout is pushed back to its new deadline.  This
+    * means each device is revisited about once per offline timeout rather than
+    * scanning every device on each interval.
+    */
+   private void timeout(IpcdDeviceState state) {
+      if(ipcdDevices.get(state.getProtocolAddress()) != state) {
+         // removed or replaced since this was scheduled
+         return;
+      }
+
+      long remainingMs = state.lastHeartbeat + offlineTimeoutMs - clock.millis();
+      if(remainingMs > 0) {
+         scheduleTimeout(state, remainingMs);
+         return;
+      }
+
+      if(ipcdDevices.remove(state.getProtocolAddress(), state)) {
+         executor.execute(() -> {
+            try {
+               onTimeout(state.getProtocolAddress());
+            }
+            catch(Exception e) {
+               logger.warn("Error sending timeout for [{}]", state.getProtocolAddress(), e);
+            }
+         });
+      }
    }
 
    private void onTimeout(String protocolAddress) {
@@ -309,6 +369,7 @@ public class IpcdRegistry implements PartitionListener {
          int partitionId = state.getPartitionId();
          if(removedPartitions.contains(partitionId)) {
             it.remove();
+            state.cancelTimeout();
          }
       }
    }
@@ -350,6 +411,7 @@ public class IpcdRegistry implements PartitionListener {
          IpcdDeviceState existingState = ipcdDevices.putIfAbsent(ipcdDevice.getProtocolAddress(), newState);
          if(existingState == null) {
             existingState = newState;
+            scheduleTimeout(newState, offlineTimeoutMs);
          }
 
          // handle the case where registration was partial due to platform services being restarted during registration flow
@@ -531,21 +593,34 @@ public class IpcdRegistry implements PartitionListener {
       busClient.sendEvent(msg);
    }
 
-   private boolean isOnline(String protocolAddress) {
+   boolean isOnline(String protocolAddress) {
       return ipcdDevices.get(protocolAddress) != null;
    }
 
    private void online(String protocolAddress, int partitionId, String ipcdBridge) {
-      ipcdDevices.computeIfAbsent(protocolAddress, (s) -> new IpcdDeviceState(protocolAddress, partitionId))
-         .updateHeartbeat(ipcdBridge, clock.millis());
+      IpcdDeviceState state = ipcdDevices.get(protocolAddress);
+      if(state == null) {
+         IpcdDeviceState newState = new IpcdDeviceState(protocolAddress, partitionId);
+         state = ipcdDevices.putIfAbsent(protocolAddress, newState);
+         if(state == null) {
+            state = newState;
+            scheduleTimeout(newState, offlineTimeoutMs);
+         }
+      }
+      state.updateHeartbeat(ipcdBridge, clock.millis());
    }
 
+   /**
+    * The device has disconnected from the given bridge.  It is still left to
+    * time out from its last heartbeat rather than being marked offline immediately,
+    * so a device that reconnects, possibly to another bridge, doesn't flap.
+    */
    private void offline(String protocolAddress, String ipcdBridge) {
       IpcdDeviceState ipcdDevice = ipcdDevices.get(protocolAddress);
       if(ipcdDevice == null) {
          return;
       }
-      if(ipcdDevice.offline(ipcdBridge, clock.millis() - offlineTimeoutMs) && ipcdDevices.remove(protocolAddress, ipcdDevice)) {
+      if(ipcdDevice.offline(ipcdBridge)) {
          logger.debug("[{}]:  IPCD device disconnected", protocolAddress);
          metrics.onDisconnected();
       }
@@ -601,6 +676,7 @@ public class IpcdRegistry implements PartitionListener {
       private volatile int partitionId;
       private volatile long lastHeartbeat;
       private final Map<String, Long> heartbeats;
+      private volatile ScheduledTask timeout;
 
       IpcdDeviceState(String protocolAddress, int partitionId) {
          this.protocolAddress = protocolAddress;
@@ -622,7 +698,18 @@ public class IpcdRegistry implements PartitionListener {
       }
 
       void setPartitionId(int id) {
-         this.partitionId = partitionId;
+         this.partitionId = id;
+      }
+
+      void setTimeout(ScheduledTask timeout) {
+         this.timeout = timeout;
+      }
+
+      void cancelTimeout() {
+         ScheduledTask timeout = this.timeout;
+         if(timeout != null) {
+            timeout.cancel();
+         }
       }
 
       void updateHeartbeat(String ipcdBridge, long ts) {
@@ -632,27 +719,14 @@ public class IpcdRegistry implements PartitionListener {
          }
       }
 
-      boolean offline(String ipcdBridge, long expirationTime) {
+      /**
+       * Removes the bridge from the set of bridges the device is connected to,
+       * returning {@code true} if it is no longer connected to any bridge.
+       */
+      boolean offline(String ipcdBridge) {
          synchronized(heartbeats) {
-            this.lastHeartbeat = 0;
-            this.heartbeats.remove(ipcdBridge);
-            Iterator<Long> timestamps = this.heartbeats.values().iterator();
-            while(timestamps.hasNext()) {
-               long ts = timestamps.next();
-               if(ts < expirationTime) {
-                  timestamps.remove();
-               }
-               else if(ts > lastHeartbeat) {
-                  lastHeartbeat = ts;
-               }
-            }
-            for(long ts: this.heartbeats.values()) {
-               if(this.lastHeartbeat < ts) {
-                  this.lastHeartbeat = ts;
-               }
-            }
+            return this.heartbeats.remove(ipcdBridge) != null && this.heartbeats.isEmpty();
          }
-         return this.lastHeartbeat == 0;
       }
    }
 
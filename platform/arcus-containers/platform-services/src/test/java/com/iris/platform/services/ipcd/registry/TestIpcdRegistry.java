@@ -17,10 +17,14 @@ package com.iris.platform.services.ipcd.registry;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
+import com.iris.common.scheduler.HashedWheelScheduler;
+import com.iris.common.scheduler.ScheduledTask;
 import com.iris.core.dao.DeviceDAO;
 import com.iris.core.dao.PlaceDAO;
 import com.iris.core.protocol.ProtocolMessageBus;
@@ -29,6 +33,7 @@ import com.iris.core.protocol.ipcd.exceptions.DeviceNotFoundException;
 import com.iris.core.protocol.ipcd.exceptions.PlaceMismatchException;
 import com.iris.messages.MessageBody;
 import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
 import com.iris.messages.address.DeviceProtocolAddress;
 import com.iris.messages.errors.Errors;
 import com.iris.messages.model.Fixtures;
@@ -49,9 +54,17 @@ import com.iris.test.IrisMockTestCase;
 import com.iris.test.Mocks;
 
 import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.easymock.EasyMock.*;
 
@@ -87,9 +100,135 @@ public class TestIpcdRegistry extends IrisMockTestCase {
    @Provides @Singleton
    private Partitioner getPartitioner() { return new SimplePartitioner(new PartitionConfig(), Optional.absent()); }
 
+   @Inject
+   private Partitioner partitioner;
+
    @Inject
    private IpcdRegistry ipcdRegistry;
 
+   private static final String PROTOCOL_ADDRESS = "IPCD:sn:123456";
+
+   private final ManualClock clock = new ManualClock();
+   private final ManualScheduler expirations = new ManualScheduler();
+
+   private IpcdRegistry createRegistry() {
+      return new IpcdRegistry(
+            new IpcdRegistryConfig(),
+            MoreExecutors.directExecutor(),
+            clock,
+            mockPlaceDao,
+            mockIpcdDeviceDao,
+            mockDeviceDao,
+            mockPlatformBusClient,
+            mockProtocolMessageBus,
+            partitioner,
+            null,
+            expirations
+      );
+   }
+
+   private long offlineTimeoutMs() {
+      return TimeUnit.MINUTES.toMillis(new IpcdRegistryConfig().getOfflineTimeoutMin());
+   }
+
+   private PlatformMessage heartbeat(String bridgeId, Set<String> connected, Set<String> disconnected) {
+      MessageBody body = com.iris.messages.service.IpcdService.DeviceHeartBeatEvent.builder()
+            .withPartitionId(0)
+            .withConnectedDevices(connected)
+            .withDisconnectedDevices(disconnected)
+            .build();
+      return PlatformMessage.buildMessage(
+            body,
+            Address.clientAddress("ipcd-bridge", bridgeId),
+            Address.platformService(com.iris.messages.service.IpcdService.NAMESPACE)
+      ).create();
+   }
+
+   private void expectTimeout() {
+      mockIpcdDeviceDao.offline(PROTOCOL_ADDRESS);
+      EasyMock.expectLastCall().once();
+      // no record, so no offline event is sent
+      expect(mockIpcdDeviceDao.findByProtocolAddress(PROTOCOL_ADDRESS)).andReturn(null).once();
+   }
+
+   @Test
+   public void TestTimeout_RescheduledAfterHeartbeat() {
+      expectTimeout();
+      EasyMock.replay(mockIpcdDeviceDao);
+
+      IpcdRegistry registry = createRegistry();
+      registry.onHeartBeat(heartbeat("bridge1", ImmutableSet.of(PROTOCOL_ADDRESS), ImmutableSet.of()));
+      assertTrue(registry.isOnline(PROTOCOL_ADDRESS));
+      assertEquals(1, expirations.size());
+      assertEquals(offlineTimeoutMs(), expirations.nextDelayMs());
+
+      // a heartbeat only updates the timestamp, it doesn't schedule anything
+      clock.advance(offlineTimeoutMs() / 2);
+      registry.onHeartBeat(heartbeat("bridge1", ImmutableSet.of(PROTOCOL_ADDRESS), ImmutableSet.of()));
+      assertEquals(1, expirations.size());
+
+      // the original deadline comes due and is pushed back to the new one
+      clock.advance(offlineTimeoutMs() / 2);
+      expirations.runNext();
+      assertTrue(registry.isOnline(PROTOCOL_ADDRESS));
+      assertEquals(1, expirations.size());
+      assertEquals(offlineTimeoutMs() / 2, expirations.nextDelayMs());
+
+      clock.advance(offlineTimeoutMs() / 2);
+      expirations.runNext();
+      assertFalse(registry.isOnline(PROTOCOL_ADDRESS));
+      assertEquals(0, expirations.size());
+      EasyMock.verify(mockIpcdDeviceDao);
+   }
+
+   @Test
+   public void TestTimeout_ExpiresWithoutHeartbeat() {
+      expectTimeout();
+      EasyMock.replay(mockIpcdDeviceDao);
+
+      IpcdRegistry registry = createRegistry();
+      registry.onHeartBeat(heartbeat("bridge1", ImmutableSet.of(PROTOCOL_ADDRESS), ImmutableSet.of()));
+
+      clock.advance(offlineTimeoutMs());
+      expirations.runNext();
+      assertFalse(registry.isOnline(PROTOCOL_ADDRESS));
+      assertEquals(0, expirations.size());
+      EasyMock.verify(mockIpcdDeviceDao);
+   }
+
+   @Test
+   public void TestHeartBeat_DisconnectedDevicesTimeOutNormally() {
+      expectTimeout();
+      EasyMock.replay(mockIpcdDeviceDao);
+
+      IpcdRegistry registry = createRegistry();
+      registry.onHeartBeat(heartbeat("bridge1", ImmutableSet.of(PROTOCOL_ADDRESS), ImmutableSet.of()));
+      registry.onHeartBeat(heartbeat("bridge2", ImmutableSet.of(PROTOCOL_ADDRESS), ImmutableSet.of()));
+
+      // disconnecting from every bridge doesn't mark the device offline right away
+      registry.onHeartBeat(heartbeat("bridge1", ImmutableSet.of(), ImmutableSet.of(PROTOCOL_ADDRESS)));
+      registry.onHeartBeat(heartbeat("bridge2", ImmutableSet.of(), ImmutableSet.of(PROTOCOL_ADDRESS)));
+      assertTrue(registry.isOnline(PROTOCOL_ADDRESS));
+
+      // it times out from its last heartbeat as before
+      clock.advance(offlineTimeoutMs());
+      expirations.runNext();
+      assertFalse(registry.isOnline(PROTOCOL_ADDRESS));
+      EasyMock.verify(mockIpcdDeviceDao);
+   }
+
+   @Test
+   public void TestHeartBeat_DisconnectedUnknownDeviceIgnored() {
+      EasyMock.replay(mockIpcdDeviceDao);
+
+      IpcdRegistry registry = createRegistry();
+      registry.onHeartBeat(heartbeat("bridge1", ImmutableSet.of(), ImmutableSet.of(PROTOCOL_ADDRESS)));
+
+      assertFalse(registry.isOnline(PROTOCOL_ADDRESS));
+      assertEquals(0, expirations.size());
+      EasyMock.verify(mockIpcdDeviceDao);
+   }
+
    @Test
    public void TestRegisterDevice_HappyPath() {
       Place place = Fixtures.createPlace();
@@ -380,5 +519,88 @@ public class TestIpcdRegistry extends IrisMockTestCase {
       assertEquals("Error", result.getMessageType());
       assertEquals(Errors.CODE_NOT_FOUND, result.getAttributes().get("code"));
    }
-}
 
+   private static class ManualClock extends Clock {
+      private long millis = 0;
+
+      void advance(long ms) {
+         millis += ms;
+      }
+
+      @Override
+      public ZoneId getZone() {
+         return ZoneOffset.UTC;
+      }
+
+      @Override
+      public Clock withZone(ZoneId zone) {
+         return this;
+      }
+
+      @Override
+      public long millis() {
+         return millis;
+      }
+
+      @Override
+      public Instant instant() {
+         return Instant.ofEpochMilli(millis);
+      }
+   }
+
+   /**
+    * Records the timeouts rather than running them on a timer thread.
+    */
+   private static class ManualScheduler extends HashedWheelScheduler {
+      private final List<Runnable> tasks = new ArrayList<>();
+      private final List<Long> delays = new ArrayList<>();
+
+      ManualScheduler() {
+         super("test.ipcd.expirations");
+      }
+
+      @Override
+      public void start() {
+      }
+
+      @Override
+      public void stop() {
+      }
+
+      @Override
+      protected ScheduledTask doSchedule(Runnable task, Date time, long delay, TimeUnit unit) {
+         tasks.add(task);
+         delays.add(unit.toMillis(delay));
+         return new ScheduledTask() {
+            @Override
+            public boolean isPending() {
+               return tasks.contains(task);
+            }
+
+            @Override
+            public boolean cancel() {
+               int index = tasks.indexOf(task);
+               if(index < 0) {
+                  return false;
+               }
+               tasks.remove(index);
+               delays.remove(index);
+               return true;
+            }
+         };
+      }
+
+      int size() {
+         return tasks.size();
+      }
+
+      long nextDelayMs() {
+         return delays.get(0);
+      }
+
+      void runNext() {
+         delays.remove(0);
+         tasks.remove(0).run();
+      }
+   }
+}
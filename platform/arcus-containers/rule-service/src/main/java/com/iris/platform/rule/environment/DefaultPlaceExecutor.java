@@ -18,7 +18,7 @@
  */
 package com.iris.platform.rule.environment;
 
-import java.util.Iterator;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +30,7 @@ import org.apache.log4j.MDC;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Histogram;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.iris.common.rule.event.MessageReceivedEvent;
@@ -41,6 +42,7 @@ import com.iris.messages.MessageBody;
 import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
 import com.iris.messages.errors.Errors;
+import com.iris.metrics.IrisMetrics;
 import com.iris.platform.rule.RuleEnvironment;
 import com.iris.util.MdcContext;
 import com.iris.util.MdcContext.MdcContextReference;
@@ -50,6 +52,8 @@ import com.iris.util.MdcContext.MdcContextReference;
  */
 public class DefaultPlaceExecutor implements PlaceEnvironmentExecutor {
    private static final Logger logger = LoggerFactory.getLogger(DefaultPlaceExecutor.class);
+   // the number of handlers each event is delivered to
+   private static final Histogram FANOUT = IrisMetrics.metrics("rule.service").histogram("executor.dispatch.fanout");
 
    private static final Object EVENT_START = new Object() { @Override
    public String toString() { return "StartEvent"; } };
@@ -62,6 +66,7 @@ public class DefaultPlaceExecutor implements PlaceEnvironmentExecutor {
    private final ExecutorService executor;
 
    private volatile Map<Address, PlaceEventHandler> handlers;
+   private volatile PlaceEventIndex index;
    private volatile boolean running = false;
 
    public DefaultPlaceExecutor(
@@ -83,16 +88,18 @@ public class DefaultPlaceExecutor implements PlaceEnvironmentExecutor {
    //  is a circular dependency between the RuleExecutor and the RuleContext in
    //  order to enable scheduling
    public void setHandlers(List<PlaceEventHandler> handlers) {
+      Map<Address, PlaceEventHandler> temp;
       if(handlers.isEmpty()) {
-         this.handlers = new LinkedHashMap<Address, PlaceEventHandler>();
+         temp = new LinkedHashMap<Address, PlaceEventHandler>();
       }
       else {
-         Map<Address, PlaceEventHandler> temp = new LinkedHashMap<>(2 * handlers.size());
+         temp = new LinkedHashMap<>(2 * handlers.size());
          for(PlaceEventHandler handler: handlers) {
             temp.put(handler.getAddress(), handler);
          }
-         this.handlers = temp;
       }
+      this.index = new PlaceEventIndex(temp.values());
+      this.handlers = temp;
    }
    
    public RuleModelStore getModelStore() {
@@ -247,9 +254,16 @@ public class DefaultPlaceExecutor implements PlaceEnvironmentExecutor {
             models.update(message);
          }
    
-         Iterator<PlaceEventHandler> it = handlers.values().iterator();
-         while(it.hasNext()) {
-            PlaceEventHandler handler = it.next();
+         Map<Address, PlaceEventHandler> handlers = this.handlers; // de-reference volatile
+         PlaceEventIndex index = this.index;
+         BitSet targets = index.select(event);
+         FANOUT.update(targets.cardinality());
+         for(int i = targets.nextSetBit(0); i >= 0; i = targets.nextSetBit(i + 1)) {
+            PlaceEventHandler handler = index.get(i);
+            if(handler == null) {
+               // removed by an event dispatched while handling this one
+               continue;
+            }
             try {
                MDC.put(MdcContext.MDC_TARGET, handler.getAddress().getRepresentation());
                handler.onEvent(event);
@@ -257,7 +271,11 @@ public class DefaultPlaceExecutor implements PlaceEnvironmentExecutor {
                handler.getContext().logger().warn("Error dispatching [{}]", event, e);
             }
             if(handler.isDeleted()) {
-               it.remove();
+               index.remove(i);
+               handlers.remove(handler.getAddress());
+            }
+            else {
+               index.refresh(i);
             }
          }
       }
@@ -276,6 +294,11 @@ public class DefaultPlaceExecutor implements PlaceEnvironmentExecutor {
       finally {
          if(handler.isDeleted()) {
             handlers.remove(destination);
+            index.remove(handler);
+         }
+         else {
+            // enabling a rule may change what it is interested in
+            index.refresh(handler);
          }
       }
    }
@@ -18,9 +18,21 @@ package com.iris.platform.rule.environment;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.annotation.PreDestroy;
 
@@ -28,7 +40,9 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Optional;
 import com.google.common.base.Supplier;
 import com.google.common.cache.CacheBuilder;
@@ -36,54 +50,126 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import com.google.inject.name.Named;
+import com.iris.common.scheduler.ScheduledTask;
+import com.iris.core.dao.PlaceDAO;
 import com.iris.metrics.IrisMetricSet;
 import com.iris.metrics.IrisMetrics;
+import com.iris.platform.partition.PartitionChangedEvent;
+import com.iris.platform.partition.PartitionListener;
+import com.iris.platform.partition.Partitioner;
+import com.iris.platform.partition.PlatformPartition;
+import com.iris.util.ThreadPoolBuilder;
+import com.netflix.governator.annotations.WarmUp;
 
+/**
+ * Caches a running {@link PlaceEnvironmentExecutor} per place.  The cache is
+ * bounded by the total weight of the executors (see {@link PlaceExecutorRegistryConfig#getMaxWeight()})
+ * and by how long a place has gone without an event, evicted executors are
+ * stopped and will be re-loaded on the next event for that place.
+ * 
+ * Rules hold some wakeups only in memory (delays, non-persistent duration
+ * triggers), so an evicted executor with pending wakeups is parked rather
+ * than stopped and put back in the cache when the wakeup fires or the next
+ * event arrives.  Parked executors are ordered by their last wakeup, once that
+ * has passed they are stopped the next time an executor is parked, and at most
+ * {@link PlaceExecutorRegistryConfig#getMaxParked()} are kept.  Explicit stops,
+ * reloads and partition changes still stop a parked executor.
+ * 
+ * The registry also tracks the partitions assigned to this node, when a
+ * partition is removed all the places in it are stopped and when a
+ * partition is added its places are loaded in the background so the first
+ * events after a rebalance don't all have to wait on a load.
+ */
 @Singleton
-public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry {
+public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry, PartitionListener {
    private static final Logger logger = LoggerFactory.getLogger(DefaultPlaceExecutorRegistry.class);
 
-   @SuppressWarnings("unused")
    private final PlaceExecutorRegistryMetrics metrics;
    
-   // TODO move this into a config object
-   @Named("rule.executor.cache.exceptionCacheTimeoutMs") @Inject(optional = true)
-   private long exceptionCacheTimeoutMs = TimeUnit.MINUTES.toMillis(5);
-   @Named("rule.executor.cache.missingCacheTimeoutMs") @Inject(optional = true)
-   private long missingCacheTimeoutMs = TimeUnit.MINUTES.toMillis(5);
+   private final long exceptionCacheTimeoutMs;
+   private final long missingCacheTimeoutMs;
+   private final int maxParked;
    
    private final Clock clock;
    private final PlaceExecutorFactory factory;
+   private final Partitioner partitioner;
+   private final PlaceDAO placeDao;
+   private final ExecutorService prewarmExecutor;
    private final LoadingCache<UUID, CacheEntry> executors;
+   private final ConcurrentMap<UUID, PendingWakeups> wakeups = new ConcurrentHashMap<>();
+   // guarded by parked, parkedByDeadline holds the same entries ordered by their last wakeup
+   private final Map<UUID, ParkedExecutor> parked = new HashMap<>();
+   private final NavigableSet<ParkedExecutor> parkedByDeadline = new TreeSet<>();
+   
+   private volatile Set<Integer> partitions = ImmutableSet.of();
 
    @Inject
    public DefaultPlaceExecutorRegistry(
          Clock clock,
-         PlaceExecutorFactory factory
+         PlaceExecutorFactory factory,
+         Partitioner partitioner,
+         PlaceDAO placeDao,
+         PlaceExecutorRegistryConfig config
    ) {
       this.clock = clock;
       this.factory = factory;
-      this.executors =
+      this.partitioner = partitioner;
+      this.placeDao = placeDao;
+      this.exceptionCacheTimeoutMs = config.getExceptionCacheTimeoutMs();
+      this.missingCacheTimeoutMs = config.getMissingCacheTimeoutMs();
+      this.maxParked = config.getMaxParked();
+      this.prewarmExecutor =
+            new ThreadPoolBuilder()
+               .withCorePoolSize(config.getPrewarmConcurrency())
+               .withMaxPoolSize(config.getPrewarmConcurrency())
+               .withQueue(new LinkedBlockingQueue<>())
+               .withNameFormat("rule-prewarm-%d")
+               .withDaemon(true)
+               .build();
+      
+      CacheBuilder<Object, Object> builder =
             CacheBuilder
                .newBuilder()
-               .recordStats()
+               .recordStats();
+      if(config.getMaxWeight() > 0) {
+         builder
+            .maximumWeight(config.getMaxWeight())
+            .weigher((UUID placeId, CacheEntry entry) -> entry.getWeight());
+      }
+      if(config.getIdleTimeoutMs() > 0) {
+         builder.expireAfterAccess(config.getIdleTimeoutMs(), TimeUnit.MILLISECONDS);
+      }
+      this.executors =
+            builder
                .removalListener(new EvictionListener())
                .build(new Loader());
       this.metrics = new PlaceExecutorRegistryMetrics(IrisMetrics.metrics("rule.service"));
    }
    
+   @WarmUp
+   public void registerPartitionListener() {
+      partitioner.addPartitionListener(this);
+   }
+   
    @PreDestroy
    public void stop() {
+      prewarmExecutor.shutdownNow();
       clear();
    }
    
    public boolean isCached(UUID placeId) {
       return executors.getIfPresent(placeId) != null;
    }
+   
+   public boolean isParked(UUID placeId) {
+      synchronized(parked) {
+         return parked.containsKey(placeId);
+      }
+   }
 
    @Override
    public Optional<PlaceEnvironmentExecutor> getExecutor(UUID placeId) {
@@ -110,6 +196,8 @@ public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry {
    
    @Override
    public void reload(UUID placeId) {
+      // a parked executor is replaced just like a cached one
+      stopParked(placeId);
       CacheEntry entry = executors.getIfPresent(placeId);
       if(entry != null && entry.isPresent()) {
          final PlaceEnvironmentExecutor executor = entry.getExecutor();
@@ -144,8 +232,10 @@ public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry {
 
    @Override
    public boolean stop(UUID placeId) {
+      wakeups.remove(placeId);
+      boolean stopped = stopParked(placeId);
       if(executors.getIfPresent(placeId) == null) {
-         return false;
+         return stopped;
       }
       executors.invalidate(placeId);
       return true;
@@ -154,10 +244,167 @@ public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry {
    // FIXME this needs to also cancel out any pending timeouts
    @Override
    public void clear() {
+      wakeups.clear();
+      for(UUID placeId: getParkedPlaces()) {
+         stopParked(placeId);
+      }
       executors.invalidateAll();
    }
 
+   @Override
+   public void onWakeupScheduled(UUID placeId, ScheduledTask task, Instant runAt) {
+      wakeups.compute(placeId, (id, pending) -> {
+         if(pending == null) {
+            pending = new PendingWakeups();
+         }
+         else {
+            pending.removeFired();
+         }
+         pending.add(task, runAt);
+         return pending;
+      });
+   }
+
+   @Override
+   public void onPartitionsChanged(PartitionChangedEvent event) {
+      this.partitions =
+            event
+               .getPartitions()
+               .stream()
+               .map(PlatformPartition::getId)
+               .collect(Collectors.toSet());
+      if(!event.getRemovedPartitions().isEmpty()) {
+         evictRemovedPlaces();
+      }
+      logger.info("Prewarming rules for [{}] added partitions...", event.getAddedPartitions().size());
+      for(Integer partitionId: event.getAddedPartitions()) {
+         prewarmExecutor.execute(() -> prewarm(partitionId));
+      }
+   }
+
+   private boolean isAssigned(UUID placeId) {
+      return partitions.contains(partitioner.getPartitionForPlaceId(placeId).getId());
+   }
+
+   private void evictRemovedPlaces() {
+      int evicted = 0;
+      for(UUID placeId: executors.asMap().keySet()) {
+         if(!isAssigned(placeId)) {
+            wakeups.remove(placeId);
+            executors.invalidate(placeId);
+            evicted++;
+         }
+      }
+      for(UUID placeId: getParkedPlaces()) {
+         if(!isAssigned(placeId) && stopParked(placeId)) {
+            wakeups.remove(placeId);
+            evicted++;
+         }
+      }
+      metrics.onPartitionEvictions(evicted);
+      logger.info("Stopped [{}] places from removed partitions", evicted);
+   }
+
+   private void prewarm(int partitionId) {
+      try(Timer.Context context = metrics.startPrewarm()) {
+         placeDao
+            .streamByPartitionId(partitionId)
+            // the partition may have been re-assigned while this was queued or loading
+            .filter((place) -> partitions.contains(partitionId))
+            .forEach((place) -> {
+               if(!isCached(place.getId())) {
+                  start(place.getId());
+                  metrics.onPrewarmed();
+               }
+            });
+      }
+      catch(Exception e) {
+         logger.warn("Error prewarming rules for partition [{}]", partitionId, e);
+      }
+   }
+
+   // the time of the last pending wakeup for the place, or null if there are none
+   @Nullable
+   private Instant getLastPendingWakeup(UUID placeId) {
+      PendingWakeups pending = wakeups.computeIfPresent(placeId, (id, p) -> p.removeFired() ? null : p);
+      return pending != null ? pending.getLast() : null;
+   }
+
+   private void park(UUID placeId, PlaceEnvironmentExecutor executor, Instant lastWakeup) {
+      List<PlaceEnvironmentExecutor> stopped = new ArrayList<>();
+      synchronized(parked) {
+         PlaceEnvironmentExecutor previous = unpark(placeId);
+         if(previous != null && previous != executor) {
+            stopped.add(previous);
+         }
+         ParkedExecutor entry = new ParkedExecutor(placeId, executor, lastWakeup);
+         parked.put(placeId, entry);
+         parkedByDeadline.add(entry);
+
+         // anything whose last wakeup has passed was either restored when it fired or cancelled
+         Instant now = clock.instant();
+         while(!parkedByDeadline.isEmpty()) {
+            ParkedExecutor first = parkedByDeadline.first();
+            if(first.lastWakeup.isAfter(now) || getLastPendingWakeup(first.placeId) != null) {
+               break;
+            }
+            stopped.add(unpark(first.placeId));
+         }
+         while(parked.size() > maxParked) {
+            stopped.add(unpark(parkedByDeadline.last().placeId));
+            metrics.onParkedDropped();
+         }
+      }
+      for(PlaceEnvironmentExecutor e: stopped) {
+         stopExecutor(e);
+      }
+   }
+
+   // must be called while holding the lock on parked
+   @Nullable
+   private PlaceEnvironmentExecutor unpark(UUID placeId) {
+      ParkedExecutor entry = parked.remove(placeId);
+      if(entry == null) {
+         return null;
+      }
+      parkedByDeadline.remove(entry);
+      return entry.executor;
+   }
+
+   private boolean stopParked(UUID placeId) {
+      PlaceEnvironmentExecutor executor;
+      synchronized(parked) {
+         executor = unpark(placeId);
+      }
+      if(executor == null) {
+         return false;
+      }
+      stopExecutor(executor);
+      return true;
+   }
+
+   private Set<UUID> getParkedPlaces() {
+      synchronized(parked) {
+         return ImmutableSet.copyOf(parked.keySet());
+      }
+   }
+
+   private int getParkedCount() {
+      synchronized(parked) {
+         return parked.size();
+      }
+   }
+
    private CacheEntry startEnvironment(UUID placeId) {
+      PlaceEnvironmentExecutor restored;
+      synchronized(parked) {
+         restored = unpark(placeId);
+      }
+      if(restored != null) {
+         metrics.onRestored();
+         return positiveCache(restored);
+      }
+
       try {
          PlaceEnvironmentExecutor executor = factory.load(placeId);
          if(executor == null) {
@@ -188,18 +435,33 @@ public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry {
    }
    
    private CacheEntry negativeCache(long expirationDurationMs) {
-      return new CacheEntry(null, clock.instant().plus(expirationDurationMs, ChronoUnit.MILLIS));
+      return new CacheEntry(null, clock.instant().plus(expirationDurationMs, ChronoUnit.MILLIS), 1);
    }
    
    private CacheEntry positiveCache(PlaceEnvironmentExecutor executor) {
-      return new CacheEntry(executor, null);
+      return new CacheEntry(executor, null, weigh(executor));
+   }
+   
+   // approximates the memory held by an executor, this is only calculated when it is (re)loaded
+   private int weigh(PlaceEnvironmentExecutor executor) {
+      try {
+         PlaceEnvironmentStatistics stats = executor.getStatistics();
+         RuleModelStore models = executor.getModelStore();
+         return 1 + stats.getRules() + stats.getScenes() + (models != null ? models.getModels().size() : 0);
+      }
+      catch(Exception e) {
+         logger.warn("Unable to determine size of rule executor", e);
+         return 1;
+      }
    }
    
    private class Loader extends CacheLoader<UUID, CacheEntry> {
 
       @Override
       public CacheEntry load(UUID placeId) throws Exception {
-         return startEnvironment(placeId);
+         try(Timer.Context context = metrics.startLoad()) {
+            return startEnvironment(placeId);
+         }
       }
       
    }
@@ -208,22 +470,73 @@ public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry {
 
       @Override
       public void onRemoval(RemovalNotification<UUID, CacheEntry> notification) {
+         metrics.onRemoval(notification);
          CacheEntry entry = notification.getValue();
-         if(entry.isPresent()) {
+         if(!entry.isPresent()) {
+            return;
+         }
+         Instant lastWakeup = notification.wasEvicted() && maxParked > 0 ? getLastPendingWakeup(notification.getKey()) : null;
+         if(lastWakeup != null) {
+            park(notification.getKey(), entry.getExecutor(), lastWakeup);
+         }
+         else {
             stopExecutor(entry.getExecutor());
          }
       }
       
    }
    
+   private static class PendingWakeups {
+      private final Set<ScheduledTask> tasks = ConcurrentHashMap.newKeySet();
+      // only updated by wakeups.compute, so adds for the same place are serialized
+      private volatile Instant last = Instant.MIN;
+
+      void add(ScheduledTask task, Instant runAt) {
+         tasks.add(task);
+         if(runAt.isAfter(last)) {
+            last = runAt;
+         }
+      }
+
+      // returns true if there are no pending wakeups left
+      boolean removeFired() {
+         tasks.removeIf((t) -> !t.isPending());
+         return tasks.isEmpty();
+      }
+
+      Instant getLast() {
+         return last;
+      }
+   }
+
+   private static class ParkedExecutor implements Comparable<ParkedExecutor> {
+      private final UUID placeId;
+      private final PlaceEnvironmentExecutor executor;
+      private final Instant lastWakeup;
+
+      ParkedExecutor(UUID placeId, PlaceEnvironmentExecutor executor, Instant lastWakeup) {
+         this.placeId = placeId;
+         this.executor = executor;
+         this.lastWakeup = lastWakeup;
+      }
+
+      @Override
+      public int compareTo(ParkedExecutor o) {
+         int result = lastWakeup.compareTo(o.lastWakeup);
+         return result != 0 ? result : placeId.compareTo(o.placeId);
+      }
+   }
+
    private class CacheEntry {
       
       private final Optional<PlaceEnvironmentExecutor> executorRef;
       private Instant validUntil;
+      private final int weight;
       
-      CacheEntry(@Nullable PlaceEnvironmentExecutor executor, @Nullable Instant validUntil) {
+      CacheEntry(@Nullable PlaceEnvironmentExecutor executor, @Nullable Instant validUntil, int weight) {
          this.executorRef = Optional.fromNullable(executor);
          this.validUntil = validUntil;
+         this.weight = weight;
       }
       
       // returns false for expired negative cache entries
@@ -247,6 +560,10 @@ public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry {
       public Optional<PlaceEnvironmentExecutor> getExecutorRef() {
          return executorRef;
       }
+      
+      public int getWeight() {
+         return weight;
+      }
 
    }
    
@@ -255,9 +572,26 @@ public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry {
       private Histogram activeRulesPerPlace;
       private Histogram scenesPerPlace;
       private Histogram activeScenesPerPlace;
+      private final Timer loadTime;
+      private final Timer prewarmTime;
+      private final Counter prewarmed;
+      private final Counter evictedSize;
+      private final Counter evictedIdle;
+      private final Counter evictedPartition;
+      private final Counter restored;
+      private final Counter parkedDropped;
       
       PlaceExecutorRegistryMetrics(IrisMetricSet metrics) {
+         this.loadTime = metrics.timer("executor.load");
+         this.prewarmTime = metrics.timer("partition.prewarm");
+         this.prewarmed = metrics.counter("executor.prewarmed");
+         this.evictedSize = metrics.counter("executor.evicted.size");
+         this.evictedIdle = metrics.counter("executor.evicted.idle");
+         this.evictedPartition = metrics.counter("executor.evicted.partition");
+         this.restored = metrics.counter("executor.restored");
+         this.parkedDropped = metrics.counter("executor.parked.dropped");
          metrics.gauge("places", (Supplier<Integer>) () -> sample());
+         metrics.gauge("places.parked", (Supplier<Integer>) () -> getParkedCount());
          metrics.monitor("executor.cache", executors);
          // explicitly specify reset on snapshot reservoir because this is really a gauge, so
          // accumulating samples across snapshots doesn't make a lot of sense
@@ -267,6 +601,44 @@ public class DefaultPlaceExecutorRegistry implements PlaceExecutorRegistry {
          this.activeScenesPerPlace = metrics.histogram("scenes.active", IrisMetrics.hdrHistogramResetOnSnapshotReservoir());
       }
       
+      public Timer.Context startLoad() {
+         return loadTime.time();
+      }
+      
+      public Timer.Context startPrewarm() {
+         return prewarmTime.time();
+      }
+      
+      public void onPrewarmed() {
+         prewarmed.inc();
+      }
+      
+      public void onRestored() {
+         restored.inc();
+      }
+      
+      public void onParkedDropped() {
+         parkedDropped.inc();
+      }
+      
+      public void onPartitionEvictions(int count) {
+         evictedPartition.inc(count);
+      }
+      
+      public void onRemoval(RemovalNotification<UUID, CacheEntry> notification) {
+         switch(notification.getCause()) {
+         case SIZE:
+            evictedSize.inc();
+            break;
+         case EXPIRED:
+            evictedIdle.inc();
+            break;
+         default:
+            // explicit stops, reloads and partition changes
+            break;
+         }
+      }
+      
       public int sample() {
          int places = 0;
          for(CacheEntry entry: executors.asMap().values()) {
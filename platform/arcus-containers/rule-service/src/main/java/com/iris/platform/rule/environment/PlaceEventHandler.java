@@ -16,6 +16,7 @@
 package com.iris.platform.rule.environment;
 
 import com.iris.common.rule.Context;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.messages.MessageBody;
 import com.iris.messages.PlatformMessage;
@@ -37,6 +38,15 @@ public interface PlaceEventHandler {
    
    void onEvent(RuleEvent event);
    
+   /**
+    * The value changes and messages that should currently be passed to
+    * {@link #onEvent(RuleEvent)}, this is re-checked after each event
+    * and request is delivered.
+    */
+   default EventInterest getEventInterest() {
+      return EventInterest.ALL;
+   }
+   
    MessageBody handleRequest(PlatformMessage message);
 }
 
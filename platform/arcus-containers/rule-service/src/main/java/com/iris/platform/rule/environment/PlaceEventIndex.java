@@ -0,0 +1,164 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.rule.environment;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.iris.common.rule.event.AttributeValueChangedEvent;
+import com.iris.common.rule.event.EventInterest;
+import com.iris.common.rule.event.RuleEvent;
+
+/**
+ * An inverted index from attribute names and received messages to the
+ * {@link PlaceEventHandler}s that declared an interest in them.  Handlers
+ * are numbered in the order they were added and events are always
+ * delivered in that order.
+ * 
+ * This is not thread safe, it should only be accessed from the executor's
+ * dispatch thread.
+ */
+class PlaceEventIndex {
+   private final PlaceEventHandler[] handlers;
+   private final EventInterest[] interests;
+   private final Map<PlaceEventHandler, Integer> ordinals;
+   private final BitSet live;
+   private final BitSet anyAttribute = new BitSet();
+   private final BitSet messages = new BitSet();
+   private final Map<String, BitSet> byAttribute = new HashMap<>();
+
+   PlaceEventIndex(Collection<PlaceEventHandler> handlers) {
+      int size = handlers.size();
+      this.handlers = handlers.toArray(new PlaceEventHandler[size]);
+      this.interests = new EventInterest[size];
+      this.ordinals = new IdentityHashMap<>(size);
+      this.live = new BitSet(size);
+      for(int i = 0; i < size; i++) {
+         ordinals.put(this.handlers[i], i);
+         live.set(i);
+         index(i, this.handlers[i].getEventInterest());
+      }
+   }
+
+   int size() {
+      return live.cardinality();
+   }
+
+   @Nullable
+   PlaceEventHandler get(int ordinal) {
+      return handlers[ordinal];
+   }
+
+   /**
+    * The ordinals of the handlers which should receive the event.  The
+    * result is a copy, so the index may be modified while it is iterated.
+    */
+   BitSet select(RuleEvent event) {
+      switch(event.getType()) {
+      case ATTRIBUTE_VALUE_CHANGED:
+         BitSet selected = (BitSet) anyAttribute.clone();
+         BitSet named = byAttribute.get(((AttributeValueChangedEvent) event).getAttributeName());
+         if(named != null) {
+            selected.or(named);
+         }
+         return selected;
+      case MESSAGE_RECEIVED:
+         return (BitSet) messages.clone();
+      default:
+         return (BitSet) live.clone();
+      }
+   }
+
+   /**
+    * Re-reads the handler's interest and updates the index if it changed.
+    */
+   void refresh(int ordinal) {
+      PlaceEventHandler handler = handlers[ordinal];
+      if(handler == null) {
+         return;
+      }
+      EventInterest interest = handler.getEventInterest();
+      if(!interest.equals(interests[ordinal])) {
+         unindex(ordinal);
+         index(ordinal, interest);
+      }
+   }
+
+   void refresh(PlaceEventHandler handler) {
+      Integer ordinal = ordinals.get(handler);
+      if(ordinal != null) {
+         refresh(ordinal);
+      }
+   }
+
+   void remove(int ordinal) {
+      PlaceEventHandler handler = handlers[ordinal];
+      if(handler == null) {
+         return;
+      }
+      unindex(ordinal);
+      live.clear(ordinal);
+      ordinals.remove(handler);
+      handlers[ordinal] = null;
+   }
+
+   void remove(PlaceEventHandler handler) {
+      Integer ordinal = ordinals.get(handler);
+      if(ordinal != null) {
+         remove(ordinal);
+      }
+   }
+
+   private void index(int ordinal, EventInterest interest) {
+      interests[ordinal] = interest;
+      if(interest.isAllAttributes()) {
+         anyAttribute.set(ordinal);
+      }
+      else {
+         for(String attribute: interest.getAttributes()) {
+            byAttribute.computeIfAbsent(attribute, (name) -> new BitSet()).set(ordinal);
+         }
+      }
+      if(interest.isMessages()) {
+         messages.set(ordinal);
+      }
+   }
+
+   private void unindex(int ordinal) {
+      EventInterest interest = interests[ordinal];
+      if(interest == null) {
+         return;
+      }
+      anyAttribute.clear(ordinal);
+      messages.clear(ordinal);
+      for(String attribute: interest.getAttributes()) {
+         BitSet named = byAttribute.get(attribute);
+         if(named != null) {
+            named.clear(ordinal);
+            if(named.isEmpty()) {
+               byAttribute.remove(attribute);
+            }
+         }
+      }
+      interests[ordinal] = null;
+   }
+
+}
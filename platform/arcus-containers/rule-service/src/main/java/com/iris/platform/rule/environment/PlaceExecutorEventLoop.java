@@ -18,6 +18,7 @@
  */
 package com.iris.platform.rule.environment;
 
+import java.time.Instant;
 import java.util.Date;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -78,7 +79,9 @@ public class PlaceExecutorEventLoop {
    }
 
    public ScheduledTask scheduleDelayed(UUID placeId, ScheduledEvent event, long timeout, TimeUnit unit) {
-      return scheduler.scheduleDelayed(() -> submit(placeId, event), timeout, unit);
+      ScheduledTask task = scheduler.scheduleDelayed(() -> submit(placeId, event), timeout, unit);
+      registry.onWakeupScheduled(placeId, task, Instant.now().plusMillis(unit.toMillis(timeout)));
+      return task;
    }
 
    /**
@@ -89,7 +92,9 @@ public class PlaceExecutorEventLoop {
     * @see com.iris.common.scheduler.Scheduler#scheduleAt(com.google.common.base.Function, java.lang.Object, java.util.Date)
     */
    public <I> ScheduledTask scheduleAt(UUID placeId, ScheduledEvent event, Date runAt) {
-      return scheduler.scheduleAt(() -> submit(placeId, event), runAt);
+      ScheduledTask task = scheduler.scheduleAt(() -> submit(placeId, event), runAt);
+      registry.onWakeupScheduled(placeId, task, runAt.toInstant());
+      return task;
    }
    
 }
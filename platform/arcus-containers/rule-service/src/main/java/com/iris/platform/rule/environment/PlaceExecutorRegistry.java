@@ -15,9 +15,11 @@
  */
 package com.iris.platform.rule.environment;
 
+import java.time.Instant;
 import java.util.UUID;
 
 import com.google.common.base.Optional;
+import com.iris.common.scheduler.ScheduledTask;
 
 public interface PlaceExecutorRegistry {
 
@@ -30,5 +32,11 @@ public interface PlaceExecutorRegistry {
    boolean stop(UUID placeId);
 
    void clear();
+
+   /**
+    * Tracks a wakeup scheduled to run at {@code runAt} for the place, an executor
+    * is not stopped by eviction while it has pending wakeups.
+    */
+   void onWakeupScheduled(UUID placeId, ScheduledTask task, Instant runAt);
 }
 
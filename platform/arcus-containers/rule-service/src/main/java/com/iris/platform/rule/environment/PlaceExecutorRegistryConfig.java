@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.rule.environment;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+public class PlaceExecutorRegistryConfig {
+   public static final String PROP_EXCEPTION_CACHE_TIMEOUT_MS = "rule.executor.cache.exceptionCacheTimeoutMs";
+   public static final String PROP_MISSING_CACHE_TIMEOUT_MS = "rule.executor.cache.missingCacheTimeoutMs";
+   public static final String PROP_MAX_WEIGHT = "rule.executor.cache.maxWeight";
+   public static final String PROP_IDLE_TIMEOUT_MS = "rule.executor.cache.idleTimeoutMs";
+   public static final String PROP_MAX_PARKED = "rule.executor.cache.maxParked";
+   public static final String PROP_PREWARM_CONCURRENCY = "rule.executor.prewarm.concurrency";
+
+   @Inject(optional = true) @Named(PROP_EXCEPTION_CACHE_TIMEOUT_MS)
+   private long exceptionCacheTimeoutMs = TimeUnit.MINUTES.toMillis(5);
+   @Inject(optional = true) @Named(PROP_MISSING_CACHE_TIMEOUT_MS)
+   private long missingCacheTimeoutMs = TimeUnit.MINUTES.toMillis(5);
+   /**
+    * The total weight of all cached executors, where each executor weighs
+    * one plus its number of rules, scenes and models.  A value of 0 or less
+    * disables the bound.
+    */
+   @Inject(optional = true) @Named(PROP_MAX_WEIGHT)
+   private long maxWeight = 2_000_000;
+   /**
+    * How long an executor may go without receiving an event before it is
+    * stopped.  A value of 0 or less disables idle expiration.
+    */
+   @Inject(optional = true) @Named(PROP_IDLE_TIMEOUT_MS)
+   private long idleTimeoutMs = TimeUnit.HOURS.toMillis(6);
+   /**
+    * The maximum number of evicted executors kept running because they have
+    * pending wakeups, past this the executor with the latest wakeup is stopped.
+    * A value of 0 or less stops every evicted executor.
+    */
+   @Inject(optional = true) @Named(PROP_MAX_PARKED)
+   private int maxParked = 10_000;
+   /**
+    * The maximum number of places loaded concurrently when new partitions
+    * are assigned to this node.
+    */
+   @Inject(optional = true) @Named(PROP_PREWARM_CONCURRENCY)
+   private int prewarmConcurrency = 4;
+
+   public long getExceptionCacheTimeoutMs() {
+      return exceptionCacheTimeoutMs;
+   }
+
+   public void setExceptionCacheTimeoutMs(long exceptionCacheTimeoutMs) {
+      this.exceptionCacheTimeoutMs = exceptionCacheTimeoutMs;
+   }
+
+   public long getMissingCacheTimeoutMs() {
+      return missingCacheTimeoutMs;
+   }
+
+   public void setMissingCacheTimeoutMs(long missingCacheTimeoutMs) {
+      this.missingCacheTimeoutMs = missingCacheTimeoutMs;
+   }
+
+   public long getMaxWeight() {
+      return maxWeight;
+   }
+
+   public void setMaxWeight(long maxWeight) {
+      this.maxWeight = maxWeight;
+   }
+
+   public long getIdleTimeoutMs() {
+      return idleTimeoutMs;
+   }
+
+   public void setIdleTimeoutMs(long idleTimeoutMs) {
+      this.idleTimeoutMs = idleTimeoutMs;
+   }
+
+   public int getMaxParked() {
+      return maxParked;
+   }
+
+   public void setMaxParked(int maxParked) {
+      this.maxParked = maxParked;
+   }
+
+   public int getPrewarmConcurrency() {
+      return prewarmConcurrency;
+   }
+
+   public void setPrewarmConcurrency(int prewarmConcurrency) {
+      this.prewarmConcurrency = prewarmConcurrency;
+   }
+
+}
@@ -30,6 +30,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.iris.common.rule.RuleContext;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.ScheduledEvent;
@@ -141,6 +142,11 @@ public class PlatformRuleContext extends BaseRuleContext implements RuleContext
       return models.getModels();
    }
 
+   @Override
+   public Iterable<Model> getModels(Predicate<? super Model> predicate) {
+      return models.getModels(predicate);
+   }
+
    @Override
    @Nullable
    public Model getModelByAddress(Address address) {
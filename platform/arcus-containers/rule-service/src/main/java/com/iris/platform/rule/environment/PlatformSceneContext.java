@@ -31,6 +31,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.iris.common.rule.action.ActionContext;
 import com.iris.common.rule.event.ScheduledEventHandle;
@@ -151,6 +152,11 @@ public class PlatformSceneContext implements SceneContext {
       return models.getModels();
    }
 
+   @Override
+   public Iterable<Model> getModels(Predicate<? super Model> predicate) {
+      return models.getModels(predicate);
+   }
+
    @Override
    @Nullable
    public Model getModelByAddress(Address address) {
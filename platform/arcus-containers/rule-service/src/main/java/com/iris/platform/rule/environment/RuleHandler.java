@@ -25,6 +25,7 @@ import com.google.common.collect.ImmutableMap;
 import com.iris.common.rule.Rule;
 import com.iris.common.rule.RuleContext;
 import com.iris.common.rule.event.AttributeValueChangedEvent;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.messages.MessageBody;
 import com.iris.messages.PlatformMessage;
@@ -46,6 +47,7 @@ import com.iris.platform.rule.RuleDefinition;
 // TODO set attributes should be handled here as well
 public class RuleHandler implements PlaceEventHandler {
    private static final Logger logger = LoggerFactory.getLogger(RuleHandler.class);
+   private static final EventInterest SERVICE_LEVEL = EventInterest.attributes(PlaceCapability.ATTR_SERVICELEVEL);
    
    private Rule rule;
    // TODO just use the rule from the model store...
@@ -55,6 +57,9 @@ public class RuleHandler implements PlaceEventHandler {
    // last known state of satisfiability
    private boolean satisfiable;
    private boolean premium;
+   // the rule's interest and that merged with the service level
+   private EventInterest ruleInterest;
+   private EventInterest interest;
    
    public RuleHandler(Rule rule, RuleDefinition definition, RuleDao ruleDao, boolean premium) {
       this.rule = rule;
@@ -164,6 +169,20 @@ public class RuleHandler implements PlaceEventHandler {
       }
    }
    
+   public EventInterest getEventInterest() {
+      // until the rule has been seen to be satisfiable every event is
+      // passed through so that it is re-checked as the models change
+      if(!satisfiable) {
+         return EventInterest.ALL;
+      }
+      EventInterest ruleInterest = rule.getEventInterest();
+      if(!ruleInterest.equals(this.ruleInterest)) {
+         this.ruleInterest = ruleInterest;
+         this.interest = ruleInterest.union(SERVICE_LEVEL);
+      }
+      return interest;
+   }
+   
    private void syncOrReload(){
       //TODO: need to catch the exception and reload the rule
       try{
@@ -25,6 +25,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.iris.common.rule.action.Action;
 import com.iris.common.rule.event.AttributeValueChangedEvent;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.ModelRemovedEvent;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.scene.Scene;
@@ -147,6 +148,12 @@ public class SceneHandler implements PlaceEventHandler {
       }
    }
    
+   public EventInterest getEventInterest() {
+      // availability depends on the models, which can be affected by any
+      // attribute, but scenes never act on received messages
+      return EventInterest.allAttributes();
+   }
+   
    // TODO collapse this all into the dispatcher
    public MessageBody handleRequest(PlatformMessage message) {
       try {
@@ -38,7 +38,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.codahale.metrics.Timer;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -47,7 +46,6 @@ import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.iris.common.rule.RuleContext;
 import com.iris.common.rule.simple.SimpleContext;
-import com.iris.core.dao.PlaceDAO;
 import com.iris.core.platform.AbstractPlatformMessageListener;
 import com.iris.core.platform.PlatformMessageBus;
 import com.iris.messages.ErrorEvent;
@@ -67,12 +65,7 @@ import com.iris.messages.errors.NotFoundException;
 import com.iris.messages.errors.UnauthorizedRequestException;
 import com.iris.messages.model.Model;
 import com.iris.messages.services.PlatformConstants;
-import com.iris.metrics.IrisMetrics;
 import com.iris.platform.model.ModelDao;
-import com.iris.platform.partition.PartitionChangedEvent;
-import com.iris.platform.partition.PartitionListener;
-import com.iris.platform.partition.Partitioner;
-import com.iris.platform.partition.PlatformPartition;
 import com.iris.platform.rule.RuleDao;
 import com.iris.platform.rule.RuleDefinition;
 import com.iris.platform.rule.RuleEnvironmentDao;
@@ -91,19 +84,15 @@ import com.iris.validators.ValidationException;
  *
  */
 @Singleton
-public class RuleService extends AbstractPlatformMessageListener implements PartitionListener {
+public class RuleService extends AbstractPlatformMessageListener {
    public static final String PROP_THREADPOOL = "service.rule.threadpool";
    
    private static final Logger logger = LoggerFactory.getLogger(RuleService.class);
 
-   private final Timer partitionLoadTimer;
-   
    private final RuleEnvironmentDao ruleDao;
    private final PlatformMessageBus platformBus;
-   private final Partitioner partitioner;
    private final RuleDao ruleDefDao;
    private final ModelDao modelDao;
-   private final PlaceDAO placeDao;
    private final RuleCatalogLoader catalogs;
    private final PlaceExecutorRegistry registry;   
    private final ListHistoryEntriesHandler listHistoryEntries;
@@ -114,24 +103,18 @@ public class RuleService extends AbstractPlatformMessageListener implements Part
          @Named(PROP_THREADPOOL) Executor executor,
          RuleEnvironmentDao ruleDao,
          PlatformMessageBus platformBus,
-         Partitioner partitioner,
          RuleDao ruleDefDao,
          ModelDao modelDao,
-         PlaceDAO placeDao,
          RuleCatalogLoader catalogs,
          PlaceExecutorRegistry environments,
          ListHistoryEntriesHandler listHistoryEntries,
          PlacePopulationCacheManager populationCacheMgr
    ) {
       super(platformBus, executor);
-      this.partitionLoadTimer = IrisMetrics.metrics("service.rules").timer("partitionloadtime");
-      
       this.ruleDao = ruleDao;
       this.platformBus = platformBus;
-      this.partitioner = partitioner;
       this.ruleDefDao = ruleDefDao;
       this.modelDao = modelDao;
-      this.placeDao = placeDao;
       this.catalogs = catalogs;
       this.registry = environments;      
       this.listHistoryEntries = listHistoryEntries;
@@ -140,9 +123,6 @@ public class RuleService extends AbstractPlatformMessageListener implements Part
 
    @Override
    protected void onStart() {
-      partitioner.addPartitionListener(this);
-
-      // then start listening
       listen();
    }
 
@@ -154,15 +134,6 @@ public class RuleService extends AbstractPlatformMessageListener implements Part
       );
    }
    
-   @Override
-   public void onPartitionsChanged(PartitionChangedEvent event) {
-      logger.info("Loading rules for [{}] partitions...", event.getPartitions().size());
-      registry.clear();
-      for(PlatformPartition partition: event.getPartitions()) {
-         executor().execute(() -> loadRulesByPartition(partition));
-      }
-   }
-
    @Override
    protected void handleEvent(PlatformMessage message) {
 
@@ -272,14 +243,6 @@ public class RuleService extends AbstractPlatformMessageListener implements Part
       return super.handleRequest(message);
    }
 
-   protected void loadRulesByPartition(PlatformPartition partition) {
-      try(Timer.Context context = partitionLoadTimer.time()) {
-         placeDao
-            .streamByPartitionId(partition.getId())
-            .forEach((place) -> registry.start(place.getId()));
-      }
-   }
-
    // TODO optimize this
    private UUID getPlaceId(PlatformMessage message) {
       String placeId = message.getPlaceId();
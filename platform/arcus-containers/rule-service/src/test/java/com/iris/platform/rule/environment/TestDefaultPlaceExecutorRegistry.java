@@ -21,8 +21,11 @@ package com.iris.platform.rule.environment;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.stream.Stream;
 
 import org.easymock.Capture;
 import org.easymock.CaptureType;
@@ -31,16 +34,24 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.junit.Test;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
 import com.google.inject.Inject;
+import com.iris.common.scheduler.ScheduledTask;
+import com.iris.core.dao.PlaceDAO;
 import com.iris.core.dao.exception.DaoException;
+import com.iris.messages.model.Place;
+import com.iris.platform.partition.DefaultPartition;
+import com.iris.platform.partition.PartitionChangedEvent;
+import com.iris.platform.partition.Partitioner;
+import com.iris.platform.partition.PlatformPartition;
 import com.iris.test.IrisMockTestCase;
 import com.iris.test.Mocks;
 
 /**
  * 
  */
-@Mocks({ Clock.class, PlaceExecutorFactory.class, PlaceEnvironmentExecutor.class })
+@Mocks({ Clock.class, PlaceExecutorFactory.class, PlaceEnvironmentExecutor.class, Partitioner.class, PlaceDAO.class })
 public class TestDefaultPlaceExecutorRegistry extends IrisMockTestCase {
 
    // unit under test
@@ -50,6 +61,8 @@ public class TestDefaultPlaceExecutorRegistry extends IrisMockTestCase {
    @Inject Clock mockClock;
    @Inject PlaceExecutorFactory mockExecutorFactory;
    @Inject PlaceEnvironmentExecutor mockExecutor;
+   @Inject Partitioner mockPartitioner;
+   @Inject PlaceDAO mockPlaceDao;
 
    // fixture data
    UUID placeId;
@@ -89,6 +102,7 @@ public class TestDefaultPlaceExecutorRegistry extends IrisMockTestCase {
             }
          })
          .anyTimes();
+      expectStatistics(mockExecutor);
    }
    
    @Override
@@ -239,6 +253,7 @@ public class TestDefaultPlaceExecutorRegistry extends IrisMockTestCase {
       PlaceEnvironmentExecutor nu = EasyMock.createMock(PlaceEnvironmentExecutor.class);
       expectLoadPlace(placeId);
       expectReloadPlaceAndReturn(placeId, nu);
+      expectStatistics(nu);
       replay();
       EasyMock.replay(nu);
       
@@ -381,6 +396,7 @@ public class TestDefaultPlaceExecutorRegistry extends IrisMockTestCase {
       reset();
       
       {
+         expectStatistics(mockExecutor);
          expectLoadPlace(placeId);
          replay();
       
@@ -397,6 +413,185 @@ public class TestDefaultPlaceExecutorRegistry extends IrisMockTestCase {
       }
    }
 
+   @Test
+   public void testPartitionRemovedStopsPlaces() {
+      UUID otherPlaceId = UUID.randomUUID();
+      expectLoadPlace(placeId);
+      expectPlaceNotFound(otherPlaceId);
+      expectPartitionForPlace(placeId, 1);
+      expectPartitionForPlace(otherPlaceId, 0);
+      expectExecutorStop();
+      replay();
+      
+      registry.start(placeId);
+      registry.start(otherPlaceId);
+      registry.onPartitionsChanged(partitionsChanged(ImmutableSet.of(0), ImmutableSet.of(), ImmutableSet.of(1)));
+      
+      assertFalse(registry.isCached(placeId));
+      assertTrue(registry.isCached(otherPlaceId));
+      
+      verify();
+   }
+   
+   @Test
+   public void testPartitionAddedPrewarmsPlaces() throws Exception {
+      Place place = new Place();
+      place.setId(placeId);
+      expectLoadPlace(placeId);
+      EasyMock
+         .expect(mockPlaceDao.streamByPartitionId(1))
+         .andAnswer(() -> Stream.of(place))
+         .once();
+      replay();
+      
+      registry.onPartitionsChanged(partitionsChanged(ImmutableSet.of(1), ImmutableSet.of(1), ImmutableSet.of()));
+      
+      long deadline = System.currentTimeMillis() + 5000;
+      while(!registry.isCached(placeId) && System.currentTimeMillis() < deadline) {
+         Thread.sleep(10);
+      }
+      assertTrue(registry.isCached(placeId));
+      assertTrue(registry.getExecutor(placeId).isPresent());
+      
+      verify();
+   }
+
+   @Test
+   public void testEvictionParksPlaceWithPendingWakeup() {
+      UUID otherPlaceId = UUID.randomUUID();
+      WakeupTask wakeup = new WakeupTask();
+      expectLoadPlace(placeId);
+      expectPlaceNotFound(otherPlaceId);
+      replay();
+      
+      DefaultPlaceExecutorRegistry registry = boundedRegistry();
+      registry.start(placeId);
+      registry.onWakeupScheduled(placeId, wakeup, inOneMinute());
+      // pushes placeId out of the cache
+      registry.start(otherPlaceId);
+      assertFalse(registry.isCached(placeId));
+      assertTrue(registry.isParked(placeId));
+      
+      // the wakeup is delivered to the same executor without re-loading it
+      wakeup.pending = false;
+      assertSame(mockExecutor, registry.getExecutor(placeId).get());
+      assertTrue(registry.isCached(placeId));
+      assertFalse(registry.isParked(placeId));
+      
+      verify();
+   }
+   
+   @Test
+   public void testEvictionStopsPlaceWithoutPendingWakeup() {
+      UUID otherPlaceId = UUID.randomUUID();
+      WakeupTask wakeup = new WakeupTask();
+      wakeup.pending = false;
+      expectLoadPlace(placeId);
+      expectPlaceNotFound(otherPlaceId);
+      expectExecutorStop();
+      replay();
+      
+      DefaultPlaceExecutorRegistry registry = boundedRegistry();
+      registry.start(placeId);
+      registry.onWakeupScheduled(placeId, wakeup, inOneMinute());
+      registry.start(otherPlaceId);
+      assertFalse(registry.isCached(placeId));
+      assertFalse(registry.isParked(placeId));
+      
+      verify();
+   }
+   
+   @Test
+   public void testStopParkedPlace() {
+      UUID otherPlaceId = UUID.randomUUID();
+      expectLoadPlace(placeId);
+      expectPlaceNotFound(otherPlaceId);
+      expectExecutorStop();
+      replay();
+      
+      DefaultPlaceExecutorRegistry registry = boundedRegistry();
+      registry.start(placeId);
+      registry.onWakeupScheduled(placeId, new WakeupTask(), inOneMinute());
+      registry.start(otherPlaceId);
+      assertTrue(registry.isParked(placeId));
+      
+      assertTrue(registry.stop(placeId));
+      assertFalse(registry.isParked(placeId));
+      assertFalse(registry.isCached(placeId));
+      
+      verify();
+   }
+
+   @Test
+   public void testParkedPlacesArePrunedAfterLastWakeup() {
+      UUID otherPlaceId = UUID.randomUUID();
+      UUID thirdPlaceId = UUID.randomUUID();
+      WakeupTask wakeup = new WakeupTask();
+      expectLoadPlace(placeId);
+      expectLoadPlace(otherPlaceId);
+      expectPlaceNotFound(thirdPlaceId);
+      // only placeId is stopped
+      expectExecutorStop();
+      replay();
+      
+      DefaultPlaceExecutorRegistry registry = boundedRegistry();
+      registry.start(placeId);
+      registry.onWakeupScheduled(placeId, wakeup, inOneMinute());
+      registry.start(otherPlaceId);
+      assertTrue(registry.isParked(placeId));
+      
+      // the wakeup was cancelled and its time has passed, parking the next place drops it
+      registry.onWakeupScheduled(otherPlaceId, new WakeupTask(), mockClock.instant().plus(1, ChronoUnit.HOURS));
+      wakeup.pending = false;
+      setTime(mockClock.instant().plus(2, ChronoUnit.MINUTES));
+      registry.start(thirdPlaceId);
+      assertFalse(registry.isParked(placeId));
+      assertTrue(registry.isParked(otherPlaceId));
+      
+      verify();
+   }
+   
+   @Test
+   public void testParkedPlacesAreCapped() {
+      UUID otherPlaceId = UUID.randomUUID();
+      UUID thirdPlaceId = UUID.randomUUID();
+      expectLoadPlace(placeId);
+      expectLoadPlace(otherPlaceId);
+      expectPlaceNotFound(thirdPlaceId);
+      // only otherPlaceId is stopped
+      expectExecutorStop();
+      replay();
+      
+      DefaultPlaceExecutorRegistry registry = boundedRegistry(1);
+      registry.start(placeId);
+      registry.onWakeupScheduled(placeId, new WakeupTask(), inOneMinute());
+      registry.start(otherPlaceId);
+      registry.onWakeupScheduled(otherPlaceId, new WakeupTask(), mockClock.instant().plus(1, ChronoUnit.HOURS));
+      registry.start(thirdPlaceId);
+      
+      // the place whose wakeup is furthest out is dropped
+      assertTrue(registry.isParked(placeId));
+      assertFalse(registry.isParked(otherPlaceId));
+      
+      verify();
+   }
+
+   // every entry weighs at least 1, so loading a second place evicts the first
+   private DefaultPlaceExecutorRegistry boundedRegistry() {
+      return boundedRegistry(new PlaceExecutorRegistryConfig().getMaxParked());
+   }
+
+   private DefaultPlaceExecutorRegistry boundedRegistry(int maxParked) {
+      PlaceExecutorRegistryConfig config = new PlaceExecutorRegistryConfig();
+      config.setMaxWeight(1);
+      config.setMaxParked(maxParked);
+      return new DefaultPlaceExecutorRegistry(mockClock, mockExecutorFactory, mockPartitioner, mockPlaceDao, config);
+   }
+
+   private Instant inOneMinute() {
+      return mockClock.instant().plus(1, ChronoUnit.MINUTES);
+   }
+
    private void setTime(Instant tick) {
       EasyMock.reset(mockClock);
       EasyMock
@@ -406,6 +601,36 @@ public class TestDefaultPlaceExecutorRegistry extends IrisMockTestCase {
       EasyMock.replay(mockClock);
    }
 
+   private void expectStatistics(PlaceEnvironmentExecutor executor) {
+      EasyMock
+         .expect(executor.getStatistics())
+         .andReturn(new PlaceEnvironmentStatistics())
+         .anyTimes();
+      EasyMock
+         .expect(executor.getModelStore())
+         .andReturn(new RuleModelStore())
+         .anyTimes();
+   }
+
+   private void expectPartitionForPlace(UUID placeId, int partitionId) {
+      EasyMock
+         .expect(mockPartitioner.getPartitionForPlaceId(placeId))
+         .andReturn(new DefaultPartition(partitionId))
+         .anyTimes();
+   }
+
+   private PartitionChangedEvent partitionsChanged(Set<Integer> partitions, Set<Integer> added, Set<Integer> removed) {
+      Set<PlatformPartition> assigned = new HashSet<>();
+      for(Integer partitionId: partitions) {
+         assigned.add(new DefaultPartition(partitionId));
+      }
+      PartitionChangedEvent event = new PartitionChangedEvent();
+      event.setPartitions(assigned);
+      event.setAddedPartitions(added);
+      event.setRemovedPartitions(removed);
+      return event;
+   }
+
    private void expectLoadPlace(UUID placeId) {
       EasyMock
          .expect(mockExecutorFactory.load(placeId))
@@ -470,5 +695,20 @@ public class TestDefaultPlaceExecutorRegistry extends IrisMockTestCase {
          .once();
    }
 
+   private static class WakeupTask implements ScheduledTask {
+      boolean pending = true;
+
+      @Override
+      public boolean isPending() {
+         return pending;
+      }
+
+      @Override
+      public boolean cancel() {
+         pending = false;
+         return true;
+      }
+   }
+
 }
 
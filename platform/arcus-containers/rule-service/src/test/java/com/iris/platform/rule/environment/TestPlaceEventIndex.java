@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.rule.environment;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.iris.common.rule.Context;
+import com.iris.common.rule.event.AttributeValueChangedEvent;
+import com.iris.common.rule.event.EventInterest;
+import com.iris.common.rule.event.MessageReceivedEvent;
+import com.iris.common.rule.event.ModelAddedEvent;
+import com.iris.common.rule.event.RuleEvent;
+import com.iris.common.rule.event.ScheduledEvent;
+import com.iris.messages.MessageBody;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
+
+public class TestPlaceEventIndex extends Assert {
+   Address device = Address.platformService(UUID.randomUUID(), "dev");
+
+   StubHandler switchRule = new StubHandler(EventInterest.attributes("swit:state"));
+   StubHandler everything = new StubHandler(EventInterest.ALL);
+   StubHandler messages = new StubHandler(EventInterest.messages());
+   StubHandler query = new StubHandler(EventInterest.allAttributes());
+   StubHandler timer = new StubHandler(EventInterest.NONE);
+   PlaceEventIndex index = new PlaceEventIndex(ImmutableList.of(switchRule, everything, messages, query, timer));
+
+   @Test
+   public void testValueChangeSelectsByAttribute() {
+      assertEquals(ImmutableList.of(switchRule, everything, query), select(valueChange("swit:state")));
+      assertEquals(ImmutableList.of(everything, query), select(valueChange("temp:temperature")));
+   }
+
+   @Test
+   public void testMessageSelectsMessageHandlers() {
+      PlatformMessage message = PlatformMessage.buildEvent(MessageBody.buildMessage("test:Event"), device).create();
+      assertEquals(ImmutableList.of(everything, messages), select(MessageReceivedEvent.create(message)));
+   }
+
+   @Test
+   public void testOtherEventsGoToAll() {
+      List<StubHandler> all = ImmutableList.of(switchRule, everything, messages, query, timer);
+      assertEquals(all, select(new ScheduledEvent()));
+      assertEquals(all, select(ModelAddedEvent.create(device)));
+   }
+
+   @Test
+   public void testRefresh() {
+      switchRule.interest = EventInterest.attributes("cont:contact");
+      // not re-indexed until refreshed
+      assertEquals(ImmutableList.of(switchRule, everything, query), select(valueChange("swit:state")));
+
+      index.refresh(switchRule);
+      assertEquals(ImmutableList.of(everything, query), select(valueChange("swit:state")));
+      assertEquals(ImmutableList.of(switchRule, everything, query), select(valueChange("cont:contact")));
+
+      timer.interest = EventInterest.ALL;
+      index.refresh(4);
+      assertEquals(ImmutableList.of(everything, query, timer), select(valueChange("swit:state")));
+   }
+
+   @Test
+   public void testRemove() {
+      index.remove(everything);
+      assertEquals(4, index.size());
+      assertEquals(ImmutableList.of(switchRule, query), select(valueChange("swit:state")));
+      assertEquals(ImmutableList.of(switchRule, messages, query, timer), select(new ScheduledEvent()));
+
+      // removed handlers are skipped if they were already selected
+      BitSet selected = index.select(valueChange("swit:state"));
+      index.remove(0);
+      assertNull(index.get(selected.nextSetBit(0)));
+   }
+
+   private RuleEvent valueChange(String attribute) {
+      return AttributeValueChangedEvent.create(device, attribute, "new", "old");
+   }
+
+   private List<PlaceEventHandler> select(RuleEvent event) {
+      List<PlaceEventHandler> selected = new ArrayList<>();
+      BitSet targets = index.select(event);
+      for(int i = targets.nextSetBit(0); i >= 0; i = targets.nextSetBit(i + 1)) {
+         selected.add(index.get(i));
+      }
+      return selected;
+   }
+
+   private static class StubHandler implements PlaceEventHandler {
+      private final Address address = Address.platformService(UUID.randomUUID(), "rule");
+      private EventInterest interest;
+
+      StubHandler(EventInterest interest) {
+         this.interest = interest;
+      }
+
+      @Override
+      public boolean isDeleted() {
+         return false;
+      }
+
+      @Override
+      public boolean isAvailable() {
+         return true;
+      }
+
+      @Override
+      public void start() {
+      }
+
+      @Override
+      public void stop() {
+      }
+
+      @Override
+      public Address getAddress() {
+         return address;
+      }
+
+      @Override
+      public Context getContext() {
+         return null;
+      }
+
+      @Override
+      public void onEvent(RuleEvent event) {
+      }
+
+      @Override
+      public EventInterest getEventInterest() {
+         return interest;
+      }
+
+      @Override
+      public MessageBody handleRequest(PlatformMessage message) {
+         return null;
+      }
+   }
+}
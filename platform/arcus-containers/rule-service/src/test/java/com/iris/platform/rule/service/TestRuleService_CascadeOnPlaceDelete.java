@@ -16,7 +16,6 @@
 package com.iris.platform.rule.service;
 
 import java.util.UUID;
-import java.util.stream.Stream;
 
 import org.easymock.EasyMock;
 import org.junit.Test;
@@ -25,7 +24,6 @@ import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
-import com.iris.core.dao.PlaceDAO;
 import com.iris.core.messaging.memory.InMemoryMessageModule;
 import com.iris.core.messaging.memory.InMemoryPlatformMessageBus;
 import com.iris.messages.MessageBody;
@@ -35,7 +33,6 @@ import com.iris.messages.capability.Capability;
 import com.iris.messages.model.Place;
 import com.iris.messages.type.Population;
 import com.iris.platform.model.ModelDao;
-import com.iris.platform.partition.Partitioner;
 import com.iris.platform.partition.simple.SimplePartitionModule;
 import com.iris.platform.rule.LegacyRuleDefinition;
 import com.iris.platform.rule.RuleDao;
@@ -52,7 +49,6 @@ import com.iris.test.Modules;
    RuleEnvironmentDao.class,
    PlaceExecutorRegistry.class,
    ModelDao.class,
-   PlaceDAO.class,
    RuleDao.class,
    PlacePopulationCacheManager.class
 })
@@ -64,9 +60,7 @@ public class TestRuleService_CascadeOnPlaceDelete extends IrisMockTestCase {
    @Inject private PlaceExecutorRegistry registry;
    @Inject private RuleDao ruleDao;
    @Inject private ModelDao modelDao;
-   @Inject private PlaceDAO placeDao;
    @Inject private InMemoryPlatformMessageBus bus;
-   @Inject private Partitioner partitioner;
    @Inject private PlacePopulationCacheManager mockPopulationCacheMgr;
    private RuleCatalogLoader ruleCatLoader;
    private Place place;
@@ -92,7 +86,7 @@ public class TestRuleService_CascadeOnPlaceDelete extends IrisMockTestCase {
       ruleDef.setSequenceId(1);
       ruleDef.setPlaceId(place.getId());
 
-      ruleService = new RuleService(MoreExecutors.directExecutor(), envDao, bus, partitioner, ruleDao, modelDao, placeDao, ruleCatLoader, registry, null, mockPopulationCacheMgr);
+      ruleService = new RuleService(MoreExecutors.directExecutor(), envDao, bus, ruleDao, modelDao, ruleCatLoader, registry, null, mockPopulationCacheMgr);
    }
 
    @Override
@@ -131,13 +125,9 @@ public class TestRuleService_CascadeOnPlaceDelete extends IrisMockTestCase {
       EasyMock.expect(registry.getExecutor(place.getId())).andReturn(Optional.of(executor)).anyTimes();
       executor.start();
       EasyMock.expectLastCall();
-      registry.clear();
-      EasyMock.expectLastCall();
       executor.stop();
       EasyMock.expectLastCall();
       
-      EasyMock.expect(placeDao.streamByPartitionId(EasyMock.anyInt())).andReturn(Stream.empty()).anyTimes();
-      
       return executor;
    }
 
@@ -24,6 +24,7 @@ import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
 import com.iris.messages.capability.Capability;
 import com.iris.messages.capability.SubsystemCapability;
+import com.iris.messages.event.ModelChangedEvent;
 import com.iris.messages.event.ModelEvent;
 import com.iris.messages.model.Model;
 import com.iris.messages.model.SimpleModelStore;
@@ -67,6 +68,16 @@ public class PlatformSubsystemModelStore extends SimpleModelStore {
    }
 
    void fireModelEvent(ModelEvent event) {
+      // subsystem models are changed in place by the context rather than
+      // through this store so the indexes and views are caught up here
+      if(event instanceof ModelChangedEvent) {
+         ModelChangedEvent changed = (ModelChangedEvent) event;
+         Model model = getModelByAddress(changed.getAddress());
+         if(model != null) {
+            updateIndex(changed.getAddress(), model, changed.getAttributeName(), changed.getOldValue(), changed.getAttributeValue());
+            updateViews(model);
+         }
+      }
       fire(event);
    }
 }
@@ -19,6 +19,9 @@ import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_CLIEN
 import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_EXP_NULL;
 import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_FAIL;
 import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_ID_BAD;
+import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_RANGE;
+import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_RANGE_NOT_SATISFIABLE;
+import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_RANGE_UNINDEXED;
 import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_REJECTED;
 import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_REQUEST_DOES_EXIST;
 import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_SIG_NULL;
@@ -31,7 +34,10 @@ import static com.iris.video.download.server.VideoDownloadMetrics.DOWNLOAD_VALID
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
@@ -42,10 +48,13 @@ import java.util.concurrent.atomic.AtomicReference;
 import javax.crypto.spec.SecretKeySpec;
 
 import com.iris.media.MP4Convert;
+import com.iris.media.MP4FragmentIndex;
 import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.io.ByteStreams;
 import com.iris.core.dao.DeviceDAO;
 import com.iris.core.dao.PlaceDAO;
 import com.iris.video.VideoRecording;
@@ -86,6 +95,7 @@ public class MP4Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
    private final VideoStorage videoStorage;
    private final VideoDownloadServerConfig config;
    private final SecretKeySpec secret;
+   private final Cache<UUID, MP4FragmentIndex> fragmentIndexes;
 
    private final long maxBlockTime;
    private final AtomicReference<ChunkedOutputStream> outputStream;
@@ -96,7 +106,8 @@ public class MP4Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
       VideoDownloadDao dao,
       VideoStorage videoStorage,
       DeviceDAO deviceDAO,
-      PlaceDAO placeDAO
+      PlaceDAO placeDAO,
+      Cache<UUID, MP4FragmentIndex> fragmentIndexes
    ) {
       this.executor = executor;
       this.videoDownloadDao = dao;
@@ -107,6 +118,7 @@ public class MP4Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
       this.outputStream = new AtomicReference<>();
       this.deviceDAO = deviceDAO;
       this.placeDAO = placeDAO;
+      this.fragmentIndexes = fragmentIndexes;
    }
 
    @Override
@@ -147,6 +159,25 @@ public class MP4Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
             return;
          }
 
+         final boolean fragmented = config.isFragmented();
+         final MP4FragmentIndex index = fragmented ? fragmentIndexes.getIfPresent(recordingId) : null;
+         final ByteRange range;
+         String rangeHeader = fragmented ? request.headers().get(HttpHeaders.Names.RANGE) : null;
+         if (rangeHeader == null) {
+            range = null;
+         } else if (index == null) {
+            // the length isn't known until the recording has been converted once
+            DOWNLOAD_RANGE_UNINDEXED.inc();
+            range = null;
+         } else {
+            range = ByteRange.parse(rangeHeader, index.getLength());
+            if (range != null && !range.isSatisfiable()) {
+               DOWNLOAD_RANGE_NOT_SATISFIABLE.inc();
+               sendRangeNotSatisfiable(ctx, index.getLength());
+               return;
+            }
+         }
+
          final VideoStorageSession sess = videoStorage.create(rec);
          executor.submit(() -> {
             long startTime = System.nanoTime();
@@ -155,8 +186,18 @@ public class MP4Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
                  ChunkedOutputStream os = new ChunkedOutputStream(ctx,config.getChunkSize())) {
                outputStream.set(os);
 
-               DefaultHttpResponse rsp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
-               HttpHeaders.setTransferEncodingChunked(rsp);
+               DefaultHttpResponse rsp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, range == null ? HttpResponseStatus.OK : HttpResponseStatus.PARTIAL_CONTENT);
+               if (index == null) {
+                  HttpHeaders.setTransferEncodingChunked(rsp);
+               } else {
+                  rsp.headers().set(HttpHeaders.Names.ACCEPT_RANGES, HttpHeaders.Values.BYTES);
+                  if (range == null) {
+                     HttpHeaders.setContentLength(rsp, index.getLength());
+                  } else {
+                     HttpHeaders.setContentLength(rsp, range.length());
+                     rsp.headers().set(HttpHeaders.Names.CONTENT_RANGE, "bytes " + range.start + "-" + range.end + "/" + index.getLength());
+                  }
+               }
                rsp.headers().set(HttpHeaders.Names.CONTENT_TYPE, "video/mp4");
 
                VideoRecordingFileName vrfn = new VideoRecordingFileName(rec.recordingId, rec.cameraId, rec.placeId, deviceDAO, placeDAO);
@@ -167,7 +208,14 @@ public class MP4Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
                started = true;
                ctx.write(rsp);
 
-               MP4Convert.convert(is, os);
+               if (!fragmented) {
+                  MP4Convert.convert(is, os);
+               } else if (range == null) {
+                  fragmentIndexes.put(recordingId, MP4Convert.convertFragmented(is, os));
+               } else {
+                  DOWNLOAD_RANGE.inc();
+                  streamRange(is, os, index, range);
+               }
                DOWNLOAD_SUCCESS.update(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
             } catch (ClosedChannelException ex) {
                log.debug("terminating conversion process abnormally: channel closed");
@@ -200,6 +248,37 @@ public class MP4Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
       }
    }
 
+   /**
+    * Writes the given range of the fragmented output, resuming the conversion at the
+    * fragment containing the start of the range rather than at the start of the
+    * recording.  Ranges that start in the initialization segment are converted
+    * from the beginning.
+    */
+   private static void streamRange(InputStream is, OutputStream os, MP4FragmentIndex index, ByteRange range) throws IOException {
+      MP4FragmentIndex.Fragment from = index.find(range.start);
+      long outputStart = 0;
+      if (from != null) {
+         ByteStreams.skipFully(is, from.getInputOffset());
+         outputStart = from.getOutputOffset();
+      }
+
+      RangeChannel output = new RangeChannel(os, range.start - outputStart, range.length());
+      if (from == null) {
+         MP4Convert.convertFragmented(Channels.newChannel(is), output);
+      } else {
+         MP4Convert.convertFragmented(Channels.newChannel(is), output, index, from);
+      }
+   }
+
+   private static void sendRangeNotSatisfiable(ChannelHandlerContext ctx, long length) {
+      HttpResponseStatus status = HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+      FullHttpResponse errResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.copiedBuffer("Failure: " + status + "\r\n", StandardCharsets.UTF_8));
+      errResponse.headers().set(HttpHeaders.Names.CONTENT_TYPE, "text/plain; charset=UTF-8");
+      errResponse.headers().set(HttpHeaders.Names.CONTENT_RANGE, "bytes */" + length);
+      errResponse.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
+      ctx.writeAndFlush(errResponse).addListener(ChannelFutureListener.CLOSE);
+   }
+
    private static void sendErrorResponse(ChannelHandlerContext ctx, HttpResponseStatus status) {
       FullHttpResponse errResponse = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.copiedBuffer("Failure: " + status + "\r\n", StandardCharsets.UTF_8));
       errResponse.headers().set(HttpHeaders.Names.CONTENT_TYPE, "text/plain; charset=UTF-8");
@@ -408,5 +487,136 @@ public class MP4Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
          }
       }
    }
-}
 
+   /**
+    * A single byte range from a Range header, the end is inclusive.
+    */
+   static final class ByteRange {
+      final long start;
+      final long end;
+
+      ByteRange(long start, long end) {
+         this.start = start;
+         this.end = end;
+      }
+
+      boolean isSatisfiable() {
+         return start <= end;
+      }
+
+      long length() {
+         return end - start + 1;
+      }
+
+      /**
+       * Parses a Range header against a representation of the given length.  Returns
+       * null if the header should be ignored and the full content returned, which
+       * is the case for malformed headers and for multiple ranges.
+       */
+      @Nullable
+      static ByteRange parse(String header, long length) {
+         String value = header.trim();
+         if (!value.startsWith("bytes=") || value.indexOf(',') >= 0) {
+            return null;
+         }
+
+         String spec = value.substring("bytes=".length()).trim();
+         int dash = spec.indexOf('-');
+         if (dash < 0) {
+            return null;
+         }
+
+         try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+               if (last.isEmpty()) {
+                  return null;
+               }
+
+               long suffix = Long.parseLong(last);
+               if (suffix <= 0) {
+                  return new ByteRange(length, length - 1);
+               }
+               return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+               return null;
+            }
+            if (start >= length) {
+               return new ByteRange(start, start - 1);
+            }
+            return new ByteRange(start, Math.min(end, length - 1));
+         } catch (NumberFormatException ex) {
+            return null;
+         }
+      }
+   }
+
+   /**
+    * Passes through only the requested range of the converter output.  Once the range
+    * has been written the channel reports itself closed, which stops the conversion.
+    */
+   static final class RangeChannel implements WritableByteChannel {
+      private final OutputStream output;
+      private long skip;
+      private long remaining;
+      @Nullable
+      private byte[] copy;
+
+      RangeChannel(OutputStream output, long skip, long length) {
+         this.output = output;
+         this.skip = skip;
+         this.remaining = length;
+      }
+
+      @Override
+      public int write(@Nullable ByteBuffer src) throws IOException {
+         Preconditions.checkNotNull(src);
+
+         int written = src.remaining();
+         if (skip > 0) {
+            int skipped = (int)Math.min(skip, src.remaining());
+            src.position(src.position() + skipped);
+            skip -= skipped;
+         }
+
+         int len = (int)Math.min(remaining, src.remaining());
+         if (len > 0) {
+            if (src.hasArray()) {
+               output.write(src.array(), src.arrayOffset() + src.position(), len);
+               src.position(src.position() + len);
+            } else {
+               if (copy == null) {
+                  copy = new byte[8192];
+               }
+
+               int rem = len;
+               while (rem > 0) {
+                  int next = Math.min(rem, copy.length);
+                  src.get(copy, 0, next);
+                  output.write(copy, 0, next);
+                  rem -= next;
+               }
+            }
+
+            remaining -= len;
+         }
+
+         src.position(src.limit());
+         return written;
+      }
+
+      @Override
+      public boolean isOpen() {
+         return remaining > 0;
+      }
+
+      @Override
+      public void close() throws IOException {
+      }
+   }
+}
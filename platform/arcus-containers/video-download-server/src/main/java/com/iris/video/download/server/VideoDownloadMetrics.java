@@ -35,6 +35,10 @@ public final class VideoDownloadMetrics {
    public static final Counter DOWNLOAD_URL_BAD = METRICS.counter("fail.url.bad");
    public static final Counter DOWNLOAD_ID_BAD = METRICS.counter("fail.recordingid.bad");
 
+   public static final Counter DOWNLOAD_RANGE = METRICS.counter("range");
+   public static final Counter DOWNLOAD_RANGE_UNINDEXED = METRICS.counter("range.unindexed");
+   public static final Counter DOWNLOAD_RANGE_NOT_SATISFIABLE = METRICS.counter("fail.range.unsatisfiable");
+
    public static final Timer DOWNLOAD_SUCCESS = METRICS.timer("success");
    public static final Timer DOWNLOAD_FAIL = METRICS.timer("fail");
    public static final Timer DOWNLOAD_SLOW_CLIENT_WAIT = METRICS.timer("slow.client.wait");
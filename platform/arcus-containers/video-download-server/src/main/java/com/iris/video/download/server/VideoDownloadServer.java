@@ -24,6 +24,7 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -34,6 +35,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Module;
 import com.google.inject.Provider;
@@ -52,6 +55,7 @@ import com.iris.core.dao.cassandra.CassandraModule;
 import com.iris.core.dao.cassandra.CassandraPlaceDAOModule;
 import com.iris.core.dao.cassandra.CassandraResourceBundleDAOModule;
 import com.iris.core.metricsreporter.builder.MetricsTopicReporterBuilderModule;
+import com.iris.media.MP4FragmentIndex;
 import com.iris.netty.server.netty.IrisNettyCorsConfig;
 import com.iris.platform.partition.simple.SimplePartitionModule;
 import com.iris.video.download.server.dao.VideoDownloadDao;
@@ -90,6 +94,7 @@ public class VideoDownloadServer extends IrisAbstractApplication {
    private final Provider<TrafficHandler> trafficHandlerProvider;
    private final BridgeServerEventLoopProvider eventLoopProvider;
    private final IrisNettyCorsConfig corsConfig;
+   private final Cache<UUID, MP4FragmentIndex> fragmentIndexes;
 
    @Inject
    public VideoDownloadServer(
@@ -122,6 +127,10 @@ public class VideoDownloadServer extends IrisAbstractApplication {
       this.deviceDAO = deviceDAO;
       this.placeDAO = placeDAO;
       this.corsConfig = corsConfig;
+      this.fragmentIndexes = CacheBuilder.newBuilder()
+            .maximumSize(videoConfig.getFragmentIndexCacheSize())
+            .expireAfterAccess(videoConfig.getFragmentIndexCacheExpireSecs(), TimeUnit.SECONDS)
+            .build();
    }
 
    @SuppressWarnings("unchecked")
@@ -210,7 +219,8 @@ public class VideoDownloadServer extends IrisAbstractApplication {
                   videoDao,
                   videoStorage,
                   deviceDAO,
-                  placeDAO
+                  placeDAO,
+                  fragmentIndexes
                )
             );
             pipeline.addLast(new IPTrackingOutboundHandler());
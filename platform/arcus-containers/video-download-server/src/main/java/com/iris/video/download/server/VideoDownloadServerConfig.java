@@ -85,6 +85,23 @@ public class VideoDownloadServerConfig extends VideoConfig {
    @Inject(optional = true) @Named("video.download.convert.timeout.secs")
    private long convertTimeoutSecs = 120;
 
+   /**
+    * When true recordings are downloaded as fragmented MP4, which streams from
+    * the first fragment and supports range requests once the fragment index for
+    * a recording has been cached.  Defaults to false, which keeps the original
+    * progressive MP4.
+    */
+   @Inject(optional = true) @Named("video.download.fragmented")
+   private boolean fragmented = false;
+
+   // the fragment index cache is held in memory on each node, range requests
+   // routed to a node which hasn't converted the recording get the full content
+   @Inject(optional = true) @Named("video.download.fragment.index.cache.size")
+   private long fragmentIndexCacheSize = 1000;
+
+   @Inject(optional = true) @Named("video.download.fragment.index.cache.expire.secs")
+   private long fragmentIndexCacheExpireSecs = 3600;
+
    @PostConstruct
    public void initialize() {
       byte[] secretKey = Base64.getDecoder().decode(videoDownloadSecret);
@@ -238,5 +255,28 @@ public class VideoDownloadServerConfig extends VideoConfig {
    public long getConvertTimeoutSecs() {
       return convertTimeoutSecs;
    }
-}
 
+   public boolean isFragmented() {
+      return fragmented;
+   }
+
+   public void setFragmented(boolean fragmented) {
+      this.fragmented = fragmented;
+   }
+
+   public long getFragmentIndexCacheSize() {
+      return fragmentIndexCacheSize;
+   }
+
+   public void setFragmentIndexCacheSize(long fragmentIndexCacheSize) {
+      this.fragmentIndexCacheSize = fragmentIndexCacheSize;
+   }
+
+   public long getFragmentIndexCacheExpireSecs() {
+      return fragmentIndexCacheExpireSecs;
+   }
+
+   public void setFragmentIndexCacheExpireSecs(long fragmentIndexCacheExpireSecs) {
+      this.fragmentIndexCacheExpireSecs = fragmentIndexCacheExpireSecs;
+   }
+}
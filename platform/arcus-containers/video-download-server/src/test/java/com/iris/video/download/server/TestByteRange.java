@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.video.download.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.iris.video.download.server.MP4Handler.ByteRange;
+
+public class TestByteRange {
+   private static final long LENGTH = 1000;
+
+   @Test
+   public void testClosedRange() {
+      assertRange(0, 99, ByteRange.parse("bytes=0-99", LENGTH));
+      assertRange(500, 500, ByteRange.parse("bytes=500-500", LENGTH));
+      assertRange(10, 20, ByteRange.parse(" bytes= 10 - 20 ", LENGTH));
+   }
+
+   @Test
+   public void testEndIsClampedToLength() {
+      assertRange(900, 999, ByteRange.parse("bytes=900-5000", LENGTH));
+   }
+
+   @Test
+   public void testOpenEndedRange() {
+      assertRange(500, 999, ByteRange.parse("bytes=500-", LENGTH));
+      assertRange(0, 999, ByteRange.parse("bytes=0-", LENGTH));
+   }
+
+   @Test
+   public void testSuffixRange() {
+      assertRange(800, 999, ByteRange.parse("bytes=-200", LENGTH));
+      assertRange(0, 999, ByteRange.parse("bytes=-1000", LENGTH));
+      // a suffix longer than the content is the whole content
+      assertRange(0, 999, ByteRange.parse("bytes=-5000", LENGTH));
+   }
+
+   @Test
+   public void testUnsatisfiableRange() {
+      assertUnsatisfiable(ByteRange.parse("bytes=1000-", LENGTH));
+      assertUnsatisfiable(ByteRange.parse("bytes=1000-2000", LENGTH));
+      assertUnsatisfiable(ByteRange.parse("bytes=-0", LENGTH));
+   }
+
+   @Test
+   public void testInvalidRangeIsIgnored() {
+      assertNull(ByteRange.parse("", LENGTH));
+      assertNull(ByteRange.parse("items=0-99", LENGTH));
+      assertNull(ByteRange.parse("bytes=", LENGTH));
+      assertNull(ByteRange.parse("bytes=-", LENGTH));
+      assertNull(ByteRange.parse("bytes=100", LENGTH));
+      assertNull(ByteRange.parse("bytes=abc-", LENGTH));
+      assertNull(ByteRange.parse("bytes=0-xyz", LENGTH));
+      assertNull(ByteRange.parse("bytes=99-0", LENGTH));
+      assertNull(ByteRange.parse("bytes=-5-10", LENGTH));
+   }
+
+   @Test
+   public void testMultipleRangesAreIgnored() {
+      assertNull(ByteRange.parse("bytes=0-99,200-299", LENGTH));
+      assertNull(ByteRange.parse("bytes=0-99, -100", LENGTH));
+   }
+
+   private static void assertRange(long start, long end, ByteRange range) {
+      assertTrue(range != null && range.isSatisfiable());
+      assertEquals(start, range.start);
+      assertEquals(end, range.end);
+      assertEquals(end - start + 1, range.length());
+   }
+
+   private static void assertUnsatisfiable(ByteRange range) {
+      assertTrue(range != null);
+      assertFalse(range.isSatisfiable());
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.video.download.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.iris.video.download.server.MP4Handler.RangeChannel;
+
+public class TestRangeChannel {
+   private static final byte[] CONTENT = content(1000);
+
+   @Test
+   public void testWholeContent() throws Exception {
+      assertArrayEquals(CONTENT, write(0, CONTENT.length, 100, false));
+   }
+
+   @Test
+   public void testSkipSpansWrites() throws Exception {
+      assertArrayEquals(Arrays.copyOfRange(CONTENT, 250, 1000), write(250, 750, 100, false));
+   }
+
+   @Test
+   public void testRangeWithinOneWrite() throws Exception {
+      assertArrayEquals(Arrays.copyOfRange(CONTENT, 10, 20), write(10, 10, CONTENT.length, false));
+   }
+
+   @Test
+   public void testRangeEndsMidWrite() throws Exception {
+      assertArrayEquals(Arrays.copyOfRange(CONTENT, 150, 475), write(150, 325, 100, false));
+   }
+
+   @Test
+   public void testDirectBuffers() throws Exception {
+      assertArrayEquals(Arrays.copyOfRange(CONTENT, 150, 475), write(150, 325, 100, true));
+      assertArrayEquals(Arrays.copyOfRange(CONTENT, 0, 1000), write(0, 1000, 1000, true));
+   }
+
+   @Test
+   public void testClosesOnceRangeIsWritten() throws Exception {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      RangeChannel channel = new RangeChannel(os, 5, 10);
+      assertTrue(channel.isOpen());
+
+      ByteBuffer first = ByteBuffer.wrap(CONTENT, 0, 12);
+      assertEquals(12, channel.write(first));
+      assertEquals(0, first.remaining());
+      assertTrue(channel.isOpen());
+
+      // the whole buffer is reported as consumed even past the end of the range
+      ByteBuffer second = ByteBuffer.wrap(CONTENT, 12, 100);
+      assertEquals(100, channel.write(second));
+      assertEquals(0, second.remaining());
+      assertFalse(channel.isOpen());
+
+      assertArrayEquals(Arrays.copyOfRange(CONTENT, 5, 15), os.toByteArray());
+   }
+
+   private static byte[] write(long skip, long length, int chunk, boolean direct) throws Exception {
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      RangeChannel channel = new RangeChannel(os, skip, length);
+      for (int offset = 0; offset < CONTENT.length && channel.isOpen(); offset += chunk) {
+         int len = Math.min(chunk, CONTENT.length - offset);
+         ByteBuffer src;
+         if (direct) {
+            src = ByteBuffer.allocateDirect(len);
+            src.put(CONTENT, offset, len);
+            src.flip();
+         } else {
+            src = ByteBuffer.wrap(CONTENT, offset, len);
+         }
+         assertEquals(len, channel.write(src));
+      }
+      return os.toByteArray();
+   }
+
+   private static byte[] content(int length) {
+      byte[] content = new byte[length];
+      for (int i = 0; i < length; i++) {
+         content[i] = (byte)i;
+      }
+      return content;
+   }
+}
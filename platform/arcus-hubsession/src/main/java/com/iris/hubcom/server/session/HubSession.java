@@ -21,18 +21,33 @@ package com.iris.hubcom.server.session;
 import io.netty.channel.Channel;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
 
+import com.codahale.metrics.Counter;
 import com.iris.bridge.metrics.BridgeMetrics;
+import com.iris.bridge.server.netty.Binary10WebSocketServerHandler;
 import com.iris.bridge.server.session.DefaultSessionImpl;
 import com.iris.bridge.server.session.SessionRegistry;
+import com.iris.io.Serializer;
+import com.iris.io.binary.BinaryHubMessageFormat;
+import com.iris.io.json.JSON;
+import com.iris.messages.HubMessage;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
 import com.iris.platform.partition.PlatformPartition;
 
 /**
  *
  */
 public class HubSession extends DefaultSessionImpl {
+   private static final Serializer<HubMessage> JSON_SERIALIZER = JSON.createSerializer(HubMessage.class);
+   private static final IrisMetricSet FRAMING_METRICS = IrisMetrics.metrics("bridge.hub.framing");
+   private static final Counter BINARY_FRAMES = FRAMING_METRICS.counter("binary.frames");
+   private static final Counter JSON_FRAMES = FRAMING_METRICS.counter("json.frames");
+   private static final Counter BYTES_SAVED = FRAMING_METRICS.counter("bytes.saved");
+
 
    public static enum State {
       CONNECTED, PENDING_REG_ACK, REGISTERED, AUTHORIZED;
@@ -50,6 +65,8 @@ public class HubSession extends DefaultSessionImpl {
    private volatile String connType;
    private volatile String simId;
    private volatile String firmwareVersion;
+   private final boolean binaryFraming;
+   private final AtomicLong framingBytesSaved = new AtomicLong();
 
    /**
     * @param channel
@@ -60,6 +77,7 @@ public class HubSession extends DefaultSessionImpl {
       setClientType(TYPE_HUB);
       setClientToken(token);
       hubId = token.getRepresentation();
+      binaryFraming = Binary10WebSocketServerHandler.isBinaryFraming(channel);
    }
 
    public String getHubId() {
@@ -113,6 +131,53 @@ public class HubSession extends DefaultSessionImpl {
       this.firmwareVersion = firmwareVersion;
    }
 
+   /**
+    * True if the hub negotiated the {@link BinaryHubMessageFormat} framing
+    * when it connected, otherwise messages are sent as JSON.
+    */
+   public boolean isBinaryFraming() {
+      return binaryFraming;
+   }
+
+   /**
+    * The number of bytes sent and received on this connection which the
+    * binary framing saved over JSON.
+    */
+   public long getFramingBytesSaved() {
+      return framingBytesSaved.get();
+   }
+
+   public void sendMessage(HubMessage message) {
+      if(binaryFraming) {
+         sendMessage(BinaryHubMessageFormat.encode(message));
+         onBinaryFrame(message);
+      }
+      else {
+         sendMessage(JSON_SERIALIZER.serialize(message));
+         JSON_FRAMES.inc();
+      }
+   }
+
+   /**
+    * Records a message received from the hub, the hub may send either framing.
+    */
+   public void onMessageReceived(HubMessage message, boolean binary) {
+      if(binary) {
+         onBinaryFrame(message);
+      }
+      else {
+         JSON_FRAMES.inc();
+      }
+   }
+
+   private void onBinaryFrame(HubMessage message) {
+      int length = message.getPayload() != null ? message.getPayload().length : 0;
+      int saved = BinaryHubMessageFormat.bytesSaved(message.getType(), length);
+      framingBytesSaved.addAndGet(saved);
+      BINARY_FRAMES.inc();
+      BYTES_SAVED.inc(saved);
+   }
+
    public Date getLastStateChange() {
       return this.lastStateChange;
    }
@@ -131,7 +196,7 @@ public class HubSession extends DefaultSessionImpl {
     */
    @Override
    public String toString() {
-      return "HubSession [hub=" + hubId + ", state=" + state + ", place=" + getActivePlace() + "]";
+      return "HubSession [hub=" + hubId + ", state=" + state + ", place=" + getActivePlace() + ", binaryFraming=" + binaryFraming + "]";
    }
 
 }
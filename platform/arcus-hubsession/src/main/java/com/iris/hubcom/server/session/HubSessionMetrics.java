@@ -55,6 +55,8 @@ public class HubSessionMetrics {
       long authorized = 0;
       long bannedcell = 0;
       long unauthenticated = 0;
+      long binaryFraming = 0;
+      long framingBytesSaved = 0;
       Map<TagValue, Integer> firmwares = new LinkedHashMap<TagValue, Integer>(16);
 
       for(Session session: registry.getSessions()) {
@@ -68,6 +70,11 @@ public class HubSessionMetrics {
             cell++;
          }
          
+         if(hubSession.isBinaryFraming()) {
+            binaryFraming++;
+            framingBytesSaved += hubSession.getFramingBytesSaved();
+         }
+         
          TagValue tag = firmware.tag(hubSession.getFirmwareVersion());
          int count = firmwares.getOrDefault(tag, 0) + 1;
          firmwares.put(tag, count);
@@ -110,6 +117,8 @@ public class HubSessionMetrics {
             .put("unauth.banned_cell", bannedcell)
             .put("unauth.invalid_cert", unauthenticated)
             .put("authorized", authorized)
+            .put("framing.binary", binaryFraming)
+            .put("framing.bytes.saved", framingBytesSaved)
             .put("firmware", firmwares)
             .build();
    }
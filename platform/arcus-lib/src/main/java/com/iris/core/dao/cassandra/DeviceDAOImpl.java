@@ -31,7 +31,6 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Stream;
 
-import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.LoggerFactory;
@@ -69,6 +68,7 @@ import com.iris.device.model.AttributeDefinition;
 import com.iris.device.model.CapabilityDefinition;
 import com.iris.io.Deserializer;
 import com.iris.io.Serializer;
+import com.iris.io.binary.BinaryVariablesCodec;
 import com.iris.io.json.JSON;
 import com.iris.messages.address.Address;
 import com.iris.messages.capability.Capability;
@@ -208,6 +208,13 @@ public class DeviceDAOImpl extends BaseCassandraCRUDDao<UUID, Device> implements
    private ConsistencyLevel writeConsistency = ConsistencyLevel.LOCAL_QUORUM;
    @Inject(optional = true) @Named("dao.device.asynctimeoutms")
    private long asyncTimeoutMs = 30000;
+   /**
+    * Opt-in, when {@code true} driver variables are written in the compact binary format.
+    * Either format is always read, so leave this off until every node that loads devices
+    * has been upgraded to one that understands the compact format.
+    */
+   @Inject(optional = true) @Named("dao.device.variables.compact")
+   private boolean compactVariables = false;
 
 
    @Inject
@@ -718,7 +725,7 @@ public class DeviceDAOImpl extends BaseCassandraCRUDDao<UUID, Device> implements
       Map<String,Object> variables = new HashMap<>();
       ByteBuffer buf = r.getBytes(NonEntityColumns.VARIABLES);
       if (buf != null) {
-         variables = SerializationUtils.deserialize(Bytes.getArray(buf));
+         variables = BinaryVariablesCodec.decode(Bytes.getArray(buf));
       }
 
       return new DeviceDriverStateHolder(attributes, variables);
@@ -829,8 +836,9 @@ public class DeviceDAOImpl extends BaseCassandraCRUDDao<UUID, Device> implements
       }
 
       if(state.getVariables().size() > 0) {
-         HashMap<String,Object> vars = new HashMap<String,Object>(state.getVariables());
-         ByteBuffer buffer = ByteBuffer.wrap(SerializationUtils.serialize(vars));
+         // always re-encoded, this is what migrates java serialized variables over to the compact format
+         byte[] vars = compactVariables ? BinaryVariablesCodec.encode(state.getVariables()) : BinaryVariablesCodec.encodeJava(state.getVariables());
+         ByteBuffer buffer = ByteBuffer.wrap(vars);
          update.with(set(NonEntityColumns.VARIABLES, buffer));
       }
 
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.core.messaging;
+
+import java.util.UUID;
+
+/**
+ * Decides whether broadcasts scoped to a place are of any interest to this
+ * process.  This is consulted before a record is decoded, so implementations
+ * must be cheap and may report false positives, but a place which is of interest
+ * must never be reported as uninteresting or its messages will be lost.
+ */
+public interface PlaceInterest {
+
+   PlaceInterest ALL = (placeId) -> true;
+
+   boolean isInterested(UUID placeId);
+
+}
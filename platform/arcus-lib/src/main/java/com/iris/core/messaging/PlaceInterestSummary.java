@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.core.messaging;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A Bloom filter over place ids, used to advertise the places a process is
+ * interested in without shipping the full set.  Membership may report false
+ * positives at roughly the rate the summary was sized for, but never false
+ * negatives.
+ *
+ * Places may be added concurrently with lookups, the bits are only ever set so
+ * a summary can't be shrunk, instead a new one is built and swapped in.  Adding
+ * more places than the summary was sized for raises the false positive rate
+ * but has no other effect.
+ */
+public final class PlaceInterestSummary implements PlaceInterest {
+   private static final byte VERSION = 1;
+   private static final double LN2 = Math.log(2);
+
+   public static PlaceInterestSummary create(int expectedPlaces, double falsePositiveRate) {
+      Preconditions.checkArgument(expectedPlaces > 0, "expectedPlaces must be positive");
+      Preconditions.checkArgument(falsePositiveRate > 0 && falsePositiveRate < 1, "falsePositiveRate must be between 0 and 1");
+      long bits = (long) Math.ceil(-expectedPlaces * Math.log(falsePositiveRate) / (LN2 * LN2));
+      int words = (int) Math.min(Integer.MAX_VALUE / Long.SIZE, Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE));
+      int hashes = (int) Math.max(1, Math.round((double) words * Long.SIZE / expectedPlaces * LN2));
+      return new PlaceInterestSummary(new AtomicLongArray(words), hashes);
+   }
+
+   /**
+    * Reads a summary written by {@link #toBytes()}.
+    */
+   public static PlaceInterestSummary fromBytes(byte[] bytes) throws IllegalArgumentException {
+      Preconditions.checkNotNull(bytes, "bytes may not be null");
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      if(buffer.remaining() < 2 + Long.BYTES || buffer.get() != VERSION) {
+         throw new IllegalArgumentException("Unrecognized place interest summary");
+      }
+      int hashes = buffer.get() & 0xff;
+      int words = buffer.remaining() / Long.BYTES;
+      if(hashes == 0 || words == 0 || buffer.remaining() % Long.BYTES != 0) {
+         throw new IllegalArgumentException("Invalid place interest summary");
+      }
+      AtomicLongArray bits = new AtomicLongArray(words);
+      for(int i = 0; i < words; i++) {
+         bits.set(i, buffer.getLong());
+      }
+      return new PlaceInterestSummary(bits, hashes);
+   }
+
+   private final AtomicLongArray bits;
+   private final long bitCount;
+   private final int hashes;
+
+   private PlaceInterestSummary(AtomicLongArray bits, int hashes) {
+      this.bits = bits;
+      this.bitCount = (long) bits.length() * Long.SIZE;
+      this.hashes = Math.min(hashes, 0xff);
+   }
+
+   public void add(UUID placeId) {
+      long h1 = mix(placeId.getMostSignificantBits());
+      long h2 = mix(placeId.getLeastSignificantBits()) | 1;
+      for(int i = 0; i < hashes; i++) {
+         long index = Math.floorMod(h1 + i * h2, bitCount);
+         int word = (int) (index >>> 6);
+         long mask = 1L << index;
+         long current;
+         while(((current = bits.get(word)) & mask) == 0) {
+            if(bits.compareAndSet(word, current, current | mask)) {
+               break;
+            }
+         }
+      }
+   }
+
+   @Override
+   public boolean isInterested(UUID placeId) {
+      long h1 = mix(placeId.getMostSignificantBits());
+      long h2 = mix(placeId.getLeastSignificantBits()) | 1;
+      for(int i = 0; i < hashes; i++) {
+         long index = Math.floorMod(h1 + i * h2, bitCount);
+         if((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   public long getBitCount() {
+      return bitCount;
+   }
+
+   public int getHashCount() {
+      return hashes;
+   }
+
+   /**
+    * The fraction of bits which are set, the false positive rate
+    * is approximately this raised to the number of hashes.
+    */
+   public double getFillRatio() {
+      long set = 0;
+      for(int i = 0; i < bits.length(); i++) {
+         set += Long.bitCount(bits.get(i));
+      }
+      return (double) set / bitCount;
+   }
+
+   public byte[] toBytes() {
+      ByteBuffer buffer = ByteBuffer.allocate(2 + bits.length() * Long.BYTES);
+      buffer.put(VERSION);
+      buffer.put((byte) hashes);
+      for(int i = 0; i < bits.length(); i++) {
+         buffer.putLong(bits.get(i));
+      }
+      return buffer.array();
+   }
+
+   // murmur3 finalizer, place ids are usually random UUIDs but this spreads out any that aren't
+   private static long mix(long h) {
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+   }
+
+   @Override
+   public String toString() {
+      return "PlaceInterestSummary [bits=" + bitCount + ", hashes=" + hashes + "]";
+   }
+}
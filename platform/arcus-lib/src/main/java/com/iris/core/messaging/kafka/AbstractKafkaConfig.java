@@ -115,6 +115,28 @@ public abstract class AbstractKafkaConfig {
     */
    @Named("secondary.bootstrap.servers")
    private String secondaryBootstrapServers = null;
+   /**
+    * When greater than zero consumed records are handed off to this many worker
+    * lanes keyed by platform partition instead of being dispatched on the polling
+    * thread.  Records for a given platform partition are always delivered in order.
+    */
+   @Named("dispatch.lanes")
+   private int dispatchLanes = 0;
+   /**
+    * The maximum number of records that may be queued on a single dispatch lane
+    * before the polling thread blocks.
+    */
+   @Named("dispatch.lane.queue.size")
+   private int dispatchLaneQueueSize = 1000;
+   /**
+    * Comma separated list of topics which should be written using the binary
+    * message format, all other topics are written as JSON.  Consumers accept
+    * either format so this may be changed one producer at a time.
+    */
+   @Named("topics.binary")
+   private String binaryTopics = "";
+   // parsed form of binaryTopics, checked on every send
+   private Set<String> binaryTopicSet = ImmutableSet.of();
 
    // shared global config
    @Inject(optional = true) @Named("bootstrap.servers") // not auto-populated because this is expanded on client creation
@@ -280,6 +302,7 @@ public abstract class AbstractKafkaConfig {
             throw new IllegalStateException("The property " + prefix + unsupportedProperty + " is no longer supported, please remove it");
          }
       }
+      this.binaryTopicSet = parseTopics(binaryTopics);
    }
 
    @PostConstruct
@@ -378,6 +401,52 @@ public abstract class AbstractKafkaConfig {
       return !StringUtils.isBlank(this.secondaryBootstrapServers);
    }
 
+   public int getDispatchLanes() {
+      return dispatchLanes;
+   }
+
+   public void setDispatchLanes(int dispatchLanes) {
+      this.dispatchLanes = dispatchLanes;
+   }
+
+   public boolean isLaneDispatchEnabled() {
+      return dispatchLanes > 0;
+   }
+
+   public int getDispatchLaneQueueSize() {
+      return dispatchLaneQueueSize;
+   }
+
+   public void setDispatchLaneQueueSize(int dispatchLaneQueueSize) {
+      this.dispatchLaneQueueSize = dispatchLaneQueueSize;
+   }
+
+   public String getBinaryTopics() {
+      return binaryTopics;
+   }
+
+   public void setBinaryTopics(String binaryTopics) {
+      this.binaryTopics = binaryTopics;
+      this.binaryTopicSet = parseTopics(binaryTopics);
+   }
+
+   public MessageFormat getMessageFormat(String topic) {
+      return binaryTopicSet.contains(topic) ? MessageFormat.BINARY : MessageFormat.JSON;
+   }
+
+   private static Set<String> parseTopics(String topics) {
+      if(StringUtils.isBlank(topics)) {
+         return ImmutableSet.of();
+      }
+      ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+      for(String topic: StringUtils.split(topics, ',')) {
+         if(StringUtils.isNotBlank(topic)) {
+            builder.add(topic.trim());
+         }
+      }
+      return builder.build();
+   }
+
    public String getClientId() {
       return clientId;
    }
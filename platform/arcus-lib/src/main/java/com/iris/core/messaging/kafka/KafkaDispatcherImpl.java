@@ -194,6 +194,10 @@ public class KafkaDispatcherImpl implements PartitionListener, KafkaDispatcher {
 		Properties props = primary ? config.toNuConsumerProperties() : config.toSecondaryConsumerProperties();
 		logger.info("Setting kafka group to [{}]", config.getGroupId());
 		props.setProperty("group.id", config.getGroupId());
+		if(config.isLaneDispatchEnabled()) {
+			// records complete out of order across lanes, offsets are committed by the dispatch job instead
+			props.setProperty("enable.auto.commit", "false");
+		}
 
 		return new KafkaConsumer<>(props, KafkaPlatformPartitionDeserializer.instance(), new ByteArrayDeserializer());
 	}
@@ -226,15 +230,44 @@ public class KafkaDispatcherImpl implements PartitionListener, KafkaDispatcher {
 		private final ConcurrentLinkedQueue<MessageListener<ConsumerRecord<PlatformPartition, byte[]>>> callbacks;
 		private final AtomicReference<KafkaConsumer<PlatformPartition, byte[]>> consumerRef = new AtomicReference<>();
 		private final AtomicReference<Set<PlatformPartition>> partitionRef = new AtomicReference<Set<PlatformPartition>>(null);
+		// null unless lane dispatch is enabled
+		private final PartitionDispatchLanes lanes;
+		private final boolean commitOffsets;
+		private long nextCommitTime = 0;
 
 		private SingleDispatchJob(String topic, boolean primary) {
-			this(topic, primary, new ConcurrentLinkedQueue<>());
+			this(topic, primary, new ConcurrentLinkedQueue<>(), null);
 		}
 
-		private SingleDispatchJob(String topic, boolean primary, ConcurrentLinkedQueue<MessageListener<ConsumerRecord<PlatformPartition, byte[]>>> callbacks) {
+		private SingleDispatchJob(
+				String topic, 
+				boolean primary, 
+				ConcurrentLinkedQueue<MessageListener<ConsumerRecord<PlatformPartition, byte[]>>> callbacks,
+				PartitionDispatchLanes lanes
+		) {
 			this.topic = topic;
 			this.primary = primary;
 			this.callbacks = callbacks;
+			// lanes outlive the job so a restarted consumer keeps feeding the same workers
+			this.lanes = lanes != null ? lanes : createLanes(topic, primary);
+			this.commitOffsets = !config.isTransientOffsets() && !Boolean.FALSE.equals(config.getEnableAutoCommit());
+		}
+
+		private PartitionDispatchLanes createLanes(String topic, boolean primary) {
+			if(!config.isLaneDispatchEnabled()) {
+				return null;
+			}
+
+			logger.info("Dispatching topic [{}] on [{}] lanes", topic, config.getDispatchLanes());
+			PartitionDispatchLanes lanes = new PartitionDispatchLanes(
+					primary ? topic : topic + ".secondary",
+					config.getDispatchLanes(),
+					config.getDispatchLaneQueueSize(),
+					callbacks,
+					KafkaDispatcherImpl.this::isShutdown
+			);
+			lanes.start(executor);
+			return lanes;
 		}
 
 		@Override
@@ -265,6 +298,17 @@ public class KafkaDispatcherImpl implements PartitionListener, KafkaDispatcher {
 						if(newPartitions != null) {
 							logger.info("Received [{}] new partition assignments for topic [{}]", newPartitions.size(), topic);
 							Collection<TopicPartition> partitions = toKafkaPartitions(topic, newPartitions, consumer);
+							if(lanes != null) {
+								// finish delivering records from the previous assignment before moving the offsets
+								try {
+									drainAndCommit(consumer);
+								}
+								catch(WakeupException e) {
+									partitionRef.compareAndSet(null, newPartitions);
+									throw e;
+								}
+								lanes.retain(partitions);
+							}
 							seekAndAssign(partitions, consumer);
 						}
 					
@@ -272,6 +316,13 @@ public class KafkaDispatcherImpl implements PartitionListener, KafkaDispatcher {
 						if(records.isEmpty()) {
 							logger.trace("No messages within polling timeout [{}]", config.getPollingTimeoutMs());
 						}
+						else if(lanes != null) {
+							for(ConsumerRecord<PlatformPartition, byte[]> record: records) {
+								if(!lanes.dispatch(record)) {
+									break;
+								}
+							}
+						}
 						else {
 							for(ConsumerRecord<PlatformPartition, byte[]> record: records) {
 								for(MessageListener<ConsumerRecord<PlatformPartition, byte[]>> callback: callbacks) {
@@ -284,6 +335,9 @@ public class KafkaDispatcherImpl implements PartitionListener, KafkaDispatcher {
 								}
 							}
 						}
+						if(lanes != null) {
+							commitCompleted(consumer);
+						}
 					}
 					catch(WakeupException e) {
 						logger.debug("Received wakeup signal for consumer on topic [{}] -- checking for changes", topic);
@@ -296,13 +350,13 @@ public class KafkaDispatcherImpl implements PartitionListener, KafkaDispatcher {
 			finally {
 				if(isShutdown()) {
 					logger.debug("Shutting down consumer [{}]", consumer);
-					stop();
+					release(consumer);
 				}
 				else {
 					logger.debug("Restarting consumer [{}]", consumer);
-					stop();
+					release(consumer);
 					// use the same callback list so that the subscription still works
-					DispatchJob job = new SingleDispatchJob(topic, primary, callbacks);
+					DispatchJob job = new SingleDispatchJob(topic, primary, callbacks, lanes);
 					synchronized (dispatchers) {
 						DispatchJob old = dispatchers.get(topic);
 						if(old == null || old instanceof SingleDispatchJob) {
@@ -321,6 +375,34 @@ public class KafkaDispatcherImpl implements PartitionListener, KafkaDispatcher {
 			}
 		}
 
+		private void commitCompleted(KafkaConsumer<PlatformPartition, byte[]> consumer) {
+			long now = System.currentTimeMillis();
+			if(!commitOffsets || now < nextCommitTime) {
+				return;
+			}
+			nextCommitTime = now + config.getAutoCommitIntervalMs();
+			Map<TopicPartition, OffsetAndMetadata> offsets = lanes.committableOffsets();
+			if(!offsets.isEmpty()) {
+				consumer.commitAsync(offsets, (committed, e) -> {
+					if(e != null) {
+						logger.warn("Unable to commit offsets [{}] for topic [{}]", committed, topic, e);
+					}
+				});
+			}
+		}
+
+		private void drainAndCommit(KafkaConsumer<PlatformPartition, byte[]> consumer) throws InterruptedException {
+			if(!lanes.awaitIdle(config.getDefaultTimeoutMs(), TimeUnit.MILLISECONDS)) {
+				logger.warn("Timed out waiting for dispatch lanes on topic [{}] to drain", topic);
+			}
+			if(commitOffsets) {
+				Map<TopicPartition, OffsetAndMetadata> offsets = lanes.committableOffsets();
+				if(!offsets.isEmpty()) {
+					consumer.commitSync(offsets);
+				}
+			}
+		}
+
 		private void seekAndAssign(Collection<TopicPartition> partitions, KafkaConsumer<PlatformPartition, byte[]> consumer) {
 			consumer.assign(partitions);
 			if(config.isTransientOffsets()) {
@@ -362,23 +444,44 @@ public class KafkaDispatcherImpl implements PartitionListener, KafkaDispatcher {
 
 		@Override
 		public void shutdown() {
-			KafkaConsumer<?, ?> oldConsumer = consumerRef.getAndSet(null);
-			if(oldConsumer  == null) {
+			// the run loop sees the shutdown flag and drains, commits and closes the consumer itself
+			KafkaConsumer<?, ?> consumer = consumerRef.get();
+			if(consumer == null) {
 				logger.warn("Ignoring stop request, consumer already shutdown");
 			}
 			else {
-				oldConsumer.wakeup();
+				consumer.wakeup();
 			}
 		}
 		
-		private void stop() {
-			KafkaConsumer<?, ?> oldConsumer = consumerRef.getAndSet(null);
-			if(oldConsumer  != null) {
-				stop(oldConsumer);
+		/**
+		 * Stops the consumer owned by the run loop unless a restarted job has
+		 * already taken it over and stopped it.
+		 */
+		private void release(KafkaConsumer<PlatformPartition, byte[]> consumer) {
+			if(consumer != null && consumerRef.compareAndSet(consumer, null)) {
+				stop(consumer);
 			}
 		}
 
-		private void stop(KafkaConsumer<?, ?> consumer) {
+		private void stop(KafkaConsumer<PlatformPartition, byte[]> consumer) {
+			if(lanes != null) {
+				try {
+					try {
+						drainAndCommit(consumer);
+					}
+					catch(WakeupException e) {
+						// shutdown() woke the consumer outside of poll, the wakeup is consumed so try again
+						drainAndCommit(consumer);
+					}
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				catch(Exception e) {
+					logger.warn("Error committing dispatched offsets for topic [{}]", topic, e);
+				}
+			}
 			try {
 				// note: this will commit offsets if offset commit is enabled
 				consumer.close();
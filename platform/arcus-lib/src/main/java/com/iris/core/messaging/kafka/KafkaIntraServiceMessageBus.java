@@ -20,7 +20,8 @@ package com.iris.core.messaging.kafka;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.iris.core.platform.IntraServiceMessageBus;
-import com.iris.io.json.JSON;
+import com.iris.io.Serializer;
+import com.iris.io.binary.BinaryPlatformMessageDeserializer;
 import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
 import com.iris.messages.address.AddressMatcher;
@@ -31,7 +32,12 @@ public class KafkaIntraServiceMessageBus extends KafkaMessageBus<PlatformMessage
    
    @Inject
    public KafkaIntraServiceMessageBus(KafkaMessageSender sender, KafkaDispatcher dispatcher, KafkaConfig kafkaConfig, Partitioner defaultPartitioner) {
-      super("intraservice", sender, dispatcher, kafkaConfig, defaultPartitioner, JSON.createSerializer(PlatformMessage.class), JSON.createDeserializer(PlatformMessage.class));
+      super("intraservice", sender, dispatcher, kafkaConfig, defaultPartitioner, MessageFormat.JSON.platformMessageSerializer(), new BinaryPlatformMessageDeserializer());
+   }
+
+   @Override
+   protected Serializer<PlatformMessage> getSerializer(String topic) {
+      return getConfig().getMessageFormat(topic).platformMessageSerializer();
    }
    
    @Override
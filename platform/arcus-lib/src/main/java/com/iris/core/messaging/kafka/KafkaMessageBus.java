@@ -20,6 +20,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.kafka.common.header.Header;
 import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +33,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.iris.core.messaging.MessageBus;
 import com.iris.core.messaging.MessageListener;
+import com.iris.core.messaging.PlaceInterest;
 import com.iris.core.messaging.kafka.KafkaMessageSender.MessageTooBigException;
 import com.iris.io.Deserializer;
 import com.iris.io.Serializer;
@@ -110,7 +112,7 @@ public abstract class KafkaMessageBus<M extends Message, C extends AbstractKafka
          }
 
          try {
-            sender.submit(topic, partition, message, serializer);
+            sender.submit(topic, partition, message, getSerializer(topic), getHeaders(message));
          }
          catch(MessageTooBigException e) {
             if(message instanceof PlatformMessage) {
@@ -132,7 +134,7 @@ public abstract class KafkaMessageBus<M extends Message, C extends AbstractKafka
                         .create();
                }
                if(error != null) {
-                  sender.submit(topic, partition, error, serializer);
+                  sender.submit(topic, partition, error, getSerializer(topic));
                }
             }
             throw e;
@@ -215,6 +217,7 @@ public abstract class KafkaMessageBus<M extends Message, C extends AbstractKafka
    
    protected TopicFilter<PlatformPartition, M> registerTopicFilter(String topic) {
       MessageTopicFilter<M> filter = new MessageTopicFilter<>(metrics, getConfig(topic), deserializer);
+      filter.setPlaceInterest(getPlaceInterest(topic));
       partitioner.addPartitionListener(filter);
       dispatcher.addListener(topic, filter);
       return filter;
@@ -239,6 +242,30 @@ public abstract class KafkaMessageBus<M extends Message, C extends AbstractKafka
       return config;
    }
 
+   /**
+    * The serializer to use when writing to the given topic, by default the
+    * serializer the bus was created with is used for all topics.
+    */
+   protected Serializer<M> getSerializer(String topic) {
+      return serializer;
+   }
+
+   /**
+    * Decides which place scoped broadcasts on {@code topic} are decoded, by
+    * default every record is.
+    */
+   protected PlaceInterest getPlaceInterest(String topic) {
+      return PlaceInterest.ALL;
+   }
+
+   /**
+    * Record headers to attach to {@code message}, by default none are sent.
+    */
+   @Nullable
+   protected Iterable<Header> getHeaders(M message) {
+      return null;
+   }
+
    protected abstract boolean isLogged();
 
    protected abstract String getTopic(Address address);
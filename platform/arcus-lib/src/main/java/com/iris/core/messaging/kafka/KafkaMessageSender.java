@@ -25,6 +25,7 @@ import javax.annotation.PreDestroy;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -70,6 +71,20 @@ public class KafkaMessageSender {
 			@Nullable PlatformPartition partition,
 			T message, 
 			Serializer<T> serializer
+	) throws MessageTooBigException {
+		submit(topic, partition, message, serializer, null);
+	}
+
+	/**
+	 * Sends the message with additional record headers, these are visible to consumers
+	 * before the payload is deserialized.
+	 */
+	public <T> void submit(
+			String topic,
+			@Nullable PlatformPartition partition,
+			T message, 
+			Serializer<T> serializer,
+			@Nullable Iterable<Header> headers
 	) throws MessageTooBigException {
 		Preconditions.checkNotNull(topic, "topic may not be null");
 		Preconditions.checkNotNull(message, "message may not be null");
@@ -80,10 +95,10 @@ public class KafkaMessageSender {
 			throw new MessageTooBigException();
 		}
 		if(partition == null) {
-			producer.send(new ProducerRecord<PlatformPartition, byte[]>(topic, payload));
+			producer.send(new ProducerRecord<PlatformPartition, byte[]>(topic, null, null, payload, headers));
 		}
 		else {
-			producer.send(new ProducerRecord<PlatformPartition, byte[]>(topic, partition, payload));
+			producer.send(new ProducerRecord<PlatformPartition, byte[]>(topic, null, partition, payload, headers));
 		}
 	}
 	
@@ -47,6 +47,7 @@ public class KafkaMetrics {
    private static final String PREFIX_RECV = "recv";
    private static final String PREFIX_EXPR = "expr";
    private static final String PREFIX_DISC = "disc";
+   private static final String PREFIX_FILT = "filt";
 
    private final IrisMetricSet metrics;
    private final Counter read;
@@ -54,6 +55,7 @@ public class KafkaMetrics {
    private final Counter recv;
    private final Counter expr;
    private final Counter disc;
+   private final Counter filt;
    private final Counter sentRequests;
    private final Counter sentBroadcasts;
    private final Counter sentErrors;
@@ -92,6 +94,7 @@ public class KafkaMetrics {
       recv = metrics.counter(PREFIX_RECV);
       expr = metrics.counter(PREFIX_EXPR);
       disc = metrics.counter(PREFIX_DISC);
+      filt = metrics.counter(PREFIX_FILT);
       sentRequests = metrics.counter(PREFIX_SENT + ".requests");
       sentBroadcasts = metrics.counter(PREFIX_SENT + ".broadcasts");
       sentErrors = metrics.counter(PREFIX_SENT + ".errors");
@@ -242,6 +245,14 @@ public class KafkaMetrics {
       metrics.monitor("cache.proc.type", procCache);
    }
    
+   /**
+    * Metrics for the platform partition dispatch lanes consuming {@code topic},
+    * see {@link AbstractKafkaConfig#getDispatchLanes()}.
+    */
+   public static IrisMetricSet dispatchLanes(String topic) {
+      return IrisMetrics.metrics("messages.dispatch." + name(topic));
+   }
+
    public void sent(@Nullable PlatformPartition partition, Message message) {
       sent.inc();
       type(message).inc();
@@ -277,6 +288,15 @@ public class KafkaMetrics {
       }
    }
    
+   /**
+    * A record which was dropped before being decoded because this process
+    * has no interest in the place it is for, these are also discards.
+    */
+   public void filtered(@Nullable PlatformPartition partition) {
+      filt.inc();
+      discard(partition);
+   }
+
    public void received(Message message) {
       long lag = System.currentTimeMillis() - message.getTimestamp().getTime();
       recv.inc();
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.core.messaging.kafka;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+import com.iris.messages.MessageConstants;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
+import com.iris.messages.service.SessionService;
+import com.iris.messages.services.PlatformConstants;
+
+/**
+ * A record header carrying the place a broadcast is scoped to, so consumers
+ * may drop broadcasts for places they have no interest in without decoding the
+ * record.  The id is written as its 16 raw bytes.
+ *
+ * Broadcasts from the place, person, account and session services are never
+ * tagged.  Those are handled by every process which caches place metadata, and
+ * the bridges act on them for any session of the person or account, not just
+ * sessions which have selected the place.
+ */
+public final class KafkaPlaceHeader {
+   public static final String NAME = "iris.place";
+
+   private static final int LENGTH = 16;
+   private static final Set<String> UNSCOPED_SERVICES = ImmutableSet.of(
+         PlatformConstants.SERVICE_PLACES,
+         PlatformConstants.SERVICE_PEOPLE,
+         PlatformConstants.SERVICE_ACCOUNTS,
+         SessionService.NAMESPACE
+   );
+
+   private KafkaPlaceHeader() {
+   }
+
+   /**
+    * The header for {@code message}, or {@code null} if it isn't a
+    * broadcast which may be filtered by place.
+    */
+   @Nullable
+   public static Header forMessage(PlatformMessage message) {
+      Address destination = message.getDestination();
+      if(destination == null || !destination.isBroadcast()) {
+         return null;
+      }
+      Address source = message.getSource();
+      if(source != null && MessageConstants.SERVICE.equals(source.getNamespace()) && UNSCOPED_SERVICES.contains(source.getGroup())) {
+         return null;
+      }
+      String placeId = message.getPlaceId();
+      if(placeId == null || placeId.length() != 36) {
+         return null;
+      }
+      try {
+         return of(UUID.fromString(placeId));
+      }
+      catch(IllegalArgumentException e) {
+         return null;
+      }
+   }
+
+   public static Header of(UUID placeId) {
+      ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+      buffer.putLong(placeId.getMostSignificantBits());
+      buffer.putLong(placeId.getLeastSignificantBits());
+      return new RecordHeader(NAME, buffer.array());
+   }
+
+   /**
+    * The place the record is scoped to, or {@code null} if it
+    * isn't tagged or the header is malformed.
+    */
+   @Nullable
+   public static UUID read(@Nullable Headers headers) {
+      if(headers == null) {
+         return null;
+      }
+      Header header = headers.lastHeader(NAME);
+      if(header == null || header.value() == null || header.value().length != LENGTH) {
+         return null;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(header.value());
+      return new UUID(buffer.getLong(), buffer.getLong());
+   }
+}
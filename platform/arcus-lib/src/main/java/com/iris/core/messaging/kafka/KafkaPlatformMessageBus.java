@@ -18,11 +18,17 @@
  */
 package com.iris.core.messaging.kafka;
 
+import java.util.Collections;
+
+import org.apache.kafka.common.header.Header;
+
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.iris.core.messaging.PlaceInterest;
 import com.iris.core.platform.PlatformMessageBus;
-import com.iris.io.json.JSON;
+import com.iris.io.Serializer;
+import com.iris.io.binary.BinaryPlatformMessageDeserializer;
 import com.iris.messages.MessageConstants;
 import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
@@ -36,6 +42,8 @@ import com.iris.platform.partition.PlatformPartition;
 @Singleton
 public class KafkaPlatformMessageBus extends KafkaMessageBus<PlatformMessage, KafkaConfig> implements PlatformMessageBus {
 
+	private PlaceInterest placeInterest = PlaceInterest.ALL;
+
 	@Inject
 	public KafkaPlatformMessageBus(
 			KafkaMessageSender sender,
@@ -49,11 +57,35 @@ public class KafkaPlatformMessageBus extends KafkaMessageBus<PlatformMessage, Ka
 	         dispatcher,
 	         config,
 	         partitioner,
-	         // TODO switch to binary serializer
-	         JSON.createSerializer(PlatformMessage.class),
-	         JSON.createDeserializer(PlatformMessage.class)
+	         MessageFormat.JSON.platformMessageSerializer(),
+	         new BinaryPlatformMessageDeserializer()
    	);
    }
+
+	/**
+	 * Bound by processes, such as the client bridge, which only care about broadcasts
+	 * for a subset of places so that the rest are dropped before being decoded.
+	 */
+	@Inject(optional = true)
+	public void setPlaceInterest(PlaceInterest placeInterest) {
+		this.placeInterest = placeInterest;
+	}
+
+	@Override
+	protected Serializer<PlatformMessage> getSerializer(String topic) {
+		return getConfig().getMessageFormat(topic).platformMessageSerializer();
+	}
+
+	@Override
+	protected PlaceInterest getPlaceInterest(String topic) {
+		return placeInterest;
+	}
+
+	@Override
+	protected Iterable<Header> getHeaders(PlatformMessage message) {
+		Header place = KafkaPlaceHeader.forMessage(message);
+		return place == null ? null : Collections.singletonList(place);
+	}
 	
 	
 
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.core.messaging.kafka;
+
+import com.iris.io.Serializer;
+import com.iris.io.binary.BinaryPlatformMessageSerializer;
+import com.iris.messages.PlatformMessage;
+
+/**
+ * The encoding used when writing messages to a topic, see
+ * {@link AbstractKafkaConfig#getMessageFormat(String)}.
+ */
+public enum MessageFormat {
+   JSON {
+      @Override
+      public Serializer<PlatformMessage> platformMessageSerializer() {
+         return PlatformSerializers.JSON;
+      }
+   },
+   BINARY {
+      @Override
+      public Serializer<PlatformMessage> platformMessageSerializer() {
+         return BinaryPlatformMessageSerializer.INSTANCE;
+      }
+   };
+
+   public abstract Serializer<PlatformMessage> platformMessageSerializer();
+
+   private static class PlatformSerializers {
+      private static final Serializer<PlatformMessage> JSON = com.iris.io.json.JSON.createSerializer(PlatformMessage.class);
+   }
+}
@@ -19,16 +19,19 @@
 package com.iris.core.messaging.kafka;
 
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSet.Builder;
+import com.iris.core.messaging.PlaceInterest;
 import com.iris.io.Deserializer;
 import com.iris.messages.Message;
 import com.iris.platform.partition.DefaultPartition;
@@ -51,6 +54,7 @@ public class MessageTopicFilter<M extends Message>
    private final AtomicBoolean clustered = new AtomicBoolean(false);
    private final AtomicReference<Set<PlatformPartition>> partitionRef = new AtomicReference<>(ImmutableSet.of()); // the container's topics partitions unless isForceAllStrategy is true
    private final KafkaMetrics metrics;
+   private volatile PlaceInterest placeInterest = PlaceInterest.ALL;
    
    // NOTE: This variable is used in a way that is susceptible to race
    // conditions. This choice was a purposeful and was made because these
@@ -90,6 +94,33 @@ public class MessageTopicFilter<M extends Message>
       return true;
    }
 
+   /**
+    * Drops broadcasts tagged with a {@link KafkaPlaceHeader} for a place
+    * which {@link #getPlaceInterest()} isn't interested in.
+    */
+   @Override
+   public boolean acceptRecord(ConsumerRecord<PlatformPartition, byte[]> record) {
+      PlaceInterest interest = placeInterest;
+      if(interest == PlaceInterest.ALL) {
+         return true;
+      }
+      UUID placeId = KafkaPlaceHeader.read(record.headers());
+      if(placeId == null || interest.isInterested(placeId)) {
+         return true;
+      }
+      logger.trace("Dropping broadcast for uninteresting place [{}]", placeId);
+      metrics.filtered(record.key());
+      return false;
+   }
+
+   public PlaceInterest getPlaceInterest() {
+      return placeInterest;
+   }
+
+   public void setPlaceInterest(PlaceInterest placeInterest) {
+      this.placeInterest = placeInterest == null ? PlaceInterest.ALL : placeInterest;
+   }
+
    /* (non-Javadoc)
     * @see com.iris.core.messaging.kafka.TopicFilter#acceptMessage(java.lang.Object)
     */
@@ -104,7 +135,8 @@ public class MessageTopicFilter<M extends Message>
             expiredMsgStart = nanoTime;
          }
 
-         logger.warn("dropping message {}: {}", message.getMessageType(), message);
+         // only log the envelope so the payload of a lazily decoded message is never built
+         logger.warn("dropping message {} from {} to {}", message.getMessageType(), message.getSource(), message.getDestination());
 
          expiredMsgCounter++;
          metrics.expired(message);
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.core.messaging.kafka;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.google.common.base.Preconditions;
+import com.iris.core.messaging.MessageListener;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.platform.partition.PlatformPartition;
+
+/**
+ * Fans consumed records out to a fixed set of worker lanes keyed by
+ * {@link PlatformPartition}, so a slow handler for one place only holds up
+ * the other partitions that share its lane.
+ *
+ * Records for the same platform partition always land on the same lane
+ * and are delivered in order.  Because records from a single kafka partition
+ * complete out of order across lanes the consumer's offsets must be committed
+ * via {@link #committableOffsets()}, which never moves past a record that
+ * is still queued or in flight.
+ */
+class PartitionDispatchLanes {
+	private static final Logger logger = LoggerFactory.getLogger(PartitionDispatchLanes.class);
+	private static final long POLL_INTERVAL_MS = 100;
+
+	private final String topic;
+	private final Collection<MessageListener<ConsumerRecord<PlatformPartition, byte[]>>> callbacks;
+	private final BooleanSupplier shutdown;
+	private final Lane[] lanes;
+	private final Map<TopicPartition, PendingOffsets> pending = new ConcurrentHashMap<>();
+	private final Object idleLock = new Object();
+	private int outstanding = 0;
+
+	PartitionDispatchLanes(
+			String topic,
+			int laneCount,
+			int queueSize,
+			Collection<MessageListener<ConsumerRecord<PlatformPartition, byte[]>>> callbacks,
+			BooleanSupplier shutdown
+	) {
+		Preconditions.checkArgument(laneCount > 0, "laneCount must be greater than 0");
+		Preconditions.checkArgument(queueSize > 0, "queueSize must be greater than 0");
+		this.topic = topic;
+		this.callbacks = callbacks;
+		this.shutdown = shutdown;
+		this.lanes = new Lane[laneCount];
+		IrisMetricSet metrics = KafkaMetrics.dispatchLanes(topic);
+		for(int i = 0; i < laneCount; i++) {
+			Lane lane = new Lane(i, queueSize, metrics.counter("lane" + i + ".records"));
+			metrics.gauge("lane" + i + ".depth", Lane::depth, lane);
+			metrics.gauge("lane" + i + ".lag", Lane::lagMs, lane);
+			metrics.gauge("lane" + i + ".partition", Lane::partition, lane);
+			lanes[i] = lane;
+		}
+	}
+
+	void start(ExecutorService executor) {
+		for(Lane lane: lanes) {
+			executor.submit(lane);
+		}
+	}
+
+	/**
+	 * Queues the record on the lane for its platform partition, blocking while
+	 * that lane is full.
+	 * @return {@code false} if the dispatcher was shutdown before the record could be queued
+	 */
+	boolean dispatch(ConsumerRecord<PlatformPartition, byte[]> record) throws InterruptedException {
+		Lane lane = lanes[Math.floorMod(key(record), lanes.length)];
+		TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+		PendingOffsets offsets = pending.computeIfAbsent(tp, (k) -> new PendingOffsets());
+		offsets.dispatched(record.offset());
+		synchronized(idleLock) {
+			outstanding++;
+		}
+		while(!lane.queue.offer(record, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+			if(shutdown.getAsBoolean()) {
+				completed(record);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The offsets that are safe to commit, the next offset for each partition
+	 * which has no earlier records still queued or being processed.
+	 */
+	Map<TopicPartition, OffsetAndMetadata> committableOffsets() {
+		Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+		for(Map.Entry<TopicPartition, PendingOffsets> entry: pending.entrySet()) {
+			long committable = entry.getValue().committable();
+			if(committable >= 0) {
+				offsets.put(entry.getKey(), new OffsetAndMetadata(committable));
+			}
+		}
+		return offsets;
+	}
+
+	/**
+	 * Blocks until every dispatched record has been processed.
+	 * @return {@code true} if the lanes are idle, {@code false} if the timeout elapsed first
+	 */
+	boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized(idleLock) {
+			while(outstanding > 0) {
+				long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if(remainingMs <= 0) {
+					return false;
+				}
+				idleLock.wait(remainingMs);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Forgets offsets for partitions that are no longer assigned, should only be
+	 * called once the lanes are idle.
+	 */
+	void retain(Collection<TopicPartition> assigned) {
+		pending.keySet().retainAll(assigned);
+	}
+
+	private void completed(ConsumerRecord<PlatformPartition, byte[]> record) {
+		PendingOffsets offsets = pending.get(new TopicPartition(record.topic(), record.partition()));
+		if(offsets != null) {
+			offsets.completed(record.offset());
+		}
+		synchronized(idleLock) {
+			if(--outstanding == 0) {
+				idleLock.notifyAll();
+			}
+		}
+	}
+
+	private static int key(ConsumerRecord<PlatformPartition, byte[]> record) {
+		PlatformPartition partition = record.key();
+		return partition != null ? partition.getId() : record.partition();
+	}
+
+	private class Lane implements Runnable {
+		private final int index;
+		private final BlockingQueue<ConsumerRecord<PlatformPartition, byte[]>> queue;
+		private final Counter records;
+		private volatile long processingTimestamp = 0;
+		private volatile int partition = -1;
+
+		Lane(int index, int queueSize, Counter records) {
+			this.index = index;
+			this.queue = new ArrayBlockingQueue<>(queueSize);
+			this.records = records;
+		}
+
+		int depth() {
+			return queue.size();
+		}
+
+		long lagMs() {
+			long timestamp = processingTimestamp;
+			return timestamp > 0 ? Math.max(0, System.currentTimeMillis() - timestamp) : 0;
+		}
+
+		int partition() {
+			return partition;
+		}
+
+		@Override
+		public void run() {
+			logger.debug("Starting dispatch lane [{}] for topic [{}]", index, topic);
+			try {
+				// drain whatever has already been queued before exiting on shutdown
+				while(!shutdown.getAsBoolean() || !queue.isEmpty()) {
+					ConsumerRecord<PlatformPartition, byte[]> record = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+					if(record != null) {
+						process(record);
+					}
+				}
+			}
+			catch(InterruptedException e) {
+				logger.warn("Dispatch lane [{}] for topic [{}] interrupted with [{}] records queued", index, topic, queue.size());
+				Thread.currentThread().interrupt();
+			}
+			logger.debug("Stopped dispatch lane [{}] for topic [{}]", index, topic);
+		}
+
+		private void process(ConsumerRecord<PlatformPartition, byte[]> record) {
+			processingTimestamp = record.timestamp() > 0 ? record.timestamp() : System.currentTimeMillis();
+			partition = key(record);
+			try {
+				for(MessageListener<ConsumerRecord<PlatformPartition, byte[]>> callback: callbacks) {
+					try {
+						callback.onMessage(record);
+					}
+					catch(Exception e) {
+						logger.warn("Error sending message to callback [{}]", callback, e);
+					}
+				}
+			}
+			finally {
+				processingTimestamp = 0;
+				records.inc();
+				completed(record);
+			}
+		}
+	}
+
+	private static class PendingOffsets {
+		private final ConcurrentSkipListSet<Long> inflight = new ConcurrentSkipListSet<>();
+		// only modified by the polling thread
+		private volatile long next = -1;
+
+		void dispatched(long offset) {
+			inflight.add(offset);
+			next = offset + 1;
+		}
+
+		void completed(long offset) {
+			inflight.remove(offset);
+		}
+
+		long committable() {
+			Long first = inflight.ceiling(Long.MIN_VALUE);
+			return first != null ? first : next;
+		}
+	}
+}
@@ -86,6 +86,14 @@ public class TopicFilter<K, M> implements MessageListener<ConsumerRecord<K, byte
       return true;
    }
 
+   /**
+    * Invoked after the key has been accepted but before the value is
+    * deserialized, allowing records to be dropped based on their headers.
+    */
+   public boolean acceptRecord(ConsumerRecord<K, byte[]> record) {
+      return true;
+   }
+
    public boolean acceptMessage(M message) {
       return true;
    }
@@ -106,6 +114,9 @@ public class TopicFilter<K, M> implements MessageListener<ConsumerRecord<K, byte
       if (!acceptKey(key)) {
          return;
       }
+      if (!acceptRecord(record)) {
+         return;
+      }
 
       M payload = deserializeMessage(record.value());
       if (!acceptMessage(payload)) {
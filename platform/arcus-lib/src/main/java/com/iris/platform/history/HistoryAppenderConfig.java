@@ -58,6 +58,17 @@ public class HistoryAppenderConfig {
 
    @Inject(optional=true) @Named("history.activity.bucket.sizesec")
    private int activityBucketSizeSec = 5;
+
+   @Inject(optional=true) @Named("history.writer.queue.size")
+   private int writerQueueSize = 10000;
+   @Inject(optional=true) @Named("history.writer.batch.size")
+   private int writerBatchSize = 25;
+   @Inject(optional=true) @Named("history.writer.inflight.max")
+   private int writerMaxInFlight = 32;
+   @Inject(optional=true) @Named("history.writer.shutdown.timeoutms")
+   private long writerShutdownTimeoutMs = 30000;
+   @Inject(optional=true) @Named("history.writer.offer.timeoutms")
+   private long writerOfferTimeoutMs = 1000;
    
    /**
     * @return the maxThreads
@@ -165,5 +176,62 @@ public class HistoryAppenderConfig {
    public void setDetailedAlarmTtlHours(int detailedAlarmTtlHours) {
       this.detailedAlarmTtlHours = detailedAlarmTtlHours;
    }
-}
 
+   /**
+    * @return the maximum number of entries waiting to be written before
+    *    appending blocks the caller
+    */
+   public int getWriterQueueSize() {
+      return writerQueueSize;
+   }
+
+   public void setWriterQueueSize(int writerQueueSize) {
+      this.writerQueueSize = writerQueueSize;
+   }
+
+   /**
+    * @return the maximum number of entries for the same table and partition
+    *    combined into a single batch
+    */
+   public int getWriterBatchSize() {
+      return writerBatchSize;
+   }
+
+   public void setWriterBatchSize(int writerBatchSize) {
+      this.writerBatchSize = writerBatchSize;
+   }
+
+   /**
+    * @return the maximum number of outstanding writes to cassandra
+    */
+   public int getWriterMaxInFlight() {
+      return writerMaxInFlight;
+   }
+
+   public void setWriterMaxInFlight(int writerMaxInFlight) {
+      this.writerMaxInFlight = writerMaxInFlight;
+   }
+
+   /**
+    * @return how long shutdown will wait for pending entries to be written
+    */
+   public long getWriterShutdownTimeoutMs() {
+      return writerShutdownTimeoutMs;
+   }
+
+   public void setWriterShutdownTimeoutMs(long writerShutdownTimeoutMs) {
+      this.writerShutdownTimeoutMs = writerShutdownTimeoutMs;
+   }
+
+   /**
+    * @return how long appending will wait for space in a full queue before
+    *    writing the entry directly
+    */
+   public long getWriterOfferTimeoutMs() {
+      return writerOfferTimeoutMs;
+   }
+
+   public void setWriterOfferTimeoutMs(long writerOfferTimeoutMs) {
+      this.writerOfferTimeoutMs = writerOfferTimeoutMs;
+   }
+}
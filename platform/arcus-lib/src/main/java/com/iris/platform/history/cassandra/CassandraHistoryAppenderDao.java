@@ -16,25 +16,46 @@
 package com.iris.platform.history.cassandra;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.PreDestroy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Timer;
-import com.codahale.metrics.Timer.Context;
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.iris.core.dao.metrics.DaoMetrics;
 import com.iris.messages.model.CompositeId;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+import com.iris.platform.history.HistoryAppenderConfig;
 import com.iris.platform.history.HistoryAppenderDAO;
 import com.iris.platform.history.HistoryLogEntry;
+import com.iris.platform.history.HistoryLogEntryType;
 import com.iris.platform.history.cassandra.HistoryTable.CriticalPlaceTable;
 import com.iris.platform.history.cassandra.HistoryTable.DetailedAlarmTable;
 import com.iris.platform.history.cassandra.HistoryTable.DetailedDeviceTable;
@@ -44,19 +65,23 @@ import com.iris.platform.history.cassandra.HistoryTable.DetailedPlaceTable;
 import com.iris.platform.history.cassandra.HistoryTable.DetailedRuleTable;
 import com.iris.platform.history.cassandra.HistoryTable.DetailedSubsystemTable;
 import com.iris.util.IrisUUID;
+import com.iris.util.ThreadPoolBuilder;
 
+/**
+ * Writes history entries asynchronously.  Entries are bound on the calling
+ * thread and queued, a single writer thread drains the queue and combines
+ * entries for the same table and partition into unlogged batches.  The number
+ * of outstanding writes is capped, once that is reached the writer stops
+ * draining and when the queue fills up {@link #appendHistoryEvent(HistoryLogEntry)}
+ * waits briefly for space and then writes the entry itself, so a slow cassandra
+ * slows down the consumer rather than growing the heap.  A failed batch is
+ * retried once before it is counted as failed.
+ */
 @Singleton
 public class CassandraHistoryAppenderDao implements HistoryAppenderDAO {
    private static final Logger logger = LoggerFactory.getLogger(CassandraHistoryAppenderDao.class);
    
-   private static final Timer criticalPlaceLogTimer = DaoMetrics.insertTimer(HistoryAppenderDAO.class, "critical.place");
-   private static final Timer detailedPlaceLogTimer = DaoMetrics.insertTimer(HistoryAppenderDAO.class, "detailed.place");
-   private static final Timer detailedDeviceLogTimer = DaoMetrics.insertTimer(HistoryAppenderDAO.class, "detailed.device");
-   private static final Timer detailedHubLogTimer = DaoMetrics.insertTimer(HistoryAppenderDAO.class, "detailed.hub");
-   private static final Timer detailedPersonLogTimer = DaoMetrics.insertTimer(HistoryAppenderDAO.class, "detailed.person");
-   private static final Timer detailedRuleLogTimer = DaoMetrics.insertTimer(HistoryAppenderDAO.class, "detailed.rule");
-   private static final Timer detailedSubsystemLogTimer = DaoMetrics.insertTimer(HistoryAppenderDAO.class, "detailed.subsystem");
-   private static final Timer detailedAlarmLogTimer = DaoMetrics.insertTimer(HistoryAppenderDAO.class, "detailed.alarm");
+   private static final long POLL_TIMEOUT_MS = 100;
    
    private final Session session;
    private final CriticalPlaceTable criticalPlaceTable;
@@ -69,6 +94,16 @@ public class CassandraHistoryAppenderDao implements HistoryAppenderDAO {
    private final DetailedAlarmTable detailedAlarmTable;
    
    private final AtomicLong nextId = new AtomicLong(0);
+   
+   private final int batchSize;
+   private final int maxInFlight;
+   private final long shutdownTimeoutMs;
+   private final long offerTimeoutMs;
+   private final BlockingQueue<PendingEntry> queue;
+   private final Semaphore inFlight;
+   private final Thread writer;
+   private final WriterMetrics metrics;
+   private volatile boolean running = true;
 
    @Inject
    public CassandraHistoryAppenderDao(
@@ -80,7 +115,8 @@ public class CassandraHistoryAppenderDao implements HistoryAppenderDAO {
          DetailedHubTable detailedHubTable,
          DetailedRuleTable detailedRuleTable,
          DetailedSubsystemTable detailedSubsystemTable,
-         DetailedAlarmTable detailedAlarmTable
+         DetailedAlarmTable detailedAlarmTable,
+         HistoryAppenderConfig config
       ) {
       this.session = session;
       this.criticalPlaceTable = criticalPlaceTable;
@@ -91,93 +127,281 @@ public class CassandraHistoryAppenderDao implements HistoryAppenderDAO {
       this.detailedRuleTable = detailedRuleTable;
       this.detailedSubsystemTable = detailedSubsystemTable;
       this.detailedAlarmTable = detailedAlarmTable;
+      
+      this.batchSize = Math.max(1, config.getWriterBatchSize());
+      this.maxInFlight = Math.max(1, config.getWriterMaxInFlight());
+      this.shutdownTimeoutMs = config.getWriterShutdownTimeoutMs();
+      this.offerTimeoutMs = config.getWriterOfferTimeoutMs();
+      this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getWriterQueueSize()));
+      this.inFlight = new Semaphore(maxInFlight);
+      this.metrics = new WriterMetrics(IrisMetrics.metrics("history.appender.writer"));
+      this.writer =
+            ThreadPoolBuilder
+               .defaultFactoryBuilder()
+               .setNameFormat("history-appender-writer-%d")
+               .build()
+               .newThread(this::drain);
+      this.writer.start();
    }
 
    @Override
    public void appendHistoryEvent(HistoryLogEntry event) {
       try{
-         doAppend(event);
+         enqueue(bind(event));
          logger.debug("Inserting: {}", event);
       }catch (RuntimeException e){
          logger.warn("Unable to insert event: {}", event, e);
          throw e;
       }
    }
+   
+   /**
+    * Stops accepting new entries into the queue and waits up to
+    * {@code history.writer.shutdown.timeoutms} for everything already queued
+    * to be written.  Anything the writer did not get to is written synchronously
+    * before this returns, as are entries appended after this point.
+    */
+   @PreDestroy
+   public void stop() {
+      running = false;
+      try {
+         writer.join(shutdownTimeoutMs);
+         if(inFlight.tryAcquire(maxInFlight, shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+            inFlight.release(maxInFlight);
+         }
+         else {
+            logger.warn("Timed out waiting for history writes to complete");
+         }
+      }
+      catch(InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      flush();
+   }
+
+   private void flush() {
+      List<PendingEntry> remaining = new ArrayList<>(queue.size());
+      queue.drainTo(remaining);
+      if(remaining.isEmpty()) {
+         return;
+      }
+      
+      logger.info("Writing [{}] queued history entries before shutdown", remaining.size());
+      for(List<PendingEntry> entries: partition(remaining)) {
+         HistoryLogEntryType type = entries.get(0).type;
+         metrics.batchSize(type).update(entries.size());
+         try {
+            executeSync(type, toStatement(entries));
+         }
+         catch(RuntimeException e) {
+            metrics.onFailure(entries.size());
+            logger.warn("Unable to insert [{}] {} entries", entries.size(), type, e);
+         }
+      }
+   }
+
+   private void enqueue(PendingEntry entry) {
+      if(running) {
+         try {
+            if(queue.offer(entry, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+               // stop() drains the queue after the writer exits, if the entry is
+               // still there once running has been cleared nothing else will write it
+               if(running || !queue.remove(entry)) {
+                  return;
+               }
+            }
+         }
+         catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to append history", e);
+         }
+      }
+      
+      executeSync(entry.type, entry.statement);
+   }
+   
+   private void executeSync(HistoryLogEntryType type, Statement stmt) {
+      Timer.Context context = metrics.writeTimer(type).time();
+      try {
+         execute(stmt);
+      }
+      finally {
+         context.stop();
+      }
+   }
 
    @SuppressWarnings("unchecked")
-   protected void doAppend(HistoryLogEntry event) {
+   protected PendingEntry bind(HistoryLogEntry event) {
       List<Object> values = new ArrayList<Object>(HistoryTable.COLUMN_COUNT);
       PreparedStatement stmt;
+      int partitionKeyColumns = 1;
 
-      Context metricsTimer = null;
+      switch (event.getType()) {
+      case CRITICAL_PLACE_LOG:
+         stmt = criticalPlaceTable.insert();
+         values.add(event.getId());
+         break;
+      case DETAILED_PLACE_LOG:
+         stmt = detailedPlaceTable.insert();
+         values.add(event.getId());
+         break;
+      case DETAILED_PERSON_LOG:
+         stmt = detailedPersonTable.insert();
+         values.add(event.getId());
+         break;
+      case DETAILED_DEVICE_LOG:
+         stmt = detailedDeviceTable.insert();
+         values.add(event.getId());
+         break;
+      case DETAILED_HUB_LOG:
+          stmt = detailedHubTable.insert();
+          values.add(event.getId());
+          break;
+      case DETAILED_RULE_LOG:
+         stmt = detailedRuleTable.insert();
+         CompositeId<UUID, Integer> rid = (CompositeId<UUID, Integer>) event.getId();
+         values.add(rid.getPrimaryId());
+         values.add(rid.getSecondaryId());
+         partitionKeyColumns = 2;
+         break;
+      case DETAILED_SUBSYSTEM_LOG:
+         stmt = detailedSubsystemTable.insert();
+         CompositeId<UUID, String> sid = (CompositeId<UUID, String>) event.getId();
+         values.add(sid.getPrimaryId());
+         values.add(sid.getSecondaryId());
+         partitionKeyColumns = 2;
+         break;
+      case DETAILED_ALARM_LOG:
+         stmt = detailedAlarmTable.insert();
+         values.add(event.getId());
+         break;
+      default:
+         throw new IllegalArgumentException("Unsupported log type:" + event.getType());
+      }
+      List<Object> partitionKey = ImmutableList.<Object>builder().add(event.getType()).addAll(values.subList(0, partitionKeyColumns)).build();
+      values.add(nextTimeUuid(event.getTimestamp()));
+      values.add(event.getMessageKey());
+      if (event.getValues() == null){
+         values.add(ImmutableList.of());
+      }
+      else{
+         values.add(event.getNonNullValues());
+      }
+      values.add(event.getSubjectAddress());
       
-      try{
-         switch (event.getType()) {
-         case CRITICAL_PLACE_LOG:
-            stmt = criticalPlaceTable.insert();
-            values.add(event.getId());
-            metricsTimer = criticalPlaceLogTimer.time();
-            break;
-         case DETAILED_PLACE_LOG:
-            stmt = detailedPlaceTable.insert();
-            values.add(event.getId());
-            metricsTimer = detailedPlaceLogTimer.time(); 
-            break;
-         case DETAILED_PERSON_LOG:
-            stmt = detailedPersonTable.insert();
-            values.add(event.getId());
-            metricsTimer = detailedPersonLogTimer.time();
-            break;
-         case DETAILED_DEVICE_LOG:
-            stmt = detailedDeviceTable.insert();
-            values.add(event.getId());
-            metricsTimer = detailedDeviceLogTimer.time();
-            break;
-         case DETAILED_HUB_LOG:
-             stmt = detailedHubTable.insert();
-             values.add(event.getId());
-             metricsTimer = detailedHubLogTimer.time();
-             break;
-         case DETAILED_RULE_LOG:
-            stmt = detailedRuleTable.insert();
-            CompositeId<UUID, Integer> rid = (CompositeId<UUID, Integer>) event.getId();
-            values.add(rid.getPrimaryId());
-            values.add(rid.getSecondaryId());
-            metricsTimer = detailedRuleLogTimer.time();
-            break;
-         case DETAILED_SUBSYSTEM_LOG:
-            stmt = detailedSubsystemTable.insert();
-            CompositeId<UUID, String> sid = (CompositeId<UUID, String>) event.getId();
-            values.add(sid.getPrimaryId());
-            values.add(sid.getSecondaryId());
-            metricsTimer = detailedSubsystemLogTimer.time();
-            break;
-         case DETAILED_ALARM_LOG:
-            stmt = detailedAlarmTable.insert();
-            values.add(event.getId());
-            metricsTimer = detailedAlarmLogTimer.time();
-            break;
-         default:
-            throw new IllegalArgumentException("Unsupported log type:" + event.getType());
+      return new PendingEntry(event.getType(), partitionKey, stmt.bind(values.toArray()));
+   }
+   
+   private void drain() {
+      List<PendingEntry> pending = new ArrayList<>(batchSize * maxInFlight);
+      while(running || !queue.isEmpty()) {
+         try {
+            PendingEntry first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if(first == null) {
+               continue;
+            }
+            pending.add(first);
+            queue.drainTo(pending, batchSize * maxInFlight - 1);
+            write(pending);
          }
-         values.add(nextTimeUuid(event.getTimestamp()));
-         values.add(event.getMessageKey());
-         if (event.getValues() == null){
-            values.add(ImmutableList.of());
+         catch(InterruptedException e) {
+            logger.warn("History writer interrupted, [{}] entries will not be written", queue.size());
+            return;
          }
-         else{
-            values.add(event.getNonNullValues());
+         catch(Exception e) {
+            logger.warn("Error writing history entries", e);
          }
-         values.add(event.getSubjectAddress());
-         
-         session.execute(stmt.bind(values.toArray()));
-
-      }finally{
-         if (metricsTimer != null) {
-            metricsTimer.stop();
+         finally {
+            pending.clear();
          }
       }
    }
+   
+   private void write(List<PendingEntry> pending) throws InterruptedException {
+      for(List<PendingEntry> entries: partition(pending)) {
+         submit(entries);
+      }
+   }
+   
+   private List<List<PendingEntry>> partition(List<PendingEntry> pending) {
+      Map<List<Object>, List<PendingEntry>> partitions = new LinkedHashMap<>();
+      for(PendingEntry entry: pending) {
+         partitions.computeIfAbsent(entry.partitionKey, (key) -> new ArrayList<>()).add(entry);
+      }
+      List<List<PendingEntry>> batches = new ArrayList<>();
+      for(List<PendingEntry> entries: partitions.values()) {
+         for(int i = 0; i < entries.size(); i += batchSize) {
+            batches.add(entries.subList(i, Math.min(entries.size(), i + batchSize)));
+         }
+      }
+      return batches;
+   }
+   
+   private Statement toStatement(List<PendingEntry> entries) {
+      if(entries.size() == 1) {
+         return entries.get(0).statement;
+      }
+      
+      BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+      for(PendingEntry entry: entries) {
+         batch.add(entry.statement);
+      }
+      return batch;
+   }
+   
+   private void submit(List<PendingEntry> entries) throws InterruptedException {
+      HistoryLogEntryType type = entries.get(0).type;
+      Statement stmt = toStatement(entries);
+      
+      // blocks the writer which in turn will fill up the queue and block appenders
+      inFlight.acquire();
+      metrics.batchSize(type).update(entries.size());
+      try {
+         submit(type, entries.size(), stmt, true);
+      }
+      catch(RuntimeException e) {
+         inFlight.release();
+         throw e;
+      }
+   }
+   
+   // the in-flight permit is held until the final attempt completes
+   private void submit(HistoryLogEntryType type, int count, Statement stmt, boolean retry) {
+      Timer.Context context = metrics.writeTimer(type).time();
+      Futures.addCallback(executeAsync(stmt), new FutureCallback<ResultSet>() {
+         @Override
+         public void onSuccess(ResultSet result) {
+            context.stop();
+            inFlight.release();
+         }
+
+         @Override
+         public void onFailure(Throwable t) {
+            context.stop();
+            if(retry) {
+               logger.debug("Retrying [{}] {} entries after failure", count, type, t);
+               try {
+                  submit(type, count, stmt, false);
+                  return;
+               }
+               catch(RuntimeException e) {
+                  t = e;
+               }
+            }
+            inFlight.release();
+            metrics.onFailure(count);
+            logger.warn("Unable to insert [{}] {} entries", count, type, t);
+         }
+      });
+   }
+   
+   protected ListenableFuture<ResultSet> executeAsync(Statement stmt) {
+      return session.executeAsync(stmt);
+   }
+   
+   protected void execute(Statement stmt) {
+      session.execute(stmt);
+   }
 
 	private UUID nextTimeUuid(long timestamp) {
 		// In a UUID the 0x10000000000th bit is reserved, to prevent repeating numbers
@@ -189,6 +413,61 @@ public class CassandraHistoryAppenderDao implements HistoryAppenderDAO {
 		long nextEntry = Math.floorMod(nextId.getAndIncrement(), 0x10000000000L);
 		return IrisUUID.timeUUID(timestamp, nextEntry);
 	}
+   
+   protected static class PendingEntry {
+      private final HistoryLogEntryType type;
+      private final List<Object> partitionKey;
+      private final Statement statement;
+      
+      PendingEntry(HistoryLogEntryType type, List<Object> partitionKey, Statement statement) {
+         this.type = type;
+         this.partitionKey = partitionKey;
+         this.statement = statement;
+      }
+   }
+   
+   private class WriterMetrics {
+      private final Map<HistoryLogEntryType, Timer> writeTimers = new EnumMap<>(HistoryLogEntryType.class);
+      private final Map<HistoryLogEntryType, Histogram> batchSizes = new EnumMap<>(HistoryLogEntryType.class);
+      private final Counter failed;
+      
+      WriterMetrics(IrisMetricSet metrics) {
+         for(HistoryLogEntryType type: HistoryLogEntryType.values()) {
+            String name = metricName(type);
+            // keeps the existing per-table insert timers, these now measure a batch rather than a single entry
+            writeTimers.put(type, DaoMetrics.insertTimer(HistoryAppenderDAO.class, name));
+            batchSizes.put(type, metrics.histogram("batch.size." + name));
+         }
+         this.failed = metrics.counter("failed");
+         metrics.gauge("queue.depth", (Supplier<Integer>) () -> queue.size());
+         metrics.gauge("inflight", (Supplier<Integer>) () -> maxInFlight - inFlight.availablePermits());
+      }
+      
+      Timer writeTimer(HistoryLogEntryType type) {
+         return writeTimers.get(type);
+      }
+      
+      Histogram batchSize(HistoryLogEntryType type) {
+         return batchSizes.get(type);
+      }
+      
+      void onFailure(int entries) {
+         failed.inc(entries);
+      }
+      
+      private String metricName(HistoryLogEntryType type) {
+         switch(type) {
+         case CRITICAL_PLACE_LOG:     return "critical.place";
+         case DETAILED_PLACE_LOG:     return "detailed.place";
+         case DETAILED_DEVICE_LOG:    return "detailed.device";
+         case DETAILED_HUB_LOG:       return "detailed.hub";
+         case DETAILED_PERSON_LOG:    return "detailed.person";
+         case DETAILED_RULE_LOG:      return "detailed.rule";
+         case DETAILED_SUBSYSTEM_LOG: return "detailed.subsystem";
+         case DETAILED_ALARM_LOG:     return "detailed.alarm";
+         default:                     return type.name().toLowerCase();
+         }
+      }
+   }
 
 }
-
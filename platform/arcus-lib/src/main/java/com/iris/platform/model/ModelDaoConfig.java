@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.model;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+public class ModelDaoConfig {
+   public static final String PROP_LOAD_THREADS = "model.dao.load.threads";
+   public static final String PROP_LOAD_TIMEOUT_MS = "model.dao.load.timeoutMs";
+
+   /**
+    * The number of threads shared by all the namespace loads, this bounds the
+    * number of concurrent queries issued while loading places.
+    */
+   @Inject(optional = true) @Named(PROP_LOAD_THREADS)
+   private int loadThreads = 16;
+   /**
+    * The maximum time to load all the models for a place, or for all the
+    * places requested by a bulk load.
+    */
+   @Inject(optional = true) @Named(PROP_LOAD_TIMEOUT_MS)
+   private long loadTimeoutMs = TimeUnit.SECONDS.toMillis(30);
+
+   public int getLoadThreads() {
+      return loadThreads;
+   }
+
+   public void setLoadThreads(int loadThreads) {
+      this.loadThreads = loadThreads;
+   }
+
+   public long getLoadTimeoutMs() {
+      return loadTimeoutMs;
+   }
+
+   public void setLoadTimeoutMs(long loadTimeoutMs) {
+      this.loadTimeoutMs = loadTimeoutMs;
+   }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.model;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.iris.messages.model.Model;
+
+/**
+ * Thrown when one or more namespaces could not be loaded for a place.  The
+ * models from the namespaces which did load are still available, but callers
+ * should not treat them as a complete view of the place.
+ */
+public class ModelLoadException extends RuntimeException {
+   private static final long serialVersionUID = 2415530712924364152L;
+
+   private final UUID placeId;
+   private final Map<String, Throwable> failures;
+   private final Collection<Model> models;
+
+   public ModelLoadException(UUID placeId, Map<String, Throwable> failures, Collection<Model> models) {
+      super("Unable to load " + failures.keySet() + " for place " + placeId);
+      this.placeId = placeId;
+      this.failures = ImmutableMap.copyOf(failures);
+      this.models = ImmutableList.copyOf(models);
+      for(Throwable cause: this.failures.values()) {
+         addSuppressed(cause);
+      }
+   }
+
+   public UUID getPlaceId() {
+      return placeId;
+   }
+
+   /**
+    * The cause of each namespace which failed to load, keyed by namespace.
+    */
+   public Map<String, Throwable> getFailures() {
+      return failures;
+   }
+
+   /**
+    * The models from the namespaces which did load.
+    */
+   public Collection<Model> getModels() {
+      return models;
+   }
+
+}
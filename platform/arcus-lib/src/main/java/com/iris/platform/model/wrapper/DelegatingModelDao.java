@@ -20,20 +20,32 @@ package com.iris.platform.model.wrapper;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import com.iris.core.dao.AccountDAO;
 import com.iris.core.dao.DeviceDAO;
 import com.iris.core.dao.HubDAO;
@@ -51,22 +63,40 @@ import com.iris.messages.capability.SubsystemCapability;
 import com.iris.messages.model.Model;
 import com.iris.messages.model.SimpleModel;
 import com.iris.messages.model.serv.PlaceModel;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
 import com.iris.platform.model.ModelDao;
+import com.iris.platform.model.ModelDaoConfig;
 import com.iris.platform.model.ModelEntity;
+import com.iris.platform.model.ModelLoadException;
 import com.iris.platform.model.ModelProvider;
 import com.iris.platform.pairing.PairingDeviceDao;
 import com.iris.platform.scene.SceneDao;
 import com.iris.platform.scheduler.SchedulerModelDao;
 import com.iris.platform.subsystem.SubsystemDao;
+import com.iris.util.ThreadPoolBuilder;
 
 /**
- *
+ * Loads the models for a place by looking up the place and then querying
+ * each requested namespace concurrently on a shared, bounded pool.  The
+ * whole load must complete within {@link ModelDaoConfig#getLoadTimeoutMs()},
+ * if any namespace fails or times out a {@link ModelLoadException} reports
+ * which ones along with the models which were loaded.
  */
+@Singleton
 public class DelegatingModelDao implements ModelDao {
    private static final Logger logger = LoggerFactory.getLogger(DelegatingModelDao.class);
+   private static final IrisMetricSet METRICS = IrisMetrics.metrics("model.dao");
    
    private final PlaceDAO placeDao;
    private final Map<String, ModelProvider> modelProviders;
+   private final ExecutorService executor;
+   private final long loadTimeoutMs;
+
+   private final Timer loadTimer;
+   private final Timer lookupTimer;
+   private final Map<String, Timer> namespaceTimers;
+   private final Counter failedLoads;
 
    /**
     *
@@ -81,7 +111,8 @@ public class DelegatingModelDao implements ModelDao {
          PlaceDAO placeDao,
          SceneDao sceneDao,
          SchedulerModelDao schedulerModelDao,
-         SubsystemDao subsystemDao
+         SubsystemDao subsystemDao,
+         ModelDaoConfig config
    ) {
       this(
             placeDao,
@@ -96,36 +127,148 @@ public class DelegatingModelDao implements ModelDao {
                .put(SceneCapability.NAMESPACE, wrap(sceneDao))
                .put(SchedulerCapability.NAMESPACE, wrap(schedulerModelDao))
                .put(SubsystemCapability.NAMESPACE, wrap(subsystemDao))
-               .build()
+               .build(),
+            config
       );
    }
    
-   // FIXME have the other DAOs bind to map keys in order to support this
    public DelegatingModelDao(
          PlaceDAO placeDao,
          Map<String, ModelProvider> modelProviders
+   ) {
+      this(placeDao, modelProviders, new ModelDaoConfig());
+   }
+   
+   // FIXME have the other DAOs bind to map keys in order to support this
+   public DelegatingModelDao(
+         PlaceDAO placeDao,
+         Map<String, ModelProvider> modelProviders,
+         ModelDaoConfig config
    ) {
       this.placeDao = placeDao;
       this.modelProviders = ImmutableMap.copyOf(modelProviders);
+      this.loadTimeoutMs = config.getLoadTimeoutMs();
+      this.executor =
+            new ThreadPoolBuilder()
+               .withCorePoolSize(config.getLoadThreads())
+               .withMaxPoolSize(config.getLoadThreads())
+               .withQueue(new LinkedBlockingQueue<>())
+               .withNameFormat("model-dao-%d")
+               .withDaemon(true)
+               .build();
+      
+      this.loadTimer = METRICS.timer("load");
+      this.lookupTimer = METRICS.timer("lookup");
+      this.failedLoads = METRICS.counter("load.failed");
+      ImmutableMap.Builder<String, Timer> timers = ImmutableMap.builder();
+      for(String namespace: this.modelProviders.keySet()) {
+         timers.put(namespace, METRICS.timer("load." + namespace));
+      }
+      this.namespaceTimers = timers.build();
+   }
+   
+   @PreDestroy
+   public void stop() {
+      executor.shutdownNow();
    }
    
    @Override
    public Collection<Model> loadModelsByPlace(UUID placeId, Set<String> namespaces) {
       Preconditions.checkArgument(modelProviders.keySet().containsAll(namespaces), "Unsupported namespaces");
 
-      ModelEntity placeModel = placeDao.findPlaceModelById(placeId);
-      if(placeModel == null) {
-         throw new RuntimeException("Place " + placeId + " does not exist");
+      try(Timer.Context context = loadTimer.time()) {
+         return new PlaceLoad(placeId, namespaces).await(deadline());
+      }
+   }
+
+   private long deadline() {
+      return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(loadTimeoutMs);
+   }
+   
+   private ModelEntity findPlace(UUID placeId) {
+      try(Timer.Context context = lookupTimer.time()) {
+         ModelEntity placeModel = placeDao.findPlaceModelById(placeId);
+         if(placeModel == null) {
+            throw new RuntimeException("Place " + placeId + " does not exist");
+         }
+         return placeModel;
       }
-      List<Model> entities = new ArrayList<>();
-      if(namespaces.contains(PlaceCapability.NAMESPACE)) {
-         entities.add(placeModel);
+   }
+   
+   private Collection<? extends Model> findForPlace(String namespace, UUID placeId, ModelEntity placeModel) {
+      try(Timer.Context context = namespaceTimers.get(namespace).time()) {
+         return modelProviders.get(namespace).findForPlace(placeId, placeModel);
       }
-      for(String namespace: namespaces) {
-         entities.addAll(modelProviders.get(namespace).findForPlace(placeId, placeModel));
+   }
+   
+   private static <T> T get(CompletableFuture<T> future, long deadline) throws Exception {
+      try {
+         return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      }
+      catch(ExecutionException e) {
+         Throwable cause = e.getCause();
+         throw cause instanceof Exception ? (Exception) cause : e;
+      }
+      catch(TimeoutException e) {
+         // prevents the load from running if it is still queued
+         future.cancel(false);
+         throw e;
+      }
+      catch(InterruptedException e) {
+         Thread.currentThread().interrupt();
+         future.cancel(false);
+         throw e;
+      }
+   }
+   
+   private class PlaceLoad {
+      private final UUID placeId;
+      private final boolean includePlace;
+      private final CompletableFuture<ModelEntity> place;
+      private final Map<String, CompletableFuture<Collection<? extends Model>>> results = new LinkedHashMap<>();
+      
+      PlaceLoad(UUID placeId, Set<String> namespaces) {
+         this.placeId = placeId;
+         this.includePlace = namespaces.contains(PlaceCapability.NAMESPACE);
+         this.place = CompletableFuture.supplyAsync(() -> findPlace(placeId), executor);
+         for(String namespace: namespaces) {
+            results.put(namespace, place.thenApplyAsync((placeModel) -> findForPlace(namespace, placeId, placeModel), executor));
+         }
+      }
+      
+      Collection<Model> await(long deadline) {
+         ModelEntity placeModel;
+         try {
+            placeModel = get(place, deadline);
+         }
+         catch(RuntimeException e) {
+            failedLoads.inc();
+            throw e;
+         }
+         catch(Exception e) {
+            failedLoads.inc();
+            throw new RuntimeException("Unable to load place " + placeId, e);
+         }
+         
+         List<Model> entities = new ArrayList<>();
+         if(includePlace) {
+            entities.add(placeModel);
+         }
+         Map<String, Throwable> failures = new LinkedHashMap<>();
+         for(Map.Entry<String, CompletableFuture<Collection<? extends Model>>> result: results.entrySet()) {
+            try {
+               entities.addAll(get(result.getValue(), deadline));
+            }
+            catch(Exception e) {
+               failures.put(result.getKey(), e);
+            }
+         }
+         if(!failures.isEmpty()) {
+            failedLoads.inc();
+            throw new ModelLoadException(placeId, failures, entities);
+         }
+         return entities;
       }
-
-      return entities;
    }
    
    private static ModelProvider wrap(AccountDAO accountDao) {
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.population;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.iris.messages.capability.PlaceCapability;
+import com.iris.messages.model.Place;
+import com.iris.messages.model.ServiceLevel;
+import com.iris.messages.type.Population;
+
+/**
+ * An immutable snapshot of the attributes of a place which are needed
+ * on the message path, see {@link PlaceMetadataCache}.
+ */
+public class PlaceMetadata {
+   /** partition id used when the service has no {@link com.iris.platform.partition.Partitioner} */
+   public static final int NO_PARTITION = -1;
+
+   public static PlaceMetadata fromPlace(Place place, int partitionId) {
+      return new PlaceMetadata(
+            place.getId(),
+            place.getAccount(),
+            place.getPopulation(),
+            place.getTzId(),
+            place.getServiceLevel(),
+            partitionId
+      );
+   }
+
+   private final UUID placeId;
+   @Nullable
+   private final UUID accountId;
+   private final String population;
+   @Nullable
+   private final String tzId;
+   @Nullable
+   private final ServiceLevel serviceLevel;
+   private final int partitionId;
+
+   public PlaceMetadata(
+         UUID placeId,
+         @Nullable UUID accountId,
+         @Nullable String population,
+         @Nullable String tzId,
+         @Nullable ServiceLevel serviceLevel,
+         int partitionId
+   ) {
+      this.placeId = placeId;
+      this.accountId = accountId;
+      this.population = StringUtils.isBlank(population) ? Population.NAME_GENERAL : population;
+      this.tzId = tzId;
+      this.serviceLevel = serviceLevel;
+      this.partitionId = partitionId;
+   }
+
+   public UUID getPlaceId() {
+      return placeId;
+   }
+
+   @Nullable
+   public UUID getAccountId() {
+      return accountId;
+   }
+
+   /**
+    * The population of the place, never {@code null}, places without one
+    * are in the general population.
+    */
+   public String getPopulation() {
+      return population;
+   }
+
+   @Nullable
+   public String getTzId() {
+      return tzId;
+   }
+
+   @Nullable
+   public ServiceLevel getServiceLevel() {
+      return serviceLevel;
+   }
+
+   public int getPartitionId() {
+      return partitionId;
+   }
+
+   /**
+    * Applies the attributes from a place {@code base:ValueChange}, returning
+    * {@code this} if none of the cached attributes changed.
+    */
+   public PlaceMetadata update(Map<String, Object> attributes) {
+      if(
+            !attributes.containsKey(PlaceCapability.ATTR_POPULATION) &&
+            !attributes.containsKey(PlaceCapability.ATTR_TZID) &&
+            !attributes.containsKey(PlaceCapability.ATTR_SERVICELEVEL) &&
+            !attributes.containsKey(PlaceCapability.ATTR_ACCOUNT)
+      ) {
+         return this;
+      }
+
+      UUID accountId = this.accountId;
+      if(attributes.containsKey(PlaceCapability.ATTR_ACCOUNT)) {
+         Object account = attributes.get(PlaceCapability.ATTR_ACCOUNT);
+         accountId = account == null || StringUtils.isBlank(account.toString()) ? null : UUID.fromString(account.toString());
+      }
+      String population = attributes.containsKey(PlaceCapability.ATTR_POPULATION) ? (String) attributes.get(PlaceCapability.ATTR_POPULATION) : this.population;
+      String tzId = attributes.containsKey(PlaceCapability.ATTR_TZID) ? (String) attributes.get(PlaceCapability.ATTR_TZID) : this.tzId;
+      ServiceLevel serviceLevel = this.serviceLevel;
+      if(attributes.containsKey(PlaceCapability.ATTR_SERVICELEVEL)) {
+         Object level = attributes.get(PlaceCapability.ATTR_SERVICELEVEL);
+         serviceLevel = level == null ? null : ServiceLevel.fromString(level.toString());
+      }
+      return new PlaceMetadata(placeId, accountId, population, tzId, serviceLevel, partitionId);
+   }
+
+   @Override
+   public String toString() {
+      return "PlaceMetadata [placeId=" + placeId + ", accountId=" + accountId
+            + ", population=" + population + ", tzId=" + tzId + ", serviceLevel="
+            + serviceLevel + ", partitionId=" + partitionId + "]";
+   }
+
+}
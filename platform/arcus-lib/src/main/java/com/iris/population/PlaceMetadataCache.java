@@ -0,0 +1,339 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.population;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.iris.core.dao.PlaceDAO;
+import com.iris.core.messaging.MessageListener;
+import com.iris.core.platform.PlatformMessageBus;
+import com.iris.messages.MessageConstants;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.AddressMatcher;
+import com.iris.messages.address.AddressMatchers;
+import com.iris.messages.capability.Capability;
+import com.iris.messages.capability.PlaceCapability;
+import com.iris.messages.model.Place;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+import com.iris.platform.partition.PartitionChangedEvent;
+import com.iris.platform.partition.PartitionListener;
+import com.iris.platform.partition.Partitioner;
+import com.iris.platform.partition.PlatformPartition;
+import com.iris.util.Subscription;
+import com.iris.util.ThreadPoolBuilder;
+
+/**
+ * Caches the {@link PlaceMetadata} for places so that the message path doesn't
+ * have to go to the database.
+ * 
+ * When the service has a {@link Partitioner} every place in a newly assigned
+ * partition is bulk loaded and places in partitions that are removed are
+ * evicted.  Entries are kept up to date from the place {@code base:ValueChange}
+ * and {@code base:Deleted} events broadcast on the platform bus rather than
+ * being reloaded.  Misses are loaded on a background pool, concurrent requests
+ * for the same place share a single load.
+ */
+@Singleton
+public class PlaceMetadataCache implements MessageListener<PlatformMessage>, PartitionListener {
+   private static final Logger logger = LoggerFactory.getLogger(PlaceMetadataCache.class);
+   private static final IrisMetricSet METRICS = IrisMetrics.metrics("place.metadata.cache");
+
+   private static final Set<AddressMatcher> SOURCE_ADDRESSES =
+         ImmutableSet.<AddressMatcher>of(AddressMatchers.platformService(MessageConstants.SERVICE, PlaceCapability.NAMESPACE));
+
+   private final PlaceDAO placeDao;
+   private final long loadTimeoutMs;
+   private final boolean preload;
+   private final Cache<UUID, PlaceMetadata> cache;
+   private final ConcurrentMap<UUID, CompletableFuture<PlaceMetadata>> loading = new ConcurrentHashMap<>();
+   private final ExecutorService executor;
+
+   @Nullable
+   private volatile Partitioner partitioner;
+   @Nullable
+   private volatile Subscription partitionSubscription;
+   private volatile Set<Integer> partitions = ImmutableSet.of();
+
+   private final Counter hits;
+   private final Counter misses;
+   private final Counter failedLoads;
+   private final Counter preloaded;
+   private final Counter updates;
+   private final Counter deletes;
+   private final Timer loadTimer;
+   private final Timer preloadTimer;
+   private final Timer eventLag;
+
+   @Inject
+   public PlaceMetadataCache(PlaceDAO placeDao, PlatformMessageBus platformBus, PlaceMetadataCacheConfig config) {
+      this.placeDao = placeDao;
+      this.loadTimeoutMs = config.getLoadTimeoutMs();
+      this.preload = config.isPreload();
+      CacheBuilder<Object, Object> builder =
+            CacheBuilder
+               .newBuilder()
+               .expireAfterAccess(config.getExpirationHours(), TimeUnit.HOURS);
+      if(config.getMaxSize() > 0) {
+         builder.maximumSize(config.getMaxSize());
+      }
+      this.cache = builder.<UUID, PlaceMetadata>build();
+      this.executor =
+            new ThreadPoolBuilder()
+               .withCorePoolSize(config.getLoadThreads())
+               .withMaxPoolSize(config.getLoadThreads())
+               .withQueue(new LinkedBlockingQueue<>())
+               .withNameFormat("place-metadata-%d")
+               .withDaemon(true)
+               .build();
+
+      this.hits = METRICS.counter("hits");
+      this.misses = METRICS.counter("misses");
+      this.failedLoads = METRICS.counter("load.failed");
+      this.preloaded = METRICS.counter("preloaded");
+      this.updates = METRICS.counter("updates");
+      this.deletes = METRICS.counter("deletes");
+      this.loadTimer = METRICS.timer("load");
+      this.preloadTimer = METRICS.timer("preload");
+      // the delay between a place changing and this cache seeing it, this is how
+      // long a stale value may have been served
+      this.eventLag = METRICS.timer("event.lag");
+      METRICS.gauge("entries", (Supplier<Long>) () -> cache.size());
+      METRICS.gauge("loading", (Supplier<Integer>) () -> loading.size());
+      METRICS.gauge("hit.ratio", (Supplier<Double>) this::getHitRatio);
+
+      platformBus.addBroadcastMessageListener(SOURCE_ADDRESSES, this);
+   }
+
+   @Inject(optional = true)
+   public void setPartitioner(Partitioner partitioner) {
+      this.partitioner = partitioner;
+      this.partitionSubscription = partitioner.addPartitionListener(this);
+   }
+
+   @PreDestroy
+   public void stop() {
+      Subscription subscription = partitionSubscription;
+      if(subscription != null) {
+         subscription.remove();
+      }
+      executor.shutdownNow();
+   }
+
+   /**
+    * Returns the cached metadata or {@code null} without loading it.
+    */
+   @Nullable
+   public PlaceMetadata getIfPresent(UUID placeId) {
+      return cache.getIfPresent(placeId);
+   }
+
+   /**
+    * Returns the metadata for the place, loading it in the background
+    * if it isn't cached.  The future completes with {@code null} if the
+    * place doesn't exist.
+    */
+   public CompletableFuture<PlaceMetadata> getAsync(UUID placeId) {
+      PlaceMetadata metadata = cache.getIfPresent(placeId);
+      if(metadata != null) {
+         hits.inc();
+         return CompletableFuture.completedFuture(metadata);
+      }
+
+      misses.inc();
+      CompletableFuture<PlaceMetadata> future = loading.get(placeId);
+      if(future != null) {
+         return future;
+      }
+      CompletableFuture<PlaceMetadata> load = new CompletableFuture<>();
+      future = loading.putIfAbsent(placeId, load);
+      if(future != null) {
+         return future;
+      }
+      try {
+         executor.execute(() -> load(placeId, load));
+      }
+      catch(RejectedExecutionException e) {
+         loading.remove(placeId, load);
+         load.completeExceptionally(e);
+      }
+      return load;
+   }
+
+   /**
+    * Blocking version of {@link #getAsync(UUID)}, returns {@code null}
+    * if the place doesn't exist or couldn't be loaded in time.
+    */
+   @Nullable
+   public PlaceMetadata get(UUID placeId) {
+      CompletableFuture<PlaceMetadata> future = getAsync(placeId);
+      try {
+         return future.get(loadTimeoutMs, TimeUnit.MILLISECONDS);
+      }
+      catch(InterruptedException e) {
+         Thread.currentThread().interrupt();
+         return null;
+      }
+      catch(TimeoutException e) {
+         logger.warn("Timed out loading metadata for place [{}]", placeId);
+         return null;
+      }
+      catch(Exception e) {
+         logger.warn("Failed to load metadata for place [{}]", placeId, e);
+         return null;
+      }
+   }
+
+   public void invalidate(UUID placeId) {
+      // dropping the pending load prevents it from populating the cache with
+      // the value from before the change
+      loading.remove(placeId);
+      cache.invalidate(placeId);
+   }
+
+   public long size() {
+      return cache.size();
+   }
+
+   public double getHitRatio() {
+      long hitCount = hits.getCount();
+      long total = hitCount + misses.getCount();
+      return total == 0 ? 1.0 : (double) hitCount / total;
+   }
+
+   @Override
+   public void onMessage(PlatformMessage message) {
+      if(!PlaceCapability.NAMESPACE.equals(message.getSource().getGroup())) {
+         return;
+      }
+
+      String type = message.getMessageType();
+      if(Capability.EVENT_VALUE_CHANGE.equals(type)) {
+         onValueChange(message);
+      }
+      else if(Capability.EVENT_DELETED.equals(type)) {
+         UUID placeId = (UUID) message.getSource().getId();
+         logger.debug("Place [{}] deleted, evicting metadata", placeId);
+         invalidate(placeId);
+         deletes.inc();
+      }
+   }
+
+   @Override
+   public void onPartitionsChanged(PartitionChangedEvent event) {
+      Set<Integer> current = ImmutableSet.copyOf(event.getPartitions().stream().map(PlatformPartition::getId).iterator());
+      this.partitions = current;
+
+      Set<Integer> removed = event.getRemovedPartitions();
+      if(!removed.isEmpty()) {
+         cache.asMap().values().removeIf((metadata) -> removed.contains(metadata.getPartitionId()));
+      }
+      if(preload) {
+         for(Integer partitionId: event.getAddedPartitions()) {
+            try {
+               executor.execute(() -> preload(partitionId));
+            }
+            catch(RejectedExecutionException e) {
+               logger.warn("Unable to preload partition [{}]", partitionId, e);
+            }
+         }
+      }
+   }
+
+   private void onValueChange(PlatformMessage message) {
+      UUID placeId = (UUID) message.getSource().getId();
+      eventLag.update(Math.max(0, System.currentTimeMillis() - message.getTimestamp().getTime()), TimeUnit.MILLISECONDS);
+      loading.remove(placeId);
+      try {
+         cache.asMap().computeIfPresent(placeId, (id, metadata) -> metadata.update(message.getValue().getAttributes()));
+         updates.inc();
+      }
+      catch(Exception e) {
+         logger.warn("Unable to apply value change to place [{}], evicting metadata", placeId, e);
+         cache.invalidate(placeId);
+      }
+   }
+
+   private void load(UUID placeId, CompletableFuture<PlaceMetadata> future) {
+      try(Timer.Context context = loadTimer.time()) {
+         Place place = placeDao.findById(placeId);
+         PlaceMetadata metadata = place == null ? null : PlaceMetadata.fromPlace(place, getPartitionId(placeId));
+         // if an event invalidated the place while it was loading the result may
+         // be stale, hand it to the callers that were waiting but don't cache it
+         if(loading.remove(placeId, future) && metadata != null) {
+            cache.put(placeId, metadata);
+         }
+         future.complete(metadata);
+      }
+      catch(Throwable t) {
+         failedLoads.inc();
+         loading.remove(placeId, future);
+         future.completeExceptionally(t);
+      }
+   }
+
+   private void preload(int partitionId) {
+      if(!partitions.contains(partitionId)) {
+         return;
+      }
+
+      logger.debug("Preloading metadata for partition [{}]", partitionId);
+      try(
+            Timer.Context context = preloadTimer.time();
+            Stream<Place> places = placeDao.streamByPartitionId(partitionId)
+      ) {
+         places.forEach((place) -> {
+            // don't overwrite entries that may be newer than what was just read
+            if(cache.asMap().putIfAbsent(place.getId(), PlaceMetadata.fromPlace(place, partitionId)) == null) {
+               preloaded.inc();
+            }
+         });
+      }
+      catch(Exception e) {
+         logger.warn("Failed to preload metadata for partition [{}]", partitionId, e);
+      }
+   }
+
+   private int getPartitionId(UUID placeId) {
+      Partitioner partitioner = this.partitioner;
+      return partitioner == null ? PlaceMetadata.NO_PARTITION : partitioner.getPartitionForPlaceId(placeId).getId();
+   }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.population;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+public class PlaceMetadataCacheConfig {
+   public static final String PROP_EXPIRATION_HOURS = "place.metadata.cache.expiration.hours";
+   public static final String PROP_MAX_SIZE = "place.metadata.cache.maxSize";
+   public static final String PROP_LOAD_THREADS = "place.metadata.cache.load.threads";
+   public static final String PROP_LOAD_TIMEOUT_MS = "place.metadata.cache.load.timeoutMs";
+   public static final String PROP_PRELOAD = "place.metadata.cache.preload";
+
+   /**
+    * How long a place may go without being read before it is evicted.
+    */
+   @Inject(optional = true) @Named(PROP_EXPIRATION_HOURS)
+   private long expirationHours = 24;
+   /**
+    * The maximum number of places cached, this should be larger than the
+    * number of places in the partitions assigned to a node or preloading will
+    * evict places as it goes.  A value of 0 or less disables the bound.
+    */
+   @Inject(optional = true) @Named(PROP_MAX_SIZE)
+   private long maxSize = 500_000;
+   /**
+    * The number of threads used to load misses and to bulk load newly
+    * assigned partitions.
+    */
+   @Inject(optional = true) @Named(PROP_LOAD_THREADS)
+   private int loadThreads = 4;
+   /**
+    * The maximum time a blocking lookup will wait for a miss to load before
+    * falling back to the defaults.
+    */
+   @Inject(optional = true) @Named(PROP_LOAD_TIMEOUT_MS)
+   private long loadTimeoutMs = TimeUnit.SECONDS.toMillis(5);
+   /**
+    * When enabled, and the service has a partitioner, every place in a partition
+    * is loaded as soon as the partition is assigned to this node.
+    */
+   @Inject(optional = true) @Named(PROP_PRELOAD)
+   private boolean preload = true;
+
+   public long getExpirationHours() {
+      return expirationHours;
+   }
+
+   public void setExpirationHours(long expirationHours) {
+      this.expirationHours = expirationHours;
+   }
+
+   public long getMaxSize() {
+      return maxSize;
+   }
+
+   public void setMaxSize(long maxSize) {
+      this.maxSize = maxSize;
+   }
+
+   public int getLoadThreads() {
+      return loadThreads;
+   }
+
+   public void setLoadThreads(int loadThreads) {
+      this.loadThreads = loadThreads;
+   }
+
+   public long getLoadTimeoutMs() {
+      return loadTimeoutMs;
+   }
+
+   public void setLoadTimeoutMs(long loadTimeoutMs) {
+      this.loadTimeoutMs = loadTimeoutMs;
+   }
+
+   public boolean isPreload() {
+      return preload;
+   }
+
+   public void setPreload(boolean preload) {
+      this.preload = preload;
+   }
+
+}
@@ -16,53 +16,35 @@
 package com.iris.population;
 
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import com.google.inject.name.Named;
-import com.iris.core.dao.PlaceDAO;
 import com.iris.messages.type.Population;
 
+/**
+ * Population lookups backed by the {@link PlaceMetadataCache}.
+ */
 @Singleton
 public class PlacePopulationCacheManager {
 	private static final Logger logger = LoggerFactory.getLogger(PlacePopulationCacheManager.class);
 	
-	@Inject(optional = true)
-   @Named("population.cache.expiration.hours")
-	private long expireTimeInHours = 24;
-	
-	private final PlaceDAO placeDao;
-		
-	private final LoadingCache<UUID, String> populationCache =
-         CacheBuilder
-            .newBuilder()
-            .expireAfterAccess(expireTimeInHours, TimeUnit.HOURS)
-            .recordStats()            
-            .<UUID, String>build(new CacheLoader<UUID, String>() {
-               @Override
-               public String load(UUID placeId) throws Exception
-               {
-                  String population = placeDao.getPopulationById(placeId);
-                  return population == null ? Population.NAME_GENERAL : population;
-               }            
-            });
+	private final PlaceMetadataCache metadataCache;
 	
 	@Inject
-	public PlacePopulationCacheManager(PlaceDAO placeDao) {
-		this.placeDao = placeDao;
+	public PlacePopulationCacheManager(PlaceMetadataCache metadataCache) {
+		this.metadataCache = metadataCache;
 	}
 	
 	public String getPopulationByPlaceId(UUID placeId) {
 		try{
-			return populationCache.get(placeId);
+			PlaceMetadata metadata = metadataCache.get(placeId);
+			if(metadata != null) {
+				return metadata.getPopulation();
+			}
 		}catch(Exception e) {
 			logger.warn("Failed to getPopulation for place " + placeId, e);
 		}
@@ -82,8 +64,7 @@ public class PlacePopulationCacheManager {
 
 	public void invalidate(UUID placeId) {
 		logger.debug("Population for place [{}] is invalidated", placeId);
-		populationCache.invalidate(placeId);		
+		metadataCache.invalidate(placeId);		
 	}
 	
 }
-
@@ -23,7 +23,7 @@ import com.netflix.governator.annotations.Modules;
 public class PlacePopulationCacheModule extends AbstractModule {
    @Override
    protected void configure() {
-   	bind(PlacePopulationCacheValueChangeListener.class).asEagerSingleton();
+   	bind(PlaceMetadataCache.class).asEagerSingleton();
    }
 }
 
@@ -15,18 +15,16 @@
  */
 package com.iris.population;
 
-import java.util.UUID;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.google.inject.Inject;
 import com.iris.core.platform.PlatformMessageBus;
 import com.iris.messages.PlatformMessage;
 
+/**
+ * @deprecated the {@link PlaceMetadataCache} applies population changes
+ *    itself, this no longer needs to be bound
+ */
+@Deprecated
 public class PlacePopulationCacheValueChangeListener extends AbstractPopulationValueChangeListener {
-	private static final Logger logger = LoggerFactory.getLogger(PlacePopulationCacheValueChangeListener.class);	
-	
 	@Inject
 	public PlacePopulationCacheValueChangeListener(PlacePopulationCacheManager cacheMgr, PlatformMessageBus msgBus) {
 		super(cacheMgr, msgBus);
@@ -35,9 +33,7 @@ public class PlacePopulationCacheValueChangeListener extends AbstractPopulationV
 
 	@Override
 	protected void doOnMessage(PlatformMessage message) {
-		UUID curPlaceId = (UUID) message.getSource().getId();
-		cacheManager.invalidate(curPlaceId);
-		
+		// invalidating here would discard the update the metadata cache just applied
 	}
 }
 
@@ -20,13 +20,16 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableSet;
 import com.iris.core.messaging.kafka.KafkaConfig;
 import com.iris.core.messaging.kafka.KafkaMetrics;
+import com.iris.core.messaging.kafka.KafkaPlaceHeader;
 import com.iris.core.messaging.kafka.MessageTopicFilter;
 import com.iris.core.messaging.kafka.TopicConfig;
 import com.iris.io.json.JSON;
@@ -81,5 +84,28 @@ public class TestMessageTopicFilter {
       assertTrue(filter.acceptKey(new DefaultPartition(0)));
       assertFalse(filter.acceptKey(new DefaultPartition(1)));
    }
-}
 
+   @Test
+   public void testAcceptAllPlacesByDefault() {
+      assertTrue(filter.acceptRecord(record(UUID.randomUUID())));
+      assertTrue(filter.acceptRecord(record(null)));
+   }
+
+   @Test
+   public void testDropUninterestingPlaces() {
+      UUID interesting = UUID.randomUUID();
+      filter.setPlaceInterest((placeId) -> interesting.equals(placeId));
+      assertTrue(filter.acceptRecord(record(interesting)));
+      assertFalse(filter.acceptRecord(record(UUID.randomUUID())));
+      // untagged records are always accepted
+      assertTrue(filter.acceptRecord(record(null)));
+   }
+
+   private static ConsumerRecord<PlatformPartition, byte[]> record(UUID placeId) {
+      ConsumerRecord<PlatformPartition, byte[]> record = new ConsumerRecord<>("platform", 0, 0L, new DefaultPartition(0), new byte[0]);
+      if(placeId != null) {
+         record.headers().add(KafkaPlaceHeader.of(placeId));
+      }
+      return record;
+   }
+}
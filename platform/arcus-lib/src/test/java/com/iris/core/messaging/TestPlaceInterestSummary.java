@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.core.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class TestPlaceInterestSummary {
+
+   @Test
+   public void testEmptySummaryHasNoInterest() {
+      PlaceInterestSummary summary = PlaceInterestSummary.create(100, 0.01);
+      for(int i = 0; i < 100; i++) {
+         assertFalse(summary.isInterested(UUID.randomUUID()));
+      }
+   }
+
+   @Test
+   public void testAddedPlacesAreAlwaysInteresting() {
+      PlaceInterestSummary summary = PlaceInterestSummary.create(1000, 0.01);
+      List<UUID> places = add(summary, 1000);
+      for(UUID placeId: places) {
+         assertTrue(summary.isInterested(placeId));
+      }
+   }
+
+   @Test
+   public void testFalsePositiveRate() {
+      PlaceInterestSummary summary = PlaceInterestSummary.create(1000, 0.01);
+      add(summary, 1000);
+      int falsePositives = 0;
+      for(int i = 0; i < 10000; i++) {
+         if(summary.isInterested(UUID.randomUUID())) {
+            falsePositives++;
+         }
+      }
+      // expect ~100, leave plenty of room for randomness
+      assertTrue("Too many false positives: " + falsePositives, falsePositives < 300);
+   }
+
+   @Test
+   public void testRoundTrip() {
+      PlaceInterestSummary summary = PlaceInterestSummary.create(100, 0.01);
+      List<UUID> places = add(summary, 100);
+
+      PlaceInterestSummary copy = PlaceInterestSummary.fromBytes(summary.toBytes());
+      assertEquals(summary.getBitCount(), copy.getBitCount());
+      assertEquals(summary.getHashCount(), copy.getHashCount());
+      assertEquals(summary.getFillRatio(), copy.getFillRatio(), 0.0);
+      for(UUID placeId: places) {
+         assertTrue(copy.isInterested(placeId));
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testInvalidBytes() {
+      PlaceInterestSummary.fromBytes(new byte[] { 1, 2, 3 });
+   }
+
+   private static List<UUID> add(PlaceInterestSummary summary, int count) {
+      List<UUID> places = new ArrayList<>(count);
+      for(int i = 0; i < count; i++) {
+         UUID placeId = UUID.randomUUID();
+         summary.add(placeId);
+         places.add(placeId);
+      }
+      return places;
+   }
+}
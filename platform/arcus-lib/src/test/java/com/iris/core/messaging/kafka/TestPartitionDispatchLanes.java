@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.core.messaging.kafka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.iris.core.messaging.MessageListener;
+import com.iris.platform.partition.DefaultPartition;
+import com.iris.platform.partition.PlatformPartition;
+
+public class TestPartitionDispatchLanes {
+   private static final String TOPIC = "test-" + UUID.randomUUID();
+
+   private AtomicBoolean shutdown;
+   private ExecutorService executor;
+   private ConcurrentLinkedQueue<MessageListener<ConsumerRecord<PlatformPartition, byte[]>>> callbacks;
+   private PartitionDispatchLanes lanes;
+
+   @Before
+   public void setUp() {
+      shutdown = new AtomicBoolean(false);
+      executor = Executors.newCachedThreadPool();
+      callbacks = new ConcurrentLinkedQueue<>();
+      lanes = new PartitionDispatchLanes(TOPIC, 4, 16, callbacks, shutdown::get);
+      lanes.start(executor);
+   }
+
+   @After
+   public void tearDown() throws Exception {
+      shutdown.set(true);
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+   }
+
+   @Test
+   public void testOrderedPerPartition() throws Exception {
+      Map<Integer, List<Long>> received = new ConcurrentHashMap<>();
+      callbacks.add((record) -> received.computeIfAbsent(record.key().getId(), (k) -> new ArrayList<>()).add(record.offset()));
+
+      for(long offset = 0; offset < 200; offset++) {
+         lanes.dispatch(record(0, (int) (offset % 8), offset));
+      }
+      assertTrue(lanes.awaitIdle(5, TimeUnit.SECONDS));
+
+      assertEquals(8, received.size());
+      for(List<Long> offsets: received.values()) {
+         for(int i = 1; i < offsets.size(); i++) {
+            assertTrue(offsets.get(i - 1) < offsets.get(i));
+         }
+      }
+   }
+
+   @Test
+   public void testCommittableOffsetStopsAtInFlightRecord() throws Exception {
+      CountDownLatch blocked = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      callbacks.add((record) -> {
+         if(record.key().getId() == 1) {
+            blocked.countDown();
+            try {
+               release.await();
+            }
+            catch(InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+      });
+
+      lanes.dispatch(record(0, 0, 10));
+      assertTrue(lanes.awaitIdle(5, TimeUnit.SECONDS));
+      lanes.dispatch(record(0, 1, 11));
+      lanes.dispatch(record(0, 2, 12));
+      assertTrue(blocked.await(5, TimeUnit.SECONDS));
+      assertFalse(lanes.awaitIdle(100, TimeUnit.MILLISECONDS));
+
+      Map<TopicPartition, OffsetAndMetadata> offsets = lanes.committableOffsets();
+      assertEquals(11, offsets.get(new TopicPartition(TOPIC, 0)).offset());
+
+      release.countDown();
+      assertTrue(lanes.awaitIdle(5, TimeUnit.SECONDS));
+      offsets = lanes.committableOffsets();
+      assertEquals(13, offsets.get(new TopicPartition(TOPIC, 0)).offset());
+   }
+
+   private static ConsumerRecord<PlatformPartition, byte[]> record(int kafkaPartition, int platformPartition, long offset) {
+      return new ConsumerRecord<>(TOPIC, kafkaPartition, offset, new DefaultPartition(platformPartition), new byte[0]);
+   }
+}
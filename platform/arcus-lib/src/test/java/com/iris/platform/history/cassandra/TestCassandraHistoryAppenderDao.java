@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.history.cassandra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.iris.platform.history.HistoryAppenderConfig;
+import com.iris.platform.history.HistoryLogEntry;
+import com.iris.platform.history.HistoryLogEntryType;
+
+public class TestCassandraHistoryAppenderDao {
+   private static final String GATE = "gate";
+
+   private final UUID placeA = UUID.randomUUID();
+   private final UUID placeB = UUID.randomUUID();
+   private final CountDownLatch writerBlocked = new CountDownLatch(1);
+   private final CountDownLatch releaseWriter = new CountDownLatch(1);
+   private RecordingAppenderDao dao;
+
+   @After
+   public void tearDown() {
+      releaseWriter.countDown();
+      if(dao != null) {
+         dao.stop();
+      }
+   }
+
+   protected HistoryAppenderConfig config(int queueSize, int batchSize, long shutdownTimeoutMs) {
+      HistoryAppenderConfig config = new HistoryAppenderConfig();
+      config.setWriterQueueSize(queueSize);
+      config.setWriterBatchSize(batchSize);
+      config.setWriterMaxInFlight(4);
+      config.setWriterShutdownTimeoutMs(shutdownTimeoutMs);
+      config.setWriterOfferTimeoutMs(10);
+      return config;
+   }
+
+   protected HistoryLogEntry entry(UUID placeId, String key) {
+      return new HistoryLogEntry(HistoryLogEntryType.CRITICAL_PLACE_LOG, System.currentTimeMillis(), placeId, key, "SERV:place:" + placeId);
+   }
+
+   protected void blockWriter() throws Exception {
+      dao.appendHistoryEvent(entry(placeA, GATE));
+      assertTrue("Writer never picked up the first entry", writerBlocked.await(5, TimeUnit.SECONDS));
+   }
+
+   @Test
+   public void testEntriesForTheSamePartitionAreBatched() throws Exception {
+      dao = new RecordingAppenderDao(config(100, 2, 5000), 0);
+      blockWriter();
+
+      dao.appendHistoryEvent(entry(placeA, "a1"));
+      dao.appendHistoryEvent(entry(placeA, "a2"));
+      dao.appendHistoryEvent(entry(placeA, "a3"));
+      dao.appendHistoryEvent(entry(placeB, "b1"));
+      releaseWriter.countDown();
+      dao.stop();
+
+      assertEquals(ImmutableList.of(GATE, "a1,a2", "a3", "b1"), dao.async);
+      assertEquals(ImmutableList.of(), dao.sync);
+   }
+
+   @Test
+   public void testStopWritesQueuedEntries() throws Exception {
+      dao = new RecordingAppenderDao(config(100, 2, 50), 0);
+      blockWriter();
+
+      dao.appendHistoryEvent(entry(placeA, "a1"));
+      dao.appendHistoryEvent(entry(placeA, "a2"));
+      dao.appendHistoryEvent(entry(placeB, "b1"));
+      // the writer is still stuck, stop has to write these itself
+      dao.stop();
+
+      assertEquals(ImmutableList.of(GATE), dao.async);
+      assertEquals(ImmutableList.of("a1,a2", "b1"), dao.sync);
+   }
+
+   @Test
+   public void testAppendAfterStopIsWrittenDirectly() throws Exception {
+      dao = new RecordingAppenderDao(config(100, 2, 5000), 0);
+      dao.stop();
+
+      dao.appendHistoryEvent(entry(placeA, "a1"));
+
+      assertEquals(ImmutableList.of(), dao.async);
+      assertEquals(ImmutableList.of("a1"), dao.sync);
+   }
+
+   @Test
+   public void testFullQueueWritesDirectly() throws Exception {
+      dao = new RecordingAppenderDao(config(1, 2, 5000), 0);
+      blockWriter();
+
+      dao.appendHistoryEvent(entry(placeA, "a1"));
+      // queue is full, this times out and is written on the calling thread
+      dao.appendHistoryEvent(entry(placeA, "a2"));
+      assertEquals(ImmutableList.of("a2"), dao.sync);
+
+      releaseWriter.countDown();
+      dao.stop();
+      assertEquals(ImmutableList.of(GATE, "a1"), dao.async);
+   }
+
+   @Test
+   public void testFailedWriteIsRetriedOnce() throws Exception {
+      dao = new RecordingAppenderDao(config(100, 2, 5000), Integer.MAX_VALUE);
+      releaseWriter.countDown();
+
+      dao.appendHistoryEvent(entry(placeA, "a1"));
+      dao.stop();
+
+      assertEquals(ImmutableList.of("a1", "a1"), dao.async);
+   }
+
+   @Test
+   public void testRetrySucceeds() throws Exception {
+      dao = new RecordingAppenderDao(config(100, 2, 5000), 1);
+      releaseWriter.countDown();
+
+      dao.appendHistoryEvent(entry(placeA, "a1"));
+      dao.appendHistoryEvent(entry(placeA, "a2"));
+      dao.stop();
+
+      // depending on timing these may or may not have been batched together
+      assertTrue(dao.async.toString(), dao.async.equals(ImmutableList.of("a1,a2", "a1,a2")) || dao.async.equals(ImmutableList.of("a1", "a1", "a2")));
+   }
+
+   private static String describe(Statement stmt) {
+      if(stmt instanceof BatchStatement) {
+         List<String> keys = new ArrayList<>();
+         for(Statement s: ((BatchStatement) stmt).getStatements()) {
+            keys.add(describe(s));
+         }
+         return String.join(",", keys);
+      }
+      return ((SimpleStatement) stmt).getQueryString();
+   }
+
+   private class RecordingAppenderDao extends CassandraHistoryAppenderDao {
+      private final List<String> async = new ArrayList<>();
+      private final List<String> sync = new ArrayList<>();
+      private int failures;
+
+      RecordingAppenderDao(HistoryAppenderConfig config, int failures) {
+         super(null, null, null, null, null, null, null, null, null, config);
+         this.failures = failures;
+      }
+
+      @Override
+      protected PendingEntry bind(HistoryLogEntry event) {
+         return new PendingEntry(
+               event.getType(),
+               ImmutableList.<Object>of(event.getType(), event.getId()),
+               new SimpleStatement(event.getMessageKey())
+         );
+      }
+
+      @Override
+      protected ListenableFuture<ResultSet> executeAsync(Statement stmt) {
+         String description = describe(stmt);
+         synchronized(this) {
+            async.add(description);
+         }
+         if(GATE.equals(description)) {
+            writerBlocked.countDown();
+            try {
+               releaseWriter.await(5, TimeUnit.SECONDS);
+            }
+            catch(InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+         synchronized(this) {
+            if(failures > 0) {
+               failures--;
+               return Futures.immediateFailedFuture(new IllegalStateException("write failed"));
+            }
+         }
+         return Futures.immediateFuture(null);
+      }
+
+      @Override
+      protected void execute(Statement stmt) {
+         synchronized(this) {
+            sync.add(describe(stmt));
+         }
+      }
+   }
+}
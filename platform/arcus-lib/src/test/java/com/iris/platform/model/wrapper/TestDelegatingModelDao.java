@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.platform.model.wrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.iris.core.dao.PlaceDAO;
+import com.iris.messages.capability.DeviceCapability;
+import com.iris.messages.capability.HubCapability;
+import com.iris.messages.capability.PlaceCapability;
+import com.iris.messages.model.Model;
+import com.iris.messages.model.SimpleModel;
+import com.iris.platform.model.ModelDaoConfig;
+import com.iris.platform.model.ModelEntity;
+import com.iris.platform.model.ModelLoadException;
+
+public class TestDelegatingModelDao {
+   private static final String SLOW = "slow";
+
+   private UUID placeId = UUID.randomUUID();
+   private ModelEntity place = new ModelEntity(ImmutableMap.of("base:id", placeId.toString()));
+   private Model device = new SimpleModel(ImmutableMap.of("base:id", UUID.randomUUID().toString()));
+   private CountDownLatch release = new CountDownLatch(1);
+
+   private PlaceDAO placeDao;
+   private DelegatingModelDao modelDao;
+
+   @Before
+   public void setUp() {
+      placeDao = EasyMock.createMock(PlaceDAO.class);
+      ModelDaoConfig config = new ModelDaoConfig();
+      config.setLoadThreads(4);
+      config.setLoadTimeoutMs(200);
+      modelDao = new DelegatingModelDao(
+            placeDao,
+            ImmutableMap.of(
+                  PlaceCapability.NAMESPACE, (placeId, place) -> ImmutableList.of(place),
+                  DeviceCapability.NAMESPACE, (placeId, place) -> ImmutableList.of(device),
+                  HubCapability.NAMESPACE, (placeId, place) -> { throw new IllegalStateException("hub failure"); },
+                  SLOW, (placeId, place) -> {
+                     Uninterruptibles.awaitUninterruptibly(release);
+                     return ImmutableList.of();
+                  }
+            ),
+            config
+      );
+   }
+
+   @After
+   public void tearDown() {
+      release.countDown();
+      modelDao.stop();
+   }
+
+   @Test
+   public void testLoadModelsByPlace() {
+      EasyMock.expect(placeDao.findPlaceModelById(placeId)).andReturn(place);
+      EasyMock.replay(placeDao);
+
+      Collection<Model> models = modelDao.loadModelsByPlace(placeId, ImmutableSet.of(PlaceCapability.NAMESPACE, DeviceCapability.NAMESPACE));
+      assertTrue(models.contains(place));
+      assertTrue(models.contains(device));
+
+      EasyMock.verify(placeDao);
+   }
+
+   @Test
+   public void testMissingPlace() {
+      EasyMock.expect(placeDao.findPlaceModelById(placeId)).andReturn(null);
+      EasyMock.replay(placeDao);
+
+      try {
+         modelDao.loadModelsByPlace(placeId, ImmutableSet.of(DeviceCapability.NAMESPACE));
+         fail("Loaded a missing place");
+      }
+      catch(RuntimeException e) {
+         // a missing place is not a partial load
+         assertFalse(e instanceof ModelLoadException);
+      }
+   }
+
+   @Test
+   public void testPartialFailure() {
+      EasyMock.expect(placeDao.findPlaceModelById(placeId)).andReturn(place);
+      EasyMock.replay(placeDao);
+
+      try {
+         modelDao.loadModelsByPlace(placeId, ImmutableSet.of(DeviceCapability.NAMESPACE, HubCapability.NAMESPACE, SLOW));
+         fail("Loaded a failed namespace");
+      }
+      catch(ModelLoadException e) {
+         assertEquals(placeId, e.getPlaceId());
+         assertEquals(ImmutableSet.of(HubCapability.NAMESPACE, SLOW), e.getFailures().keySet());
+         assertEquals(ImmutableList.of(device), ImmutableList.copyOf(e.getModels()));
+      }
+   }
+
+}
@@ -24,13 +24,16 @@ import org.junit.Test;
 import com.google.inject.Inject;
 import com.iris.core.dao.PlaceDAO;
 import com.iris.core.dao.PopulationDAO;
+import com.iris.core.messaging.memory.InMemoryMessageModule;
 import com.iris.messages.model.Hub;
 import com.iris.messages.model.Place;
 import com.iris.messages.type.Population;
 import com.iris.test.IrisMockTestCase;
 import com.iris.test.Mocks;
+import com.iris.test.Modules;
 
 @Mocks({PlaceDAO.class, PopulationDAO.class})
+@Modules({InMemoryMessageModule.class})
 public class TestHubPopulationResolver extends IrisMockTestCase {
    private static final String TEST_POPULATION = "Test Population";
    private static final String DEFAULT_POPULATION = Population.NAME_GENERAL;
@@ -39,8 +42,9 @@ public class TestHubPopulationResolver extends IrisMockTestCase {
    private PlaceDAO placeDaoMock;
    @Inject
    private PopulationDAO populationDaoMock;
-   
+   @Inject
    private PlacePopulationCacheManager populationCacheMgr;
+   
    private HubPopulationResolver resolver;
    private Hub hub;
    private Place place;
@@ -50,12 +54,12 @@ public class TestHubPopulationResolver extends IrisMockTestCase {
    @Override
    public void setUp() throws Exception {
       super.setUp();
-      populationCacheMgr = new PlacePopulationCacheManager(placeDaoMock);
       resolver = new DaoHubPopulationResolver(populationCacheMgr);
       hub = new Hub();
       hub.setId("ABC-1234");
       hub.setPlace(UUID.randomUUID());
       place = new Place();
+      place.setId(hub.getPlace());
       population = new Population();
       population.setName(TEST_POPULATION);
       defaultPopulation = new Population();
@@ -65,7 +69,7 @@ public class TestHubPopulationResolver extends IrisMockTestCase {
    @Test
    public void testResolvePopulationName() {
       place.setPopulation(population.getName());
-      EasyMock.expect(placeDaoMock.getPopulationById(hub.getPlace())).andReturn(population.getName());
+      EasyMock.expect(placeDaoMock.findById(hub.getPlace())).andReturn(place);
       EasyMock.expect(populationDaoMock.findByName(population.getName())).andReturn(population);
       replay();
       
@@ -75,7 +79,7 @@ public class TestHubPopulationResolver extends IrisMockTestCase {
    @Test
    public void testResolvePopulationId() {
       place.setPopulation(population.getName());
-      EasyMock.expect(placeDaoMock.getPopulationById(hub.getPlace())).andReturn(population.getName());
+      EasyMock.expect(placeDaoMock.findById(hub.getPlace())).andReturn(place);
       replay();
       
       Assert.assertEquals(population.getName(), resolver.getPopulationNameForHub(hub));
@@ -83,7 +87,7 @@ public class TestHubPopulationResolver extends IrisMockTestCase {
    
    @Test
    public void testPlaceHasNoPopulation() {
-      EasyMock.expect(placeDaoMock.getPopulationById(hub.getPlace())).andReturn(null);
+      EasyMock.expect(placeDaoMock.findById(hub.getPlace())).andReturn(place);
       EasyMock.expect(populationDaoMock.getDefaultPopulation()).andReturn(defaultPopulation);
       replay();
       
@@ -58,6 +58,8 @@ import com.iris.driver.groovy.customizer.DriverCompilationCustomizer;
 import com.iris.driver.groovy.plugin.GroovyDriverPlugin;
 import com.iris.driver.groovy.scheduler.SchedulerPlugin;
 import com.iris.driver.groovy.zwave.ZWaveProtocolPlugin;
+import com.iris.driver.service.DriverStateWriter;
+import com.iris.driver.service.state.DirectDriverStateWriter;
 import com.iris.messages.capability.Capability;
 import com.iris.messages.capability.DeviceAdvancedCapability;
 import com.iris.messages.capability.DeviceCapability;
@@ -142,6 +144,10 @@ public abstract class GroovyDriverTestCase extends IrisMockTestCase {
          .bind(Scheduler.class)
          .toInstance(new ExecutorScheduler(Executors.newScheduledThreadPool(1)))
          ;
+
+      binder
+         .bind(DriverStateWriter.class)
+         .to(DirectDriverStateWriter.class);
    }
 
    @Provides @Singleton
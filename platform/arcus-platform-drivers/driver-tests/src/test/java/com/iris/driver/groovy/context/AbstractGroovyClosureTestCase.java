@@ -23,6 +23,7 @@ import org.easymock.EasyMock;
 import org.junit.After;
 
 import com.google.inject.Inject;
+import com.google.inject.Provides;
 import com.iris.core.dao.DeviceDAO;
 import com.iris.core.dao.PersonDAO;
 import com.iris.core.dao.PersonPlaceAssocDAO;
@@ -38,6 +39,8 @@ import com.iris.driver.DeviceDriverDefinition;
 import com.iris.driver.PlatformDeviceDriverContext;
 import com.iris.driver.groovy.ClasspathResourceConnector;
 import com.iris.driver.groovy.GroovyContextObject;
+import com.iris.driver.service.DriverStateWriter;
+import com.iris.driver.service.state.DirectDriverStateWriter;
 import com.iris.messages.address.Address;
 import com.iris.messages.model.Device;
 import com.iris.messages.model.Fixtures;
@@ -63,6 +66,11 @@ public abstract class AbstractGroovyClosureTestCase extends IrisMockTestCase {
    protected Address driverAddress = Fixtures.createDeviceAddress();
    protected Address protocolAddress = Fixtures.createProtocolAddress();
 
+   @Provides
+   public DriverStateWriter stateWriter(DeviceDAO deviceDao) {
+      return new DirectDriverStateWriter(deviceDao);
+   }
+
    protected void initTest(String scriptName) throws Exception {
       Capture<Device> deviceRef = Capture.newInstance();
       EasyMock
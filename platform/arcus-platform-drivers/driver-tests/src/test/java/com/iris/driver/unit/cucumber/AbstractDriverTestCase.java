@@ -55,8 +55,10 @@ import com.iris.driver.PlatformDeviceDriverContext;
 import com.iris.driver.groovy.GroovyDriverFactory;
 import com.iris.driver.groovy.GroovyDriverModule;
 import com.iris.driver.groovy.pin.PinManagementContext;
+import com.iris.driver.service.DriverStateWriter;
 import com.iris.driver.service.executor.DefaultDriverExecutor;
 import com.iris.driver.service.executor.DriverExecutor;
+import com.iris.driver.service.state.DirectDriverStateWriter;
 import com.iris.driver.unit.cucumber.MockGroovyDriverModule.CapturedScheduledEvent;
 import com.iris.driver.unit.cucumber.MockGroovyDriverModule.CapturingSchedulerContext;
 import com.iris.messages.address.Address;
@@ -127,6 +129,11 @@ public class AbstractDriverTestCase extends IrisMockTestCase {
 
     }
     
+    @Provides
+    public DriverStateWriter stateWriter(DeviceDAO deviceDao) {
+        return new DirectDriverStateWriter(deviceDao);
+    }
+
     @Provides
     public PersonPlaceAssocDAO providesPersonPlaceAssocDao() {
        return EasyMock.createMock(PersonPlaceAssocDAO.class);
@@ -37,6 +37,8 @@ import com.iris.driver.groovy.ClasspathResourceConnector;
 import com.iris.driver.groovy.GroovyDriverFactory;
 import com.iris.driver.groovy.customizer.DriverCompilationCustomizer;
 import com.iris.driver.groovy.GroovyProtocolPluginModule;
+import com.iris.driver.service.DriverStateWriter;
+import com.iris.driver.service.state.DirectDriverStateWriter;
 import com.iris.messages.address.Address;
 import com.iris.messages.address.ClientAddress;
 import com.iris.messages.model.Device;
@@ -77,6 +79,11 @@ public abstract class AbstractZWaveDriverTest extends IrisMockTestCase implement
     private DeviceDriver deviceDriver;
     private DeviceDriverContext deviceDriverContext;
 
+    @Provides
+    public DriverStateWriter stateWriter(DeviceDAO deviceDao) {
+        return new DirectDriverStateWriter(deviceDao);
+    }
+
     @Provides
     public GroovyScriptEngine scriptEngine(CapabilityRegistry capabilityRegistry) {
         GroovyScriptEngine engine = new GroovyScriptEngine(new ClasspathResourceConnector());
@@ -26,6 +26,7 @@ import java.util.concurrent.TimeUnit;
 import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 
+import com.google.common.base.Predicate;
 import com.iris.common.rule.event.ScheduledEventHandle;
 import com.iris.messages.address.Address;
 import com.iris.messages.model.Model;
@@ -50,6 +51,13 @@ public interface Context {
    
    Iterable<Model> getModels();
 
+   /**
+    * The models matching the given predicate, this may be
+    * considerably cheaper than filtering {@link #getModels()} when
+    * the predicate is over the type or capabilities of the model.
+    */
+   Iterable<Model> getModels(Predicate<? super Model> predicate);
+
    @Nullable Model getModelByAddress(Address address);
    
    @Nullable Object getAttributeValue(Address address, String attributeName);
@@ -18,6 +18,7 @@
  */
 package com.iris.common.rule;
 
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.messages.address.Address;
 
@@ -37,5 +38,13 @@ public interface Rule {
    void deactivate();
 
    Address getAddress();
+
+   /**
+    * The events {@link #execute(RuleEvent)} currently depends on, this
+    * may change after each event is executed.
+    */
+   default EventInterest getEventInterest() {
+      return EventInterest.ALL;
+   }
 }
 
@@ -20,6 +20,7 @@ package com.iris.common.rule.condition;
 
 import java.io.Serializable;
 
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 
@@ -44,6 +45,17 @@ public interface Condition extends Serializable {
     */
    boolean handlesEventsOfType(RuleEventType type);
    
+   /**
+    * The attribute changes and messages this condition may react
+    * to in any state, including changes that affect {@link #isSatisfiable(ConditionContext)}.
+    * Events outside of this interest may not be delivered to the rule.
+    * Conditions which can't determine this should return {@link EventInterest#ALL}.
+    * @return
+    */
+   default EventInterest getEventInterest() {
+      return EventInterest.ALL;
+   }
+   
    /**
     * Called when a condition is set to 'active'. This
     * may happen when a rule is first started, or when
@@ -18,6 +18,7 @@
  */
 package com.iris.common.rule.condition;
 
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 
@@ -65,6 +66,11 @@ public class NeverFireCondition implements Condition {
       return false;
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      return EventInterest.NONE;
+   }
+
    @Override
    public String toString() {
       return "Never";
@@ -18,6 +18,7 @@ package com.iris.common.rule.condition;
 import java.util.List;
 
 import com.google.common.collect.ImmutableList;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 
@@ -48,6 +49,15 @@ public class OrCondition implements Condition {
       return false;
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      EventInterest interest = EventInterest.NONE;
+      for(Condition condition: conditions) {
+         interest = interest.union(condition.getEventInterest());
+      }
+      return interest;
+   }
+
    @Override
    public void activate(ConditionContext context) {
       for(Condition condition: conditions) {
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.common.rule.event;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Declares which attribute value changes and received messages a condition
+ * depends on, allowing the executor to skip delivering the rest.
+ * 
+ * Only {@link RuleEventType#ATTRIBUTE_VALUE_CHANGED} and {@link RuleEventType#MESSAGE_RECEIVED}
+ * are filtered, every other type of event is delivered to all handlers because
+ * models being added or removed may change whether a rule is satisfiable and
+ * scheduled events aren't addressed to the condition which scheduled them.
+ * 
+ * Conditions which can't describe what they depend on should use {@link #ALL}.
+ */
+public final class EventInterest {
+   /** every event, the default for conditions which don't declare an interest */
+   public static final EventInterest ALL = new EventInterest(null, true);
+   /** no value changes or messages, only the events that are always delivered */
+   public static final EventInterest NONE = new EventInterest(ImmutableSet.<String>of(), false);
+
+   private static final EventInterest ALL_ATTRIBUTES = new EventInterest(null, false);
+   private static final EventInterest MESSAGES = new EventInterest(ImmutableSet.<String>of(), true);
+
+   /**
+    * Changes to any of the given attributes.
+    */
+   public static EventInterest attributes(String... names) {
+      return attributes(Arrays.asList(names));
+   }
+
+   /**
+    * Changes to any of the given attributes.
+    */
+   public static EventInterest attributes(Collection<String> names) {
+      return names.isEmpty() ? NONE : new EventInterest(ImmutableSet.copyOf(names), false);
+   }
+
+   /**
+    * Changes to any attribute, generally used by conditions which evaluate
+    * a query against the models.
+    */
+   public static EventInterest allAttributes() {
+      return ALL_ATTRIBUTES;
+   }
+
+   /**
+    * Every {@link MessageReceivedEvent}.
+    */
+   public static EventInterest messages() {
+      return MESSAGES;
+   }
+
+   /**
+    * Converts a set of event types as reported by {@link com.iris.common.rule.condition.Condition#handlesEventsOfType(RuleEventType)}
+    * into an interest, value changes are treated as changes to any attribute.
+    */
+   public static EventInterest forEventTypes(Set<RuleEventType> types) {
+      boolean attributes = types.contains(RuleEventType.ATTRIBUTE_VALUE_CHANGED);
+      boolean messages = types.contains(RuleEventType.MESSAGE_RECEIVED);
+      if(attributes) {
+         return messages ? ALL : ALL_ATTRIBUTES;
+      }
+      return messages ? MESSAGES : NONE;
+   }
+
+   /**
+    * Whether events of this type are filtered by interest, all other
+    * types are always delivered.
+    */
+   public static boolean isFiltered(RuleEventType type) {
+      return
+            type == RuleEventType.ATTRIBUTE_VALUE_CHANGED ||
+            type == RuleEventType.MESSAGE_RECEIVED;
+   }
+
+   // null means any attribute
+   @Nullable
+   private final Set<String> attributes;
+   private final boolean messages;
+
+   private EventInterest(@Nullable Set<String> attributes, boolean messages) {
+      this.attributes = attributes;
+      this.messages = messages;
+   }
+
+   public boolean isAll() {
+      return attributes == null && messages;
+   }
+
+   public boolean isAllAttributes() {
+      return attributes == null;
+   }
+
+   /**
+    * The attributes of interest, empty when {@link #isAllAttributes()}
+    * or no value changes are of interest.
+    */
+   public Set<String> getAttributes() {
+      return attributes == null ? ImmutableSet.<String>of() : attributes;
+   }
+
+   public boolean isMessages() {
+      return messages;
+   }
+
+   public boolean matches(RuleEvent event) {
+      switch(event.getType()) {
+      case ATTRIBUTE_VALUE_CHANGED:
+         return attributes == null || attributes.contains(((AttributeValueChangedEvent) event).getAttributeName());
+      case MESSAGE_RECEIVED:
+         return messages;
+      default:
+         return true;
+      }
+   }
+
+   public EventInterest union(EventInterest other) {
+      if(this.contains(other)) {
+         return this;
+      }
+      if(other.contains(this)) {
+         return other;
+      }
+      Set<String> attributes =
+            this.attributes == null || other.attributes == null ?
+                  null :
+                  ImmutableSet.<String>builder().addAll(this.attributes).addAll(other.attributes).build();
+      return new EventInterest(attributes, this.messages || other.messages);
+   }
+
+   private boolean contains(EventInterest other) {
+      if(other.messages && !this.messages) {
+         return false;
+      }
+      if(this.attributes == null) {
+         return true;
+      }
+      return other.attributes != null && this.attributes.containsAll(other.attributes);
+   }
+
+   @Override
+   public int hashCode() {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + ((attributes == null) ? 0 : attributes.hashCode());
+      result = prime * result + (messages ? 1231 : 1237);
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (obj == null) return false;
+      if (getClass() != obj.getClass()) return false;
+      EventInterest other = (EventInterest) obj;
+      if (attributes == null) {
+         if (other.attributes != null) return false;
+      }
+      else if (!attributes.equals(other.attributes)) return false;
+      if (messages != other.messages) return false;
+      return true;
+   }
+
+   @Override
+   public String toString() {
+      return "EventInterest [attributes=" + (attributes == null ? "*" : attributes) + ", messages=" + messages + "]";
+   }
+
+}
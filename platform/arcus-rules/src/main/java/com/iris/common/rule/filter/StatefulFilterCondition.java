@@ -18,11 +18,15 @@
  */
 package com.iris.common.rule.filter;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import com.google.common.base.Preconditions;
 import com.iris.common.rule.condition.Condition;
 import com.iris.common.rule.condition.ConditionContext;
 import com.iris.common.rule.condition.State;
 import com.iris.common.rule.condition.StatefulCondition;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 import com.iris.common.rule.event.ScheduledEvent;
@@ -80,6 +84,17 @@ public abstract class StatefulFilterCondition extends StatefulCondition {
       return inactive;
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      Set<RuleEventType> types = EnumSet.noneOf(RuleEventType.class);
+      for(RuleEventType type: RuleEventType.values()) {
+         if(transitionsOnEventsOfType(type)) {
+            types.add(type);
+         }
+      }
+      return delegate.getEventInterest().union(EventInterest.forEventTypes(types));
+   }
+
    @Override
    public boolean isSatisfiable(ConditionContext context) {
       return delegate.isSatisfiable(context);
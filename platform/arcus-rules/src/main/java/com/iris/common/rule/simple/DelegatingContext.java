@@ -30,6 +30,7 @@ import java.util.regex.Pattern;
 import org.slf4j.Logger;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.iris.common.rule.RuleContext;
 import com.iris.common.rule.action.ActionContext;
@@ -123,6 +124,11 @@ public abstract class DelegatingContext implements RuleContext {
       return delegate.getModels();
    }
 
+   @Override
+   public Iterable<Model> getModels(Predicate<? super Model> predicate) {
+      return delegate.getModels(predicate);
+   }
+
    @Override
    public Model getModelByAddress(Address address) {
       return delegate.getModelByAddress(address);
@@ -28,6 +28,7 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.iris.common.rule.RuleContext;
 import com.iris.common.rule.action.ActionContext;
 import com.iris.common.rule.event.ScheduledEventHandle;
@@ -122,6 +123,11 @@ public class OverrideContext extends BaseRuleContext implements RuleContext {
       return delegate.getModels();
    }
 
+   @Override
+   public Iterable<Model> getModels(Predicate<? super Model> predicate) {
+      return delegate.getModels(predicate);
+   }
+
    @Override
    public Model getModelByAddress(Address address) {
       return delegate.getModelByAddress(address);
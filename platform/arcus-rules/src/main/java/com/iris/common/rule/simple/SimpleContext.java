@@ -36,6 +36,8 @@ import org.slf4j.Logger;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
 import com.iris.common.rule.RuleContext;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.ScheduledEvent;
@@ -166,6 +168,11 @@ public class SimpleContext extends BaseRuleContext implements RuleContext {
       return unmodifiableModels;
    }
 
+   @Override
+   public Iterable<Model> getModels(Predicate<? super Model> predicate) {
+      return Iterables.filter(unmodifiableModels, predicate);
+   }
+
    @Override
    @Nullable
    public Model getModelByAddress(Address address) {
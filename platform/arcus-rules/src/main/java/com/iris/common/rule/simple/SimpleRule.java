@@ -25,6 +25,7 @@ import com.iris.common.rule.action.stateful.ActionState;
 import com.iris.common.rule.action.stateful.StatefulAction;
 import com.iris.common.rule.action.stateful.StatefulActionWrapper;
 import com.iris.common.rule.condition.Condition;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.messages.address.Address;
 
@@ -39,6 +40,8 @@ public class SimpleRule implements Rule {
    private final Condition condition;
    private final StatefulAction action;
    private final Address address;
+   // the condition tree doesn't change, so this is computed once
+   private EventInterest conditionInterest;
    
    public SimpleRule(RuleContext context, Condition condition, Action action, Address address) {
       this(context, condition, new StatefulActionWrapper(action), address);
@@ -94,6 +97,20 @@ public class SimpleRule implements Rule {
       }
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      // while firing the action needs to see every event to decide when to stop
+      if(isFiring()) {
+         return EventInterest.ALL;
+      }
+      EventInterest interest = conditionInterest;
+      if(interest == null) {
+         interest = condition.getEventInterest();
+         conditionInterest = interest;
+      }
+      return interest;
+   }
+
    @Override
    public void deactivate() {
       this.context.logger().debug("Deactivating rule {}", address);
@@ -24,6 +24,7 @@ import com.google.common.base.Preconditions;
 import com.iris.common.rule.condition.ConditionContext;
 import com.iris.common.rule.condition.State;
 import com.iris.common.rule.condition.StatefulCondition;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 import com.iris.common.rule.event.ScheduledEventHandle;
@@ -47,6 +48,11 @@ public class DurationTrigger extends StatefulCondition {
       this.durationMs = durationMs;
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      return EventInterest.forEventTypes(matcher.reevaluteOnEventsOfType());
+   }
+
    @Override
    public boolean isSatisfiable(ConditionContext context) {
       return matcher.isSatisfiable(context);
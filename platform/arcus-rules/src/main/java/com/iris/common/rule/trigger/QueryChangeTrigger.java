@@ -20,9 +20,12 @@ package com.iris.common.rule.trigger;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
 import com.iris.common.rule.condition.ConditionContext;
 import com.iris.common.rule.condition.State;
 import com.iris.common.rule.condition.StatefulCondition;
+import com.iris.common.rule.event.AttributeValueChangedEvent;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 import com.iris.messages.model.Model;
@@ -54,24 +57,41 @@ public class QueryChangeTrigger extends StatefulCondition {
       return RuleEventType.ATTRIBUTE_VALUE_CHANGED.equals(type);
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      // the query may depend on any attribute
+      return EventInterest.allAttributes();
+   }
+
    @Override
    public boolean isSatisfiable(ConditionContext context) {
       return checkSatisfiability(context);
    }
    
    boolean checkSatisfiability(ConditionContext context) {
-      for (Model model : context.getModels()) {
-         if (satisfiabilityPredicate.apply(model)) {
-            context.logger().trace("Trigger Query [{}] is satisfiable because at least one model matches [{}]", this, satisfiabilityPredicate);
+      if (!Iterables.isEmpty(context.getModels(satisfiabilityPredicate))) {
+         context.logger().trace("Trigger Query [{}] is satisfiable because at least one model matches [{}]", this, satisfiabilityPredicate);
+         return true;
+      }
+      return false;
+   }
+   
+   boolean checkCondition(ConditionContext context, RuleEvent event) {
+      // the model which changed is the most likely to have satisfied the query, so
+      // test it before searching the remaining candidates
+      if(event instanceof AttributeValueChangedEvent) {
+         Model model = context.getModelByAddress(((AttributeValueChangedEvent) event).getAddress());
+         if (model != null && satisfiabilityPredicate.apply(model) && conditionPredicate.apply(model)) {
+            context.logger().trace("Trigger [{}] is satisfiable because [{}] matches [{}] and [{}]", this, model.getAddress(), satisfiabilityPredicate,conditionPredicate);
             return true;
          }
       }
-      return false;
+      return checkCondition(context);
    }
    
    boolean checkCondition(ConditionContext context) {
-      for (Model model : context.getModels()) {
-         if (satisfiabilityPredicate.apply(model) && conditionPredicate.apply(model)) {
+      for (Model model : context.getModels(satisfiabilityPredicate)) {
+         if (conditionPredicate.apply(model)) {
             context.logger().trace("Trigger [{}] is satisfiable because at least one model matches [{}] and [{}]", this, satisfiabilityPredicate,conditionPredicate);
             return true;
          }
@@ -113,7 +133,7 @@ public class QueryChangeTrigger extends StatefulCondition {
 
       @Override
       public State transition(ConditionContext context, RuleEvent event) {
-         if (checkCondition(context)) {
+         if (checkCondition(context, event)) {
             hasFired = false;
             return triggered;
          }
@@ -151,7 +171,7 @@ public class QueryChangeTrigger extends StatefulCondition {
       @Override
       public State transition(ConditionContext context, RuleEvent event) {
          context.logger().trace("Waiting for query [{}] and [{}] to become true", satisfiabilityPredicate,conditionPredicate);
-         if (!checkCondition(context)) {
+         if (!checkCondition(context, event)) {
             hasFired = false;
             return inactive;
          }
@@ -19,6 +19,7 @@ import java.util.Map;
 
 import com.google.common.base.Predicate;
 import com.iris.common.rule.condition.ConditionContext;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.MessageReceivedEvent;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
@@ -38,6 +39,11 @@ public class ReceivedMessageCondition extends SimpleTrigger {
       return RuleEventType.MESSAGE_RECEIVED.equals(type);
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      return EventInterest.messages();
+   }
+
    public ReceivedMessageCondition(Predicate<String> messageType, Predicate<Address> from, Predicate<Map<String, Object>> attributes) {
       this.from = from;
       this.messageType = messageType;
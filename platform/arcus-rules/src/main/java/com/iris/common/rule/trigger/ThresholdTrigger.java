@@ -27,6 +27,7 @@ import com.iris.common.rule.condition.ConditionContext;
 import com.iris.common.rule.condition.State;
 import com.iris.common.rule.condition.StatefulCondition;
 import com.iris.common.rule.event.AttributeValueChangedEvent;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 import com.iris.messages.address.Address;
@@ -84,6 +85,11 @@ public class ThresholdTrigger extends StatefulCondition {
    }
    
 
+   @Override
+   public EventInterest getEventInterest() {
+      return EventInterest.attributes(attributeName);
+   }
+
    @Override
    public boolean isSatisfiable(ConditionContext context) {
 	   for(Model model: context.getModels()) {
@@ -23,6 +23,7 @@ import java.util.Date;
 
 import com.google.common.base.Preconditions;
 import com.iris.common.rule.condition.ConditionContext;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 import com.iris.common.rule.time.TimeOfDay;
@@ -55,6 +56,12 @@ public class TimeOfDayTrigger extends SimpleTrigger {
       return RuleEventType.SCHEDULED_EVENT == type;
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      // only fires on its own scheduled events
+      return EventInterest.NONE;
+   }
+
    @Override
    public boolean shouldTrigger(ConditionContext context, RuleEvent event) {
       Calendar localTime = context.getLocalTime();
@@ -26,6 +26,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.iris.common.rule.condition.ConditionContext;
 import com.iris.common.rule.event.AttributeValueChangedEvent;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 import com.iris.messages.model.Model;
@@ -68,6 +69,11 @@ public class ValueChangeTrigger extends SimpleTrigger {
       return RuleEventType.ATTRIBUTE_VALUE_CHANGED.equals(type);
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      return EventInterest.attributes(attributeName);
+   }
+
    @Override
    public boolean isSatisfiable(ConditionContext context) {
       for(Model model: context.getModels()) {
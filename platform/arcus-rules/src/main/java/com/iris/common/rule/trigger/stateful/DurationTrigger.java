@@ -21,6 +21,7 @@ package com.iris.common.rule.trigger.stateful;
 import com.google.common.base.Preconditions;
 import com.iris.common.rule.RuleContext;
 import com.iris.common.rule.condition.ConditionContext;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 import com.iris.common.rule.event.ScheduledReference;
@@ -44,6 +45,11 @@ public class DurationTrigger extends StatefulCondition {
       this.durationMs = durationMs;
    }
 
+   @Override
+   public EventInterest getEventInterest() {
+      return EventInterest.forEventTypes(matcher.reevaluteOnEventsOfType());
+   }
+
    @Override
    public boolean isSatisfiable(ConditionContext context) {
       return matcher.isSatisfiable(context);
@@ -25,6 +25,7 @@ import com.google.common.base.Predicate;
 import com.iris.common.rule.RuleContext;
 import com.iris.common.rule.condition.ConditionContext;
 import com.iris.common.rule.event.AttributeValueChangedEvent;
+import com.iris.common.rule.event.EventInterest;
 import com.iris.common.rule.event.RuleEvent;
 import com.iris.common.rule.event.RuleEventType;
 import com.iris.messages.address.Address;
@@ -82,6 +83,11 @@ public class ThresholdTrigger extends StatefulCondition {
    }
    
 
+   @Override
+   public EventInterest getEventInterest() {
+      return EventInterest.attributes(attributeName);
+   }
+
    @Override
    public boolean isSatisfiable(ConditionContext context) {
 	   for(Model model: context.getModels()) {
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.common.rule.event;
+
+import java.util.EnumSet;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.iris.common.rule.condition.Condition;
+import com.iris.common.rule.condition.OrCondition;
+import com.iris.common.rule.filter.TimeOfDayFilter;
+import com.iris.common.rule.time.TimeOfDay;
+import com.iris.common.rule.trigger.ReceivedMessageCondition;
+import com.iris.common.rule.trigger.TimeOfDayTrigger;
+import com.iris.common.rule.trigger.ValueChangeTrigger;
+import com.iris.messages.address.Address;
+
+public class TestEventInterest extends Assert {
+   Address device = Address.platformService(UUID.randomUUID(), "dev");
+
+   @Test
+   public void testMatches() {
+      EventInterest interest = EventInterest.attributes("swit:state");
+      assertTrue(interest.matches(AttributeValueChangedEvent.create(device, "swit:state", "ON", "OFF")));
+      assertFalse(interest.matches(AttributeValueChangedEvent.create(device, "temp:temperature", 20.0, 21.0)));
+      assertTrue(interest.matches(new ScheduledEvent()));
+      assertTrue(interest.matches(ModelAddedEvent.create(device)));
+      assertTrue(EventInterest.ALL.matches(AttributeValueChangedEvent.create(device, "temp:temperature", 20.0, 21.0)));
+      assertFalse(EventInterest.NONE.matches(AttributeValueChangedEvent.create(device, "temp:temperature", 20.0, 21.0)));
+   }
+
+   @Test
+   public void testUnion() {
+      EventInterest swit = EventInterest.attributes("swit:state");
+      EventInterest cont = EventInterest.attributes("cont:contact");
+      assertEquals(EventInterest.attributes("swit:state", "cont:contact"), swit.union(cont));
+      assertSame(swit, swit.union(EventInterest.NONE));
+      assertSame(EventInterest.ALL, swit.union(EventInterest.ALL));
+      assertSame(EventInterest.allAttributes(), swit.union(EventInterest.allAttributes()));
+
+      EventInterest both = swit.union(EventInterest.messages());
+      assertTrue(both.isMessages());
+      assertEquals(ImmutableSet.of("swit:state"), both.getAttributes());
+      assertEquals(EventInterest.ALL, EventInterest.allAttributes().union(EventInterest.messages()));
+   }
+
+   @Test
+   public void testForEventTypes() {
+      assertEquals(EventInterest.NONE, EventInterest.forEventTypes(EnumSet.of(RuleEventType.SCHEDULED_EVENT)));
+      assertEquals(EventInterest.allAttributes(), EventInterest.forEventTypes(EnumSet.of(RuleEventType.MODEL_ADDED, RuleEventType.ATTRIBUTE_VALUE_CHANGED)));
+      assertEquals(EventInterest.ALL, EventInterest.forEventTypes(EnumSet.allOf(RuleEventType.class)));
+   }
+
+   @Test
+   public void testConditionInterest() {
+      Condition valueChange = new ValueChangeTrigger("swit:state", null, "ON");
+      Condition message = new ReceivedMessageCondition(Predicates.<String>alwaysTrue(), Predicates.<Address>alwaysTrue(), Predicates.alwaysTrue());
+      Condition time = new TimeOfDayTrigger(new TimeOfDay(8, 0, 0));
+
+      assertEquals(EventInterest.attributes("swit:state"), valueChange.getEventInterest());
+      assertEquals(EventInterest.messages(), message.getEventInterest());
+      assertEquals(EventInterest.NONE, time.getEventInterest());
+      assertEquals(
+            EventInterest.attributes("swit:state").union(EventInterest.messages()),
+            new OrCondition(ImmutableList.of(valueChange, message, time)).getEventInterest()
+      );
+      // the filter itself is only driven by scheduled events
+      assertEquals(
+            EventInterest.attributes("swit:state"),
+            new TimeOfDayFilter(valueChange, new TimeOfDay(8, 0, 0), new TimeOfDay(17, 0, 0)).getEventInterest()
+      );
+   }
+}
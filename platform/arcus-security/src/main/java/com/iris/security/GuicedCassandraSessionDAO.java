@@ -25,10 +25,13 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.time.ZoneId;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.shiro.ShiroException;
 import org.apache.shiro.io.DefaultSerializer;
@@ -44,10 +47,10 @@ import org.apache.shiro.util.Initializable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Counter;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
-import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
@@ -60,6 +63,8 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.iris.gson.GsonFactory;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
 import com.iris.security.principal.DefaultPrincipalTypeAdapter;
 import com.iris.security.principal.PrincipalCollectionTypeAdapter;
 
@@ -70,13 +75,26 @@ import com.iris.security.principal.PrincipalCollectionTypeAdapter;
  * Initialized by shiro.ini
  *
  * Need to refactor so table isn't dynamically created (move to ModelManager)
+ *
+ * Sessions are cached locally, bounded by {@code session.cache.maxSize} and
+ * {@code session.cache.timeoutMs}.  Shiro touches the session on every request,
+ * when nothing but the last access time has changed the write is skipped until
+ * the stored value is more than {@code session.lastAccess.slackMs} old, the
+ * row TTL and the expiration check are extended by the same slack so a session
+ * read from another node isn't expired early.  Other nodes drop their cached
+ * copy via {@link #invalidate(Serializable)} when the session expired event is
+ * broadcast.
  */
 @Singleton
-public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Initializable, Destroyable {
+public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements SessionInvalidator, Initializable, Destroyable {
    private static final Logger logger = LoggerFactory.getLogger(GuicedCassandraSessionDAO.class);
    private static final NoSessionException NO_SESSION_EXCEPTION = new NoSessionException();
   
    private static final ConsistencyLevel consistencyLevel = ConsistencyLevel.LOCAL_QUORUM;
+
+   private static final IrisMetricSet METRICS = IrisMetrics.metrics("security.session.dao");
+   private static final Counter SESSION_WRITES = METRICS.counter("write");
+   private static final Counter SESSION_WRITES_SKIPPED = METRICS.counter("write.skipped");
    
    public static final String TABLE_NAME = "sessions";
    
@@ -101,8 +119,12 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
    
    @Inject(optional=true) @Named("session.cache.timeoutMs")
    private long sessionCacheTimeoutMs = TimeUnit.MINUTES.toMillis(5);
+   @Inject(optional=true) @Named("session.cache.maxSize")
+   private long sessionCacheMaxSize = 100000;
+   @Inject(optional=true) @Named("session.lastAccess.slackMs")
+   private long lastAccessSlackMs = TimeUnit.MINUTES.toMillis(1);
 
-   private Cache<Serializable, Session> sessionCache;
+   private volatile Cache<UUID, CachedSession> sessionCache;
    
    private final PreparedStatement deletePreparedStatement;
    private final PreparedStatement savePreparedStatement;
@@ -120,12 +142,7 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
       this.setSessionIdGenerator(new TimeUuidSessionIdGenerator());
       this.serializer = new DefaultSerializer<SimpleSession>();
       this.cassandraSession = cassandraSession;
-      this.sessionCache = 
-            CacheBuilder
-               .newBuilder()
-               .concurrencyLevel(32)
-               .expireAfterWrite(sessionCacheTimeoutMs, TimeUnit.MILLISECONDS)
-               .build();
+      this.sessionCache = buildCache();
       this.readPreparedStatement = prepareReadStatement();
       this.savePreparedStatement = prepareSaveStatement();
       this.deletePreparedStatement = prepareDeleteStatement();
@@ -166,8 +183,21 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
       return cassandraSession.prepare(query);
    }
 
+   private Cache<UUID, CachedSession> buildCache() {
+      return
+            CacheBuilder
+               .newBuilder()
+               .concurrencyLevel(32)
+               .maximumSize(sessionCacheMaxSize)
+               .expireAfterWrite(sessionCacheTimeoutMs, TimeUnit.MILLISECONDS)
+               .build();
+   }
+
    @Override
+   @PostConstruct
    public void init() throws ShiroException {
+      // the cache settings are injected after construction
+      this.sessionCache = buildCache();
    }
 
 	@Override
@@ -177,7 +207,17 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
    @Override
    public void update(Session session) throws UnknownSessionException {
       SimpleSession ss = assertSimpleSession(session);
-      save(ss);
+      Map<String, String> attributes = serializeAttributes(ss);
+      UUID id = toUuid(ss.getId());
+      CachedSession cached = sessionCache.getIfPresent(id);
+      if(cached != null && cached.stored != null && cached.stored.isTouchOnly(ss, attributes, lastAccessSlackMs)) {
+         if(cached.session != ss) {
+            sessionCache.put(id, new CachedSession(ss, cached.stored));
+         }
+         SESSION_WRITES_SKIPPED.inc();
+         return;
+      }
+      save(ss, attributes);
    }
 
    @Override
@@ -186,7 +226,19 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
       bs.bind(session.getId());
       bs.setConsistencyLevel(consistencyLevel);
       cassandraSession.execute(bs);
-      sessionCache.invalidate(session.getId());
+      invalidate(session.getId());
+   }
+
+   /**
+    * Drops the locally cached copy of the session, if any, so the next
+    * read goes to Cassandra.  Used when another node has stopped the session.
+    */
+   @Override
+   public void invalidate(Serializable sessionId) {
+      UUID id = toUuid(sessionId);
+      if(id != null) {
+         sessionCache.invalidate(id);
+      }
    }
 
    @Override
@@ -199,7 +251,7 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
       SimpleSession ss = assertSimpleSession(session);
       Serializable timeUuid = generateSessionId(session);
       assignSessionId(ss, timeUuid);
-      save(ss);
+      save(ss, serializeAttributes(ss));
       return timeUuid;
    }
 
@@ -251,20 +303,24 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
    @Override
    protected Session doReadSession(Serializable sessionId) {
       try {
-      	Session session = sessionCache.getIfPresent(sessionId);
-      	if(session != null) {
-	      	if(isExpired(session)) {
-	      		sessionCache.asMap().remove(sessionId, session);
+         UUID id = toUuid(sessionId);
+         if(id == null) {
+            return null;
+         }
+      	CachedSession cached = sessionCache.getIfPresent(id);
+      	if(cached != null) {
+	      	if(isExpired(cached.session)) {
+	      		sessionCache.asMap().remove(id, cached);
 	      	}
 	      	else {
-	      		return session;
+	      		return cached.session;
 	      	}
       	}
       	else {
 	         return sessionCache.get(
-	               sessionId,
-	               () -> doCassandraReadSession(sessionId)
-	         );
+	               id,
+	               () -> doCassandraReadSession(id)
+	         ).session;
       	}
       }
       catch(UncheckedExecutionException e) {
@@ -281,32 +337,30 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
       return null;
    }
       
-   private Session doCassandraReadSession(Serializable sessionId) {
-      UUID id = toUuid(sessionId);
-      BoundStatement bs = new BoundStatement(this.readPreparedStatement);
-      bs.bind(id);
-      bs.setConsistencyLevel(consistencyLevel);
-
-      ResultSet results = cassandraSession.execute(bs);
-
-      for(Row row : results) {
-         Session session = hydrateSession(id, row);
-         if (session != null && !isExpired(session)) {
-         	return session;
+   private CachedSession doCassandraReadSession(UUID id) {
+      for(Row row : read(id)) {
+         CachedSession cached = hydrateSession(id, row);
+         if (cached != null && !isExpired(cached.session)) {
+         	return cached;
          }
       }
 
       throw NO_SESSION_EXCEPTION;
    }
    
-   private boolean isExpired(Session session) {
+   /**
+    * The stored last access time may be up to {@code session.lastAccess.slackMs}
+    * behind the real one, so a session isn't considered expired until that long
+    * after its timeout.
+    */
+   boolean isExpired(Session session) {
    	if(session.getLastAccessTime() == null) {
    		return false;
    	}
-		return System.currentTimeMillis() > (session.getLastAccessTime().getTime() + session.getTimeout());
+		return System.currentTimeMillis() > (session.getLastAccessTime().getTime() + session.getTimeout() + lastAccessSlackMs);
 	}
 
-	private Session hydrateSession(UUID id, Row row) {
+	private CachedSession hydrateSession(UUID id, Row row) {
    	UUID rowId = row.getUUID(Columns.ID);
    	if (id.equals(rowId)) {
    		Date start = row.getTimestamp(Columns.START);
@@ -317,7 +371,8 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
    			if (buffer != null && buffer.remaining() > 0) {
    				byte[] bytes = new byte[buffer.remaining()];
                buffer.get(bytes);
-               return serializer.deserialize(bytes);
+               // no stored state so the first update rewrites it in the column format
+               return new CachedSession(serializer.deserialize(bytes), null);
    			}
    			else {
    				// New style session. Read the fields and create a session.
@@ -348,7 +403,7 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
    				session.setHost(host);
    				session.setAttributes(attributes);
    				
-   				return session;
+   				return new CachedSession(session, new StoredState(session, serialized_attrs));
    			}
    		}
    	}
@@ -368,27 +423,31 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
 
    //In CQL, insert and update are effectively the same, so we can use a single query for both:
    protected void save(SimpleSession ss) {
+      save(ss, serializeAttributes(ss));
+   }
+
+   private void save(SimpleSession ss, Map<String, String> attributes) {
    	
-      //Cassandra TTL values are in seconds, so we need to convert from Shiro's millis:
-      int timeoutInSeconds = (int)(ss.getTimeout() / 1000);
+      //Cassandra TTL values are in seconds, so we need to convert from Shiro's millis,
+      //the stored last access time may lag by up to the slack so the row must outlive it by that much
+      long ttl = ss.getTimeout() > 0 ? ss.getTimeout() + lastAccessSlackMs : ss.getTimeout();
+      int timeoutInSeconds = (int)(ttl / 1000);
+
+      write(ss, attributes, timeoutInSeconds);
+      SESSION_WRITES.inc();
+      sessionCache.put(toUuid(ss.getId()), new CachedSession(ss, new StoredState(ss, attributes)));
+   }
+
+   Iterable<Row> read(UUID id) {
+      BoundStatement bs = new BoundStatement(this.readPreparedStatement);
+      bs.bind(id);
+      bs.setConsistencyLevel(consistencyLevel);
 
+      return cassandraSession.execute(bs);
+   }
+
+   void write(SimpleSession ss, Map<String, String> attributes, int timeoutInSeconds) {
       BoundStatement bs = new BoundStatement(this.savePreparedStatement);
-      
-      Map<String,String> attributes = new HashMap<>();
-      for (Object key : ss.getAttributeKeys()) {
-      	if (key instanceof String) {
-      		Object value = ss.getAttribute(key);
-      		if (value instanceof Serializable) {
-      			attributes.put((String)key, gson.toJson(value));
-      		}
-      		else {
-      			logger.error("Could not store un-serializable attribute in Session. Session {}: Key{}", ss.getId(), key);
-      		}
-      	}
-      	else {
-      		logger.error("Session attributes with non-string keys are not supported. Session {}: Key {}", ss.getId(), key);
-      	}
-      }
           
       // FIXME if isExpired() == true we should just delete the row...
       bs.bind(
@@ -405,8 +464,79 @@ public class GuicedCassandraSessionDAO extends AbstractSessionDAO implements Ini
       );
       bs.setConsistencyLevel(consistencyLevel);
       
-      cassandraSession.execute(bs);      
-      sessionCache.put(ss.getId(), ss);
+      cassandraSession.execute(bs);
+   }
+
+   private Map<String, String> serializeAttributes(SimpleSession ss) {
+      Map<String,String> attributes = new HashMap<>();
+      for (Object key : ss.getAttributeKeys()) {
+      	if (key instanceof String) {
+      		Object value = ss.getAttribute(key);
+      		if (value instanceof Serializable) {
+      			attributes.put((String)key, gson.toJson(value));
+      		}
+      		else {
+      			logger.error("Could not store un-serializable attribute in Session. Session {}: Key{}", ss.getId(), key);
+      		}
+      	}
+      	else {
+      		logger.error("Session attributes with non-string keys are not supported. Session {}: Key {}", ss.getId(), key);
+      	}
+      }
+      return attributes;
+   }
+
+   private static final class CachedSession {
+      private final SimpleSession session;
+      // what was last written to (or read from) cassandra, null if it needs to be rewritten
+      private final StoredState stored;
+
+      CachedSession(SimpleSession session, StoredState stored) {
+         this.session = session;
+         this.stored = stored;
+      }
+   }
+
+   private static final class StoredState {
+      private final Date start;
+      private final Date stop;
+      private final Date lastAccess;
+      private final long timeout;
+      private final boolean expired;
+      private final String host;
+      private final Map<String, String> attributes;
+
+      StoredState(SimpleSession ss, Map<String, String> attributes) {
+         this.start = ss.getStartTimestamp();
+         this.stop = ss.getStopTimestamp();
+         this.lastAccess = ss.getLastAccessTime();
+         this.timeout = ss.getTimeout();
+         this.expired = ss.isExpired();
+         this.host = ss.getHost();
+         this.attributes = attributes;
+      }
+
+      /**
+       * True if the only difference from the stored state is a last access
+       * time which is less than {@code slackMs} newer.
+       */
+      boolean isTouchOnly(SimpleSession ss, Map<String, String> attributes, long slackMs) {
+         if(
+               timeout != ss.getTimeout() ||
+               expired != ss.isExpired() ||
+               !Objects.equals(start, ss.getStartTimestamp()) ||
+               !Objects.equals(stop, ss.getStopTimestamp()) ||
+               !Objects.equals(host, ss.getHost()) ||
+               !Objects.equals(this.attributes, attributes)
+         ) {
+            return false;
+         }
+         Date touched = ss.getLastAccessTime();
+         if(lastAccess == null || touched == null) {
+            return lastAccess == touched;
+         }
+         return touched.getTime() - lastAccess.getTime() < slackMs;
+      }
    }
 
    private static final class NoSessionException extends RuntimeException {
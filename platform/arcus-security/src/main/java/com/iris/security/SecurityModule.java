@@ -50,6 +50,9 @@ public abstract class SecurityModule extends ShiroModule {
    @Override
    protected void configureShiro() {
       bindSessionDAO(bind(SessionDAO.class));
+      // bridges drop their cached copy of a session when another node expires it
+      bindSessionInvalidator(bind(SessionInvalidator.class));
+      expose(SessionInvalidator.class);
       bindCacheManager(bind(CacheManager.class));
       bindAuthenticationDAO(bind(AuthenticationDAO.class));
       bindAuthorizationDAO(bind(AuthorizationDAO.class));
@@ -82,6 +85,10 @@ public abstract class SecurityModule extends ShiroModule {
       bind.to(GuicedCassandraSessionDAO.class);
    }
 
+   protected void bindSessionInvalidator(AnnotatedBindingBuilder<SessionInvalidator> bind) {
+      bind.to(GuicedCassandraSessionDAO.class);
+   }
+
    protected void bindCacheManager(AnnotatedBindingBuilder<CacheManager> bind) {
       bind.to(MemoryConstrainedCacheManager.class);
    }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.security;
+
+import java.io.Serializable;
+
+/**
+ * Implemented by session stores which keep a local copy of sessions, this is
+ * used to drop that copy when the session has been stopped by another node.
+ */
+public interface SessionInvalidator {
+
+   /**
+    * Drops the locally held copy of the session, if any, so the next read
+    * goes to the backing store.
+    */
+   void invalidate(Serializable sessionId);
+
+}
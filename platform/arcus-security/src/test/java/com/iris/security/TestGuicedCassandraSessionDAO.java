@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.security;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.shiro.session.mgt.SimpleSession;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.datastax.driver.core.Row;
+
+public class TestGuicedCassandraSessionDAO {
+   private static final long TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+   // the default session.lastAccess.slackMs
+   private static final long SLACK_MS = TimeUnit.MINUTES.toMillis(1);
+
+   private RecordingSessionDAO dao;
+
+   @Before
+   public void setUp() {
+      com.datastax.driver.core.Session cassandra = EasyMock.createNiceMock(com.datastax.driver.core.Session.class);
+      EasyMock.replay(cassandra);
+      dao = new RecordingSessionDAO(cassandra);
+   }
+
+   @Test
+   public void testTouchWithinSlackIsNotWritten() {
+      SimpleSession session = session(System.currentTimeMillis());
+      dao.create(session);
+      Assert.assertEquals(1, dao.writes.size());
+
+      session.setLastAccessTime(new Date(session.getLastAccessTime().getTime() + SLACK_MS / 2));
+      dao.update(session);
+      Assert.assertEquals(1, dao.writes.size());
+
+      // the skipped touch isn't lost, the cached copy is the latest session
+      Assert.assertSame(session, dao.doReadSession(session.getId()));
+   }
+
+   @Test
+   public void testTouchPastSlackIsWritten() {
+      SimpleSession session = session(System.currentTimeMillis());
+      dao.create(session);
+
+      session.setLastAccessTime(new Date(session.getLastAccessTime().getTime() + SLACK_MS / 2));
+      dao.update(session);
+      session.setLastAccessTime(new Date(session.getLastAccessTime().getTime() + SLACK_MS));
+      dao.update(session);
+      Assert.assertEquals(2, dao.writes.size());
+   }
+
+   @Test
+   public void testAttributeChangeIsWritten() {
+      SimpleSession session = session(System.currentTimeMillis());
+      dao.create(session);
+
+      session.setAttribute("activePlace", UUID.randomUUID().toString());
+      dao.update(session);
+      Assert.assertEquals(2, dao.writes.size());
+   }
+
+   @Test
+   public void testNotExpiredWithinSlack() {
+      // the stored last access time may lag the real one by up to the slack
+      SimpleSession session = session(System.currentTimeMillis() - TIMEOUT_MS - SLACK_MS / 2);
+      dao.create(session);
+
+      Assert.assertFalse(dao.isExpired(session));
+      Assert.assertSame(session, dao.doReadSession(session.getId()));
+   }
+
+   @Test
+   public void testExpiredPastSlack() {
+      SimpleSession session = session(System.currentTimeMillis() - TIMEOUT_MS - 2 * SLACK_MS);
+      dao.create(session);
+
+      Assert.assertTrue(dao.isExpired(session));
+      Assert.assertNull(dao.doReadSession(session.getId()));
+   }
+
+   @Test
+   public void testInvalidateDropsCachedSession() {
+      SimpleSession session = session(System.currentTimeMillis());
+      Serializable id = dao.create(session);
+      Assert.assertSame(session, dao.doReadSession(id));
+      Assert.assertEquals(0, dao.reads);
+
+      // the expired event carries the id as a string
+      dao.invalidate(id.toString());
+      Assert.assertNull(dao.doReadSession(id));
+      Assert.assertEquals(1, dao.reads);
+   }
+
+   private static SimpleSession session(long lastAccess) {
+      SimpleSession session = new SimpleSession();
+      session.setTimeout(TIMEOUT_MS);
+      session.setStartTimestamp(new Date(lastAccess));
+      session.setLastAccessTime(new Date(lastAccess));
+      return session;
+   }
+
+   private static class RecordingSessionDAO extends GuicedCassandraSessionDAO {
+      private final List<SimpleSession> writes = new ArrayList<>();
+      private int reads;
+
+      RecordingSessionDAO(com.datastax.driver.core.Session cassandraSession) {
+         super(cassandraSession);
+      }
+
+      @Override
+      Iterable<Row> read(UUID id) {
+         reads++;
+         return Collections.emptyList();
+      }
+
+      @Override
+      void write(SimpleSession ss, Map<String, String> attributes, int timeoutInSeconds) {
+         writes.add(ss);
+      }
+   }
+}
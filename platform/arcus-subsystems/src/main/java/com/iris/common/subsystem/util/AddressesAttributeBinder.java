@@ -68,7 +68,7 @@ public class AddressesAttributeBinder<M extends SubsystemModel> extends BaseAddr
       Set<Model> added = new HashSet<>();
       Set<String> oldAddresses = new HashSet<>(getAddresses(context));
       Set<String> newAddresses = new HashSet<>();
-      for(Model m: context.models().getModels()) {
+      for(Model m: context.models().getModels(matcher)) {
          if(!matches(context, m)) {
             continue;
          }
@@ -50,7 +50,7 @@ public class AddressesVariableBinder<M extends SubsystemModel> extends Addresses
 
    public void sync(SubsystemContext<M> context) {
       Set<String> newAddresses = new HashSet<>();
-      for(Model m: context.models().getModels()) {
+      for(Model m: context.models().getModels(matcher)) {
          if(!matches(context, m)) {
             continue;
          }
@@ -26,9 +26,11 @@ import com.iris.common.subsystem.SubsystemContext;
 import com.iris.messages.address.Address;
 import com.iris.messages.event.Listener;
 import com.iris.messages.event.ModelAddedEvent;
+import com.iris.messages.event.ModelChangedEvent;
 import com.iris.messages.event.ModelEvent;
 import com.iris.messages.event.ModelRemovedEvent;
 import com.iris.messages.model.Model;
+import com.iris.messages.model.ModelView;
 import com.iris.messages.model.subs.SubsystemModel;
 import com.iris.model.query.expression.ExpressionCompiler;
 import com.iris.util.Subscription;
@@ -79,7 +81,30 @@ public abstract class BaseAddressesAttributeBinder<M extends SubsystemModel, E e
 
    public Subscription bind(SubsystemContext<M> context) {
       init(context);
-      return context.addBindSubscription(context.models().addListener(new ModelEventListener(context)));
+      // the view only re-tests the model touched by each event and reports when it
+      // starts or stops matching, so unrelated changes never reach this binder
+      ModelView view = context.models().createView(matcher);
+      Subscription viewSubscription = view.addListener(new ViewListener(context));
+      Subscription changeSubscription =
+            isContextFiltered() ?
+                  context.models().addListener(new ModelChangedListener(context, view)) :
+                  null;
+      return context.addBindSubscription(() -> {
+         viewSubscription.remove();
+         if(changeSubscription != null) {
+            changeSubscription.remove();
+         }
+         view.close();
+      });
+   }
+
+   /**
+    * Should return {@code true} when {@link #matches(SubsystemContext, Model)} depends on
+    * more than the predicate, in which case every change to a model matching the predicate
+    * is re-tested rather than only the ones which cause it to start or stop matching.
+    */
+   protected boolean isContextFiltered() {
+      return false;
    }
    
    protected void afterAdded(SubsystemContext<M> context, Model model) {
@@ -129,10 +154,10 @@ public abstract class BaseAddressesAttributeBinder<M extends SubsystemModel, E e
       context.model().setAttribute(attributeName, addresses);
    }
 
-   private class ModelEventListener implements Listener<ModelEvent> {
+   private class ViewListener implements Listener<ModelEvent> {
       private final SubsystemContext<M> context;
       
-      ModelEventListener(SubsystemContext<M> context) {
+      ViewListener(SubsystemContext<M> context) {
          this.context = context;
       }
       
@@ -141,20 +166,35 @@ public abstract class BaseAddressesAttributeBinder<M extends SubsystemModel, E e
          if(e instanceof ModelRemovedEvent) {
             onRemoved(context, ((ModelRemovedEvent) e).getModel());
          }
-         else {
-            // TODO be smarter about which events we actually have to process
+         else if(e instanceof ModelAddedEvent) {
             Model model = context.models().getModelByAddress(e.getAddress());
             if(model == null) {
                context.logger().debug("Ignoring change on untracked model [{}]", e.getAddress());
                return;
             }
-            
-            if(e instanceof ModelAddedEvent) {
-               onAdded(context, model);
-            }
-            else {
-               onChanged(context, model);
-            }
+            onAdded(context, model);
+         }
+      }
+   }
+
+   private class ModelChangedListener implements Listener<ModelEvent> {
+      private final SubsystemContext<M> context;
+      private final ModelView view;
+      
+      ModelChangedListener(SubsystemContext<M> context, ModelView view) {
+         this.context = context;
+         this.view = view;
+      }
+      
+      @Override
+      public void onEvent(ModelEvent e) {
+         // models entering or leaving the view are handled by the ViewListener
+         if(!(e instanceof ModelChangedEvent) || !view.contains(e.getAddress())) {
+            return;
+         }
+         Model model = context.models().getModelByAddress(e.getAddress());
+         if(model != null) {
+            onChanged(context, model);
          }
       }
    }
@@ -51,6 +51,11 @@ public class FilteredAttributeBinder<M extends SubsystemModel> extends Addresses
    	super.init(context);
    }
 
+	@Override
+   protected boolean isContextFiltered() {
+      return true;
+   }
+
 	@Override
    protected boolean matches(SubsystemContext<M> context, Model m) {
       return super.matches(context, m) && getDelegateAddresses(context).contains(m.getAddress().getRepresentation());
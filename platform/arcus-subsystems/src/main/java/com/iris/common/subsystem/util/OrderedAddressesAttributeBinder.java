@@ -79,7 +79,7 @@ public class OrderedAddressesAttributeBinder<M extends SubsystemModel> extends B
        */
       Set<String> newAddresses = new LinkedHashSet<>(oldAddresses);
       
-      for(Model m: context.models().getModels()) {
+      for(Model m: context.models().getModels(matcher)) {
          
          // Apply predicate
          if(!matches(context, m)) {
@@ -34,6 +34,7 @@ import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -231,6 +232,14 @@ public class MP4Convert {
    public static final int ATOM_AVC1   = 0x61766331;
    public static final int ATOM_AVCC   = 0x61766343;
    public static final int ATOM_PRFL   = 0x7072666c;
+   public static final int ATOM_MVEX   = 0x6d766578;
+   public static final int ATOM_TREX   = 0x74726578;
+   public static final int ATOM_MOOF   = 0x6d6f6f66;
+   public static final int ATOM_MFHD   = 0x6d666864;
+   public static final int ATOM_TRAF   = 0x74726166;
+   public static final int ATOM_TFHD   = 0x74666864;
+   public static final int ATOM_TFDT   = 0x74666474;
+   public static final int ATOM_TRUN   = 0x7472756e;
 
    public static final int BRAND_MP41_MAJOR  = 0x6d703431;
    public static final int BRAND_MP41_MINOR  = 0x00000000;
@@ -240,6 +249,10 @@ public class MP4Convert {
    public static final int BRAND_ISOM_MINOR  = 0x00000200;
    public static final int BRAND_AVC1_MAJOR  = 0x61766331;
    public static final int BRAND_AVC1_MINOR  = 0x00000000;
+   public static final int BRAND_ISO5_MAJOR  = 0x69736f35;
+
+   public static final int DEFAULT_FRAGMENT_BYTES   = 2*1024*1024;
+   public static final int DEFAULT_FRAGMENT_SAMPLES = 300;
 
    private MP4Convert() {
    }
@@ -252,16 +265,69 @@ public class MP4Convert {
    }
 
    public static void convert(ReadableByteChannel input, WritableByteChannel output) throws IOException {
+      convert(input, output, new State());
+   }
+
+   /////////////////////////////////////////////////////////////////////////////
+   // Fragmented MP4 conversion
+   //
+   // Rather than collecting the sample tables for a single moov atom written
+   // after all of the media, a fragmented MP4 writes an initialization segment
+   // as soon as the SPS/PPS are seen followed by a moof/mdat pair for each
+   // fragment. Only the fragment currently being built is held in memory and
+   // the first bytes are written as soon as the first fragment is complete.
+   //
+   // The returned index records where each fragment starts in both the output
+   // and the input, along with the converter state at that point, so that a
+   // later conversion can resume at any fragment and produce exactly the same
+   // bytes from there on.
+   /////////////////////////////////////////////////////////////////////////////
+
+   public static MP4FragmentIndex convertFragmented(InputStream input, OutputStream output) throws IOException {
+      return convertFragmented(Channels.newChannel(input), Channels.newChannel(output));
+   }
+
+   public static MP4FragmentIndex convertFragmented(ReadableByteChannel input, WritableByteChannel output) throws IOException {
+      State state = new State();
+      state.fragments = new MP4Fragmenter(DEFAULT_FRAGMENT_BYTES, DEFAULT_FRAGMENT_SAMPLES);
+
+      convert(input, output, state);
+      return state.fragments.index();
+   }
+
+   /**
+    * Resumes a fragmented conversion at the given fragment of an index built by
+    * an earlier conversion of the same input. The input must already be positioned
+    * at {@link MP4FragmentIndex.Fragment#getInputOffset()}, the output will be
+    * identical to the earlier output starting at {@link MP4FragmentIndex.Fragment#getOutputOffset()}.
+    * Conversion stops early if the output channel is closed.
+    */
+   public static void convertFragmented(ReadableByteChannel input, WritableByteChannel output, MP4FragmentIndex index, MP4FragmentIndex.Fragment from) throws IOException {
+      State state = new State();
+      state.inputOffset = from.getInputOffset();
+      state.pcr = from.getPcr();
+      state.lastPcr = from.getLastPcr();
+      state.fragments = new MP4Fragmenter(DEFAULT_FRAGMENT_BYTES, DEFAULT_FRAGMENT_SAMPLES, index, from);
+
+      convert(input, output, state);
+   }
+
+   /////////////////////////////////////////////////////////////////////////////
+   /////////////////////////////////////////////////////////////////////////////
+
+   private static void convert(ReadableByteChannel input, WritableByteChannel output, State state) throws IOException {
       ByteBuffer buffer = null;
       ByteBuffer frame = null;
-      State state = new State();
 
       try {
          buffer = ByteBuffer.allocateDirect(188).order(ByteOrder.BIG_ENDIAN);
          frame = ByteBuffer.allocateDirect(1024*1024).order(ByteOrder.BIG_ENDIAN);
          buffer.flip();
 
-         outputHeader(state, output);
+         if (state.fragments == null) {
+            outputHeader(state, output);
+         }
+
          while (true) {
             int size = buffer.remaining();
             if (size < PACKET_SIZE) {
@@ -270,13 +336,26 @@ public class MP4Convert {
                      log.warn("discarding {} bytes at end of stream", buffer.remaining());
                   }
 
-                  outputFooter(state, output);
+                  if (state.fragments != null) {
+                     frame.flip();
+                     if (frame.hasRemaining()) {
+                        outputFrame(frame, state, output);
+                     }
+                     state.fragments.finish(state, output);
+                  } else {
+                     outputFooter(state, output);
+                  }
                   return;
                }
             }
 
             next(packet(buffer), frame, state, output);
             buffer.position(buffer.position() + PACKET_SIZE);
+            state.inputOffset += PACKET_SIZE;
+
+            if (state.fragments != null && !output.isOpen()) {
+               return;
+            }
          }
       } finally {
 
@@ -311,6 +390,9 @@ public class MP4Convert {
             outputFrame(frame, state, output);
          }
          frame.compact();
+
+         state.frameOffset = state.inputOffset;
+         state.framePcr = state.pcr;
       }
 
       if ((header & MASK_ADAPTION_FIELD_EXISTS) != 0) {
@@ -462,6 +544,12 @@ public class MP4Convert {
       ByteBuffer esframe = spspps(frame, state);
       log.trace("{} byte frame (pcr={}) (pes frame is {} bytes)", esframe.remaining(), state.pcr/90000.0, frame.remaining());
 
+      if (state.fragments != null) {
+         state.fragments.sample(esframe, state, output);
+         frame.position(frame.limit());
+         return;
+      }
+
       ByteBuffer mdat = ByteBuffer.allocate(12).order(ByteOrder.BIG_ENDIAN);
       mdat.putInt(12+esframe.remaining());
       mdat.putInt(ATOM_MDAT);
@@ -503,48 +591,7 @@ public class MP4Convert {
       int tbase = 90000;
       long endpcr = state.pcr + (2*tbase*state.info.ticksPerTimeScale/state.info.timeScale);
 
-      int avcc_size = 19 + state.sps.remaining() + state.pps.remaining();
-      ByteBuffer avcc = ByteBuffer.allocate(avcc_size).order(ByteOrder.BIG_ENDIAN);
-      avcc.putInt(avcc_size);             // Byte Size
-      avcc.putInt(ATOM_AVCC);             // Sample Description Atom
-      avcc.put((byte)1);                  // AVCC version
-      avcc.put((byte)state.info.profileIdc); // AVCC profile indication
-      avcc.put((byte)state.info.constraintsFlags); // AVCC profile compatibility
-      avcc.put((byte)state.info.levelIdc);   // AVCC level indication
-      avcc.put((byte)3);                  // AVCC length size
-      avcc.put((byte)1);                  // AVCC num sps
-      avcc.putShort((short)state.sps.remaining());
-      avcc.put(state.sps.duplicate());
-      avcc.put((byte)1);                  // AVCC num pps
-      avcc.putShort((short)state.pps.remaining());
-      avcc.put(state.pps.duplicate());
-      avcc.flip();
-
-      int avc1_size = 86 + avcc_size;
-      ByteBuffer avc1 = ByteBuffer.allocate(86).order(ByteOrder.BIG_ENDIAN);
-      avc1.putInt(avc1_size);             // Byte Size
-      avc1.putInt(ATOM_AVC1);             // Sample Description Atom
-      avc1.putInt(0x00000000);            // Reserved
-      avc1.putShort((short)0);            // Reserved
-      avc1.putShort((short)1);            // Data Reference Index
-      avc1.putShort((short)0);            // Reserved
-      avc1.putInt(0);                     // Reserved
-      avc1.putInt(0);                     // Reserved
-      avc1.putInt(0);                     // Reserved
-      avc1.putShort((short)0);            // Reserved
-      avc1.putShort((short)width);        // Width
-      avc1.putShort((short)height);       // Height
-      avc1.putInt(0x00480000);            // Horizontal Resolution: 72 dpi
-      avc1.putInt(0x00480000);            // Vertical Resolution: 72 dpi
-      avc1.putInt(0);                     // Reserved
-      avc1.putShort((short)1);            // Frame Count
-      avc1.putLong(0x0449524953000000L);  // Compressor Name
-      avc1.putLong(0L);
-      avc1.putLong(0L);
-      avc1.putLong(0L);
-      avc1.putShort((short)0x0018);       // Depth: color, no alpha
-      avc1.putShort((short)0xFFFF);       // Reserved
-      avc1.flip();
+      ByteBuffer stsd = stsd(state);
 
       state.samplesBaos.close();
       ByteBuffer samples = ByteBuffer.wrap(state.samplesBaos.toByteArray());
@@ -602,6 +649,121 @@ public class MP4Convert {
       stco.putInt(samples.remaining()/4); // Entry Count
       stco.flip();
 
+      int stbl_size = 8 + stsd.remaining() + stts_size + stss_size + stsc_size + stsz_size + stco_size;
+      ByteBuffer stbl = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
+      stbl.putInt(stbl_size);             // Byte Size
+      stbl.putInt(ATOM_STBL);             // Sample Table Atom
+      stbl.flip();
+
+      ByteBuffer dinf = dinf();
+      ByteBuffer vmhd = vmhd();
+
+      int minf_size = 8 + vmhd.remaining() + dinf.remaining() + stbl_size;
+      ByteBuffer minf = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
+      minf.putInt(minf_size);             // Byte Size
+      minf.putInt(ATOM_MINF);             // Media Information Atom
+      minf.flip();
+
+      ByteBuffer hdlr = hdlr();
+      ByteBuffer mdhd = mdhd(tbase, endpcr);
+
+      int mdia_size = 8 + mdhd.remaining() + hdlr.remaining() + minf_size;
+      ByteBuffer mdia = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
+      mdia.putInt(mdia_size);
+      mdia.putInt(ATOM_MDIA);
+      mdia.flip();
+
+      ByteBuffer tkhd = tkhd(width, height, endpcr);
+
+      int trak_size = 8 + tkhd.remaining() + mdia_size;
+      ByteBuffer trak = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
+      trak.putInt(trak_size);
+      trak.putInt(ATOM_TRAK);
+      trak.flip();
+
+      ByteBuffer mvhd = mvhd(tbase, endpcr);
+
+      int moov_size = 8 + mvhd.remaining() + trak_size;
+      ByteBuffer moov = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
+      moov.putInt(moov_size);
+      moov.putInt(ATOM_MOOV);
+      moov.flip();
+
+      output.write(moov);
+      output.write(mvhd);
+      output.write(trak);
+      output.write(tkhd);
+      output.write(mdia);
+      output.write(mdhd);
+      output.write(hdlr);
+      output.write(minf);
+      output.write(vmhd);
+      output.write(dinf);
+      output.write(stbl);
+      output.write(stsd);
+      output.write(stts);
+      output.write(times);
+      output.write(stss);
+      output.write(sync);
+      output.write(stsc);
+      output.write(chunks);
+      output.write(stsz);
+      output.write(sizes);
+      output.write(stco);
+      output.write(samples);
+   }
+
+   /////////////////////////////////////////////////////////////////////////////
+   // Atoms shared by the progressive and fragmented output
+   /////////////////////////////////////////////////////////////////////////////
+
+   static ByteBuffer stsd(State state) {
+      int width = state.info.width;
+      int height = state.info.height;
+
+      int avcc_size = 19 + state.sps.remaining() + state.pps.remaining();
+      ByteBuffer avcc = ByteBuffer.allocate(avcc_size).order(ByteOrder.BIG_ENDIAN);
+      avcc.putInt(avcc_size);             // Byte Size
+      avcc.putInt(ATOM_AVCC);             // Sample Description Atom
+      avcc.put((byte)1);                  // AVCC version
+      avcc.put((byte)state.info.profileIdc); // AVCC profile indication
+      avcc.put((byte)state.info.constraintsFlags); // AVCC profile compatibility
+      avcc.put((byte)state.info.levelIdc);   // AVCC level indication
+      avcc.put((byte)3);                  // AVCC length size
+      avcc.put((byte)1);                  // AVCC num sps
+      avcc.putShort((short)state.sps.remaining());
+      avcc.put(state.sps.duplicate());
+      avcc.put((byte)1);                  // AVCC num pps
+      avcc.putShort((short)state.pps.remaining());
+      avcc.put(state.pps.duplicate());
+      avcc.flip();
+
+      int avc1_size = 86 + avcc_size;
+      ByteBuffer avc1 = ByteBuffer.allocate(86).order(ByteOrder.BIG_ENDIAN);
+      avc1.putInt(avc1_size);             // Byte Size
+      avc1.putInt(ATOM_AVC1);             // Sample Description Atom
+      avc1.putInt(0x00000000);            // Reserved
+      avc1.putShort((short)0);            // Reserved
+      avc1.putShort((short)1);            // Data Reference Index
+      avc1.putShort((short)0);            // Reserved
+      avc1.putInt(0);                     // Reserved
+      avc1.putInt(0);                     // Reserved
+      avc1.putInt(0);                     // Reserved
+      avc1.putShort((short)0);            // Reserved
+      avc1.putShort((short)width);        // Width
+      avc1.putShort((short)height);       // Height
+      avc1.putInt(0x00480000);            // Horizontal Resolution: 72 dpi
+      avc1.putInt(0x00480000);            // Vertical Resolution: 72 dpi
+      avc1.putInt(0);                     // Reserved
+      avc1.putShort((short)1);            // Frame Count
+      avc1.putLong(0x0449524953000000L);  // Compressor Name
+      avc1.putLong(0L);
+      avc1.putLong(0L);
+      avc1.putLong(0L);
+      avc1.putShort((short)0x0018);       // Depth: color, no alpha
+      avc1.putShort((short)0xFFFF);       // Reserved
+      avc1.flip();
+
       int stsd_size = 16 + avc1_size;
       ByteBuffer stsd = ByteBuffer.allocate(16).order(ByteOrder.BIG_ENDIAN);
       stsd.putInt(stsd_size);             // Byte Size
@@ -610,12 +772,15 @@ public class MP4Convert {
       stsd.putInt(1);                     // Entry Count
       stsd.flip();
 
-      int stbl_size = 8 + stsd_size + stts_size + stss_size + stsc_size + stsz_size + stco_size;
-      ByteBuffer stbl = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
-      stbl.putInt(stbl_size);             // Byte Size
-      stbl.putInt(ATOM_STBL);             // Sample Table Atom
-      stbl.flip();
+      ByteBuffer desc = ByteBuffer.allocate(stsd_size).order(ByteOrder.BIG_ENDIAN);
+      desc.put(stsd);
+      desc.put(avc1);
+      desc.put(avcc);
+      desc.flip();
+      return desc;
+   }
 
+   static ByteBuffer dinf() {
       ByteBuffer url = ByteBuffer.allocate(12).order(ByteOrder.BIG_ENDIAN);
       url.putInt(12);                     // Byte Size
       url.putInt(ATOM_URL);               // Data Reference Atom
@@ -636,6 +801,15 @@ public class MP4Convert {
       dinf.putInt(ATOM_DINF);             // Data Information Atom
       dinf.flip();
 
+      ByteBuffer info = ByteBuffer.allocate(dinf_size).order(ByteOrder.BIG_ENDIAN);
+      info.put(dinf);
+      info.put(dref);
+      info.put(url);
+      info.flip();
+      return info;
+   }
+
+   static ByteBuffer vmhd() {
       ByteBuffer vmhd = ByteBuffer.allocate(20).order(ByteOrder.BIG_ENDIAN);
       vmhd.putInt(20);                    // Byte Size
       vmhd.putInt(ATOM_VMHD);             // Video Media Header Atom
@@ -643,13 +817,10 @@ public class MP4Convert {
       vmhd.putInt(0x00000000);
       vmhd.putInt(0x00000000);
       vmhd.flip();
+      return vmhd;
+   }
 
-      int minf_size = 8 + vmhd.remaining() + dinf_size + stbl_size;
-      ByteBuffer minf = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
-      minf.putInt(minf_size);             // Byte Size
-      minf.putInt(ATOM_MINF);             // Media Information Atom
-      minf.flip();
-
+   static ByteBuffer hdlr() {
       ByteBuffer hdlr = ByteBuffer.allocate(45).order(ByteOrder.BIG_ENDIAN);
       hdlr.putInt(45);                    // Byte Size
       hdlr.putInt(ATOM_HDLR);             // Handler Reference Atom
@@ -664,7 +835,10 @@ public class MP4Convert {
       hdlr.putInt(0x00000000);
       hdlr.put((byte)0);
       hdlr.flip();
+      return hdlr;
+   }
 
+   static ByteBuffer mdhd(int tbase, long duration) {
       ByteBuffer mdhd = ByteBuffer.allocate(32).order(ByteOrder.BIG_ENDIAN);
       mdhd.putInt(32);                    // Byte Size
       mdhd.putInt(ATOM_MDHD);             // Media Header Atom
@@ -672,17 +846,14 @@ public class MP4Convert {
       mdhd.putInt(0);                     // Creation Time
       mdhd.putInt(0);                     // Modification Time
       mdhd.putInt(tbase);                 // Time Scale is 90 KHz for H.264
-      mdhd.putInt((int)endpcr);           // Duration in time scale units
+      mdhd.putInt((int)duration);           // Duration in time scale units
       mdhd.putShort((short)0x55C4);       // Language
       mdhd.putShort((short)0x0000);       // Reserved
       mdhd.flip();
+      return mdhd;
+   }
 
-      int mdia_size = 8 + mdhd.remaining() + hdlr.remaining() + minf_size;
-      ByteBuffer mdia = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
-      mdia.putInt(mdia_size);
-      mdia.putInt(ATOM_MDIA);
-      mdia.flip();
-
+   static ByteBuffer tkhd(int width, int height, long duration) {
       ByteBuffer tkhd = ByteBuffer.allocate(92).order(ByteOrder.BIG_ENDIAN);
       tkhd.putInt(92);                    // Byte Size
       tkhd.putInt(ATOM_TKHD);             // Track Header Atom
@@ -691,7 +862,7 @@ public class MP4Convert {
       tkhd.putInt(0);                     // Modification Time
       tkhd.putInt(0x01);                  // Track ID 1
       tkhd.putInt(0);                     // Reserved
-      tkhd.putInt((int)endpcr);           // Duration in time scale units
+      tkhd.putInt((int)duration);           // Duration in time scale units
       tkhd.putLong(0x0000000000000000L);  // Reserved
       tkhd.putInt(0);                     // Layer and Group: normal layer, no group
       tkhd.putInt(0);                     // Volume: no volume (video only)
@@ -707,13 +878,10 @@ public class MP4Convert {
       tkhd.putInt(width<<16);             // Presentation width
       tkhd.putInt(height<<16);            // Presentation height
       tkhd.flip();
+      return tkhd;
+   }
 
-      int trak_size = 8 + tkhd.remaining() + mdia_size;
-      ByteBuffer trak = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
-      trak.putInt(trak_size);
-      trak.putInt(ATOM_TRAK);
-      trak.flip();
-
+   static ByteBuffer mvhd(int tbase, long duration) {
       ByteBuffer mvhd = ByteBuffer.allocate(108).order(ByteOrder.BIG_ENDIAN);
       mvhd.putInt(108);                   // Byte Size
       mvhd.putInt(ATOM_MVHD);             // Movie Header ATOM
@@ -721,7 +889,7 @@ public class MP4Convert {
       mvhd.putInt(0);                     // Creation Time
       mvhd.putInt(0);                     // Modification Time
       mvhd.putInt(tbase);                 // Time Scale is 90 KHz for H.264
-      mvhd.putInt((int)endpcr);           // Duration in time scale units
+      mvhd.putInt((int)duration);           // Duration in time scale units
       mvhd.putInt(0x00010000);            // Rate: normal
       mvhd.putShort((short)0x0100);       // Volume: normal
       mvhd.putShort((short)0);            // Reserved
@@ -743,39 +911,7 @@ public class MP4Convert {
       mvhd.putInt(0x00000000);
       mvhd.putInt(0x00000002);            // Next Track ID: 2
       mvhd.flip();
-
-      int moov_size = 8 + mvhd.remaining() + trak_size;
-      ByteBuffer moov = ByteBuffer.allocate(8).order(ByteOrder.BIG_ENDIAN);
-      moov.putInt(moov_size);
-      moov.putInt(ATOM_MOOV);
-      moov.flip();
-
-      output.write(moov);
-      output.write(mvhd);
-      output.write(trak);
-      output.write(tkhd);
-      output.write(mdia);
-      output.write(mdhd);
-      output.write(hdlr);
-      output.write(minf);
-      output.write(vmhd);
-      output.write(dinf);
-      output.write(dref);
-      output.write(url);
-      output.write(stbl);
-      output.write(stsd);
-      output.write(avc1);
-      output.write(avcc);
-      output.write(stts);
-      output.write(times);
-      output.write(stss);
-      output.write(sync);
-      output.write(stsc);
-      output.write(chunks);
-      output.write(stsz);
-      output.write(sizes);
-      output.write(stco);
-      output.write(samples);
+      return mvhd;
    }
 
    /////////////////////////////////////////////////////////////////////////////
@@ -841,7 +977,7 @@ public class MP4Convert {
    /////////////////////////////////////////////////////////////////////////////
    /////////////////////////////////////////////////////////////////////////////
 
-   private static final class State {
+   static final class State {
       long pcr;
       ByteBuffer sps = null;
       ByteBuffer pps = null;
@@ -865,6 +1001,15 @@ public class MP4Convert {
 
       ByteArrayOutputStream syncBaos = new ByteArrayOutputStream();
       DataOutput sync = new DataOutputStream(syncBaos);
+
+      // input position of the packet being processed and of the first packet
+      // of the frame currently being collected, along with the pcr before it
+      long inputOffset;
+      long frameOffset;
+      long framePcr;
+
+      @Nullable
+      MP4Fragmenter fragments;
    }
 }
 
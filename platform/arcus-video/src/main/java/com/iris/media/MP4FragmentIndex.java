@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.media;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The layout of a fragmented MP4 produced by {@link MP4Convert#convertFragmented(java.nio.channels.ReadableByteChannel, java.nio.channels.WritableByteChannel)}.
+ * Each fragment records where it starts in the output and in the MPEG-TS input
+ * along with the converter state at that point, which is enough to regenerate
+ * any byte range of the output without converting the recording from the start.
+ */
+public final class MP4FragmentIndex {
+   private final long length;
+   private final int defaultSampleDuration;
+   private final List<Fragment> fragments;
+
+   MP4FragmentIndex(long length, int defaultSampleDuration, List<Fragment> fragments) {
+      this.length = length;
+      this.defaultSampleDuration = defaultSampleDuration;
+      this.fragments = Collections.unmodifiableList(fragments);
+   }
+
+   /**
+    * The total size of the converted output.
+    */
+   public long getLength() {
+      return length;
+   }
+
+   int getDefaultSampleDuration() {
+      return defaultSampleDuration;
+   }
+
+   public List<Fragment> getFragments() {
+      return fragments;
+   }
+
+   /**
+    * The fragment which contains the given offset into the output, or null
+    * if the offset is within the initialization segment before the first
+    * fragment or is past the end of the output.
+    */
+   @Nullable
+   public Fragment find(long offset) {
+      if (offset < 0 || offset >= length) {
+         return null;
+      }
+
+      int lo = 0;
+      int hi = fragments.size() - 1;
+      Fragment found = null;
+      while (lo <= hi) {
+         int mid = (lo + hi) >>> 1;
+         Fragment fragment = fragments.get(mid);
+         if (fragment.getOutputOffset() <= offset) {
+            found = fragment;
+            lo = mid + 1;
+         } else {
+            hi = mid - 1;
+         }
+      }
+
+      return found;
+   }
+
+   @Override
+   public String toString() {
+      return "MP4FragmentIndex [length=" + length + ", fragments=" + fragments.size() + "]";
+   }
+
+   public static final class Fragment {
+      private final long outputOffset;
+      private final long inputOffset;
+      private final int sequenceNumber;
+      private final long decodeTime;
+      private final long pcr;
+      private final long lastPcr;
+
+      Fragment(long outputOffset, long inputOffset, int sequenceNumber, long decodeTime, long pcr, long lastPcr) {
+         this.outputOffset = outputOffset;
+         this.inputOffset = inputOffset;
+         this.sequenceNumber = sequenceNumber;
+         this.decodeTime = decodeTime;
+         this.pcr = pcr;
+         this.lastPcr = lastPcr;
+      }
+
+      /**
+       * The offset of this fragment's moof atom in the output.
+       */
+      public long getOutputOffset() {
+         return outputOffset;
+      }
+
+      /**
+       * The offset of the MPEG-TS packet which starts the first frame of this fragment.
+       */
+      public long getInputOffset() {
+         return inputOffset;
+      }
+
+      public int getSequenceNumber() {
+         return sequenceNumber;
+      }
+
+      public long getDecodeTime() {
+         return decodeTime;
+      }
+
+      long getPcr() {
+         return pcr;
+      }
+
+      long getLastPcr() {
+         return lastPcr;
+      }
+
+      @Override
+      public String toString() {
+         return "Fragment [outputOffset=" + outputOffset + ", inputOffset=" + inputOffset + ", sequenceNumber=" + sequenceNumber + ", decodeTime=" + decodeTime + "]";
+      }
+   }
+
+   static final class Builder {
+      private final List<Fragment> fragments = new ArrayList<>();
+
+      void add(long outputOffset, long inputOffset, int sequenceNumber, long decodeTime, long pcr, long lastPcr) {
+         fragments.add(new Fragment(outputOffset, inputOffset, sequenceNumber, decodeTime, pcr, lastPcr));
+      }
+
+      MP4FragmentIndex build(long length, int defaultSampleDuration) {
+         return new MP4FragmentIndex(length, defaultSampleDuration, new ArrayList<>(fragments));
+      }
+   }
+}
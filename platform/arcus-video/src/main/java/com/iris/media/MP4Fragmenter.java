@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.media;
+
+import static com.iris.media.MP4Convert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the samples produced by {@link MP4Convert} as a fragmented MP4. The
+ * initialization segment (ftyp and a moov with empty sample tables) is written
+ * once the SPS/PPS have been seen and every fragment after that is a moof/mdat
+ * pair. A new fragment is started at each sync sample or when the current one
+ * would exceed the byte or sample limit, so at most one fragment is buffered.
+ *
+ * Fragment boundaries only depend on the samples since the start of the
+ * fragment, which is what allows a conversion resumed at an indexed fragment to
+ * reproduce the original output exactly.
+ */
+final class MP4Fragmenter {
+   private static final Logger log = LoggerFactory.getLogger(MP4Fragmenter.class);
+
+   private static final int TIME_BASE = 90000;
+   private static final int TRACK_ID = 1;
+
+   private static final int TFHD_DEFAULT_BASE_IS_MOOF = 0x00020000;
+   private static final int TFDT_VERSION_1 = 0x01000000;
+   private static final int TRUN_FLAGS = 0x00000701; // data offset, sample duration, size and flags
+
+   private static final int SAMPLE_FLAGS_SYNC = 0x02000000;
+   private static final int SAMPLE_FLAGS_NON_SYNC = 0x01010000;
+
+   private final int maxFragmentBytes;
+   private final int maxFragmentSamples;
+   private final MP4FragmentIndex.Builder index = new MP4FragmentIndex.Builder();
+
+   private final int[] durations;
+   private final int[] sizes;
+   private final int[] flags;
+   private ByteBuffer data;
+   private int count;
+
+   private boolean initialized;
+   private int defaultDuration;
+   private long outputOffset;
+   private int sequenceNumber = 1;
+   private long decodeTime;
+
+   private long fragmentInputOffset;
+   private long fragmentPcr;
+   private long fragmentLastPcr;
+
+   MP4Fragmenter(int maxFragmentBytes, int maxFragmentSamples) {
+      this(maxFragmentBytes, maxFragmentSamples, null, null);
+   }
+
+   MP4Fragmenter(int maxFragmentBytes, int maxFragmentSamples, @Nullable MP4FragmentIndex resumeIndex, @Nullable MP4FragmentIndex.Fragment resumeFrom) {
+      this.maxFragmentBytes = maxFragmentBytes;
+      this.maxFragmentSamples = maxFragmentSamples;
+      this.durations = new int[maxFragmentSamples];
+      this.sizes = new int[maxFragmentSamples];
+      this.flags = new int[maxFragmentSamples];
+      this.data = ByteBuffer.allocate(Math.min(maxFragmentBytes, 256*1024)).order(ByteOrder.BIG_ENDIAN);
+
+      if (resumeIndex != null && resumeFrom != null) {
+         this.initialized = true;
+         this.defaultDuration = resumeIndex.getDefaultSampleDuration();
+         this.outputOffset = resumeFrom.getOutputOffset();
+         this.sequenceNumber = resumeFrom.getSequenceNumber();
+         this.decodeTime = resumeFrom.getDecodeTime();
+      }
+   }
+
+   MP4FragmentIndex index() {
+      return index.build(outputOffset, defaultDuration);
+   }
+
+   void sample(ByteBuffer esframe, MP4Convert.State state, WritableByteChannel output) throws IOException {
+      if (!initialized) {
+         if (state.info == null || state.sps == null || state.pps == null) {
+            log.trace("dropping {} byte frame received before sps/pps", esframe.remaining());
+            return;
+         }
+
+         defaultDuration = (int)(2*TIME_BASE*state.info.ticksPerTimeScale/state.info.timeScale);
+         outputInit(state, output);
+         initialized = true;
+      }
+
+      boolean sync = (esframe.get(esframe.position()) & 0x1F) == 0x05;
+      int size = esframe.remaining() + 4;
+      if (count > 0 && (sync || count >= maxFragmentSamples || data.position() + size > maxFragmentBytes)) {
+         outputFragment(output);
+      }
+
+      if (count == 0) {
+         fragmentInputOffset = state.frameOffset;
+         fragmentPcr = state.framePcr;
+         fragmentLastPcr = state.lastPcr;
+      }
+
+      durations[count] = (state.lastPcr < 0) ? defaultDuration : (int)(state.pcr - state.lastPcr);
+      sizes[count] = size;
+      flags[count] = sync ? SAMPLE_FLAGS_SYNC : SAMPLE_FLAGS_NON_SYNC;
+      count++;
+      state.lastPcr = state.pcr;
+
+      if (data.remaining() < size) {
+         ByteBuffer grown = ByteBuffer.allocate(Math.max(data.capacity() * 2, data.position() + size)).order(ByteOrder.BIG_ENDIAN);
+         data.flip();
+         grown.put(data);
+         data = grown;
+      }
+
+      data.putInt(esframe.remaining()); // NAL Unit Length
+      data.put(esframe.duplicate());
+   }
+
+   void finish(MP4Convert.State state, WritableByteChannel output) throws IOException {
+      if (!initialized) {
+         throw new IOException("no sps/pps information found in mpeg-ts");
+      }
+
+      if (count > 0) {
+         outputFragment(output);
+      }
+   }
+
+   private void outputInit(MP4Convert.State state, WritableByteChannel output) throws IOException {
+      ByteBuffer ftyp = ByteBuffer.allocate(32).order(ByteOrder.BIG_ENDIAN);
+      ftyp.putInt(32);
+      ftyp.putInt(ATOM_FTYP);
+      ftyp.putInt(BRAND_ISOM_MAJOR);
+      ftyp.putInt(BRAND_ISOM_MINOR);
+      ftyp.putInt(BRAND_ISOM_MAJOR);
+      ftyp.putInt(BRAND_ISO5_MAJOR);
+      ftyp.putInt(BRAND_AVC1_MAJOR);
+      ftyp.putInt(BRAND_MP42_MAJOR);
+      ftyp.flip();
+
+      // all of the sample tables are empty, the samples are described by the fragments
+      ByteBuffer tables = ByteBuffer.allocate(68).order(ByteOrder.BIG_ENDIAN);
+      tables.putInt(16).putInt(ATOM_STTS).putInt(0).putInt(0);
+      tables.putInt(16).putInt(ATOM_STSC).putInt(0).putInt(0);
+      tables.putInt(20).putInt(ATOM_STSZ).putInt(0).putInt(0).putInt(0);
+      tables.putInt(16).putInt(ATOM_STCO).putInt(0).putInt(0);
+      tables.flip();
+
+      ByteBuffer trex = ByteBuffer.allocate(32).order(ByteOrder.BIG_ENDIAN);
+      trex.putInt(32);                    // Byte Size
+      trex.putInt(ATOM_TREX);             // Track Extends Atom
+      trex.putInt(0x00000000);            // Version and Flags
+      trex.putInt(TRACK_ID);              // Track ID
+      trex.putInt(1);                     // Default Sample Description Index
+      trex.putInt(defaultDuration);       // Default Sample Duration
+      trex.putInt(0);                     // Default Sample Size
+      trex.putInt(0);                     // Default Sample Flags
+      trex.flip();
+
+      ByteBuffer stbl = atom(ATOM_STBL, MP4Convert.stsd(state), tables);
+      ByteBuffer minf = atom(ATOM_MINF, MP4Convert.vmhd(), MP4Convert.dinf(), stbl);
+      ByteBuffer mdia = atom(ATOM_MDIA, MP4Convert.mdhd(TIME_BASE, 0), MP4Convert.hdlr(), minf);
+      ByteBuffer trak = atom(ATOM_TRAK, MP4Convert.tkhd(state.info.width, state.info.height, 0), mdia);
+      ByteBuffer moov = atom(ATOM_MOOV, MP4Convert.mvhd(TIME_BASE, 0), trak, atom(ATOM_MVEX, trex));
+
+      outputOffset += ftyp.remaining() + moov.remaining();
+      write(output, ftyp);
+      write(output, moov);
+   }
+
+   private void outputFragment(WritableByteChannel output) throws IOException {
+      int trunSize = 20 + 12*count;
+      int trafSize = 8 + 16 + 20 + trunSize;
+      int moofSize = 8 + 16 + trafSize;
+
+      ByteBuffer moof = ByteBuffer.allocate(moofSize + 8).order(ByteOrder.BIG_ENDIAN);
+      moof.putInt(moofSize);              // Byte Size
+      moof.putInt(ATOM_MOOF);             // Movie Fragment Atom
+
+      moof.putInt(16);                    // Byte Size
+      moof.putInt(ATOM_MFHD);             // Movie Fragment Header Atom
+      moof.putInt(0x00000000);            // Version and Flags
+      moof.putInt(sequenceNumber);        // Sequence Number
+
+      moof.putInt(trafSize);              // Byte Size
+      moof.putInt(ATOM_TRAF);             // Track Fragment Atom
+
+      moof.putInt(16);                    // Byte Size
+      moof.putInt(ATOM_TFHD);             // Track Fragment Header Atom
+      moof.putInt(TFHD_DEFAULT_BASE_IS_MOOF); // Version and Flags
+      moof.putInt(TRACK_ID);              // Track ID
+
+      moof.putInt(20);                    // Byte Size
+      moof.putInt(ATOM_TFDT);             // Track Fragment Decode Time Atom
+      moof.putInt(TFDT_VERSION_1);        // Version and Flags: version=1
+      moof.putLong(decodeTime);           // Base Media Decode Time
+
+      moof.putInt(trunSize);              // Byte Size
+      moof.putInt(ATOM_TRUN);             // Track Fragment Run Atom
+      moof.putInt(TRUN_FLAGS);            // Version and Flags
+      moof.putInt(count);                 // Sample Count
+      moof.putInt(moofSize + 8);          // Data Offset: from the start of the moof to the mdat payload
+
+      long duration = 0;
+      for (int i = 0; i < count; ++i) {
+         moof.putInt(durations[i]);
+         moof.putInt(sizes[i]);
+         moof.putInt(flags[i]);
+         duration += durations[i];
+      }
+
+      data.flip();
+      moof.putInt(8 + data.remaining());  // Byte Size
+      moof.putInt(ATOM_MDAT);             // Media Data Atom
+      moof.flip();
+
+      index.add(outputOffset, fragmentInputOffset, sequenceNumber, decodeTime, fragmentPcr, fragmentLastPcr);
+      log.trace("fragment {} with {} samples ({} bytes) at offset {}", sequenceNumber, count, data.remaining(), outputOffset);
+
+      outputOffset += moof.remaining() + data.remaining();
+      write(output, moof);
+      write(output, data);
+
+      sequenceNumber++;
+      decodeTime += duration;
+      count = 0;
+      data.clear();
+   }
+
+   private void write(WritableByteChannel output, ByteBuffer buffer) throws IOException {
+      while (buffer.hasRemaining()) {
+         output.write(buffer);
+      }
+   }
+
+   private static ByteBuffer atom(int type, ByteBuffer... children) {
+      int size = 8;
+      for (ByteBuffer child : children) {
+         size += child.remaining();
+      }
+
+      ByteBuffer atom = ByteBuffer.allocate(size).order(ByteOrder.BIG_ENDIAN);
+      atom.putInt(size);
+      atom.putInt(type);
+      for (ByteBuffer child : children) {
+         atom.put(child);
+      }
+
+      atom.flip();
+      return atom;
+   }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.media;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMP4ConvertFragmented {
+   private static final int FRAMES = 120;
+   private static final int GOP = 20;
+
+   private byte[] input;
+   private byte[] output;
+   private MP4FragmentIndex index;
+
+   @Before
+   public void setUp() throws Exception {
+      input = TransportStream.generate(FRAMES, GOP);
+
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      index = MP4Convert.convertFragmented(new ByteArrayInputStream(input), os);
+      output = os.toByteArray();
+   }
+
+   @Test
+   public void testIndexMatchesOutput() {
+      assertEquals(output.length, index.getLength());
+      assertEquals(FRAMES / GOP, index.getFragments().size());
+      for (MP4FragmentIndex.Fragment fragment : index.getFragments()) {
+         assertEquals(MP4Convert.ATOM_MOOF, ByteBuffer.wrap(output, (int)fragment.getOutputOffset() + 4, 4).getInt());
+      }
+   }
+
+   @Test
+   public void testResumeMatchesFullConversion() throws Exception {
+      for (MP4FragmentIndex.Fragment fragment : index.getFragments()) {
+         byte[] resumed = resume(fragment);
+         byte[] expected = Arrays.copyOfRange(output, (int)fragment.getOutputOffset(), output.length);
+         assertArrayEquals("resumed at " + fragment, expected, resumed);
+      }
+   }
+
+   @Test
+   public void testResumeStopsWhenOutputCloses() throws Exception {
+      MP4FragmentIndex.Fragment fragment = index.getFragments().get(1);
+      int limit = 1000;
+
+      LimitedChannel channel = new LimitedChannel(limit);
+      ByteArrayInputStream is = new ByteArrayInputStream(input);
+      is.skip(fragment.getInputOffset());
+      MP4Convert.convertFragmented(Channels.newChannel(is), channel, index, fragment);
+
+      byte[] expected = Arrays.copyOfRange(output, (int)fragment.getOutputOffset(), (int)fragment.getOutputOffset() + limit);
+      assertArrayEquals(expected, channel.toByteArray());
+      assertTrue("input was not fully consumed", is.available() > 0);
+   }
+
+   private byte[] resume(MP4FragmentIndex.Fragment fragment) throws IOException {
+      ByteArrayInputStream is = new ByteArrayInputStream(input);
+      is.skip(fragment.getInputOffset());
+
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      MP4Convert.convertFragmented(Channels.newChannel(is), Channels.newChannel(os), index, fragment);
+      return os.toByteArray();
+   }
+
+   /**
+    * Accepts up to the given number of bytes and then reports itself closed.
+    */
+   private static final class LimitedChannel implements WritableByteChannel {
+      private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      private int remaining;
+
+      LimitedChannel(int limit) {
+         this.remaining = limit;
+      }
+
+      byte[] toByteArray() {
+         return bytes.toByteArray();
+      }
+
+      @Override
+      public int write(ByteBuffer src) {
+         int written = src.remaining();
+         int len = Math.min(remaining, written);
+         for (int i = 0; i < len; i++) {
+            bytes.write(src.get());
+         }
+         remaining -= len;
+         src.position(src.limit());
+         return written;
+      }
+
+      @Override
+      public boolean isOpen() {
+         return remaining > 0;
+      }
+
+      @Override
+      public void close() {
+      }
+   }
+
+   /**
+    * Generates a minimal MPEG-TS stream of H.264 frames with a sync frame, preceded by
+    * a PAT and the SPS/PPS, every {@code gop} frames.
+    */
+   private static final class TransportStream {
+      private static final byte[] START_CODE = { 0, 0, 0, 1 };
+      private static final byte[] PPS = { 0x68, (byte)0xCE, 0x38, (byte)0x80 };
+
+      private final ByteArrayOutputStream ts = new ByteArrayOutputStream();
+      private int continuity = 0;
+
+      static byte[] generate(int frames, int gop) {
+         TransportStream stream = new TransportStream();
+         Random random = new Random(7);
+         byte[] sps = sps();
+         long pcr = 100000;
+         for (int f = 0; f < frames; f++) {
+            boolean sync = f % gop == 0;
+            if (sync) {
+               stream.pat();
+            }
+
+            ByteArrayOutputStream es = new ByteArrayOutputStream();
+            if (sync) {
+               es.write(START_CODE, 0, START_CODE.length);
+               es.write(sps, 0, sps.length);
+               es.write(START_CODE, 0, START_CODE.length);
+               es.write(PPS, 0, PPS.length);
+               es.write(START_CODE, 0, START_CODE.length);
+               es.write(0x65);
+            } else {
+               es.write(START_CODE, 0, START_CODE.length);
+               es.write(0x41);
+            }
+
+            // payload bytes avoid 0 so no start codes are emulated
+            int size = 300 + random.nextInt(3000);
+            for (int i = 0; i < size; i++) {
+               es.write(1 + random.nextInt(250));
+            }
+
+            stream.pes(es.toByteArray(), pcr);
+            pcr += 3000 + random.nextInt(10);
+         }
+         return stream.ts.toByteArray();
+      }
+
+      private void pat() {
+         byte[] packet = new byte[MP4Convert.PACKET_SIZE];
+         Arrays.fill(packet, (byte)0xFF);
+         packet[0] = 0x47;
+         packet[1] = 0x40;
+         packet[2] = 0x00;
+         packet[3] = 0x10;
+         ts.write(packet, 0, packet.length);
+      }
+
+      private void pes(byte[] es, long pcr) {
+         ByteArrayOutputStream pes = new ByteArrayOutputStream();
+         pes.write(new byte[] { 0, 0, 1, (byte)0xE0, 0, 0, (byte)0x80, (byte)0x80, 5 }, 0, 9);
+         for (int i = 0; i < 5; i++) {
+            pes.write(0x21);
+         }
+         pes.write(es, 0, es.length);
+
+         byte[] payload = pes.toByteArray();
+         int offset = 0;
+         boolean first = true;
+         while (offset < payload.length) {
+            byte[] packet = new byte[MP4Convert.PACKET_SIZE];
+            packet[0] = 0x47;
+            packet[1] = (byte)(first ? 0x40 : 0x00);
+            packet[2] = (byte)MP4Convert.PID_H264;
+
+            int pos;
+            int remaining = payload.length - offset;
+            if (first) {
+               // adaption field carrying the PCR
+               packet[3] = (byte)(0x30 | (continuity++ & 0xF));
+               packet[4] = 7;
+               packet[5] = 0x10;
+               packet[6] = (byte)(pcr >> 25);
+               packet[7] = (byte)(pcr >> 17);
+               packet[8] = (byte)(pcr >> 9);
+               packet[9] = (byte)(pcr >> 1);
+               packet[10] = (byte)(((pcr & 1) << 7) | 0x7E);
+               packet[11] = 0;
+               pos = 12;
+            } else if (remaining >= 184) {
+               packet[3] = (byte)(0x10 | (continuity++ & 0xF));
+               pos = 4;
+            } else {
+               // stuff the final packet with an adaption field
+               int stuffing = 183 - remaining;
+               packet[3] = (byte)(0x30 | (continuity++ & 0xF));
+               packet[4] = (byte)stuffing;
+               if (stuffing > 0) {
+                  packet[5] = 0;
+                  for (int i = 6; i < 5 + stuffing; i++) {
+                     packet[i] = (byte)0xFF;
+                  }
+               }
+               pos = 5 + stuffing;
+            }
+
+            int len = Math.min(packet.length - pos, remaining);
+            System.arraycopy(payload, offset, packet, pos, len);
+            offset += len;
+            ts.write(packet, 0, packet.length);
+            first = false;
+         }
+      }
+
+      // baseline profile, 320x240, 30fps with timing info
+      private static byte[] sps() {
+         Bits bits = new Bits();
+         bits.u(8, 0x67);
+         bits.u(8, 66);
+         bits.u(8, 0xC0);
+         bits.u(8, 30);
+         bits.ue(0);    // seq_parameter_set_id
+         bits.ue(0);    // log2_max_frame_num_minus4
+         bits.ue(2);    // pic_order_cnt_type
+         bits.ue(1);    // max_num_ref_frames
+         bits.u(1, 0);  // gaps_in_frame_num_value_allowed_flag
+         bits.ue(19);   // pic_width_in_mbs_minus1
+         bits.ue(14);   // pic_height_in_map_units_minus1
+         bits.u(1, 1);  // frame_mbs_only_flag
+         bits.u(1, 1);  // direct_8x8_inference_flag
+         bits.u(1, 0);  // frame_cropping_flag
+         bits.u(1, 1);  // vui_parameters_present_flag
+         bits.u(1, 0);  // aspect_ratio_info_present_flag
+         bits.u(1, 0);  // overscan_info_present_flag
+         bits.u(1, 0);  // video_signal_type_present_flag
+         bits.u(1, 0);  // chroma_loc_info_present_flag
+         bits.u(1, 1);  // timing_info_present_flag
+         bits.u(32, 1); // num_units_in_tick
+         bits.u(32, 30);// time_scale
+         bits.u(1, 1);  // fixed_frame_rate_flag
+         bits.u(1, 0);  // nal_hrd_parameters_present_flag
+         bits.u(1, 0);  // vcl_hrd_parameters_present_flag
+         bits.u(1, 0);  // pic_struct_present_flag
+         bits.u(1, 0);  // bitstream_restriction_flag
+         return bits.done();
+      }
+   }
+
+   private static final class Bits {
+      private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      private int current;
+      private int count;
+
+      void u(int width, long value) {
+         for (int i = width - 1; i >= 0; i--) {
+            current = (current << 1) | (int)((value >> i) & 1);
+            if (++count == 8) {
+               bytes.write(current);
+               current = 0;
+               count = 0;
+            }
+         }
+      }
+
+      void ue(int value) {
+         int coded = value + 1;
+         int len = 32 - Integer.numberOfLeadingZeros(coded);
+         u(len - 1, 0);
+         u(len, coded);
+      }
+
+      byte[] done() {
+         // rbsp stop bit and alignment
+         u(1, 1);
+         while (count != 0) {
+            u(1, 0);
+         }
+         return bytes.toByteArray();
+      }
+   }
+}
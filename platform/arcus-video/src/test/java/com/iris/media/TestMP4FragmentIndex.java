@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMP4FragmentIndex {
+   private MP4FragmentIndex index;
+
+   @Before
+   public void setUp() {
+      MP4FragmentIndex.Builder builder = new MP4FragmentIndex.Builder();
+      builder.add(100, 0, 1, 0, 0, 0);
+      builder.add(1000, 188 * 10, 2, 6000, 1, 1);
+      builder.add(5000, 188 * 40, 3, 12000, 2, 2);
+      index = builder.build(8000, 3000);
+   }
+
+   @Test
+   public void testFindInitSegment() {
+      assertNull(index.find(0));
+      assertNull(index.find(99));
+   }
+
+   @Test
+   public void testFindFragment() {
+      assertSame(index.getFragments().get(0), index.find(100));
+      assertSame(index.getFragments().get(0), index.find(999));
+      assertSame(index.getFragments().get(1), index.find(1000));
+      assertSame(index.getFragments().get(2), index.find(5000));
+      assertSame(index.getFragments().get(2), index.find(7999));
+   }
+
+   @Test
+   public void testFindOutOfRange() {
+      assertNull(index.find(-1));
+      assertNull(index.find(8000));
+   }
+
+   @Test
+   public void testEmpty() {
+      MP4FragmentIndex empty = new MP4FragmentIndex.Builder().build(100, 3000);
+      assertEquals(0, empty.getFragments().size());
+      assertNull(empty.find(50));
+   }
+}
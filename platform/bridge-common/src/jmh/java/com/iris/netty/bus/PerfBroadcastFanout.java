@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.netty.bus;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+import com.iris.bridge.server.client.Client;
+import com.iris.bridge.server.session.DefaultSessionImpl;
+import com.iris.bridge.server.session.DefaultSessionRegistryImpl;
+import com.iris.bridge.server.session.Session;
+import com.iris.bridge.server.session.SessionRegistry;
+import com.iris.bridge.server.session.SessionUtil;
+import com.iris.io.json.JSON;
+import com.iris.messages.MessageBody;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
+import com.iris.messages.capability.Capability;
+import com.iris.netty.server.message.IrisNettyMessageUtil;
+import com.iris.netty.server.session.IrisNettyClientClientToken;
+import com.iris.security.authz.AuthorizationContext;
+import com.iris.security.authz.Authorizer;
+
+/**
+ * Compares the legacy scan-every-session broadcast path against the place
+ * indexed, encode-once path in {@link IrisNettyPlatformBusListener}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class PerfBroadcastFanout {
+   private static final int SESSIONS = 50000;
+   private static final int PLACES = 10000;
+
+   private int next = 0;
+
+   @Benchmark
+   public long perfFullScanFanout(TestSetup test) {
+      PlatformMessage msg = test.messages[next++ % PLACES];
+      for(Session session: test.registry.getSessions()) {
+         if(session.getActivePlace() != null && Objects.equals(session.getActivePlace(), msg.getPlaceId())) {
+            PlatformMessage filtered = test.authorizer.filter(session.getAuthorizationContext(), session.getActivePlace(), msg);
+            if(filtered != null) {
+               session.sendMessage(JSON.toJson(test.messageUtil.convertPlatformToClient(filtered)));
+            }
+         }
+      }
+      return test.sent;
+   }
+
+   @Benchmark
+   public long perfIndexedFanout(TestSetup test) {
+      test.listener.onMessage(null, test.messages[next++ % PLACES]);
+      return test.sent;
+   }
+
+   @State(Scope.Benchmark)
+   public static class TestSetup {
+      Authorizer authorizer = new Authorizer() {
+         @Override
+         public boolean isAuthorized(AuthorizationContext context, String placeId, PlatformMessage message) {
+            return true;
+         }
+
+         @Override
+         public PlatformMessage filter(AuthorizationContext context, String placeId, PlatformMessage message) {
+            return message;
+         }
+      };
+      IrisNettyMessageUtil messageUtil = new IrisNettyMessageUtil();
+      DefaultSessionRegistryImpl registry = new DefaultSessionRegistryImpl(null, Collections.emptySet());
+      IrisNettyPlatformBusListener listener = new IrisNettyPlatformBusListener(authorizer, messageUtil, registry, (sessionId) -> { });
+      PlatformMessage[] messages = new PlatformMessage[PLACES];
+      long sent;
+
+      @Setup
+      public void setup() {
+         for(int i = 0; i < PLACES; i++) {
+            UUID placeId = UUID.randomUUID();
+            MessageBody body = MessageBody.buildMessage(
+                  Capability.EVENT_VALUE_CHANGE,
+                  ImmutableMap.<String, Object>of("swit:state", i % 2 == 0 ? "ON" : "OFF", "devpow:source", "LINE")
+            );
+            messages[i] = PlatformMessage
+                  .buildBroadcast(body, Address.platformDriverAddress(UUID.randomUUID()))
+                  .withPlaceId(placeId)
+                  .create();
+         }
+         for(int i = 0; i < SESSIONS; i++) {
+            Session session = new BenchmarkSession(registry);
+            session.setClientToken(new IrisNettyClientClientToken("session-" + i));
+            registry.putSession(session);
+            SessionUtil.setPlace(messages[i % PLACES].getPlaceId(), session);
+         }
+      }
+
+      private class BenchmarkSession extends DefaultSessionImpl {
+         BenchmarkSession(SessionRegistry parent) {
+            super(parent, null, null);
+         }
+
+         @Override
+         public Client getClient() {
+            return null;
+         }
+
+         @Override
+         public AuthorizationContext getAuthorizationContext() {
+            return null;
+         }
+
+         @Override
+         public void sendMessage(String msg) {
+            sent += msg.length();
+         }
+      }
+   }
+
+}
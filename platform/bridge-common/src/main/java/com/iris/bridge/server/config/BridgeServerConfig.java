@@ -99,6 +99,13 @@ public class BridgeServerConfig {
    @Inject(optional = true) @Named("tls.session.timeout")
    private long tlsSessionTimeout = 60L;
 
+   /**
+    * Allows clients which request it to use the binary hub message framing,
+    * see {@link com.iris.io.binary.BinaryHubMessageFormat}.
+    */
+   @Inject(optional = true) @Named("binary.framing.enabled")
+   private boolean binaryFramingEnabled = true;
+
    @Inject(optional = true) @Named("boss.thread.count")
    private int bossThreadCount = -1;
 
@@ -304,6 +311,14 @@ public class BridgeServerConfig {
       this.tlsSessionCacheSize = tlsSessionCacheSize;
    }
 
+   public boolean isBinaryFramingEnabled() {
+      return binaryFramingEnabled;
+   }
+
+   public void setBinaryFramingEnabled(boolean binaryFramingEnabled) {
+      this.binaryFramingEnabled = binaryFramingEnabled;
+   }
+
    public long getTlsSessionTimeout() {
       return tlsSessionTimeout;
    }
@@ -52,6 +52,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
@@ -118,6 +119,15 @@ public class BaseWebSocketServerHandler extends SimpleChannelInboundHandler<Obje
       return handshaker;
    }
 
+   /**
+    * Additional headers for the websocket upgrade response, this is where
+    * subclasses may accept options requested by the client.
+    * @return the headers to add or {@code null} for none
+    */
+   protected HttpHeaders getUpgradeResponseHeaders(ChannelHandlerContext ctx, FullHttpRequest request) {
+      return null;
+   }
+
    protected WebSocketServerHandshaker getWebSocketHandshaker(ChannelHandlerContext ctx) {
       return ctx.attr(ATTR_WEBSOCKET_HANDLER).get();
    }
@@ -394,7 +404,7 @@ public class BaseWebSocketServerHandler extends SimpleChannelInboundHandler<Obje
          if (handshaker == null) {
             WebSocketServerHandshakerFactory.sendUnsupportedVersionResponse(ctx.channel());
          } else {
-            handshaker.handshake(ctx.channel(), req);
+            handshaker.handshake(ctx.channel(), req, getUpgradeResponseHeaders(ctx, req), ctx.channel().newPromise());
 
             // The chunked write handler interferes with large websocket messages
             // so it needs to be removed from the pipeline since we are setting up
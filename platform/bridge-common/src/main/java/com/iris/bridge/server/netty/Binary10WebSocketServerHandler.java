@@ -20,11 +20,16 @@ import java.util.Set;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.util.AttributeKey;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,12 +45,20 @@ import com.iris.bridge.server.session.Session;
 import com.iris.bridge.server.session.SessionFactory;
 import com.iris.bridge.server.session.SessionListener;
 import com.iris.bridge.server.session.SessionRegistry;
+import com.iris.io.binary.BinaryHubMessageFormat;
 import com.iris.util.MdcContext.MdcContextReference;
 
 public class Binary10WebSocketServerHandler extends BaseWebSocketServerHandler {
    private static final Logger logger = LoggerFactory.getLogger(Binary10WebSocketServerHandler.class);
 	private static final Logger comlog = LoggerFactory.getLogger("COMLOG");
 
+	/**
+	 * Set on channels which negotiated the {@link BinaryHubMessageFormat} framing
+	 * during the websocket upgrade.
+	 */
+	public static final AttributeKey<Boolean> ATTR_BINARY_FRAMING =
+	      AttributeKey.valueOf(Binary10WebSocketServerHandler.class.getName() + "$BinaryFraming");
+
 	private CompositeByteBuf compositeByteBuf = null;
    protected final DeviceMessageHandler<ByteBuf> deviceMessageHandler;
 
@@ -66,6 +79,22 @@ public class Binary10WebSocketServerHandler extends BaseWebSocketServerHandler {
       this.deviceMessageHandler = deviceMessageHandler;
    }
 
+   public static boolean isBinaryFraming(Channel channel) {
+      return Boolean.TRUE.equals(channel.attr(ATTR_BINARY_FRAMING).get());
+   }
+
+   @Override
+   protected HttpHeaders getUpgradeResponseHeaders(ChannelHandlerContext ctx, FullHttpRequest request) {
+      if(!serverConfig.isBinaryFramingEnabled() || !BinaryHubMessageFormat.isFramingRequested(request.headers().get(BinaryHubMessageFormat.HEADER_FRAMING))) {
+         return null;
+      }
+
+      ctx.channel().attr(ATTR_BINARY_FRAMING).set(Boolean.TRUE);
+      HttpHeaders headers = new DefaultHttpHeaders();
+      headers.set(BinaryHubMessageFormat.HEADER_FRAMING, BinaryHubMessageFormat.FRAMING_BINARY);
+      return headers;
+   }
+
    @Override
 	protected void handleWebSocketFrame(ChannelHandlerContext ctx, WebSocketFrame frame) {
 		if (frame instanceof CloseWebSocketFrame) {
@@ -185,6 +185,11 @@ public class DefaultSessionImpl implements Session {
    public ClientFactory getClientFactory() {
       return parent.getClientFactory();
    }
+
+   @Override
+   public SessionRegistry getSessionRegistry() {
+      return parent;
+   }
    
    /* (non-Javadoc)
     * @see java.lang.Object#toString()
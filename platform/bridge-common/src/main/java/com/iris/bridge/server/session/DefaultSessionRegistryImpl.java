@@ -19,6 +19,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -29,6 +30,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.iris.bridge.server.client.Client;
 import com.iris.bridge.server.client.ClientFactory;
+import com.iris.core.messaging.PlaceInterest;
 import com.iris.metrics.IrisMetrics;
 
 @Singleton
@@ -41,6 +43,12 @@ public class DefaultSessionRegistryImpl implements SessionRegistry  {
    // unmodifiable view of the values in the sessionMap
    // also concurrent because sessionMap is concurrent
    private Iterable<Session> sessions = Collections.unmodifiableCollection(sessionMap.values());         
+   // secondary index of active place -> sessions, maintained via activePlaceChanged
+   private final ConcurrentMap<String, Set<Session>> sessionsByPlace = new ConcurrentHashMap<>();
+   // the place each session is currently indexed under, so a stale entry can always be removed
+   private final ConcurrentMap<Session, String> indexedPlaces = new ConcurrentHashMap<>();
+
+   private SessionPlaceInterest placeInterest;
 
    @Inject
    public DefaultSessionRegistryImpl(ClientFactory clientFactory, Set<SessionListener> listeners) {
@@ -49,6 +57,19 @@ public class DefaultSessionRegistryImpl implements SessionRegistry  {
    }
       
 
+   /**
+    * Bound by bridges which filter broadcasts by place, each place is added
+    * to the interest as soon as a session selects it.  This is injected by
+    * the {@link PlaceInterest} binding so bridges that don't bind it never
+    * create a {@link SessionPlaceInterest}.
+    */
+   @Inject(optional = true)
+   public void setPlaceInterest(PlaceInterest placeInterest) {
+      if(placeInterest instanceof SessionPlaceInterest) {
+         this.placeInterest = (SessionPlaceInterest) placeInterest;
+      }
+   }
+
    public int sessionCount() {
       return sessionMap.size();
    }
@@ -58,6 +79,35 @@ public class DefaultSessionRegistryImpl implements SessionRegistry  {
       return sessions;
    }
 
+   @Override
+   public Iterable<Session> getSessionsByPlace(String placeId) {
+      if(placeId == null) {
+         return Collections.emptySet();
+      }
+      Set<Session> placeSessions = sessionsByPlace.get(placeId);
+      return placeSessions == null ? Collections.emptySet() : Collections.unmodifiableSet(placeSessions);
+   }
+
+   @Override
+   public void activePlaceChanged(Session session) {
+      ClientToken ct = session.getClientToken();
+      if(ct == null || sessionMap.get(ct) != session) {
+         // not registered (yet), putSession will index the current place
+         reindex(session, null);
+         return;
+      }
+      reindex(session, session.getActivePlace());
+   }
+
+   @Override
+   public Set<String> getActivePlaces() {
+      return Collections.unmodifiableSet(sessionsByPlace.keySet());
+   }
+
+   int placeCount() {
+      return sessionsByPlace.size();
+   }
+
    @Override
    public Session getSession(ClientToken ct) {
       return sessionMap.get(ct);
@@ -68,6 +118,7 @@ public class DefaultSessionRegistryImpl implements SessionRegistry  {
       ClientToken ct = session.getClientToken();
       SessionMetrics.incrementSessions();
       sessionMap.put(ct, session);
+      reindex(session, session.getActivePlace());
       logger.debug("Session registered [{}]", ct);
    }
 
@@ -76,6 +127,7 @@ public class DefaultSessionRegistryImpl implements SessionRegistry  {
       logger.debug("Bridge session.destroySession is called [{}]");
       ClientToken ct = session.getClientToken();
       Session s = sessionMap.remove(ct);
+      reindex(session, null);
       if(s != null && s instanceof DefaultSessionImpl) {
     	 Client curClient = session.getClient();
          logger.debug("Session destroyed [{}], session id [{}]", ct, curClient!=null?curClient.getSessionId():"");
@@ -90,6 +142,30 @@ public class DefaultSessionRegistryImpl implements SessionRegistry  {
       return clientFactory;
    }
 
+   private void reindex(Session session, String placeId) {
+      synchronized(session) {
+         String previous = placeId == null ? indexedPlaces.remove(session) : indexedPlaces.put(session, placeId);
+         if(previous != null && !previous.equals(placeId)) {
+            sessionsByPlace.computeIfPresent(previous, (k, placeSessions) -> {
+               placeSessions.remove(session);
+               return placeSessions.isEmpty() ? null : placeSessions;
+            });
+         }
+         if(placeId != null) {
+            sessionsByPlace.compute(placeId, (k, placeSessions) -> {
+               if(placeSessions == null) {
+                  placeSessions = ConcurrentHashMap.newKeySet();
+               }
+               placeSessions.add(session);
+               return placeSessions;
+            });
+            if(placeInterest != null) {
+               placeInterest.placeAdded(placeId);
+            }
+         }
+      }
+   }
+
    private void fireListeners(Session session) {
       listeners.forEach((l) -> l.onSessionDestroyed(session));
    }
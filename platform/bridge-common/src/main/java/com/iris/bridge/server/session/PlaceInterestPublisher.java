@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.bridge.server.session;
+
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.iris.bridge.server.config.BridgeServerConfig;
+import com.iris.core.messaging.PlaceInterestSummary;
+import com.iris.core.platform.IntraServiceMessageBus;
+import com.iris.messages.MessageBody;
+import com.iris.messages.PlatformMessage;
+import com.iris.metrics.IrisMetrics;
+import com.iris.platform.partition.Partitioner;
+import com.iris.util.ThreadPoolBuilder;
+
+/**
+ * Periodically rebuilds the {@link SessionPlaceInterest} from the active places
+ * in the {@link SessionRegistry} and broadcasts the summary on the intra-service
+ * bus so other services can see which places each bridge is serving.
+ */
+@Singleton
+public class PlaceInterestPublisher {
+   private static final Logger logger = LoggerFactory.getLogger(PlaceInterestPublisher.class);
+
+   public static final String MESSAGE_TYPE = "bridge:PlaceInterest";
+   public static final String ATTR_BRIDGE = "bridge";
+   public static final String ATTR_MEMBER = "member";
+   public static final String ATTR_PLACES = "places";
+   public static final String ATTR_HASHES = "hashes";
+   public static final String ATTR_SUMMARY = "summary";
+
+   private final SessionRegistry registry;
+   private final SessionPlaceInterest interest;
+   private final SessionPlaceInterestConfig config;
+   private final String bridgeName;
+   private final Partitioner partitioner;
+   private final IntraServiceMessageBus intraServiceBus;
+   private final ScheduledExecutorService executor;
+   private final Timer refreshTimer;
+
+   @Inject
+   public PlaceInterestPublisher(
+         SessionRegistry registry,
+         SessionPlaceInterest interest,
+         SessionPlaceInterestConfig config,
+         BridgeServerConfig serverConfig,
+         Partitioner partitioner,
+         IntraServiceMessageBus intraServiceBus
+   ) {
+      this.registry = registry;
+      this.interest = interest;
+      this.config = config;
+      this.bridgeName = serverConfig.getBridgeName();
+      this.partitioner = partitioner;
+      this.intraServiceBus = intraServiceBus;
+      this.executor = Executors
+            .newSingleThreadScheduledExecutor(
+                  ThreadPoolBuilder
+                     .defaultFactoryBuilder()
+                     .setNameFormat("bridge-place-interest")
+                     .build()
+            );
+      this.refreshTimer = IrisMetrics.metrics("bridge.placeinterest").timer("refresh");
+   }
+
+   @PostConstruct
+   public void start() {
+      long intervalMs = config.getRefreshIntervalMs();
+      executor.scheduleAtFixedRate(() -> refresh(), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+   }
+
+   @PreDestroy
+   public void stop() {
+      executor.shutdownNow();
+   }
+
+   public void refresh() {
+      try(Timer.Context timer = refreshTimer.time()) {
+         PlaceInterestSummary summary = interest.rebuild(registry.getActivePlaces());
+         if(config.isPublish()) {
+            publish(summary);
+         }
+      }
+      catch(Exception e) {
+         logger.warn("Error refreshing place interest", e);
+      }
+   }
+
+   private void publish(PlaceInterestSummary summary) {
+      MessageBody payload = MessageBody.buildMessage(
+            MESSAGE_TYPE,
+            ImmutableMap.<String, Object>of(
+                  ATTR_BRIDGE, bridgeName,
+                  ATTR_MEMBER, partitioner.getMemberId(),
+                  ATTR_PLACES, interest.getPlaceCount(),
+                  ATTR_HASHES, summary.getHashCount(),
+                  ATTR_SUMMARY, Base64.getEncoder().encodeToString(summary.toBytes())
+            )
+      );
+      PlatformMessage message =
+            PlatformMessage
+               .broadcast()
+               .from("CLNT:" + bridgeName + ":" + partitioner.getMemberId())
+               .withTimeToLive((int) (2 * config.getRefreshIntervalMs()))
+               .withPayload(payload)
+               .create();
+      intraServiceBus.send(partitioner.getPartitionById(Math.floorMod(partitioner.getMemberId(), partitioner.getPartitionCount())), message);
+   }
+}
@@ -93,6 +93,8 @@ public interface Session {
 	public BridgeMetrics metrics();
 
 	public ClientFactory getClientFactory();
+
+	public SessionRegistry getSessionRegistry();
 	
 }
 
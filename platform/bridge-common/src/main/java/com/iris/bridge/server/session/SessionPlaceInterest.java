@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.bridge.server.session;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.google.common.base.Supplier;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.iris.core.messaging.PlaceInterest;
+import com.iris.core.messaging.PlaceInterestSummary;
+import com.iris.metrics.IrisMetricSet;
+import com.iris.metrics.IrisMetrics;
+
+/**
+ * The places this bridge has sessions for, as a {@link PlaceInterestSummary}.
+ * When bound the platform bus drops broadcasts for any other place before they
+ * are decoded.
+ *
+ * The registry adds places as soon as a session selects them, so the summary
+ * never misses an active place, but places are only removed when the summary
+ * is rebuilt by {@link #rebuild(Collection)}.  Until then, and for false positives,
+ * broadcasts are delivered and dropped by the listeners as before.
+ */
+@Singleton
+public class SessionPlaceInterest implements PlaceInterest {
+   private static final Logger logger = LoggerFactory.getLogger(SessionPlaceInterest.class);
+
+   private final SessionPlaceInterestConfig config;
+   private final Counter checked;
+   private final Counter filtered;
+   private final Counter rebuilt;
+   private volatile PlaceInterestSummary current;
+   // non-null while a rebuild is in progress, places added during the rebuild go to both
+   private volatile PlaceInterestSummary next;
+   private volatile int places;
+
+   @Inject
+   public SessionPlaceInterest(SessionPlaceInterestConfig config) {
+      this.config = config;
+      this.current = PlaceInterestSummary.create(config.getMinPlaces(), config.getFalsePositiveRate());
+
+      IrisMetricSet metrics = IrisMetrics.metrics("bridge.placeinterest");
+      this.checked = metrics.counter("checked");
+      this.filtered = metrics.counter("filtered");
+      this.rebuilt = metrics.counter("rebuilt");
+      metrics.gauge("places", (Supplier<Integer>) () -> places);
+      metrics.gauge("fill.ratio", (Supplier<Double>) () -> current.getFillRatio());
+      metrics.gauge("filtered.ratio", (Supplier<Double>) () -> {
+         long total = checked.getCount();
+         return total == 0 ? 0.0 : (double) filtered.getCount() / total;
+      });
+   }
+
+   @Override
+   public boolean isInterested(UUID placeId) {
+      if(!config.isEnabled()) {
+         return true;
+      }
+      checked.inc();
+      if(current.isInterested(placeId)) {
+         return true;
+      }
+      filtered.inc();
+      return false;
+   }
+
+   /**
+    * Invoked whenever a session selects a place, this must happen before any
+    * broadcast for the place is expected to be delivered to the session.
+    */
+   public void placeAdded(String placeId) {
+      UUID id = toUuid(placeId);
+      if(id == null) {
+         return;
+      }
+      // next must be read before current, if a rebuild swaps the summaries between the
+      // two reads then either next is the new summary or current is
+      PlaceInterestSummary next = this.next;
+      if(next != null) {
+         next.add(id);
+      }
+      current.add(id);
+   }
+
+   /**
+    * Replaces the summary with one containing only {@code activePlaces}.  The
+    * new summary is visible to {@link #placeAdded(String)} before the places are
+    * read, so a place selected concurrently with the rebuild is never lost.
+    */
+   public synchronized PlaceInterestSummary rebuild(Collection<String> activePlaces) {
+      int expected = Math.max(config.getMinPlaces(), activePlaces.size() * 2);
+      PlaceInterestSummary summary = PlaceInterestSummary.create(expected, config.getFalsePositiveRate());
+      this.next = summary;
+      int count = 0;
+      for(String placeId: activePlaces) {
+         UUID id = toUuid(placeId);
+         if(id != null) {
+            summary.add(id);
+            count++;
+         }
+      }
+      this.current = summary;
+      this.next = null;
+      this.places = count;
+      rebuilt.inc();
+      logger.debug("Rebuilt place interest for [{}] places using [{}]", count, summary);
+      return summary;
+   }
+
+   public PlaceInterestSummary getSummary() {
+      return current;
+   }
+
+   public int getPlaceCount() {
+      return places;
+   }
+
+   private static UUID toUuid(String placeId) {
+      if(placeId == null) {
+         return null;
+      }
+      try {
+         return UUID.fromString(placeId);
+      }
+      catch(IllegalArgumentException e) {
+         logger.debug("Ignoring invalid place id [{}]", placeId);
+         return null;
+      }
+   }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.bridge.server.session;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+
+public class SessionPlaceInterestConfig {
+   public static final String PROP_ENABLED = "bridge.placeinterest.enabled";
+   public static final String PROP_REFRESH_INTERVAL_MS = "bridge.placeinterest.refreshIntervalMs";
+   public static final String PROP_FALSE_POSITIVE_RATE = "bridge.placeinterest.falsePositiveRate";
+   public static final String PROP_MIN_PLACES = "bridge.placeinterest.minPlaces";
+   public static final String PROP_PUBLISH = "bridge.placeinterest.publish";
+
+   /**
+    * When disabled every broadcast is decoded, as if no interest were bound.
+    */
+   @Inject(optional = true) @Named(PROP_ENABLED)
+   private boolean enabled = true;
+   /**
+    * How often the summary is rebuilt from the active places in the session
+    * registry, places added in between are added to the current summary
+    * immediately, this only drops places which no longer have sessions.
+    */
+   @Inject(optional = true) @Named(PROP_REFRESH_INTERVAL_MS)
+   private long refreshIntervalMs = TimeUnit.MINUTES.toMillis(1);
+   @Inject(optional = true) @Named(PROP_FALSE_POSITIVE_RATE)
+   private double falsePositiveRate = 0.01;
+   /**
+    * The smallest number of places a summary is sized for, summaries are
+    * sized for twice the number of active places to leave room for growth
+    * between refreshes.
+    */
+   @Inject(optional = true) @Named(PROP_MIN_PLACES)
+   private int minPlaces = 1024;
+   /**
+    * Whether each refreshed summary is broadcast on the intra-service bus.
+    */
+   @Inject(optional = true) @Named(PROP_PUBLISH)
+   private boolean publish = true;
+
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+   }
+
+   public long getRefreshIntervalMs() {
+      return refreshIntervalMs;
+   }
+
+   public void setRefreshIntervalMs(long refreshIntervalMs) {
+      this.refreshIntervalMs = refreshIntervalMs;
+   }
+
+   public double getFalsePositiveRate() {
+      return falsePositiveRate;
+   }
+
+   public void setFalsePositiveRate(double falsePositiveRate) {
+      this.falsePositiveRate = falsePositiveRate;
+   }
+
+   public int getMinPlaces() {
+      return minPlaces;
+   }
+
+   public void setMinPlaces(int minPlaces) {
+      this.minPlaces = minPlaces;
+   }
+
+   public boolean isPublish() {
+      return publish;
+   }
+
+   public void setPublish(boolean publish) {
+      this.publish = publish;
+   }
+
+}
@@ -16,7 +16,12 @@
 package com.iris.bridge.server.session;
 
 import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
+import com.google.common.collect.Iterables;
 import com.iris.bridge.server.client.ClientFactory;
 
 public interface SessionRegistry {
@@ -24,6 +29,37 @@ public interface SessionRegistry {
    default Iterator<Session> getSessionIterator() { return getSessions().iterator(); }
    
    Iterable<Session> getSessions();
+
+   /**
+    * Returns the sessions whose active place is {@code placeId}.  The default
+    * implementation scans every session, registries that maintain a place
+    * index should override this along with {@link #activePlaceChanged(Session)}.
+    */
+   default Iterable<Session> getSessionsByPlace(String placeId) {
+      return Iterables.filter(getSessions(), (session) -> Objects.equals(placeId, session.getActivePlace()));
+   }
+
+   /**
+    * Returns the ids of every place which is the active place of at least one
+    * session.  As with {@link #getSessionsByPlace(String)} the default implementation
+    * scans every session.
+    */
+   default Set<String> getActivePlaces() {
+      return
+            StreamSupport
+               .stream(getSessions().spliterator(), false)
+               .map(Session::getActivePlace)
+               .filter(Objects::nonNull)
+               .collect(Collectors.toSet());
+   }
+
+   /**
+    * Invoked by {@link SessionUtil} after the active place of a session
+    * has been set or cleared.
+    */
+   default void activePlaceChanged(Session session) {
+      // no-op
+   }
    
    Session getSession(ClientToken ct);
    
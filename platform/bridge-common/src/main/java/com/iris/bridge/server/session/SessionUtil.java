@@ -31,7 +31,8 @@ public class SessionUtil {
 	}
 	
 	public static void setPlace(String placeId, Session session) {				
-		session.setActivePlace(placeId);				
+		session.setActivePlace(placeId);
+		placeChanged(session);
 	}
 	
 	public static void setPlace(UUID placeId, Session session) {		
@@ -43,6 +44,14 @@ public class SessionUtil {
 	
 	public static void clearPlace(Session session) {
 		session.setActivePlace(null);
+		placeChanged(session);
+	}
+	
+	private static void placeChanged(Session session) {
+		SessionRegistry registry = session.getSessionRegistry();
+		if(registry != null) {
+			registry.activePlaceChanged(session);
+		}
 	}
 
 }
@@ -17,6 +17,8 @@ package com.iris.netty.bus;
 
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -49,6 +51,7 @@ import com.iris.messages.service.SessionService.PreferencesChangedEvent;
 import com.iris.messages.service.VideoService;
 import com.iris.messages.services.PlatformConstants;
 import com.iris.netty.server.message.IrisNettyMessageUtil;
+import com.iris.security.SessionInvalidator;
 import com.iris.security.authz.Authorizer;
 import com.iris.util.MdcContext.MdcContextReference;
 
@@ -65,12 +68,15 @@ public class IrisNettyPlatformBusListener implements PlatformBusListener {
    private final Authorizer authorizer;
    private final IrisNettyMessageUtil messageUtil;
    private final SessionRegistry sessionRegistry;
+   // the session may be cached here even if none of its clients are connected to this bridge
+   private final SessionInvalidator sessionInvalidator;
 
    @Inject
-   public IrisNettyPlatformBusListener(Authorizer authorizer, IrisNettyMessageUtil messageUtil, SessionRegistry sessionRegistry) {
+   public IrisNettyPlatformBusListener(Authorizer authorizer, IrisNettyMessageUtil messageUtil, SessionRegistry sessionRegistry, SessionInvalidator sessionInvalidator) {
       this.authorizer = authorizer;
       this.messageUtil = messageUtil;
       this.sessionRegistry = sessionRegistry;
+      this.sessionInvalidator = sessionInvalidator;
    }
 
    @Override
@@ -80,6 +86,8 @@ public class IrisNettyPlatformBusListener implements PlatformBusListener {
          Errors.assertRequiredParam(sessionId, SessionService.SessionExpiredEvent.ATTR_SESSIONID);
          logger.debug("Received session expired event from [{}] for [{}]", msg.getSource(), sessionId);
 
+         sessionInvalidator.invalidate(sessionId);
+
          for(Session session: sessionRegistry.getSessions()) {
             Client client = session.getClient();
             if(client == null) {
@@ -155,13 +163,20 @@ public class IrisNettyPlatformBusListener implements PlatformBusListener {
             }
          }
 
-         for (Session session : sessions) {
-            boolean attemptSend = session.getActivePlace() != null && Objects.equals(session.getActivePlace(), msg.getPlaceId());
-            String clientMsg = attemptSend ? filter(session,msg) : null;
+         String placeId = msg.getPlaceId();
+         if (placeId != null) {
+            // sessions that receive the same filtered instance of the message share a single encoding,
+            // when nothing is filtered that is the original message
+            Map<PlatformMessage, String> encoded = new IdentityHashMap<>();
+            for (Session session : sessionRegistry.getSessionsByPlace(placeId)) {
+               if (!Objects.equals(session.getActivePlace(), placeId)) {
+                  continue;
+               }
 
-            if (clientMsg != null) {
-               try(MdcContextReference ref = BridgeMdcUtil.captureAndInitializeContext(session)) {
-                  if (clientMsg != null) {
+               PlatformMessage filtered = authorize(session, msg);
+               if (filtered != null) {
+                  String clientMsg = encoded.computeIfAbsent(filtered, (m) -> JSON.toJson(messageUtil.convertPlatformToClient(m)));
+                  try(MdcContextReference ref = BridgeMdcUtil.captureAndInitializeContext(session)) {
                      session.sendMessage(clientMsg);
                   }
                }
@@ -266,6 +281,11 @@ public class IrisNettyPlatformBusListener implements PlatformBusListener {
    }
 
    private String filter(Session session, PlatformMessage msg) {
+      PlatformMessage filtered = authorize(session, msg);
+      return filtered != null ? JSON.toJson(messageUtil.convertPlatformToClient(filtered)) : null;
+   }
+
+   private PlatformMessage authorize(Session session, PlatformMessage msg) {
       try {
          PlatformMessage filtered = authorizer.filter(session.getAuthorizationContext(), session.getActivePlace(), msg);
          if(filtered != null) {
@@ -293,7 +313,7 @@ public class IrisNettyPlatformBusListener implements PlatformBusListener {
                }
             }
 
-            return JSON.toJson(messageUtil.convertPlatformToClient(filtered));
+            return filtered;
          } else {
             logger.debug("Dropped message [{}]:  msg place {} != session place {}", msg, msg.getPlaceId(), session.getActivePlace());
          }
@@ -27,6 +27,7 @@ import com.iris.netty.security.IrisNettyAuthorizationContextLoader;
 import com.iris.netty.security.IrisNettyNoopAuthorizationContextLoader;
 import com.iris.security.SecurityModule;
 import com.iris.security.SessionConfig;
+import com.iris.security.SessionInvalidator;
 import com.iris.security.credentials.CredentialsHashingStrategy;
 import com.iris.security.credentials.PlainCredentialsHashingStrategy;
 import com.iris.security.dao.AppHandoffDao;
@@ -64,7 +65,11 @@ public class MockDaoSecurityModule extends SecurityModule {
    @Override
    protected void bindSessionDAO(AnnotatedBindingBuilder<SessionDAO> bind) {
       bind.toInstance(EasyMock.createMock(SessionDAO.class));
-      expose(SessionDAO.class);
+   }
+
+   @Override
+   protected void bindSessionInvalidator(AnnotatedBindingBuilder<SessionInvalidator> bind) {
+      bind.toInstance(EasyMock.createMock(SessionInvalidator.class));
    }
 
    // THIS IS ONLY SAFE FOR A TEST-CASE
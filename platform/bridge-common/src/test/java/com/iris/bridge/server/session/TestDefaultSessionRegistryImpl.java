@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.bridge.server.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.iris.netty.server.session.IrisNettyClientClientToken;
+
+public class TestDefaultSessionRegistryImpl {
+   DefaultSessionRegistryImpl registry;
+   SessionPlaceInterest placeInterest;
+
+   @Before
+   public void setUp() {
+      registry = new DefaultSessionRegistryImpl(null, Collections.emptySet());
+      placeInterest = new SessionPlaceInterest(new SessionPlaceInterestConfig());
+      registry.setPlaceInterest(placeInterest);
+   }
+
+   @Test
+   public void testSetPlaceIndexesSession() {
+      String placeId = UUID.randomUUID().toString();
+      Session session1 = register("session1");
+      Session session2 = register("session2");
+      SessionUtil.setPlace(placeId, session1);
+      SessionUtil.setPlace(placeId, session2);
+
+      assertEquals(ImmutableSet.of(session1, session2), ImmutableSet.copyOf(registry.getSessionsByPlace(placeId)));
+      assertEquals(1, registry.placeCount());
+   }
+
+   @Test
+   public void testChangePlaceMovesSession() {
+      String placeId1 = UUID.randomUUID().toString();
+      String placeId2 = UUID.randomUUID().toString();
+      Session session = register("session");
+      SessionUtil.setPlace(placeId1, session);
+      SessionUtil.setPlace(placeId2, session);
+
+      assertTrue(isEmpty(registry.getSessionsByPlace(placeId1)));
+      assertEquals(ImmutableSet.of(session), ImmutableSet.copyOf(registry.getSessionsByPlace(placeId2)));
+      assertEquals(1, registry.placeCount());
+   }
+
+   @Test
+   public void testClearPlaceRemovesSession() {
+      String placeId = UUID.randomUUID().toString();
+      Session session = register("session");
+      SessionUtil.setPlace(placeId, session);
+      SessionUtil.clearPlace(session);
+
+      assertTrue(isEmpty(registry.getSessionsByPlace(placeId)));
+      assertEquals(0, registry.placeCount());
+   }
+
+   @Test
+   public void testDestroyRemovesSession() {
+      String placeId = UUID.randomUUID().toString();
+      Session session = register("session");
+      SessionUtil.setPlace(placeId, session);
+      registry.destroySession(session);
+
+      assertTrue(isEmpty(registry.getSessionsByPlace(placeId)));
+      assertEquals(0, registry.placeCount());
+   }
+
+   @Test
+   public void testPlaceSetBeforeRegistration() {
+      String placeId = UUID.randomUUID().toString();
+      Session session = new DefaultSessionImpl(registry, null, null);
+      session.setClientToken(new IrisNettyClientClientToken("session"));
+      SessionUtil.setPlace(placeId, session);
+      assertTrue(isEmpty(registry.getSessionsByPlace(placeId)));
+
+      registry.putSession(session);
+      assertEquals(ImmutableSet.of(session), ImmutableSet.copyOf(registry.getSessionsByPlace(placeId)));
+   }
+
+   @Test
+   public void testSetPlaceAddsInterest() {
+      UUID placeId = UUID.randomUUID();
+      assertFalse(placeInterest.isInterested(placeId));
+
+      Session session = register("session");
+      SessionUtil.setPlace(placeId.toString(), session);
+      assertTrue(placeInterest.isInterested(placeId));
+      assertEquals(ImmutableSet.of(placeId.toString()), registry.getActivePlaces());
+   }
+
+   @Test
+   public void testRebuildRemovesInactivePlaces() {
+      UUID placeId1 = UUID.randomUUID();
+      UUID placeId2 = UUID.randomUUID();
+      Session session = register("session");
+      SessionUtil.setPlace(placeId1.toString(), session);
+      SessionUtil.setPlace(placeId2.toString(), session);
+      assertTrue(placeInterest.isInterested(placeId1));
+
+      placeInterest.rebuild(registry.getActivePlaces());
+      assertFalse(placeInterest.isInterested(placeId1));
+      assertTrue(placeInterest.isInterested(placeId2));
+      assertEquals(1, placeInterest.getPlaceCount());
+   }
+
+   private Session register(String token) {
+      Session session = new DefaultSessionImpl(registry, null, null);
+      session.setClientToken(new IrisNettyClientClientToken(token));
+      registry.putSession(session);
+      return session;
+   }
+
+   private static boolean isEmpty(Iterable<Session> sessions) {
+      return !sessions.iterator().hasNext();
+   }
+
+}
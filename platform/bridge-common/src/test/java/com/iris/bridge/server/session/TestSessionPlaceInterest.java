@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.bridge.server.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSessionPlaceInterest {
+   SessionPlaceInterest interest;
+
+   @Before
+   public void setUp() {
+      SessionPlaceInterestConfig config = new SessionPlaceInterestConfig();
+      config.setFalsePositiveRate(0.0001);
+      interest = new SessionPlaceInterest(config);
+   }
+
+   @Test
+   public void testRebuildDropsInactivePlaces() {
+      UUID active = UUID.randomUUID();
+      UUID inactive = UUID.randomUUID();
+      interest.placeAdded(active.toString());
+      interest.placeAdded(inactive.toString());
+      assertTrue(interest.isInterested(inactive));
+
+      interest.rebuild(Collections.singleton(active.toString()));
+      assertTrue(interest.isInterested(active));
+      assertFalse(interest.isInterested(inactive));
+      assertEquals(1, interest.getPlaceCount());
+   }
+
+   @Test
+   public void testPlaceAddedWhileRebuilding() {
+      UUID active = UUID.randomUUID();
+      UUID added = UUID.randomUUID();
+      Collection<String> activePlaces = new AbstractCollection<String>() {
+         @Override
+         public Iterator<String> iterator() {
+            // selected after the rebuild started but before the summaries are swapped
+            interest.placeAdded(added.toString());
+            return Collections.singleton(active.toString()).iterator();
+         }
+
+         @Override
+         public int size() {
+            return 1;
+         }
+      };
+
+      interest.rebuild(activePlaces);
+      assertTrue(interest.isInterested(active));
+      assertTrue(interest.isInterested(added));
+   }
+
+   @Test
+   public void testPlaceAddedConcurrentlyWithRebuildsIsNeverLost() throws Exception {
+      Set<String> activePlaces = ConcurrentHashMap.newKeySet();
+      AtomicBoolean done = new AtomicBoolean();
+      Thread rebuilder = new Thread(() -> {
+         while(!done.get()) {
+            interest.rebuild(activePlaces);
+         }
+      }, "place-interest-rebuilder");
+      rebuilder.start();
+      try {
+         for(int i = 0; i < 10000; i++) {
+            UUID placeId = UUID.randomUUID();
+            // the registry indexes the session before adding the place
+            activePlaces.add(placeId.toString());
+            interest.placeAdded(placeId.toString());
+            assertTrue("Lost place " + placeId, interest.getSummary().isInterested(placeId));
+         }
+      }
+      finally {
+         done.set(true);
+         rebuilder.join();
+      }
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.netty.bus;
+
+import java.util.UUID;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.iris.bridge.server.client.Client;
+import com.iris.bridge.server.session.Session;
+import com.iris.bridge.server.session.SessionRegistry;
+import com.iris.messages.MessageBody;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.address.Address;
+import com.iris.messages.service.SessionService;
+import com.iris.netty.server.message.IrisNettyMessageUtil;
+import com.iris.security.SessionInvalidator;
+import com.iris.security.authz.Authorizer;
+
+public class TestIrisNettyPlatformBusListener {
+   private Authorizer authorizer;
+   private SessionRegistry registry;
+   private SessionInvalidator sessionInvalidator;
+   private IrisNettyPlatformBusListener listener;
+
+   @Before
+   public void setUp() {
+      authorizer = EasyMock.createMock(Authorizer.class);
+      registry = EasyMock.createMock(SessionRegistry.class);
+      sessionInvalidator = EasyMock.createMock(SessionInvalidator.class);
+      listener = new IrisNettyPlatformBusListener(authorizer, new IrisNettyMessageUtil(), registry, sessionInvalidator);
+   }
+
+   @Test
+   public void testSessionExpiredInvalidatesCachedSession() {
+      // no clients for the session on this bridge, but it may still be cached here
+      String sessionId = UUID.randomUUID().toString();
+      sessionInvalidator.invalidate(sessionId);
+      EasyMock.expectLastCall();
+      EasyMock.expect(registry.getSessions()).andReturn(ImmutableList.<Session>of());
+      EasyMock.replay(authorizer, registry, sessionInvalidator);
+
+      listener.onMessage(null, sessionExpired(sessionId));
+
+      EasyMock.verify(authorizer, registry, sessionInvalidator);
+   }
+
+   @Test
+   public void testSessionExpiredLogsOutClients() {
+      String sessionId = UUID.randomUUID().toString();
+
+      Client expired = EasyMock.createMock(Client.class);
+      EasyMock.expect(expired.getSessionId()).andReturn(sessionId).anyTimes();
+      expired.logout();
+      EasyMock.expectLastCall();
+
+      Client other = EasyMock.createMock(Client.class);
+      EasyMock.expect(other.getSessionId()).andReturn(UUID.randomUUID().toString()).anyTimes();
+
+      Session expiredSession = EasyMock.createMock(Session.class);
+      EasyMock.expect(expiredSession.getClient()).andReturn(expired).anyTimes();
+      Session otherSession = EasyMock.createMock(Session.class);
+      EasyMock.expect(otherSession.getClient()).andReturn(other).anyTimes();
+
+      sessionInvalidator.invalidate(sessionId);
+      EasyMock.expectLastCall();
+      EasyMock.expect(registry.getSessions()).andReturn(ImmutableList.of(expiredSession, otherSession));
+      EasyMock.replay(authorizer, registry, sessionInvalidator, expired, other, expiredSession, otherSession);
+
+      listener.onMessage(null, sessionExpired(sessionId));
+
+      EasyMock.verify(authorizer, registry, sessionInvalidator, expired, other, expiredSession, otherSession);
+   }
+
+   private static PlatformMessage sessionExpired(String sessionId) {
+      MessageBody body = SessionService.SessionExpiredEvent.builder().withSessionId(sessionId).build();
+      return PlatformMessage.buildBroadcast(body, Address.platformService(SessionService.NAMESPACE)).create();
+   }
+}
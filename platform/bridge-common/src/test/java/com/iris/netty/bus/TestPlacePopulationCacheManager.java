@@ -30,8 +30,10 @@ import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
 import com.iris.messages.capability.Capability;
 import com.iris.messages.capability.PlaceCapability;
+import com.iris.messages.model.Place;
 import com.iris.messages.type.Population;
-import com.iris.population.PlacePopulationCacheValueChangeListener;
+import com.iris.population.PlaceMetadataCache;
+import com.iris.population.PlacePopulationCacheManager;
 import com.iris.test.IrisMockTestCase;
 import com.iris.test.Mocks;
 import com.iris.test.Modules;
@@ -41,7 +43,9 @@ import com.iris.test.Modules;
 public class TestPlacePopulationCacheManager extends IrisMockTestCase {
 
 	@Inject
-	private PlacePopulationCacheValueChangeListener cacheMgr;
+	private PlacePopulationCacheManager cacheMgr;
+	@Inject
+	private PlaceMetadataCache metadataCache;
 	@Inject
 	private PlaceDAO mockPlaceDao;
 	@Inject
@@ -51,17 +55,29 @@ public class TestPlacePopulationCacheManager extends IrisMockTestCase {
 	public void testGetExistingItem() throws Exception {
 		UUID placeId = UUID.randomUUID();
 		String population = Population.NAME_BETA;
-		EasyMock.expect(mockPlaceDao.getPopulationById(placeId)).andReturn(population);
+		EasyMock.expect(mockPlaceDao.findById(placeId)).andReturn(place(placeId, population));
 		replay();
 		
 		assertEquals(population, cacheMgr.getPopulationByPlaceId(placeId));
+		assertEquals(population, cacheMgr.getPopulationByPlaceId(placeId));
+		verify();
 	}
 	
 	@Test
 	public void testGetNonExistingItem() throws Exception {
 		UUID placeId = UUID.randomUUID();
 		
-		EasyMock.expect(mockPlaceDao.getPopulationById(placeId)).andReturn(null);
+		EasyMock.expect(mockPlaceDao.findById(placeId)).andReturn(null);
+		replay();
+		
+		assertEquals(Population.NAME_GENERAL, cacheMgr.getPopulationByPlaceId(placeId));
+	}
+	
+	@Test
+	public void testPlaceWithoutPopulation() throws Exception {
+		UUID placeId = UUID.randomUUID();
+		
+		EasyMock.expect(mockPlaceDao.findById(placeId)).andReturn(place(placeId, null));
 		replay();
 		
 		assertEquals(Population.NAME_GENERAL, cacheMgr.getPopulationByPlaceId(placeId));
@@ -72,11 +88,10 @@ public class TestPlacePopulationCacheManager extends IrisMockTestCase {
 		UUID placeId = UUID.randomUUID();
 		String firstPopulation = Population.NAME_GENERAL;
 		String secondPopulation = Population.NAME_BETA;
-		EasyMock.expect(mockPlaceDao.getPopulationById(placeId)).andReturn(firstPopulation);  //1
-		EasyMock.expect(mockPlaceDao.getPopulationById(placeId)).andReturn(secondPopulation);	//2
+		EasyMock.expect(mockPlaceDao.findById(placeId)).andReturn(place(placeId, firstPopulation));
 		replay();
-		assertEquals(firstPopulation, cacheMgr.getPopulationByPlaceId(placeId));	//This call will trigger placeDao.getPopulationById at 1
-		assertEquals(firstPopulation, cacheMgr.getPopulationByPlaceId(placeId));	//This call should not trigger placeDao.getPopulationById
+		assertEquals(firstPopulation, cacheMgr.getPopulationByPlaceId(placeId));	//This call will trigger placeDao.findById
+		assertEquals(firstPopulation, cacheMgr.getPopulationByPlaceId(placeId));	//This call should not trigger placeDao.findById
 		
 		MessageBody body=MessageBody.buildMessage(Capability.EVENT_VALUE_CHANGE, 
 				ImmutableMap.<String, Object>of(PlaceCapability.ATTR_POPULATION, secondPopulation));
@@ -85,8 +100,31 @@ public class TestPlacePopulationCacheManager extends IrisMockTestCase {
                .to(Address.broadcastAddress())
                .withTimeToLive(86400000)
                .create();
-		cacheMgr.onMessage(event);
-		assertEquals(secondPopulation, cacheMgr.getPopulationByPlaceId(placeId));	//This call will trigger placeDao.getPopulationById at 2
+		metadataCache.onMessage(event);
+		assertEquals(secondPopulation, cacheMgr.getPopulationByPlaceId(placeId));	//The change is applied without reloading
+		verify();
+	}
+	
+	@Test
+	public void testOnDeleted() throws Exception {
+		UUID placeId = UUID.randomUUID();
+		EasyMock.expect(mockPlaceDao.findById(placeId)).andReturn(place(placeId, Population.NAME_BETA));
+		EasyMock.expect(mockPlaceDao.findById(placeId)).andReturn(null);
+		replay();
+		assertEquals(Population.NAME_BETA, cacheMgr.getPopulationByPlaceId(placeId));
+		
+		PlatformMessage event = PlatformMessage.buildEvent(MessageBody.buildMessage(Capability.EVENT_DELETED), Address.platformService(placeId, PlaceCapability.NAMESPACE))
+				.to(Address.broadcastAddress())
+				.create();
+		metadataCache.onMessage(event);
+		assertEquals(Population.NAME_GENERAL, cacheMgr.getPopulationByPlaceId(placeId));
+		verify();
+	}
+	
+	private Place place(UUID placeId, String population) {
+		Place place = new Place();
+		place.setId(placeId);
+		place.setPopulation(population);
+		return place;
 	}
 }
-
@@ -123,12 +123,12 @@ public abstract class IpcdSession extends DefaultSessionImpl implements Partitio
    }
 
    public void claim(String accountId, String placeId, String population) {
-      setActivePlace(placeId);
+      SessionUtil.setPlace(placeId, this);
       this.registrationState = IpcdDevice.RegistrationState.PENDING_DRIVER;
    }
 
    public void register(String accountId, String placeId, String population, String driverAddress) {
-      this.setActivePlace(placeId);
+      SessionUtil.setPlace(placeId, this);
       this.registrationState = IpcdDevice.RegistrationState.REGISTERED;
    }
 
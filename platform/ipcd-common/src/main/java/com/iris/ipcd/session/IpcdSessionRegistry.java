@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.ipcd.session;
+
+import java.util.Set;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.iris.bridge.server.client.ClientFactory;
+import com.iris.bridge.server.session.ClientToken;
+import com.iris.bridge.server.session.DefaultSessionRegistryImpl;
+import com.iris.bridge.server.session.Session;
+import com.iris.bridge.server.session.SessionListener;
+
+/**
+ * Keeps the {@link PartitionedSessionIndex} up to date as ipcd sessions are registered,
+ * move between places, and are destroyed.
+ */
+@Singleton
+public class IpcdSessionRegistry extends DefaultSessionRegistryImpl {
+
+   private final PartitionedSessionIndex index;
+
+   @Inject
+   public IpcdSessionRegistry(ClientFactory clientFactory, Set<SessionListener> listeners, PartitionedSessionIndex index) {
+      super(clientFactory, listeners);
+      this.index = index;
+   }
+
+   @Override
+   public void putSession(Session session) {
+      super.putSession(session);
+      if(session instanceof PartitionedSession) {
+         index.update((PartitionedSession) session);
+      }
+   }
+
+   @Override
+   public void activePlaceChanged(Session session) {
+      super.activePlaceChanged(session);
+      if(!(session instanceof PartitionedSession)) {
+         return;
+      }
+      ClientToken ct = session.getClientToken();
+      if(ct != null && getSession(ct) == session) {
+         index.update((PartitionedSession) session);
+      }
+      // else not registered (yet), putSession will index the current partition
+   }
+
+   @Override
+   public void destroySession(Session session) {
+      if(session instanceof PartitionedSession) {
+         index.remove((PartitionedSession) session);
+      }
+      super.destroySession(session);
+   }
+}
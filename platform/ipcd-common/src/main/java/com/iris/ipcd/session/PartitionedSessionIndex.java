@@ -0,0 +1,219 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.ipcd.session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Singleton;
+import com.iris.bridge.server.session.ClientToken;
+import com.iris.platform.partition.PlatformPartition;
+
+/**
+ * Indexes the connected ipcd sessions by the partition of their active place, so
+ * that a heartbeat only visits the sessions in the partitions it covers.  Each
+ * partition also tracks the devices which have connected or disconnected since
+ * the last time it was drained, which allows heartbeats to carry only the changes
+ * between full snapshots.
+ */
+@Singleton
+public class PartitionedSessionIndex {
+
+   private final ConcurrentMap<Integer, Bucket> buckets = new ConcurrentHashMap<>();
+   // the partition each session is currently indexed under, so a stale entry can always be removed
+   private final ConcurrentMap<PartitionedSession, Integer> indexed = new ConcurrentHashMap<>();
+   // partitions with changes that haven't been drained yet
+   private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+
+   /**
+    * Adds the session to the bucket for its current partition, moving
+    * it if it was previously indexed under a different partition.  Sessions
+    * without a partition or a client token are removed from the index.
+    */
+   public void update(PartitionedSession session) {
+      synchronized(session) {
+         PlatformPartition partition = session.getPartition();
+         ClientToken ct = session.getClientToken();
+         Integer partitionId = partition == null || ct == null ? null : partition.getId();
+         Integer previous = partitionId == null ? indexed.remove(session) : indexed.put(session, partitionId);
+         if(previous != null && !previous.equals(partitionId)) {
+            remove(previous, session);
+         }
+         if(partitionId != null && !partitionId.equals(previous)) {
+            bucket(partitionId).add(ct.getRepresentation(), session);
+            dirty.add(partitionId);
+         }
+      }
+   }
+
+   public void remove(PartitionedSession session) {
+      synchronized(session) {
+         Integer previous = indexed.remove(session);
+         if(previous != null) {
+            remove(previous, session);
+         }
+      }
+   }
+
+   public int size() {
+      return indexed.size();
+   }
+
+   public int size(int partitionId) {
+      Bucket bucket = buckets.get(partitionId);
+      return bucket == null ? 0 : bucket.size();
+   }
+
+   /**
+    * Returns the protocol addresses of every session in the partition if a full
+    * snapshot hasn't been taken in the last {@code intervalMs}, otherwise
+    * {@code null}.  The snapshot supersedes the pending connects for the partition,
+    * but a snapshot can't express a disconnect so the pending disconnects are
+    * returned along with it.
+    */
+   public Delta snapshotIfDue(int partitionId, long now, long intervalMs) {
+      Bucket bucket = buckets.get(partitionId);
+      return bucket == null ? null : bucket.snapshotIfDue(now, intervalMs);
+   }
+
+   /**
+    * Removes and returns the changes for every partition which has had a
+    * device connect or disconnect since it was last drained or snapshotted.
+    */
+   public List<Delta> drain() {
+      if(dirty.isEmpty()) {
+         return Collections.emptyList();
+      }
+
+      List<Delta> deltas = new ArrayList<>();
+      for(Integer partitionId: dirty) {
+         dirty.remove(partitionId);
+         Bucket bucket = buckets.get(partitionId);
+         if(bucket == null) {
+            continue;
+         }
+         Delta delta = bucket.drain();
+         if(!delta.isEmpty()) {
+            deltas.add(delta);
+         }
+      }
+      return deltas;
+   }
+
+   private void remove(int partitionId, PartitionedSession session) {
+      Bucket bucket = buckets.get(partitionId);
+      ClientToken ct = session.getClientToken();
+      if(bucket != null && ct != null && bucket.remove(ct.getRepresentation(), session)) {
+         dirty.add(partitionId);
+      }
+   }
+
+   private Bucket bucket(int partitionId) {
+      return buckets.computeIfAbsent(partitionId, Bucket::new);
+   }
+
+   public static class Delta {
+      private final int partitionId;
+      private final Set<String> connected;
+      private final Set<String> disconnected;
+
+      Delta(int partitionId, Set<String> connected, Set<String> disconnected) {
+         this.partitionId = partitionId;
+         this.connected = connected;
+         this.disconnected = disconnected;
+      }
+
+      public int getPartitionId() {
+         return partitionId;
+      }
+
+      public Set<String> getConnected() {
+         return connected;
+      }
+
+      public Set<String> getDisconnected() {
+         return disconnected;
+      }
+
+      public boolean isEmpty() {
+         return connected.isEmpty() && disconnected.isEmpty();
+      }
+
+      @Override
+      public String toString() {
+         return "Delta [partitionId=" + partitionId + ", connected=" + connected + ", disconnected=" + disconnected + "]";
+      }
+   }
+
+   private static class Bucket {
+      private final int partitionId;
+      // all guarded by this
+      private final Map<String, PartitionedSession> sessions = new HashMap<>();
+      private Set<String> connected = new HashSet<>();
+      private Set<String> disconnected = new HashSet<>();
+      private long lastSnapshot;
+
+      Bucket(int partitionId) {
+         this.partitionId = partitionId;
+      }
+
+      synchronized int size() {
+         return sessions.size();
+      }
+
+      synchronized void add(String protocolAddress, PartitionedSession session) {
+         sessions.put(protocolAddress, session);
+         disconnected.remove(protocolAddress);
+         connected.add(protocolAddress);
+      }
+
+      synchronized boolean remove(String protocolAddress, PartitionedSession session) {
+         // a reconnect may have already replaced this session
+         if(!sessions.remove(protocolAddress, session)) {
+            return false;
+         }
+         connected.remove(protocolAddress);
+         disconnected.add(protocolAddress);
+         return true;
+      }
+
+      synchronized Delta snapshotIfDue(long now, long intervalMs) {
+         if(now - lastSnapshot < intervalMs) {
+            return null;
+         }
+         lastSnapshot = now;
+         Delta snapshot = new Delta(partitionId, ImmutableSet.copyOf(sessions.keySet()), disconnected);
+         connected = new HashSet<>();
+         disconnected = new HashSet<>();
+         return snapshot;
+      }
+
+      synchronized Delta drain() {
+         Delta delta = new Delta(partitionId, connected, disconnected);
+         connected = new HashSet<>();
+         disconnected = new HashSet<>();
+         return delta;
+      }
+   }
+}
@@ -15,37 +15,40 @@
  */
 package com.iris.ipcd.session;
 
-import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Supplier;
-import java.util.stream.Stream;
 
 import javax.annotation.PreDestroy;
 
-import org.eclipse.jdt.annotation.Nullable;
-
+import com.codahale.metrics.Counter;
 import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
 import com.iris.core.platform.IntraServiceMessageBus;
-import com.iris.core.platform.PlatformMessageBus;
 import com.iris.messages.MessageBody;
 import com.iris.messages.PlatformMessage;
 import com.iris.messages.address.Address;
 import com.iris.messages.service.IpcdService;
+import com.iris.metrics.IrisMetricSet;
 import com.iris.metrics.IrisMetrics;
 import com.iris.platform.partition.Partitioner;
 import com.iris.platform.partition.PlatformPartition;
 import com.iris.util.ThreadPoolBuilder;
 import com.netflix.governator.annotations.WarmUp;
 
+/**
+ * Reports the connected ipcd devices to the partition owners.  Every heartbeat
+ * sends the devices which have connected or disconnected since the previous one,
+ * and a rotating set of partitions also get a full snapshot of their connected
+ * devices once every {@code ipcd.heartbeat.full.intervalms}, which is what keeps
+ * the devices from timing out in the registry.
+ */
 @Singleton
 public class SessionHeartBeater {
 
@@ -55,22 +58,30 @@ public class SessionHeartBeater {
    private long heartbeatIntervalMs = TimeUnit.SECONDS.toMillis(1);
    @Inject(optional = true) @Named("ipcd.heartbeat.partitions.per.heartbeat")
    private int partitionsPerHeartbeat = 4;
+   /**
+    * The minimum time between full snapshots of a partition, this must be
+    * well under the registry's offline timeout.
+    */
+   @Inject(optional = true) @Named("ipcd.heartbeat.full.intervalms")
+   private long fullIntervalMs = TimeUnit.MINUTES.toMillis(2);
 
-   private final Supplier<Stream<PartitionedSession>> sessionSupplier;
+   private final PartitionedSessionIndex sessions;
 
    private final Partitioner partitioner;
    private final IntraServiceMessageBus intraServiceBus;
    private final ScheduledExecutorService executor;
    private final AtomicInteger nextHeartbeatPartition = new AtomicInteger(0);
    private final Timer heartbeatTimer;
+   private final Counter fullCounter;
+   private final Counter deltaCounter;
 
    @Inject
    public SessionHeartBeater(
       Partitioner partitioner,
       IntraServiceMessageBus intraServiceBus,
-      Supplier<Stream<PartitionedSession>> sessionSupplier
+      PartitionedSessionIndex sessions
    ) {
-      this.sessionSupplier = sessionSupplier;
+      this.sessions = sessions;
       this.partitioner = partitioner;
       this.intraServiceBus = intraServiceBus;
       this.executor = Executors
@@ -80,7 +91,10 @@ public class SessionHeartBeater {
                .setNameFormat("ipcd-session-heartbeat")
                .build()
          );
-      this.heartbeatTimer = IrisMetrics.metrics("bridge.ipcd").timer("heartbeat");
+      IrisMetricSet metrics = IrisMetrics.metrics("bridge.ipcd");
+      this.heartbeatTimer = metrics.timer("heartbeat");
+      this.fullCounter = metrics.counter("heartbeat.full");
+      this.deltaCounter = metrics.counter("heartbeat.delta");
    }
 
    @WarmUp
@@ -95,51 +109,43 @@ public class SessionHeartBeater {
 
    public void heartbeat() {
       try(Timer.Context timer = heartbeatTimer.time()) {
-         Map<PlatformPartition, Set<String>> connectedDevices = new LinkedHashMap<>(2 * partitionsPerHeartbeat);
+         long now = System.currentTimeMillis();
          int offset = nextHeartbeatPartition.getAndAdd(partitionsPerHeartbeat);
          for(int i=0; i<partitionsPerHeartbeat; i++) {
-            connectedDevices.put(
-               partitioner.getPartitionById(Math.floorMod(offset + i, partitioner.getPartitionCount())),
-               new HashSet<>()
-            );
+            PlatformPartition partition = partitioner.getPartitionById(Math.floorMod(offset + i, partitioner.getPartitionCount()));
+            PartitionedSessionIndex.Delta snapshot = sessions.snapshotIfDue(partition.getId(), now, fullIntervalMs);
+            if(snapshot != null && !snapshot.isEmpty()) {
+               fullCounter.inc();
+               sendSnapshot(partition, snapshot);
+            }
          }
 
-         sessionSupplier.get().forEach(session -> accumulate(session.getPartition(), session.getClientToken().getRepresentation(), connectedDevices));
-         flush(connectedDevices);
+         for(PartitionedSessionIndex.Delta delta: sessions.drain()) {
+            deltaCounter.inc();
+            sendUpdate(partitioner.getPartitionById(delta.getPartitionId()), delta.getConnected(), delta.getDisconnected());
+         }
       }
    }
 
-   private void accumulate(@Nullable PlatformPartition partition, String protocolAddress, Map<PlatformPartition, Set<String>> connectedDevices) {
-      if(partition == null) {
-         return;
-      }
-
-      Set<String> ipcdDeviceIds = connectedDevices.get(partition);
-      if(ipcdDeviceIds == null) {
-         // this partition isn't being collected on this iteration
+   private void sendSnapshot(PlatformPartition partition, PartitionedSessionIndex.Delta snapshot) {
+      // the pending disconnects go out with the first batch
+      Set<String> disconnected = snapshot.getDisconnected();
+      if(snapshot.getConnected().isEmpty()) {
+         sendUpdate(partition, ImmutableSet.of(), disconnected);
          return;
       }
-
-      ipcdDeviceIds.add(protocolAddress);
-      if(ipcdDeviceIds.size() > batchSize) {
-         connectedDevices.put(partition, new HashSet<>());
-         sendUpdate(partition, ipcdDeviceIds);
-      }
-   }
-
-   private void flush(Map<PlatformPartition, Set<String>> connectedDevices) {
-      for(Map.Entry<PlatformPartition, Set<String>> partitionAndDevices: connectedDevices.entrySet()) {
-         if(!partitionAndDevices.getValue().isEmpty()) {
-            sendUpdate(partitionAndDevices.getKey(), partitionAndDevices.getValue());
-         }
+      for(Iterable<String> batch: Iterables.partition(snapshot.getConnected(), batchSize)) {
+         sendUpdate(partition, ImmutableSet.copyOf(batch), disconnected);
+         disconnected = ImmutableSet.of();
       }
    }
 
-   private void sendUpdate(PlatformPartition partition, Set<String> devices) {
+   private void sendUpdate(PlatformPartition partition, Set<String> connected, Set<String> disconnected) {
 
       MessageBody payload = IpcdService.DeviceHeartBeatEvent.builder()
          .withPartitionId(partition.getId())
-         .withConnectedDevices(devices)
+         .withConnectedDevices(connected)
+         .withDisconnectedDevices(disconnected)
          .build();
 
       PlatformMessage message = PlatformMessage.buildMessage(
@@ -153,4 +159,3 @@ public class SessionHeartBeater {
       intraServiceBus.send(partition, message);
    }
 }
-
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.ipcd.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.iris.platform.partition.DefaultPartition;
+import com.iris.platform.partition.PlatformPartition;
+
+public class TestPartitionedSessionIndex {
+   private static final long INTERVAL_MS = 1000;
+
+   private final PartitionedSessionIndex index = new PartitionedSessionIndex();
+   private final Map<PartitionedSession, PlatformPartition> partitions = new HashMap<>();
+
+   protected PartitionedSession session(String protocolAddress, Integer partitionId) {
+      PartitionedSession session = EasyMock.createMock(PartitionedSession.class);
+      EasyMock.expect(session.getClientToken()).andReturn(IpcdClientToken.fromProtocolAddress(protocolAddress)).anyTimes();
+      EasyMock.expect(session.getPartition()).andAnswer(() -> partitions.get(session)).anyTimes();
+      EasyMock.replay(session);
+      move(session, partitionId);
+      return session;
+   }
+
+   protected void move(PartitionedSession session, Integer partitionId) {
+      partitions.put(session, partitionId == null ? null : new DefaultPartition(partitionId));
+   }
+
+   protected void assertDelta(PartitionedSessionIndex.Delta delta, int partitionId, ImmutableSet<String> connected, ImmutableSet<String> disconnected) {
+      assertEquals(partitionId, delta.getPartitionId());
+      assertEquals(connected, delta.getConnected());
+      assertEquals(disconnected, delta.getDisconnected());
+   }
+
+   @Test
+   public void testUpdateIndexesByPartition() {
+      index.update(session("IPCD:a", 1));
+      index.update(session("IPCD:b", 1));
+      index.update(session("IPCD:c", 2));
+
+      assertEquals(3, index.size());
+      assertEquals(2, index.size(1));
+      assertEquals(1, index.size(2));
+      assertEquals(0, index.size(3));
+
+      List<PartitionedSessionIndex.Delta> deltas = index.drain();
+      assertEquals(2, deltas.size());
+      for(PartitionedSessionIndex.Delta delta: deltas) {
+         if(delta.getPartitionId() == 1) {
+            assertDelta(delta, 1, ImmutableSet.of("IPCD:a", "IPCD:b"), ImmutableSet.of());
+         }
+         else {
+            assertDelta(delta, 2, ImmutableSet.of("IPCD:c"), ImmutableSet.of());
+         }
+      }
+      assertEquals(0, index.drain().size());
+   }
+
+   @Test
+   public void testUpdateWithoutPartitionIsNotIndexed() {
+      PartitionedSession session = session("IPCD:a", null);
+      index.update(session);
+
+      assertEquals(0, index.size());
+      assertEquals(0, index.drain().size());
+   }
+
+   @Test
+   public void testMovePartition() {
+      PartitionedSession session = session("IPCD:a", 1);
+      index.update(session);
+      index.drain();
+
+      move(session, 2);
+      index.update(session);
+
+      assertEquals(0, index.size(1));
+      assertEquals(1, index.size(2));
+      List<PartitionedSessionIndex.Delta> deltas = index.drain();
+      assertEquals(2, deltas.size());
+      for(PartitionedSessionIndex.Delta delta: deltas) {
+         if(delta.getPartitionId() == 1) {
+            assertDelta(delta, 1, ImmutableSet.of(), ImmutableSet.of("IPCD:a"));
+         }
+         else {
+            assertDelta(delta, 2, ImmutableSet.of("IPCD:a"), ImmutableSet.of());
+         }
+      }
+   }
+
+   @Test
+   public void testRemove() {
+      PartitionedSession session = session("IPCD:a", 1);
+      index.update(session);
+      index.drain();
+
+      index.remove(session);
+      assertEquals(0, index.size());
+      assertEquals(0, index.size(1));
+      List<PartitionedSessionIndex.Delta> deltas = index.drain();
+      assertEquals(1, deltas.size());
+      assertDelta(deltas.get(0), 1, ImmutableSet.of(), ImmutableSet.of("IPCD:a"));
+
+      // already removed
+      index.remove(session);
+      assertEquals(0, index.drain().size());
+   }
+
+   @Test
+   public void testRemoveStaleSessionAfterReconnect() {
+      PartitionedSession original = session("IPCD:a", 1);
+      PartitionedSession reconnected = session("IPCD:a", 1);
+      index.update(original);
+      index.update(reconnected);
+      index.drain();
+
+      // the old socket closing must not disconnect the new one
+      index.remove(original);
+      assertEquals(1, index.size(1));
+      assertEquals(0, index.drain().size());
+   }
+
+   @Test
+   public void testSnapshotIfDue() {
+      index.update(session("IPCD:a", 1));
+      index.update(session("IPCD:b", 1));
+
+      PartitionedSessionIndex.Delta snapshot = index.snapshotIfDue(1, INTERVAL_MS, INTERVAL_MS);
+      assertDelta(snapshot, 1, ImmutableSet.of("IPCD:a", "IPCD:b"), ImmutableSet.of());
+      // the snapshot supersedes the pending connects
+      assertEquals(0, index.drain().size());
+
+      assertNull(index.snapshotIfDue(1, INTERVAL_MS + 1, INTERVAL_MS));
+      assertDelta(index.snapshotIfDue(1, 2 * INTERVAL_MS, INTERVAL_MS), 1, ImmutableSet.of("IPCD:a", "IPCD:b"), ImmutableSet.of());
+      assertNull(index.snapshotIfDue(2, 2 * INTERVAL_MS, INTERVAL_MS));
+   }
+
+   @Test
+   public void testSnapshotIncludesPendingDisconnects() {
+      PartitionedSession a = session("IPCD:a", 1);
+      PartitionedSession b = session("IPCD:b", 1);
+      index.update(a);
+      index.update(b);
+      index.drain();
+
+      index.remove(b);
+      index.update(session("IPCD:c", 1));
+
+      PartitionedSessionIndex.Delta snapshot = index.snapshotIfDue(1, INTERVAL_MS, INTERVAL_MS);
+      assertDelta(snapshot, 1, ImmutableSet.of("IPCD:a", "IPCD:c"), ImmutableSet.of("IPCD:b"));
+      assertEquals(0, index.drain().size());
+   }
+}
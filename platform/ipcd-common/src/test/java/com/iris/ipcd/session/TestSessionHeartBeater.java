@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 Arcus Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.iris.ipcd.session;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.iris.core.platform.IntraServiceMessageBus;
+import com.iris.messages.MessageBody;
+import com.iris.messages.PlatformMessage;
+import com.iris.messages.service.IpcdService.DeviceHeartBeatEvent;
+import com.iris.platform.partition.DefaultPartition;
+import com.iris.platform.partition.PlatformPartition;
+import com.iris.platform.partition.Partitioner;
+
+public class TestSessionHeartBeater {
+   // fewer than ipcd.heartbeat.partitions.per.heartbeat so every heartbeat covers them all
+   private static final int PARTITIONS = 4;
+
+   private Partitioner partitioner;
+   private IntraServiceMessageBus bus;
+   private Capture<PlatformMessage> sent;
+   private PartitionedSessionIndex index;
+   private SessionHeartBeater heartbeater;
+
+   @Before
+   public void setUp() {
+      partitioner = EasyMock.createMock(Partitioner.class);
+      EasyMock.expect(partitioner.getPartitionCount()).andReturn(PARTITIONS).anyTimes();
+      EasyMock.expect(partitioner.getMemberId()).andReturn(1).anyTimes();
+      for(int i = 0; i < PARTITIONS; i++) {
+         EasyMock.expect(partitioner.getPartitionById(i)).andReturn(new DefaultPartition(i)).anyTimes();
+      }
+
+      sent = EasyMock.newCapture(CaptureType.ALL);
+      bus = EasyMock.createMock(IntraServiceMessageBus.class);
+      EasyMock
+         .expect(bus.send(EasyMock.anyObject(PlatformPartition.class), EasyMock.capture(sent)))
+         .andReturn(Futures.immediateFuture(null))
+         .anyTimes();
+      EasyMock.replay(partitioner, bus);
+
+      index = new PartitionedSessionIndex();
+      heartbeater = new SessionHeartBeater(partitioner, bus, index);
+   }
+
+   protected PartitionedSession session(String protocolAddress, int partitionId) {
+      PartitionedSession session = EasyMock.createMock(PartitionedSession.class);
+      EasyMock.expect(session.getClientToken()).andReturn(IpcdClientToken.fromProtocolAddress(protocolAddress)).anyTimes();
+      EasyMock.expect(session.getPartition()).andReturn(new DefaultPartition(partitionId)).anyTimes();
+      EasyMock.replay(session);
+      return session;
+   }
+
+   protected Map<Integer, MessageBody> heartbeat() {
+      sent.reset();
+      heartbeater.heartbeat();
+      Map<Integer, MessageBody> bodies = new HashMap<>();
+      for(PlatformMessage message: sent.getValues()) {
+         MessageBody body = message.getValue();
+         assertEquals(DeviceHeartBeatEvent.NAME, body.getMessageType());
+         bodies.put(DeviceHeartBeatEvent.getPartitionId(body), body);
+      }
+      assertEquals("more than one heartbeat per partition", sent.getValues().size(), bodies.size());
+      return bodies;
+   }
+
+   protected void assertHeartbeat(MessageBody body, Set<String> connected, Set<String> disconnected) {
+      assertEquals(connected, ImmutableSet.copyOf(DeviceHeartBeatEvent.getConnectedDevices(body)));
+      Set<String> actual = DeviceHeartBeatEvent.getDisconnectedDevices(body);
+      assertEquals(disconnected, actual == null ? ImmutableSet.of() : ImmutableSet.copyOf(actual));
+   }
+
+   @Test
+   public void testNothingConnected() {
+      assertEquals(0, heartbeat().size());
+   }
+
+   @Test
+   public void testFullThenDelta() {
+      PartitionedSession b = session("IPCD:b", 1);
+      index.update(session("IPCD:a", 0));
+      index.update(b);
+
+      // the first heartbeat is always a full snapshot, which supersedes the connects
+      Map<Integer, MessageBody> full = heartbeat();
+      assertEquals(2, full.size());
+      assertHeartbeat(full.get(0), ImmutableSet.of("IPCD:a"), ImmutableSet.of());
+      assertHeartbeat(full.get(1), ImmutableSet.of("IPCD:b"), ImmutableSet.of());
+
+      // nothing changed and the next snapshot isn't due
+      assertEquals(0, heartbeat().size());
+
+      index.update(session("IPCD:c", 0));
+      index.remove(b);
+      Map<Integer, MessageBody> delta = heartbeat();
+      assertEquals(2, delta.size());
+      assertHeartbeat(delta.get(0), ImmutableSet.of("IPCD:c"), ImmutableSet.of());
+      assertHeartbeat(delta.get(1), ImmutableSet.of(), ImmutableSet.of("IPCD:b"));
+   }
+
+   @Test
+   public void testSnapshotCarriesPendingDisconnects() {
+      PartitionedSession b = session("IPCD:b", 0);
+      index.update(session("IPCD:a", 0));
+      index.update(b);
+      // drained before any snapshot has been taken, so the next heartbeat is still a full one
+      index.drain();
+      index.remove(b);
+
+      Map<Integer, MessageBody> full = heartbeat();
+      assertEquals(1, full.size());
+      assertHeartbeat(full.get(0), ImmutableSet.of("IPCD:a"), ImmutableSet.of("IPCD:b"));
+   }
+
+   @Test
+   public void testSnapshotOfEmptyPartitionWithDisconnects() {
+      PartitionedSession a = session("IPCD:a", 2);
+      index.update(a);
+      index.drain();
+      index.remove(a);
+
+      Map<Integer, MessageBody> full = heartbeat();
+      assertEquals(1, full.size());
+      assertHeartbeat(full.get(2), ImmutableSet.of(), ImmutableSet.of("IPCD:a"));
+   }
+}